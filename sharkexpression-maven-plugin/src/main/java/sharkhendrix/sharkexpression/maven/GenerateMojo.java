@@ -0,0 +1,216 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.maven;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import sharkhendrix.sharkexpression.InvalidExpressionSyntaxException;
+import sharkhendrix.sharkexpression.codegen.JavaSourceGenerator;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.token.Function;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Precompile expression files into Java classes, so that expressions are not parsed at runtime.
+ *
+ * <p>Each {@code <ClassName>.properties} file of the source directory holds {@code name = expression} entries,
+ * and produces the class {@code <packageName>.<ClassName>} with one static factory method per expression,
+ * taking the runtime {@link Grammar}.
+ *
+ * <p>Expressions are parsed with a default Grammar, completed by the declared variables and functions.
+ * Their runtime implementations are resolved by name from the Grammar given to the factory methods,
+ * so they are never simplified at build time.
+ */
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true)
+public class GenerateMojo extends AbstractMojo {
+
+    private static final String EXTENSION = ".properties";
+
+    @Parameter(defaultValue = "${project.basedir}/src/main/expressions")
+    private File sourceDirectory;
+
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/sharkexpression")
+    private File outputDirectory;
+
+    @Parameter(required = true)
+    private String packageName;
+
+    /**
+     * Names of the variables used by the expressions.
+     */
+    @Parameter
+    private List<String> variables = new ArrayList<>();
+
+    /**
+     * Functions used by the expressions, in the form {@code name:numArgs}.
+     */
+    @Parameter
+    private List<String> functions = new ArrayList<>();
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        project.addCompileSourceRoot(outputDirectory.getPath());
+        File[] files = sourceDirectory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null || files.length == 0) {
+            getLog().info("No expression file found in " + sourceDirectory);
+            return;
+        }
+        Arrays.sort(files);
+        JavaSourceGenerator generator = new JavaSourceGenerator(buildTimeGrammar());
+        Path packageDirectory = outputDirectory.toPath().resolve(packageName.replace('.', File.separatorChar));
+        try {
+            Files.createDirectories(packageDirectory);
+            for (File file : files) {
+                String className = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+                String source;
+                try {
+                    source = generator.generate(packageName, className, readExpressions(file));
+                } catch (InvalidExpressionSyntaxException | IllegalArgumentException e) {
+                    throw new MojoExecutionException(file + ": " + e.getMessage(), e);
+                }
+                Files.write(packageDirectory.resolve(className + ".java"), source.getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to generate expression classes", e);
+        }
+        getLog().info("Generated " + files.length + " expression classes to " + outputDirectory);
+    }
+
+    private Map<String, String> readExpressions(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, String> expressions = new TreeMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            expressions.put(name, properties.getProperty(name));
+        }
+        return expressions;
+    }
+
+    private Grammar buildTimeGrammar() throws MojoExecutionException {
+        Variables buildTimeVariables = new Variables();
+        for (String variable : variables) {
+            buildTimeVariables.add(variable.trim(), () -> Float.NaN);
+        }
+        Grammar grammar = Grammar.withDefault(buildTimeVariables);
+        for (String function : functions) {
+            int separator = function.lastIndexOf(':');
+            if (separator == -1) {
+                throw new MojoExecutionException("Invalid function declaration, expected name:numArgs: " + function);
+            }
+            int numArgs;
+            try {
+                numArgs = Integer.parseInt(function.substring(separator + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new MojoExecutionException("Invalid function declaration, expected name:numArgs: " + function, e);
+            }
+            if (numArgs < 0) {
+                throw new MojoExecutionException("Invalid function declaration, negative numArgs: " + function);
+            }
+            grammar.functions().add(function.substring(0, separator).trim(), placeholderFunction(numArgs));
+        }
+        return grammar;
+    }
+
+    private static Function placeholderFunction(int numArgs) {
+        switch (numArgs) {
+            case 0:
+                return (Function.NoArgs) () -> Float.NaN;
+            case 1:
+                return new Function.OneArg() {
+                    @Override
+                    public float compute(float arg) {
+                        return Float.NaN;
+                    }
+
+                    @Override
+                    public boolean allowsSimplification() {
+                        return false;
+                    }
+                };
+            case 2:
+                return new Function.TwoArgs() {
+                    @Override
+                    public float compute(float arg1, float arg2) {
+                        return Float.NaN;
+                    }
+
+                    @Override
+                    public boolean allowsSimplification() {
+                        return false;
+                    }
+                };
+            case 3:
+                return new Function.ThreeArgs() {
+                    @Override
+                    public float compute(float arg1, float arg2, float arg3) {
+                        return Float.NaN;
+                    }
+
+                    @Override
+                    public boolean allowsSimplification() {
+                        return false;
+                    }
+                };
+            case 4:
+                return new Function.FourArgs() {
+                    @Override
+                    public float compute(float arg1, float arg2, float arg3, float arg4) {
+                        return Float.NaN;
+                    }
+
+                    @Override
+                    public boolean allowsSimplification() {
+                        return false;
+                    }
+                };
+            default:
+                return new Function.NArgs() {
+                    @Override
+                    public float compute(float... args) {
+                        return Float.NaN;
+                    }
+
+                    @Override
+                    public int numArgs() {
+                        return numArgs;
+                    }
+
+                    @Override
+                    public boolean allowsSimplification() {
+                        return false;
+                    }
+                };
+        }
+    }
+}
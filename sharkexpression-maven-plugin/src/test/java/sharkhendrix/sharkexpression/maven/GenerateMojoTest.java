@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.maven;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class GenerateMojoTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void generateTest() throws Exception {
+        writeExpressions("Damage.properties", "base = strength * 2 + bonus(level)\ncrit = random() < 0.1 ? 2 : 1\n");
+        MavenProject project = new MavenProject();
+        GenerateMojo mojo = mojo(project, Arrays.asList("strength", "level"), Arrays.asList("bonus:1", "random:0"));
+        mojo.execute();
+
+        Path generated = dir.resolve("out/com/game/Damage.java");
+        String source = new String(Files.readAllBytes(generated), StandardCharsets.UTF_8);
+        Assertions.assertTrue(source.contains("package com.game;"));
+        Assertions.assertTrue(source.contains("public static Expression base(Grammar grammar)"));
+        Assertions.assertTrue(source.contains("public static Expression crit(Grammar grammar)"));
+        Assertions.assertEquals(Collections.singletonList(dir.resolve("out").toString()),
+                project.getCompileSourceRoots());
+    }
+
+    @Test
+    void noExpressionFileTest() throws Exception {
+        mojo(new MavenProject(), Collections.emptyList(), Collections.emptyList()).execute();
+        Assertions.assertFalse(Files.exists(dir.resolve("out/com/game")));
+    }
+
+    @Test
+    void invalidExpressionTest() throws Exception {
+        writeExpressions("Invalid.properties", "e = x +\n");
+        GenerateMojo mojo = mojo(new MavenProject(), Collections.singletonList("x"), Collections.emptyList());
+        Assertions.assertThrows(MojoExecutionException.class, mojo::execute);
+    }
+
+    @Test
+    void invalidFunctionDeclarationTest() throws Exception {
+        writeExpressions("Functions.properties", "e = f(1)\n");
+        for (String function : Arrays.asList("f", "f:one", "f:-1")) {
+            GenerateMojo mojo = mojo(new MavenProject(), Collections.emptyList(), Collections.singletonList(function));
+            Assertions.assertThrows(MojoExecutionException.class, mojo::execute, function);
+        }
+    }
+
+    private void writeExpressions(String fileName, String content) throws Exception {
+        Path sourceDirectory = dir.resolve("expressions");
+        Files.createDirectories(sourceDirectory);
+        Files.write(sourceDirectory.resolve(fileName), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private GenerateMojo mojo(MavenProject project, List<String> variables, List<String> functions)
+            throws Exception {
+        GenerateMojo mojo = new GenerateMojo();
+        setParameter(mojo, "sourceDirectory", dir.resolve("expressions").toFile());
+        setParameter(mojo, "outputDirectory", new File(dir.resolve("out").toString()));
+        setParameter(mojo, "packageName", "com.game");
+        setParameter(mojo, "variables", variables);
+        setParameter(mojo, "functions", functions);
+        setParameter(mojo, "project", project);
+        return mojo;
+    }
+
+    private static void setParameter(GenerateMojo mojo, String name, Object value) throws Exception {
+        Field field = GenerateMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+}
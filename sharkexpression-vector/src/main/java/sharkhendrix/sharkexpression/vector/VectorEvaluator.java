@@ -0,0 +1,274 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.vector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotRelease;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultFunctions;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Column-at-a-time evaluation of postfix tokens, each column being processed by vector lanes.
+ * The remaining elements of a column that do not fill a whole vector are computed one by one.
+ */
+class VectorEvaluator {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private static final Map<Token, VectorOperators.Unary> unaryOperations = new IdentityHashMap<>();
+    private static final Map<Token, VectorOperators.Binary> binaryOperations = new IdentityHashMap<>();
+    private static final Map<Token, VectorOperators.Comparison> comparisons = new IdentityHashMap<>();
+
+    static {
+        unaryOperations.put(DefaultOperators.NEGATE, VectorOperators.NEG);
+        unaryOperations.put(DefaultFunctions.ABS, VectorOperators.ABS);
+        unaryOperations.put(DefaultFunctions.SQRT, VectorOperators.SQRT);
+
+        binaryOperations.put(DefaultOperators.PLUS, VectorOperators.ADD);
+        binaryOperations.put(DefaultOperators.MINUS, VectorOperators.SUB);
+        binaryOperations.put(DefaultOperators.MULTIPLY, VectorOperators.MUL);
+        binaryOperations.put(DefaultOperators.DIVIDE, VectorOperators.DIV);
+        binaryOperations.put(DefaultFunctions.MIN, VectorOperators.MIN);
+        binaryOperations.put(DefaultFunctions.MAX, VectorOperators.MAX);
+
+        comparisons.put(DefaultOperators.LT, VectorOperators.LT);
+        comparisons.put(DefaultOperators.LTE, VectorOperators.LE);
+        comparisons.put(DefaultOperators.GT, VectorOperators.GT);
+        comparisons.put(DefaultOperators.GTE, VectorOperators.GE);
+        comparisons.put(DefaultOperators.EQUAL_TO, VectorOperators.EQ);
+        comparisons.put(DefaultOperators.NOT_EQUAL_TO, VectorOperators.NE);
+    }
+
+    /**
+     * Rows are evaluated by blocks, so that the working columns remain in the CPU cache.
+     * Only the last block may have elements that do not fill a whole vector.
+     */
+    private static final int BLOCK_SIZE = 1024;
+
+    private final float[][] variableColumns;
+    private final float[][] stack;
+    private final Deque<float[]> freeColumns = new ArrayDeque<>();
+    private int size;
+    private int vectorBound;
+
+    VectorEvaluator(float[][] variableColumns, int maxStackSize) {
+        this.variableColumns = variableColumns;
+        stack = new float[maxStackSize][];
+    }
+
+    void evaluate(Token[] tokens, float[] out, int from, int to) {
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            evaluateBlock(tokens, out, start, Math.min(BLOCK_SIZE, to - start));
+        }
+    }
+
+    private void evaluateBlock(Token[] tokens, float[] out, int start, int n) {
+        vectorBound = SPECIES.loopBound(n);
+        for (Token token : tokens) {
+            if (token instanceof IndexedVariable) {
+                float[] column = newColumn();
+                System.arraycopy(variableColumn(((IndexedVariable) token).getIndex(), start + n), start, column, 0, n);
+                push(column);
+            } else if (token instanceof SlotLoad) {
+                float[] column = newColumn();
+                System.arraycopy(stack[size - 1 - ((SlotLoad) token).getDepth()], 0, column, 0, n);
+                push(column);
+            } else if (token instanceof SlotRelease) {
+                float[] result = stack[--size];
+                for (int i = 1; i < token.numArgs(); i++) {
+                    freeColumns.push(stack[--size]);
+                }
+                push(result);
+            } else if (token instanceof ConstantNumber) {
+                float[] column = newColumn();
+                Arrays.fill(column, 0, n, ((ConstantNumber) token).getValue());
+                push(column);
+            } else if (token instanceof Number) {
+                Number number = (Number) token;
+                float[] column = newColumn();
+                for (int i = 0; i < n; i++) {
+                    column[i] = number.getValue();
+                }
+                push(column);
+            } else {
+                apply(token, n);
+            }
+        }
+        if (size == 0) {
+            Arrays.fill(out, start, start + n, Float.NaN);
+        } else {
+            System.arraycopy(stack[size - 1], 0, out, start, n);
+        }
+        while (size > 0) {
+            freeColumns.push(stack[--size]);
+        }
+    }
+
+    private void apply(Token token, int n) {
+        int numArgs = token.numArgs();
+        float[][] args = new float[numArgs][];
+        for (int i = numArgs - 1; i >= 0; i--) {
+            if (size == 0) {
+                float[] column = newColumn();
+                Arrays.fill(column, 0, n, Float.NaN);
+                args[i] = column;
+            } else {
+                args[i] = stack[--size];
+            }
+        }
+        float[] result = numArgs > 0 ? args[0] : newColumn();
+        int scalarStart = computeVectors(token, args, result);
+        computeScalars(token, args, result, scalarStart, n);
+        for (int i = 1; i < numArgs; i++) {
+            freeColumns.push(args[i]);
+        }
+        push(result);
+    }
+
+    /**
+     * Compute the vectorizable part of the columns.
+     *
+     * @return the index of the first element left to compute
+     */
+    private int computeVectors(Token token, float[][] args, float[] r) {
+        int step = SPECIES.length();
+        int i = 0;
+        if (args.length == 1) {
+            float[] a = args[0];
+            VectorOperators.Unary operation = unaryOperations.get(token);
+            if (operation != null) {
+                for (; i < vectorBound; i += step) {
+                    FloatVector.fromArray(SPECIES, a, i).lanewise(operation).intoArray(r, i);
+                }
+            } else if (token == DefaultOperators.NOT) {
+                for (; i < vectorBound; i += step) {
+                    toFloats(FloatVector.fromArray(SPECIES, a, i).compare(VectorOperators.EQ, 0)).intoArray(r, i);
+                }
+            }
+        } else if (args.length == 2) {
+            float[] a = args[0];
+            float[] b = args[1];
+            VectorOperators.Binary operation = binaryOperations.get(token);
+            VectorOperators.Comparison comparison = comparisons.get(token);
+            if (operation != null) {
+                for (; i < vectorBound; i += step) {
+                    FloatVector.fromArray(SPECIES, a, i)
+                            .lanewise(operation, FloatVector.fromArray(SPECIES, b, i))
+                            .intoArray(r, i);
+                }
+            } else if (comparison != null) {
+                for (; i < vectorBound; i += step) {
+                    toFloats(FloatVector.fromArray(SPECIES, a, i)
+                            .compare(comparison, FloatVector.fromArray(SPECIES, b, i)))
+                            .intoArray(r, i);
+                }
+            } else if (token == DefaultOperators.AND || token == DefaultOperators.OR) {
+                boolean and = token == DefaultOperators.AND;
+                for (; i < vectorBound; i += step) {
+                    VectorMask<Float> left = FloatVector.fromArray(SPECIES, a, i).compare(VectorOperators.NE, 0);
+                    VectorMask<Float> right = FloatVector.fromArray(SPECIES, b, i).compare(VectorOperators.NE, 0);
+                    toFloats(and ? left.and(right) : left.or(right)).intoArray(r, i);
+                }
+            }
+        } else if (args.length == 3 && token == DefaultOperators.TERNARY_CONDITION) {
+            float[] a = args[0];
+            float[] b = args[1];
+            float[] c = args[2];
+            for (; i < vectorBound; i += step) {
+                VectorMask<Float> condition = FloatVector.fromArray(SPECIES, a, i).compare(VectorOperators.NE, 0);
+                FloatVector.fromArray(SPECIES, c, i)
+                        .blend(FloatVector.fromArray(SPECIES, b, i), condition)
+                        .intoArray(r, i);
+            }
+        }
+        return i;
+    }
+
+    private static FloatVector toFloats(VectorMask<Float> mask) {
+        return FloatVector.zero(SPECIES).blend(1, mask);
+    }
+
+    private void computeScalars(Token token, float[][] args, float[] r, int start, int n) {
+        if (token instanceof UnaryOperator) {
+            UnaryOperator operator = (UnaryOperator) token;
+            for (int i = start; i < n; i++) {
+                r[i] = operator.compute(args[0][i]);
+            }
+        } else if (token instanceof BinaryOperator) {
+            BinaryOperator operator = (BinaryOperator) token;
+            for (int i = start; i < n; i++) {
+                r[i] = operator.compute(args[0][i], args[1][i]);
+            }
+        } else if (token instanceof TernaryOperator) {
+            TernaryOperator operator = (TernaryOperator) token;
+            for (int i = start; i < n; i++) {
+                r[i] = operator.compute(args[0][i], args[1][i], args[2][i]);
+            }
+        } else if (token instanceof Function.OneArg) {
+            Function.OneArg function = (Function.OneArg) token;
+            for (int i = start; i < n; i++) {
+                r[i] = function.compute(args[0][i]);
+            }
+        } else if (token instanceof Function.TwoArgs) {
+            Function.TwoArgs function = (Function.TwoArgs) token;
+            for (int i = start; i < n; i++) {
+                r[i] = function.compute(args[0][i], args[1][i]);
+            }
+        } else {
+            FloatStack stack = new FloatStack(Math.max(args.length, 1));
+            for (int i = start; i < n; i++) {
+                for (float[] arg : args) {
+                    stack.push(arg[i]);
+                }
+                r[i] = token.execute(stack);
+            }
+        }
+    }
+
+    private float[] variableColumn(int index, int end) {
+        if (index >= variableColumns.length) {
+            throw new IllegalArgumentException("Missing variable column " + index);
+        }
+        float[] column = variableColumns[index];
+        if (column.length < end) {
+            throw new IllegalArgumentException("The variable column " + index + " has less than " + end + " values");
+        }
+        return column;
+    }
+
+    private float[] newColumn() {
+        float[] column = freeColumns.poll();
+        return column != null ? column : new float[BLOCK_SIZE];
+    }
+
+    private void push(float[] column) {
+        stack[size++] = column;
+    }
+}
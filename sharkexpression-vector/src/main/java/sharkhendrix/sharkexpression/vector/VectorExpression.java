@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.vector;
+
+import sharkhendrix.sharkexpression.StandaloneExpression;
+import sharkhendrix.sharkexpression.token.Token;
+
+/**
+ * An Expression whose batch evaluation runs over {@code FloatVector} lanes of the Vector API.
+ * Select it with {@code ExpressionFactory.setExpressionConstructor(VectorExpression::new)}.
+ *
+ * <p>Default operators, including the ternary condition as a blend,
+ * and the functions {@code abs}, {@code sqrt}, {@code min} and {@code max} are computed lane-wise.
+ * Other tokens are computed element by element.
+ * Single evaluations are the interpreted ones of {@link StandaloneExpression}, this class is not thread-safe.
+ */
+public class VectorExpression extends StandaloneExpression {
+
+    private final Token[] tokens;
+
+    public VectorExpression(Token[] tokens) {
+        super(tokens);
+        this.tokens = tokens;
+    }
+
+    private VectorExpression(VectorExpression expression) {
+        super(expression);
+        tokens = expression.tokens;
+    }
+
+    @Override
+    public VectorExpression share() {
+        return new VectorExpression(this);
+    }
+
+    @Override
+    public void evaluateBatch(float[][] variableColumns, float[] out, int from, int to) {
+        if (from < 0 || from > to || to > out.length) {
+            throw new IllegalArgumentException("Invalid row range [" + from + ", " + to
+                    + ") for an output array of length " + out.length);
+        }
+        new VectorEvaluator(variableColumns, tokens.length).evaluate(tokens, out, from, to);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.vector;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.ExpressionFactory;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.token.IndexedVariable;
+
+import java.util.Random;
+
+class VectorExpressionTest {
+
+    private static final int COUNT = 2503;
+
+    private static ExpressionFactory factory(boolean vector) {
+        Variables variables = new Variables()
+                .add("x", new IndexedVariable(0))
+                .add("y", new IndexedVariable(1))
+                .add("k", 7);
+        Grammar grammar = Grammar.withDefault(variables);
+        grammar.functions().add("sum3", (a, b, c) -> a + b + c);
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        if (vector) {
+            factory.setExpressionConstructor(VectorExpression::new);
+        }
+        return factory;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "x",
+            "3",
+            "-x + 2 * y - k / 3",
+            "x % y + x ^ 2",
+            "x < y", "x <= y", "x > y", "x >= y", "x == y", "x != y",
+            "!x", "x && y", "x || y",
+            "x > y ? x * 2 : y - 1",
+            "abs(x) + sqrt(abs(y)) + min(x, y) * max(x, y)",
+            "floor(x) + sum3(x, y, k) + cos(y)",
+            "(x + y) * (x - y) / (x * x + 1) + (x > 0 ? x + y : x - y) * -(x + y)",
+            "sqrt(x * x + y * y) / (1 + sqrt(x * x + y * y))"
+    })
+    void vectorMatchesColumnar(String expressionStr) {
+        Random random = new Random(42);
+        float[][] columns = new float[2][COUNT];
+        for (float[] column : columns) {
+            for (int i = 0; i < COUNT; i++) {
+                switch (random.nextInt(10)) {
+                    case 0:
+                        column[i] = 0;
+                        break;
+                    case 1:
+                        column[i] = Float.NaN;
+                        break;
+                    case 2:
+                        column[i] = random.nextInt(4);
+                        break;
+                    default:
+                        column[i] = random.nextFloat() * 20 - 10;
+                }
+            }
+        }
+        float[] expected = new float[COUNT];
+        factory(false).parse(expressionStr).evaluateBatch(columns, expected, COUNT);
+
+        Expression expression = factory(true).parse(expressionStr);
+        Assertions.assertInstanceOf(VectorExpression.class, expression);
+        float[] actual = new float[COUNT];
+        expression.evaluateBatch(columns, actual, COUNT);
+
+        Assertions.assertArrayEquals(expected, actual, expressionStr);
+
+        actual = new float[COUNT];
+        expression.evaluateBatchParallel(columns, actual, COUNT);
+        Assertions.assertArrayEquals(expected, actual, expressionStr);
+    }
+
+    @Test
+    void singleEvaluationTest() {
+        Expression expression = new ExpressionFactory(new Variables().add("k", 7)).parse("k * 2");
+        Assertions.assertEquals(14, expression.evaluate());
+        Expression vectorExpression = factory(true).parse("k * 2");
+        Assertions.assertEquals(14, vectorExpression.evaluate());
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultFunctions;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.IntegerPower;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Optional optimization stage applying algebraic identities and strength reductions
+ * to the default operators and functions, like {@code x * 1} into {@code x}, {@code --x} into {@code x},
+ * or {@code x ^ 2} into an {@link IntegerPower} multiplying {@code x} by itself instead of calling {@link Math#pow}.
+ * The rewrites are gated by a {@link Safety} level, so that the IEEE semantics of NaN, infinities
+ * and signed zeros can be kept. Operators and functions with constant arguments only, produced by the rewrites,
+ * are computed.
+ * <p>The input tokens should be in postfix notation, this algorithm has a O(n) complexity in usual expressions.
+ *
+ * <p>Usage: {@code factory.setAlgebraicSimplification(AlgebraicSimplifier.Safety.STRICT)}.
+ */
+public class AlgebraicSimplifier implements TokenPipeline {
+
+    /**
+     * The rewrites allowed by an AlgebraicSimplifier, each level allowing the rewrites of the previous ones.
+     */
+    public enum Safety {
+        /**
+         * Rewrites giving the same results for all operand values, including NaN, infinities and signed zeros:
+         * {@code x * 1}, {@code x / 1}, {@code x - 0}, {@code x ^ 1} into {@code x}, {@code x * -1} into {@code -x},
+         * {@code x ^ 0} into {@code 1}, {@code x ^ 2} into {@code x * x},
+         * and {@code x / c} into {@code x * (1 / c)} when {@code c} is a power of two.
+         */
+        STRICT,
+        /**
+         * Also rewrites whose result may only differ by the sign of a zero: {@code x + 0} into {@code x},
+         * {@code 0 - x} into {@code -x}.
+         */
+        NO_SIGNED_ZEROS,
+        /**
+         * Also rewrites assuming the operands are neither NaN nor infinite: {@code x * 0} and {@code x - x} into 0.
+         */
+        FINITE_MATH,
+        /**
+         * Also rewrites changing the rounding of the results, or the NaN result of negative square roots:
+         * {@code x ^ n} into multiplications for small integers {@code n}, {@code x ^ 0.5} into {@code sqrt(x)},
+         * {@code x / c} into {@code x * (1 / c)}, and {@code sqrt(x) * sqrt(x)} into {@code x}.
+         */
+        RELAXED
+    }
+
+    private final Safety safety;
+
+    /**
+     * Create an AlgebraicSimplifier applying the {@link Safety#STRICT} rewrites.
+     */
+    public AlgebraicSimplifier() {
+        this(Safety.STRICT);
+    }
+
+    /**
+     * @param safety the rewrites to allow
+     */
+    public AlgebraicSimplifier(Safety safety) {
+        this.safety = Objects.requireNonNull(safety);
+    }
+
+    public Safety getSafety() {
+        return safety;
+    }
+
+    @Override
+    public void apply(List<Token> input, List<Token> output) {
+        Pass pass = new Pass(output, safety);
+        for (Token token : input) {
+            pass.add(token);
+        }
+    }
+
+    /**
+     * Rewriting of postfix tokens received one by one.
+     * Each operand on the evaluation stack is tracked with its start in the output.
+     */
+    private static class Pass {
+
+        private final List<Token> output;
+        private final Safety safety;
+        private final FloatStack arguments = new FloatStack();
+        private int[] starts = new int[16];
+        private int size;
+
+        Pass(List<Token> output, Safety safety) {
+            this.output = output;
+            this.safety = safety;
+        }
+
+        void add(Token token) {
+            int numArgs = token.numArgs();
+            if (token instanceof Number) {
+                push(output.size());
+                output.add(token);
+            } else if (numArgs > size) {
+                append(token, size);
+            } else if (!rewrite(token) && !computeConstant(token, numArgs)) {
+                append(token, numArgs);
+            }
+        }
+
+        private boolean rewrite(Token token) {
+            if (token == DefaultOperators.NEGATE) {
+                return rewriteNegate();
+            } else if (token == DefaultOperators.MULTIPLY) {
+                return rewriteMultiply();
+            } else if (token == DefaultOperators.DIVIDE) {
+                return rewriteDivide();
+            } else if (token == DefaultOperators.PLUS) {
+                return rewritePlus();
+            } else if (token == DefaultOperators.MINUS) {
+                return rewriteMinus();
+            } else if (token == DefaultOperators.POW || token == DefaultFunctions.POW) {
+                return rewritePow();
+            }
+            return false;
+        }
+
+        private boolean rewriteNegate() {
+            int last = output.size() - 1;
+            if (output.get(last) == DefaultOperators.NEGATE && last > starts[size - 1]) {
+                // --x
+                output.remove(last);
+                return true;
+            }
+            return false;
+        }
+
+        private boolean rewriteMultiply() {
+            int left = size - 2;
+            int right = size - 1;
+            if (isConstant(right, 1)) {
+                dropRight();
+            } else if (isConstant(left, 1)) {
+                dropLeft();
+            } else if (isConstant(right, -1)) {
+                dropRight();
+                add(DefaultOperators.NEGATE);
+            } else if (isConstant(left, -1)) {
+                dropLeft();
+                add(DefaultOperators.NEGATE);
+            } else if (allows(Safety.FINITE_MATH) && (isConstant(right, 0) || isConstant(left, 0))) {
+                replaceOperands(2, 0);
+            } else if (allows(Safety.RELAXED) && isSquaredSquareRoot(left, right)) {
+                // sqrt(x) * sqrt(x)
+                truncate(starts[right] - 1);
+                size--;
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean rewriteDivide() {
+            int right = size - 1;
+            if (isConstant(right, 1)) {
+                dropRight();
+            } else if (isConstant(right, -1)) {
+                dropRight();
+                add(DefaultOperators.NEGATE);
+            } else if (isConstant(right) && hasExactReciprocal(constantValue(right))
+                    || allows(Safety.RELAXED) && isConstant(right) && Float.isFinite(1 / constantValue(right))) {
+                output.set(starts[right], new ConstantNumber(1 / constantValue(right)));
+                add(DefaultOperators.MULTIPLY);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean rewritePlus() {
+            int left = size - 2;
+            int right = size - 1;
+            if (isZero(right, true)) {
+                dropRight();
+            } else if (isZero(left, true)) {
+                dropLeft();
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean rewriteMinus() {
+            int left = size - 2;
+            int right = size - 1;
+            if (isZero(right, false)) {
+                dropRight();
+            } else if (isZero(left, true)) {
+                // -0 - x == -x for all x, 0 - 0 is 0 instead of -0
+                dropLeft();
+                add(DefaultOperators.NEGATE);
+            } else if (allows(Safety.FINITE_MATH) && haveSameTokens(left, right)) {
+                replaceOperands(2, 0);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean rewritePow() {
+            int right = size - 1;
+            if (!isConstant(right)) {
+                return false;
+            }
+            float exponent = constantValue(right);
+            if (exponent == 1) {
+                dropRight();
+            } else if (exponent == 0) {
+                // pow(x, 0) is 1 even for NaN
+                replaceOperands(2, 1);
+            } else if (exponent == 2
+                    || allows(Safety.RELAXED) && exponent == (int) exponent && Math.abs(exponent) <= IntegerPower.MAX_EXPONENT) {
+                dropRight();
+                output.add(IntegerPower.of((int) exponent));
+            } else if (allows(Safety.RELAXED) && exponent == 0.5f) {
+                dropRight();
+                output.add(DefaultFunctions.SQRT);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean computeConstant(Token token, int numArgs) {
+            if (!token.allowsSimplification()) {
+                return false;
+            }
+            for (int i = size - numArgs; i < size; i++) {
+                if (!isConstant(i)) {
+                    return false;
+                }
+            }
+            arguments.clear();
+            for (int i = size - numArgs; i < size; i++) {
+                arguments.push(constantValue(i));
+            }
+            float value = token.execute(arguments);
+            if (numArgs == 0) {
+                push(output.size());
+                output.add(new ConstantNumber(value));
+            } else {
+                replaceOperands(numArgs, value);
+            }
+            return true;
+        }
+
+        private void append(Token token, int numArgs) {
+            int start = numArgs > 0 ? starts[size - numArgs] : output.size();
+            output.add(token);
+            size -= numArgs;
+            push(start);
+        }
+
+        /**
+         * Replace the given number of top operands by a constant.
+         */
+        private void replaceOperands(int numArgs, float value) {
+            int first = size - numArgs;
+            truncate(starts[first]);
+            output.add(new ConstantNumber(value));
+            size = first + 1;
+        }
+
+        /**
+         * Remove the right operand, the left one becomes the result.
+         */
+        private void dropRight() {
+            truncate(starts[size - 1]);
+            size--;
+        }
+
+        /**
+         * Remove the constant left operand, the right one becomes the result.
+         */
+        private void dropLeft() {
+            output.remove(starts[size - 2]);
+            size--;
+        }
+
+        private void truncate(int length) {
+            while (output.size() > length) {
+                output.remove(output.size() - 1);
+            }
+        }
+
+        private void push(int start) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+            }
+            starts[size++] = start;
+        }
+
+        private boolean allows(Safety level) {
+            return safety.compareTo(level) >= 0;
+        }
+
+        private int end(int operand) {
+            return operand + 1 < size ? starts[operand + 1] : output.size();
+        }
+
+        private boolean isConstant(int operand) {
+            return end(operand) - starts[operand] == 1 && output.get(starts[operand]) instanceof ConstantNumber;
+        }
+
+        private boolean isConstant(int operand, float value) {
+            return isConstant(operand) && constantValue(operand) == value;
+        }
+
+        /**
+         * @param identity true for the zero which is an identity for all values, -0 for + and +0 for -
+         * @return true if the operand is the given zero, or any zero when signed zeros are ignored
+         */
+        private boolean isZero(int operand, boolean identity) {
+            if (!isConstant(operand, 0)) {
+                return false;
+            }
+            boolean negative = Float.floatToRawIntBits(constantValue(operand)) != 0;
+            return negative == identity || allows(Safety.NO_SIGNED_ZEROS);
+        }
+
+        private float constantValue(int operand) {
+            return ((ConstantNumber) output.get(starts[operand])).getValue();
+        }
+
+        /**
+         * @return true if both operands are made of the same tokens, that give the same result each time
+         */
+        private boolean haveSameTokens(int first, int second) {
+            int length = end(first) - starts[first];
+            if (length != end(second) - starts[second]) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                Token token = output.get(starts[first] + i);
+                if (!token.allowsSimplification() || !token.equals(output.get(starts[second] + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isSquaredSquareRoot(int left, int right) {
+            if (output.get(end(left) - 1) != DefaultFunctions.SQRT || output.get(end(right) - 1) != DefaultFunctions.SQRT) {
+                return false;
+            }
+            return haveSameTokens(left, right);
+        }
+
+        /**
+         * @return true if x / c == x * (1 / c) for all x, c being a power of two with a normal reciprocal
+         */
+        private static boolean hasExactReciprocal(float c) {
+            if (c == 0 || !Float.isFinite(c)) {
+                return false;
+            }
+            float reciprocal = 1 / c;
+            return (Float.floatToRawIntBits(c) & 0x7FFFFF) == 0 && Math.getExponent(c) >= Float.MIN_EXPONENT
+                    && Math.abs(reciprocal) >= Float.MIN_NORMAL && Float.isFinite(reciprocal);
+        }
+    }
+}
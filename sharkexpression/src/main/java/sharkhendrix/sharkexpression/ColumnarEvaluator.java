@@ -0,0 +1,237 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotRelease;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultFunctions;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Column-at-a-time evaluation of postfix tokens, see {@link Expression#evaluateBatch(float[][], float[], int)}.
+ * <p>The working stack holds whole columns of a block of rows instead of single values.
+ * Default operators and the simplest default functions are applied as plain loops over float arrays,
+ * that the JIT compiler can vectorize. Other tokens are computed element by element.
+ */
+class ColumnarEvaluator {
+
+    /**
+     * Rows are evaluated by blocks, so that the working columns remain in the CPU cache.
+     */
+    static final int BLOCK_SIZE = 1024;
+
+    private final float[][] variableColumns;
+    private final float[][] stack;
+    private final Deque<float[]> freeColumns = new ArrayDeque<>();
+    private int size;
+
+    ColumnarEvaluator(float[][] variableColumns, int maxStackSize) {
+        this.variableColumns = variableColumns;
+        stack = new float[maxStackSize][];
+    }
+
+    void evaluate(Token[] tokens, float[] out, int from, int to) {
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            evaluateBlock(tokens, out, start, Math.min(BLOCK_SIZE, to - start));
+        }
+    }
+
+    private void evaluateBlock(Token[] tokens, float[] out, int start, int n) {
+        for (Token token : tokens) {
+            if (token instanceof IndexedVariable) {
+                float[] column = newColumn();
+                System.arraycopy(variableColumn(((IndexedVariable) token).getIndex(), start + n), start, column, 0, n);
+                push(column);
+            } else if (token instanceof SlotLoad) {
+                float[] column = newColumn();
+                System.arraycopy(stack[size - 1 - ((SlotLoad) token).getDepth()], 0, column, 0, n);
+                push(column);
+            } else if (token instanceof SlotRelease) {
+                float[] result = stack[--size];
+                for (int i = 1; i < token.numArgs(); i++) {
+                    freeColumns.push(stack[--size]);
+                }
+                push(result);
+            } else if (token instanceof ConstantNumber) {
+                float[] column = newColumn();
+                Arrays.fill(column, 0, n, ((ConstantNumber) token).getValue());
+                push(column);
+            } else if (token instanceof Number) {
+                Number number = (Number) token;
+                float[] column = newColumn();
+                for (int i = 0; i < n; i++) {
+                    column[i] = number.getValue();
+                }
+                push(column);
+            } else {
+                apply(token, n);
+            }
+        }
+        if (size == 0) {
+            Arrays.fill(out, start, start + n, Float.NaN);
+        } else {
+            System.arraycopy(stack[size - 1], 0, out, start, n);
+        }
+        while (size > 0) {
+            freeColumns.push(stack[--size]);
+        }
+    }
+
+    private void apply(Token token, int n) {
+        int numArgs = token.numArgs();
+        float[][] args = new float[numArgs][];
+        for (int i = numArgs - 1; i >= 0; i--) {
+            if (size == 0) {
+                float[] column = newColumn();
+                Arrays.fill(column, 0, n, Float.NaN);
+                args[i] = column;
+            } else {
+                args[i] = stack[--size];
+            }
+        }
+        float[] result = numArgs > 0 ? args[0] : newColumn();
+        compute(token, args, result, n);
+        for (int i = 1; i < numArgs; i++) {
+            freeColumns.push(args[i]);
+        }
+        push(result);
+    }
+
+    private float[] variableColumn(int index, int end) {
+        if (index >= variableColumns.length) {
+            throw new IllegalArgumentException("Missing variable column " + index);
+        }
+        float[] column = variableColumns[index];
+        if (column.length < end) {
+            throw new IllegalArgumentException("The variable column " + index + " has less than " + end + " values");
+        }
+        return column;
+    }
+
+    private float[] newColumn() {
+        float[] column = freeColumns.poll();
+        return column != null ? column : new float[BLOCK_SIZE];
+    }
+
+    private void push(float[] column) {
+        stack[size++] = column;
+    }
+
+    /**
+     * Compute the given token over the argument columns. The result column may be one of the arguments,
+     * as each element is only read before being written at the same index.
+     */
+    private static void compute(Token token, float[][] args, float[] r, int n) {
+        if (args.length == 1) {
+            float[] a = args[0];
+            if (token == DefaultOperators.NEGATE) {
+                for (int i = 0; i < n; i++) r[i] = -a[i];
+            } else if (token == DefaultOperators.NOT) {
+                for (int i = 0; i < n; i++) r[i] = a[i] == 0 ? 1 : 0;
+            } else if (token == DefaultFunctions.ABS) {
+                for (int i = 0; i < n; i++) r[i] = Math.abs(a[i]);
+            } else if (token == DefaultFunctions.SQRT) {
+                for (int i = 0; i < n; i++) r[i] = (float) Math.sqrt(a[i]);
+            } else if (token == DefaultFunctions.FLOOR) {
+                for (int i = 0; i < n; i++) r[i] = (float) Math.floor(a[i]);
+            } else if (token == DefaultFunctions.CEIL) {
+                for (int i = 0; i < n; i++) r[i] = (float) Math.ceil(a[i]);
+            } else if (token instanceof UnaryOperator) {
+                UnaryOperator operator = (UnaryOperator) token;
+                for (int i = 0; i < n; i++) r[i] = operator.compute(a[i]);
+            } else if (token instanceof Function.OneArg) {
+                Function.OneArg function = (Function.OneArg) token;
+                for (int i = 0; i < n; i++) r[i] = function.compute(a[i]);
+            } else {
+                computeGeneric(token, args, r, n);
+            }
+        } else if (args.length == 2) {
+            float[] a = args[0];
+            float[] b = args[1];
+            if (token == DefaultOperators.PLUS) {
+                for (int i = 0; i < n; i++) r[i] = a[i] + b[i];
+            } else if (token == DefaultOperators.MINUS) {
+                for (int i = 0; i < n; i++) r[i] = a[i] - b[i];
+            } else if (token == DefaultOperators.MULTIPLY) {
+                for (int i = 0; i < n; i++) r[i] = a[i] * b[i];
+            } else if (token == DefaultOperators.DIVIDE) {
+                for (int i = 0; i < n; i++) r[i] = a[i] / b[i];
+            } else if (token == DefaultOperators.MODULO) {
+                for (int i = 0; i < n; i++) r[i] = a[i] % b[i];
+            } else if (token == DefaultOperators.LT) {
+                for (int i = 0; i < n; i++) r[i] = a[i] < b[i] ? 1 : 0;
+            } else if (token == DefaultOperators.LTE) {
+                for (int i = 0; i < n; i++) r[i] = a[i] <= b[i] ? 1 : 0;
+            } else if (token == DefaultOperators.GT) {
+                for (int i = 0; i < n; i++) r[i] = a[i] > b[i] ? 1 : 0;
+            } else if (token == DefaultOperators.GTE) {
+                for (int i = 0; i < n; i++) r[i] = a[i] >= b[i] ? 1 : 0;
+            } else if (token == DefaultOperators.EQUAL_TO) {
+                for (int i = 0; i < n; i++) r[i] = a[i] == b[i] ? 1 : 0;
+            } else if (token == DefaultOperators.NOT_EQUAL_TO) {
+                for (int i = 0; i < n; i++) r[i] = a[i] != b[i] ? 1 : 0;
+            } else if (token == DefaultOperators.AND) {
+                for (int i = 0; i < n; i++) r[i] = a[i] != 0 && b[i] != 0 ? 1 : 0;
+            } else if (token == DefaultOperators.OR) {
+                for (int i = 0; i < n; i++) r[i] = a[i] != 0 || b[i] != 0 ? 1 : 0;
+            } else if (token == DefaultFunctions.MIN) {
+                for (int i = 0; i < n; i++) r[i] = Math.min(a[i], b[i]);
+            } else if (token == DefaultFunctions.MAX) {
+                for (int i = 0; i < n; i++) r[i] = Math.max(a[i], b[i]);
+            } else if (token instanceof BinaryOperator) {
+                BinaryOperator operator = (BinaryOperator) token;
+                for (int i = 0; i < n; i++) r[i] = operator.compute(a[i], b[i]);
+            } else if (token instanceof Function.TwoArgs) {
+                Function.TwoArgs function = (Function.TwoArgs) token;
+                for (int i = 0; i < n; i++) r[i] = function.compute(a[i], b[i]);
+            } else {
+                computeGeneric(token, args, r, n);
+            }
+        } else if (args.length == 3) {
+            float[] a = args[0];
+            float[] b = args[1];
+            float[] c = args[2];
+            if (token == DefaultOperators.TERNARY_CONDITION) {
+                for (int i = 0; i < n; i++) r[i] = a[i] != 0 ? b[i] : c[i];
+            } else if (token instanceof TernaryOperator) {
+                TernaryOperator operator = (TernaryOperator) token;
+                for (int i = 0; i < n; i++) r[i] = operator.compute(a[i], b[i], c[i]);
+            } else {
+                computeGeneric(token, args, r, n);
+            }
+        } else {
+            computeGeneric(token, args, r, n);
+        }
+    }
+
+    private static void computeGeneric(Token token, float[][] args, float[] r, int n) {
+        FloatStack stack = new FloatStack(Math.max(args.length, 1));
+        for (int i = 0; i < n; i++) {
+            for (float[] arg : args) {
+                stack.push(arg[i]);
+            }
+            r[i] = token.execute(stack);
+        }
+    }
+}
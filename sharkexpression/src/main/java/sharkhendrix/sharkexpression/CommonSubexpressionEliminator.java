@@ -0,0 +1,276 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.*;
+
+/**
+ * Compute once the sub-expressions repeated in an expression, such as {@code a+b} in
+ * {@code (a+b)*(a+b) + sin(a+b)}.
+ * <p>The repeated sub-expressions are moved to the beginning of the expression, their values stay at the bottom
+ * of the stack as slots during the evaluation. Each occurrence is replaced by a {@link SlotLoad} copying the slot
+ * value to the head of the stack, and a final {@link SlotRelease} removes the slots under the result.
+ * <p>Only sub-expressions made of tokens allowing simplification are merged,
+ * and only when they are computed regardless of the conditions of the default ternary, and, or operators.
+ * Invalid expressions, and expressions without repeated sub-expressions, are left unchanged.
+ * <p>The input tokens should be in postfix notation.
+ */
+public class CommonSubexpressionEliminator implements TokenPipeline {
+
+    /**
+     * Pushes again the value of a slot, found at a fixed depth from the head of the stack.
+     */
+    public static class SlotLoad implements Token {
+
+        private final int depth;
+
+        public SlotLoad(int depth) {
+            this.depth = depth;
+        }
+
+        /**
+         * @return the depth of the slot from the head of the stack, before this token is executed
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        @Override
+        public boolean allowsSimplification() {
+            return false;
+        }
+
+        @Override
+        public float execute(FloatStack output) {
+            return output.peek(depth);
+        }
+
+        @Override
+        public String toString() {
+            return "load(" + depth + ")";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SlotLoad that = (SlotLoad) o;
+            return depth == that.depth;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(depth);
+        }
+    }
+
+    /**
+     * Removes the slots located under the result of the expression.
+     */
+    public static class SlotRelease implements Token {
+
+        private final int slotCount;
+
+        public SlotRelease(int slotCount) {
+            this.slotCount = slotCount;
+        }
+
+        public int getSlotCount() {
+            return slotCount;
+        }
+
+        @Override
+        public int numArgs() {
+            return slotCount + 1;
+        }
+
+        @Override
+        public boolean allowsSimplification() {
+            return false;
+        }
+
+        @Override
+        public float execute(FloatStack output) {
+            float result = output.pop();
+            for (int i = 0; i < slotCount; i++) {
+                output.pop();
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "release(" + slotCount + ")";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SlotRelease that = (SlotRelease) o;
+            return slotCount == that.slotCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(slotCount);
+        }
+    }
+
+    private static class NodeKey {
+        private final Token token;
+        private final int[] children;
+
+        NodeKey(Token token, int[] children) {
+            this.token = token;
+            this.children = children;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof NodeKey)) return false;
+            NodeKey that = (NodeKey) o;
+            return (token instanceof ConstantNumber ? token.equals(that.token) : token == that.token)
+                    && Arrays.equals(children, that.children);
+        }
+
+        @Override
+        public int hashCode() {
+            int tokenHash = token instanceof ConstantNumber ? token.hashCode() : System.identityHashCode(token);
+            return 31 * tokenHash + Arrays.hashCode(children);
+        }
+    }
+
+    @Override
+    public void apply(List<Token> input, List<Token> output) {
+        // Build the graph of the expression, where identical sub-expressions are the same node
+        List<Token> nodeTokens = new ArrayList<>();
+        List<int[]> nodeChildren = new ArrayList<>();
+        Map<NodeKey, Integer> nodes = new HashMap<>();
+        int[] stack = new int[input.size()];
+        int size = 0;
+        for (Token token : input) {
+            int numArgs = token.numArgs();
+            if (numArgs > size) {
+                output.addAll(input);
+                return;
+            }
+            int[] children = Arrays.copyOfRange(stack, size - numArgs, size);
+            size -= numArgs;
+            Integer node = null;
+            NodeKey key = null;
+            if (token.allowsSimplification()) {
+                key = new NodeKey(token, children);
+                node = nodes.get(key);
+            }
+            if (node == null) {
+                node = nodeTokens.size();
+                nodeTokens.add(token);
+                nodeChildren.add(children);
+                if (key != null) {
+                    nodes.put(key, node);
+                }
+            }
+            stack[size++] = node;
+        }
+        if (size != 1) {
+            output.addAll(input);
+            return;
+        }
+        int root = stack[0];
+
+        // A node referenced more than once by the graph is repeated in the expression
+        int nodeCount = nodeTokens.size();
+        int[] references = new int[nodeCount];
+        for (int[] children : nodeChildren) {
+            for (int child : children) {
+                references[child]++;
+            }
+        }
+
+        // Sub-expressions only found in conditional branches are not moved, so they stay conditional
+        boolean[] unconditional = new boolean[nodeCount];
+        unconditional[root] = true;
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            if (unconditional[node]) {
+                int[] children = nodeChildren.get(node);
+                for (int i = 0; i < children.length; i++) {
+                    if (!ConditionalJumps.isConditionalArg(nodeTokens.get(node), i)) {
+                        unconditional[children[i]] = true;
+                    }
+                }
+            }
+        }
+        int[] slots = new int[nodeCount];
+        int slotCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (references[node] > 1 && unconditional[node] && nodeChildren.get(node).length > 0) {
+                slots[node] = ++slotCount;
+            }
+        }
+        if (slotCount == 0) {
+            output.addAll(input);
+            return;
+        }
+
+        // Nodes are created after their children, so slots are defined after the slots they depend on
+        int[] slotDepths = new int[slotCount];
+        int depth = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (slots[node] != 0) {
+                depth = emit(node, true, nodeTokens, nodeChildren, slots, slotDepths, depth, output);
+                slotDepths[slots[node] - 1] = depth - 1;
+            }
+        }
+        emit(root, false, nodeTokens, nodeChildren, slots, slotDepths, depth, output);
+        output.add(new SlotRelease(slotCount));
+    }
+
+    /**
+     * Emit the postfix tokens computing the given node, with a depth-first traversal.
+     *
+     * @return the stack depth after the node is computed
+     */
+    private static int emit(int root, boolean defineSlot, List<Token> nodeTokens, List<int[]> nodeChildren,
+                            int[] slots, int[] slotDepths, int depth, List<Token> output) {
+        // Iterative traversal, expressions can be deep
+        Deque<int[]> pending = new ArrayDeque<>();
+        pending.push(new int[]{root, 0});
+        while (!pending.isEmpty()) {
+            int[] frame = pending.peek();
+            int node = frame[0];
+            int[] children = nodeChildren.get(node);
+            if (slots[node] != 0 && !(defineSlot && node == root)) {
+                pending.pop();
+                output.add(new SlotLoad(depth - 1 - slotDepths[slots[node] - 1]));
+                depth++;
+            } else if (frame[1] < children.length) {
+                pending.push(new int[]{children[frame[1]++], 0});
+            } else {
+                pending.pop();
+                output.add(nodeTokens.get(node));
+                depth += 1 - children.length;
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Lowering of the default ternary condition, {@code &&} and {@code ||} operators into conditional jumps,
+ * so that an interpreted Expression only computes the taken branches.
+ * <pre>
+ * c a b ?:  becomes  c jumpIfZero(L1) a jump(L2) L1: b L2:
+ * a b &amp;&amp;    becomes  a andJump(L1) b toBoolean L1:
+ * a b ||    becomes  a orJump(L1) b toBoolean L1:
+ * </pre>
+ * The condition value is consumed by the jump, so slot loads inside the branches are moved up accordingly.
+ * <p>The jump targets are token indexes of the lowered program, so that other backends can lower them too.
+ */
+public final class ConditionalJumps {
+
+    /**
+     * A token moving the evaluation to a target token index, depending on the stack.
+     * Jumps are not executed as regular tokens.
+     */
+    public abstract static class Jump implements Token {
+
+        int target;
+
+        /**
+         * @return the index of the token where the evaluation continues when jumping
+         */
+        public int getTarget() {
+            return target;
+        }
+
+        /**
+         * @param stack the working stack
+         * @return true if the evaluation continues at the target index
+         */
+        abstract boolean jumps(FloatStack stack);
+
+        @Override
+        public boolean allowsSimplification() {
+            return false;
+        }
+
+        @Override
+        public float execute(FloatStack output) {
+            throw new UnsupportedOperationException("Jumps are not executable tokens");
+        }
+    }
+
+    public static class Goto extends Jump {
+
+        @Override
+        boolean jumps(FloatStack stack) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "jump(" + target + ")";
+        }
+    }
+
+    public static class JumpIfZero extends Jump {
+
+        @Override
+        boolean jumps(FloatStack stack) {
+            return stack.pop() == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "jumpIfZero(" + target + ")";
+        }
+    }
+
+    /**
+     * Leaves 0 and jumps if the left operand is 0, otherwise evaluates the right operand.
+     */
+    public static class AndJump extends Jump {
+
+        @Override
+        boolean jumps(FloatStack stack) {
+            float left = stack.pop();
+            if (left == 0) {
+                stack.push(0);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "andJump(" + target + ")";
+        }
+    }
+
+    /**
+     * Leaves 1 and jumps if the left operand is not 0, otherwise evaluates the right operand.
+     */
+    public static class OrJump extends Jump {
+
+        @Override
+        boolean jumps(FloatStack stack) {
+            float left = stack.pop();
+            if (left != 0) {
+                stack.push(1);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "orJump(" + target + ")";
+        }
+    }
+
+    /**
+     * Converts the right operand of a lowered {@code &&} or {@code ||} operator into 0 or 1.
+     */
+    public static final Token TO_BOOLEAN = new Token() {
+        @Override
+        public int numArgs() {
+            return 1;
+        }
+
+        @Override
+        public float execute(FloatStack output) {
+            return output.pop() != 0 ? 1 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "toBoolean";
+        }
+    };
+
+    private static class Frame {
+        final int node;
+        final int removed;
+        final int[] children;
+        int phase;
+        Jump jump;
+        Jump endJump;
+
+        Frame(int node, int removed, int[] children) {
+            this.node = node;
+            this.removed = removed;
+            this.children = children;
+        }
+    }
+
+    private ConditionalJumps() {
+    }
+
+    /**
+     * Returns true if the argument at the given index of the given token is only conditionally evaluated.
+     */
+    static boolean isConditionalArg(Token token, int argIndex) {
+        return token == DefaultOperators.TERNARY_CONDITION && argIndex > 0
+                || (token == DefaultOperators.AND || token == DefaultOperators.OR) && argIndex == 1;
+    }
+
+    /**
+     * Lower the conditional operators of the given postfix tokens into jumps.
+     *
+     * @param tokens the postfix tokens
+     * @return the tokens with jumps, or the given tokens if there is nothing to lower or if they are invalid
+     */
+    public static Token[] lower(Token[] tokens) {
+        if (!hasConditional(tokens)) {
+            return tokens;
+        }
+        int[] starts = new int[tokens.length];
+        int[] conditionalCounts = new int[tokens.length + 1];
+        int[] stack = new int[tokens.length];
+        int size = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            Token token = tokens[i];
+            int numArgs = token.numArgs();
+            if (numArgs > size || token instanceof Jump) {
+                return tokens;
+            }
+            size -= numArgs;
+            starts[i] = numArgs > 0 ? stack[size] : i;
+            stack[size++] = starts[i];
+            boolean conditional = token == DefaultOperators.TERNARY_CONDITION
+                    || token == DefaultOperators.AND || token == DefaultOperators.OR;
+            conditionalCounts[i + 1] = conditionalCounts[i] + (conditional ? 1 : 0);
+        }
+        if (size != 1 || conditionalCounts[tokens.length] == 0) {
+            return tokens;
+        }
+
+        List<Token> output = new ArrayList<>(tokens.length + conditionalCounts[tokens.length] * 2);
+        Deque<Frame> frames = new ArrayDeque<>();
+        frames.push(new Frame(tokens.length - 1, 0, children(tokens, starts, tokens.length - 1)));
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+            Token token = tokens[frame.node];
+            int[] children = frame.children;
+            if (conditionalCounts[frame.node + 1] == conditionalCounts[starts[frame.node]]) {
+                copy(tokens, starts[frame.node], frame.node, frame.removed, output);
+                frames.pop();
+            } else if (token == DefaultOperators.TERNARY_CONDITION) {
+                switch (frame.phase++) {
+                    case 0:
+                        push(frames, tokens, starts, children[0], frame.removed);
+                        break;
+                    case 1:
+                        frame.jump = add(new JumpIfZero(), output);
+                        push(frames, tokens, starts, children[1], frame.removed + 1);
+                        break;
+                    case 2:
+                        frame.endJump = add(new Goto(), output);
+                        frame.jump.target = output.size();
+                        push(frames, tokens, starts, children[2], frame.removed + 2);
+                        break;
+                    default:
+                        frame.endJump.target = output.size();
+                        frames.pop();
+                }
+            } else if (token == DefaultOperators.AND || token == DefaultOperators.OR) {
+                switch (frame.phase++) {
+                    case 0:
+                        push(frames, tokens, starts, children[0], frame.removed);
+                        break;
+                    case 1:
+                        frame.jump = add(token == DefaultOperators.AND ? new AndJump() : new OrJump(), output);
+                        push(frames, tokens, starts, children[1], frame.removed + 1);
+                        break;
+                    default:
+                        output.add(TO_BOOLEAN);
+                        frame.jump.target = output.size();
+                        frames.pop();
+                }
+            } else if (frame.phase < children.length) {
+                push(frames, tokens, starts, children[frame.phase++], frame.removed);
+            } else {
+                output.add(token);
+                frames.pop();
+            }
+        }
+        return output.toArray(new Token[0]);
+    }
+
+    private static boolean hasConditional(Token[] tokens) {
+        for (Token token : tokens) {
+            if (token == DefaultOperators.TERNARY_CONDITION || token == DefaultOperators.AND || token == DefaultOperators.OR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] children(Token[] tokens, int[] starts, int node) {
+        int[] children = new int[tokens[node].numArgs()];
+        int child = node - 1;
+        for (int i = children.length - 1; i >= 0; i--) {
+            children[i] = child;
+            child = starts[child] - 1;
+        }
+        return children;
+    }
+
+    private static void push(Deque<Frame> frames, Token[] tokens, int[] starts, int node, int removed) {
+        frames.push(new Frame(node, removed, children(tokens, starts, node)));
+    }
+
+    private static Jump add(Jump jump, List<Token> output) {
+        output.add(jump);
+        return jump;
+    }
+
+    /**
+     * Copy a sub-expression without conditional operators,
+     * moving up the slot loads by the number of values no longer present under the sub-expression.
+     */
+    private static void copy(Token[] tokens, int from, int to, int removed, List<Token> output) {
+        for (int i = from; i <= to; i++) {
+            Token token = tokens[i];
+            if (removed > 0 && token instanceof SlotLoad) {
+                token = new SlotLoad(((SlotLoad) token).getDepth() - removed);
+            }
+            output.add(token);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+/**
+ * Evaluates an expression while it is tokenized: each postfix token produced by the shunting yard algorithm
+ * is executed at once on a value stack, instead of being collected into an Expression.
+ * Unlike an Expression evaluation, all the operands of the ternary, and, or default operators are evaluated.
+ *
+ * <p>A DirectEvaluator is reusable but not thread-safe, {@link ExpressionFactory} keeps one per thread.
+ */
+class DirectEvaluator extends StreamingShuntingYard {
+
+    private final FloatStack stack = new FloatStack(16);
+
+    float evaluate(Tokenizer tokenizer, CharSequence expression) {
+        reset();
+        stack.clear();
+        tokenizer.tokenize(chars(expression), 0, expression.length(), this);
+        finish();
+        return stack.pop();
+    }
+
+    @Override
+    protected void accept(Token token) {
+        stack.push(token.execute(stack));
+    }
+}
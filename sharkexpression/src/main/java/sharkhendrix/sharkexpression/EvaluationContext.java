@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.grammar.VariableLayout;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+/**
+ * The variable slots and the working FloatStack used to evaluate Expressions
+ * with {@link Expression#evaluate(EvaluationContext)}.
+ * <p>A context is not thread-safe, but each thread can evaluate the same Expressions with its own context.
+ *
+ * @see VariableLayout
+ */
+public class EvaluationContext {
+
+    private final float[] slots;
+    private final FloatStack stack = new FloatStack();
+
+    /**
+     * Creates a context with a slot for each variable of the given layout.
+     *
+     * @param layout the variable layout the expressions are parsed with
+     */
+    public EvaluationContext(VariableLayout layout) {
+        this(layout.size());
+    }
+
+    /**
+     * Creates a context with the given number of slots.
+     *
+     * @param slotCount the number of slots
+     */
+    public EvaluationContext(int slotCount) {
+        slots = new float[slotCount];
+    }
+
+    /**
+     * Set the value of a slot.
+     *
+     * @param slot  the slot index, see {@link VariableLayout#slotOf(String)}
+     * @param value the value of the slot
+     * @return this for method chaining style
+     */
+    public EvaluationContext set(int slot, float value) {
+        slots[slot] = value;
+        return this;
+    }
+
+    public float get(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * @return the slot values, the returned array is the one of this context
+     */
+    public float[] getSlots() {
+        return slots;
+    }
+
+    public FloatStack getStack() {
+        return stack;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.token.IndexedVariable;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A parsed expression.
+ * This implementation does not hold a working FloatStack,
+ * so the method evaluate() is not supported,
+ * call evaluate(FloatStack) instead.
+ */
+public class Expression {
+
+    private static final int MIN_PARALLEL_CHUNK_SIZE = 16 * ColumnarEvaluator.BLOCK_SIZE;
+    private static final int PARALLEL_CHUNKS_PER_THREAD = 4;
+    private static final ThreadLocal<FloatStack> workingStacks = ThreadLocal.withInitial(FloatStack::new);
+    private static final int EXECUTE = -1;
+    private static final int JUMP = -2;
+
+    private final Token[] tokens;
+    private final Token[] program;
+    private final boolean hasJumps;
+    private final int maxStackDepth;
+    private final int[] slotIndexes;
+
+    public Expression(Token[] tokens) {
+        this.tokens = tokens;
+        program = ConditionalJumps.lower(tokens);
+        hasJumps = program != tokens;
+        maxStackDepth = maxStackDepth(tokens);
+        slotIndexes = slotIndexes(program);
+    }
+
+    /**
+     * Creates an Expression sharing the immutable program of the given one.
+     *
+     * @param expression the expression to share the program of
+     */
+    protected Expression(Expression expression) {
+        tokens = expression.tokens;
+        program = expression.program;
+        hasJumps = expression.hasJumps;
+        maxStackDepth = expression.maxStackDepth;
+        slotIndexes = expression.slotIndexes;
+    }
+
+    /**
+     * Get an Expression evaluating the same program, which can be evaluated independently of this one.
+     * Expressions holding a working state return a new instance sharing the immutable program,
+     * the other ones return themselves.
+     *
+     * @return an Expression equivalent to this one, not sharing its working state
+     */
+    public Expression share() {
+        return this;
+    }
+
+    /**
+     * Evaluate this expression.
+     *
+     * @return the result of the expression
+     */
+    public float evaluate() {
+        throw new UnsupportedOperationException("This is not a standalone expression," +
+                "call instead evaluate(FloatStack) or setup the ExpressionFactory to build StandAloneExpression.");
+    }
+
+    /**
+     * Evaluate this expression.
+     *
+     * @param outputStack the working FloatStack used to evaluate the expression,
+     *                    it is intended to be empty,
+     *                    but it will work with a non-empty outputStack.
+     *                    After this method, the outputStack remains unchanged.
+     * @return the result of the expression
+     */
+    public float evaluate(FloatStack outputStack) {
+        outputStack.ensureCapacity(maxStackDepth);
+        if (hasJumps) {
+            return evaluateWithJumps(outputStack);
+        }
+        for (Token token : tokens) {
+            outputStack.pushUnchecked(token.execute(outputStack));
+        }
+        return outputStack.pop();
+    }
+
+    /**
+     * Evaluate this expression, reading the {@link IndexedVariable} values from the given slots.
+     * This implementation does not hold a working FloatStack, so this method is not supported.
+     *
+     * @param slots the variable values, by slot index
+     * @return the result of the expression
+     * @see sharkhendrix.sharkexpression.grammar.VariableLayout
+     */
+    public float evaluate(float[] slots) {
+        throw new UnsupportedOperationException("This is not a standalone expression," +
+                "call instead evaluate(EvaluationContext) or evaluate(FloatStack, float[]).");
+    }
+
+    /**
+     * Evaluate this expression with the slots and the working FloatStack of the given context,
+     * without allocation. The same Expression can be evaluated concurrently with different contexts.
+     *
+     * @param context the evaluation context
+     * @return the result of the expression
+     * @see sharkhendrix.sharkexpression.grammar.VariableLayout
+     */
+    public float evaluate(EvaluationContext context) {
+        return evaluate(context.getStack(), context.getSlots());
+    }
+
+    /**
+     * Evaluate this expression, reading the {@link IndexedVariable} values from the given slots.
+     *
+     * @param outputStack the working FloatStack used to evaluate the expression,
+     *                    it remains unchanged after this method
+     * @param slots       the variable values, by slot index
+     * @return the result of the expression
+     */
+    public float evaluate(FloatStack outputStack, float[] slots) {
+        int[] slotIndexes = this.slotIndexes;
+        if (slotIndexes == null) {
+            return evaluate(outputStack);
+        }
+        outputStack.ensureCapacity(maxStackDepth);
+        Token[] program = this.program;
+        for (int i = 0; i < program.length; i++) {
+            int slotIndex = slotIndexes[i];
+            if (slotIndex >= 0) {
+                outputStack.pushUnchecked(slots[slotIndex]);
+            } else if (slotIndex == EXECUTE) {
+                outputStack.pushUnchecked(program[i].execute(outputStack));
+            } else {
+                ConditionalJumps.Jump jump = (ConditionalJumps.Jump) program[i];
+                if (jump.jumps(outputStack)) {
+                    i = jump.target - 1;
+                }
+            }
+        }
+        return outputStack.pop();
+    }
+
+    private float evaluateWithJumps(FloatStack outputStack) {
+        Token[] program = this.program;
+        for (int i = 0; i < program.length; i++) {
+            Token token = program[i];
+            if (token instanceof ConditionalJumps.Jump) {
+                ConditionalJumps.Jump jump = (ConditionalJumps.Jump) token;
+                if (jump.jumps(outputStack)) {
+                    i = jump.target - 1;
+                }
+            } else {
+                outputStack.pushUnchecked(token.execute(outputStack));
+            }
+        }
+        return outputStack.pop();
+    }
+
+    /**
+     * Evaluate this expression for many rows at once, one token at a time over whole columns,
+     * instead of evaluating all tokens once per row.
+     * Variables must be {@link IndexedVariable}, bound to the index of their column in {@code variableColumns}.
+     * Other variables are read once per row.
+     *
+     * <p>Default operators and the simplest default functions are computed by loops the JIT can vectorize.
+     * Note that both branches of ternary operators are computed for all rows.
+     *
+     * @param variableColumns the variable values, by variable index then by row
+     * @param out             the array receiving the result of each row
+     * @param count           the number of rows to evaluate
+     */
+    public void evaluateBatch(float[][] variableColumns, float[] out, int count) {
+        evaluateBatch(variableColumns, out, 0, count);
+    }
+
+    /**
+     * Evaluate this expression for the rows of the given range,
+     * see {@link #evaluateBatch(float[][], float[], int)}.
+     * Each call uses its own working columns,
+     * so the same Expression can evaluate disjoint ranges from several threads.
+     *
+     * @param variableColumns the variable values, by variable index then by row
+     * @param out             the array receiving the result of each row
+     * @param from            the first row to evaluate, inclusive
+     * @param to              the last row to evaluate, exclusive
+     */
+    public void evaluateBatch(float[][] variableColumns, float[] out, int from, int to) {
+        checkRowRange(out, from, to);
+        new ColumnarEvaluator(variableColumns, tokens.length).evaluate(tokens, out, from, to);
+    }
+
+    /**
+     * Evaluate this expression for many rows at once, splitting the rows
+     * across the threads of the common {@link ForkJoinPool}.
+     *
+     * @param variableColumns the variable values, by variable index then by row
+     * @param out             the array receiving the result of each row
+     * @param count           the number of rows to evaluate
+     * @see #evaluateBatchParallel(float[][], float[], int, Executor)
+     */
+    public void evaluateBatchParallel(float[][] variableColumns, float[] out, int count) {
+        evaluateBatchParallel(variableColumns, out, count, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluate this expression for many rows at once, splitting the rows in ranges
+     * evaluated by {@link #evaluateBatch(float[][], float[], int, int)} on the given executor.
+     * The calling thread evaluates the last range, then waits for the others, even if its range failed.
+     * Variables which are not {@link IndexedVariable} must support being read from several threads.
+     *
+     * @param variableColumns the variable values, by variable index then by row
+     * @param out             the array receiving the result of each row
+     * @param count           the number of rows to evaluate
+     * @param executor        the executor running the ranges evaluation
+     */
+    public void evaluateBatchParallel(float[][] variableColumns, float[] out, int count, Executor executor) {
+        checkRowRange(out, 0, count);
+        int chunks = Runtime.getRuntime().availableProcessors() * PARALLEL_CHUNKS_PER_THREAD;
+        int chunkSize = Math.max(MIN_PARALLEL_CHUNK_SIZE, (count + chunks - 1) / chunks);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        int start = 0;
+        for (; count - start > chunkSize; start += chunkSize) {
+            int from = start;
+            futures.add(CompletableFuture.runAsync(
+                    () -> evaluateBatch(variableColumns, out, from, from + chunkSize), executor));
+        }
+        CompletableFuture<Void> ranges = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+        try {
+            evaluateBatch(variableColumns, out, start, count);
+        } catch (RuntimeException | Error e) {
+            // The other ranges still write to out, they are awaited before rethrowing
+            try {
+                ranges.join();
+            } catch (CompletionException rangeException) {
+                e.addSuppressed(rangeException.getCause());
+            }
+            throw e;
+        }
+        try {
+            ranges.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static int maxStackDepth(Token[] tokens) {
+        int depth = 0;
+        int maxDepth = 0;
+        for (Token token : tokens) {
+            depth = Math.max(depth - token.numArgs(), 0) + 1;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        return maxDepth;
+    }
+
+    /**
+     * Resolve the slot evaluation of each token of the program once:
+     * the slot index of the IndexedVariables, JUMP for the jumps and EXECUTE for the other tokens.
+     *
+     * @return the slot evaluation of each token, or null if the program has no IndexedVariable
+     */
+    private static int[] slotIndexes(Token[] program) {
+        int[] slotIndexes = null;
+        for (int i = 0; i < program.length; i++) {
+            if (program[i] instanceof IndexedVariable) {
+                if (slotIndexes == null) {
+                    slotIndexes = new int[program.length];
+                    for (int j = 0; j < program.length; j++) {
+                        slotIndexes[j] = program[j] instanceof ConditionalJumps.Jump ? JUMP : EXECUTE;
+                    }
+                }
+                slotIndexes[i] = ((IndexedVariable) program[i]).getIndex();
+            }
+        }
+        return slotIndexes;
+    }
+
+    /**
+     * A working FloatStack of the current thread, for the subclasses evaluating without a given FloatStack.
+     *
+     * @return the working FloatStack of the current thread
+     */
+    protected static FloatStack workingStack() {
+        return workingStacks.get();
+    }
+
+    private static void checkRowRange(float[] out, int from, int to) {
+        if (from < 0 || from > to || to > out.length) {
+            throw new IllegalArgumentException("Invalid row range [" + from + ", " + to
+                    + ") for an output array of length " + out.length);
+        }
+    }
+
+    /**
+     * The maximum number of values this expression pushes on its working FloatStack,
+     * computed from the {@link Token#numArgs()} of its postfix tokens.
+     * A FloatStack shared by several expressions can be sized with the maximum of their depths.
+     *
+     * @return the maximum stack depth of this expression
+     */
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * @return a copy of the postfix tokens evaluated by this expression
+     */
+    public Token[] getTokens() {
+        return tokens.clone();
+    }
+
+    /**
+     * @return the number of token this expression is made of
+     */
+    public int tokenLength() {
+        return tokens.length;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A concurrent and size-bounded cache of parsed Expressions, keyed by expression string and grammar version,
+ * enabled with {@link ExpressionFactory#enableCache(int)}.
+ *
+ * <p>Hits do not lock and return {@link Expression#share()} of the cached Expression,
+ * so Expressions holding a working state, like {@link StandaloneExpression}, are never shared between callers.
+ * Access frequencies are approximated by a count-min sketch, halved periodically so that old popularity fades.
+ * When the cache is full, a new entry is admitted only if it is more frequent than the least frequent entry
+ * of a random sample, which is then evicted.
+ */
+public class ExpressionCache {
+
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int[] SKETCH_SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private static final class Key {
+        final String expressionStr;
+        final long grammarVersion;
+
+        Key(String expressionStr, long grammarVersion) {
+            this.expressionStr = expressionStr;
+            this.grammarVersion = grammarVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return grammarVersion == key.grammarVersion && expressionStr.equals(key.expressionStr);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * expressionStr.hashCode() + Long.hashCode(grammarVersion);
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final Expression expression;
+        int index;
+
+        Entry(Key key, Expression expression) {
+            this.key = key;
+            this.expression = expression;
+        }
+    }
+
+    private final int maximumSize;
+    private final Map<Key, Entry> entries;
+    private final Entry[] sampledEntries;
+    private int size;
+
+    private final int[] sketch;
+    private final int sketchResetThreshold;
+    private int sketchAdditions;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Creates an empty ExpressionCache.
+     *
+     * @param maximumSize the maximum number of cached Expressions
+     * @throws IllegalArgumentException if maximumSize is not positive
+     */
+    public ExpressionCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive, got " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        entries = new ConcurrentHashMap<>();
+        sampledEntries = new Entry[maximumSize];
+        sketch = new int[Integer.highestOneBit(Math.max(maximumSize, 4) * 4 - 1) << 1];
+        sketchResetThreshold = maximumSize * 10;
+    }
+
+    /**
+     * Get the Expression cached for the given expression string and grammar version,
+     * or parse it and try to cache it.
+     *
+     * @param expressionStr  the expression string
+     * @param grammarVersion the version of the grammar parsing the expression string
+     * @param parser         the function parsing the expression string on cache miss
+     * @return the Expression of the expression string, owned by the caller
+     */
+    Expression get(String expressionStr, long grammarVersion, Function<String, Expression> parser) {
+        Key key = new Key(expressionStr, grammarVersion);
+        recordAccess(key);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hitCount.increment();
+            return entry.expression.share();
+        }
+        missCount.increment();
+        Expression expression = parser.apply(expressionStr);
+        admit(new Entry(key, expression));
+        return expression;
+    }
+
+    /**
+     * Remove all the cached Expressions. Statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        Arrays.fill(sampledEntries, null);
+        size = 0;
+    }
+
+    /**
+     * @return the number of cached Expressions
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the maximum number of cached Expressions
+     */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the number of parse calls served from the cache
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return the number of parse calls that had to parse the expression string
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return the number of Expressions removed to make room for more frequent ones
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    private synchronized void admit(Entry entry) {
+        if (entries.containsKey(entry.key)) {
+            return;
+        }
+        if (size == maximumSize) {
+            Entry victim = sampleVictim();
+            if (frequency(entry.key) <= frequency(victim.key)) {
+                return;
+            }
+            Entry last = sampledEntries[--size];
+            sampledEntries[victim.index] = last;
+            last.index = victim.index;
+            sampledEntries[size] = null;
+            entries.remove(victim.key);
+            evictionCount.increment();
+        }
+        entry.index = size;
+        sampledEntries[size++] = entry;
+        entries.put(entry.key, entry);
+    }
+
+    private Entry sampleVictim() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Entry victim = sampledEntries[random.nextInt(size)];
+        int victimFrequency = frequency(victim.key);
+        for (int i = 1; i < EVICTION_SAMPLE_SIZE; i++) {
+            Entry candidate = sampledEntries[random.nextInt(size)];
+            int candidateFrequency = frequency(candidate.key);
+            if (candidateFrequency < victimFrequency) {
+                victim = candidate;
+                victimFrequency = candidateFrequency;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Increment the sketch counters of the key. Concurrent increments may be lost,
+     * which only makes the frequencies more approximate.
+     */
+    private void recordAccess(Key key) {
+        int hash = key.hashCode();
+        for (int seed : SKETCH_SEEDS) {
+            int index = sketchIndex(hash, seed);
+            if (sketch[index] < MAX_FREQUENCY) {
+                sketch[index]++;
+            }
+        }
+        if (++sketchAdditions >= sketchResetThreshold) {
+            sketchAdditions = 0;
+            for (int i = 0; i < sketch.length; i++) {
+                sketch[i] >>>= 1;
+            }
+        }
+    }
+
+    private int frequency(Key key) {
+        int hash = key.hashCode();
+        int frequency = MAX_FREQUENCY;
+        for (int seed : SKETCH_SEEDS) {
+            frequency = Math.min(frequency, sketch[sketchIndex(hash, seed)]);
+        }
+        return frequency;
+    }
+
+    private int sketchIndex(int hash, int seed) {
+        int h = (hash ^ (hash >>> 16)) * seed;
+        return (h ^ (h >>> 15)) & (sketch.length - 1);
+    }
+}
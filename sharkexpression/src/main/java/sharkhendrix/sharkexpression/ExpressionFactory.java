@@ -0,0 +1,419 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Builder of {@link Expression} Object from expression sentence.
+ * Also provide an expression validation method.
+ * <p>
+ * Expression build steps:
+ * <ol>
+ *     <li>Tokenize input string.
+ *     <li>Shunting yard algorithm to produce postfix ordered tokens.
+ *     <li>Merge ternary operators into their final forms.
+ *     <li>Simplify constant branches of the expression.
+ *     <li>Compute once the sub-expressions repeated in the expression.
+ * </ol>
+ * With the default steps, the first four ones are fused into a single pass by a {@link StreamingParser}.
+ */
+public class ExpressionFactory {
+
+    private final Tokenizer tokenizer;
+    private TokenPipeline[] tokenPipelines;
+    private boolean streaming;
+    private final ExpressionValidator validator;
+    private Function<Token[], Expression> expressionConstructor = StandaloneExpression::new;
+    private ExpressionCache cache;
+    private final ThreadLocal<TokenBuffer> tokenBuffers = ThreadLocal.withInitial(TokenBuffer::new);
+    private final ThreadLocal<StreamingParser> streamingParsers = ThreadLocal.withInitial(StreamingParser::new);
+    private final ThreadLocal<DirectEvaluator> directEvaluators = ThreadLocal.withInitial(DirectEvaluator::new);
+
+    /**
+     * Creates an ExpressionFactory with a default Grammar and the given Variables.
+     *
+     * @param variables the Variables to use
+     */
+    public ExpressionFactory(Variables variables) {
+        Grammar grammar = Grammar.withDefault(variables);
+        tokenizer = new Tokenizer(grammar);
+        createDefaultTokenSequenceFunctions();
+        validator = new ExpressionValidator(tokenizer, grammar);
+    }
+
+    /**
+     * Creates an ExpressionFactory with the given Grammar.
+     *
+     * @param grammar the Grammar to use
+     */
+    public ExpressionFactory(Grammar grammar) {
+        tokenizer = new Tokenizer(grammar);
+        createDefaultTokenSequenceFunctions();
+        validator = new ExpressionValidator(tokenizer, grammar);
+    }
+
+    /**
+     * Create an ExpressionFactory made with the given parameters.
+     *
+     * @param tokenizer      the tokenizer to use to parse expressions
+     * @param validator      the validator to use to validate the expressions
+     * @param tokenPipelines the sequence of TokenPipeline to execute to build the expressions
+     */
+    public ExpressionFactory(ExpressionValidator validator, Tokenizer tokenizer, TokenPipeline... tokenPipelines) {
+        this.validator = validator;
+        this.tokenizer = tokenizer;
+        this.tokenPipelines = Arrays.copyOf(tokenPipelines, tokenPipelines.length);
+    }
+
+    /**
+     * <i>Performance optimization topic.</i>
+     *
+     * <p>Set the Expression type built by this factory. {@link StandaloneExpression} is built by default.
+     *
+     * <p>StandaloneExpression holds a working FloatStack, so {@link Expression#evaluate()} should be called.
+     * {@link Expression} does not hold such a FloatStack, so {@link Expression#evaluate(FloatStack)} must be called.
+     * A FloatStack shared by several Expressions can be pre-sized with their {@link Expression#getMaxStackDepth()}.
+     *
+     * @param buildStandAloneExpression true to build StandaloneExpressions, false to build Expressions,
+     *                                  that requires an external FloatStack to work.
+     */
+    public void buildStandAloneExpression(boolean buildStandAloneExpression) {
+        if (buildStandAloneExpression) {
+            expressionConstructor = StandaloneExpression::new;
+        } else {
+            expressionConstructor = Expression::new;
+        }
+        clearCache();
+    }
+
+    /**
+     * <i>Performance optimization topic.</i>
+     *
+     * <p>Set the function building the Expressions from their final postfix tokens,
+     * for instance {@code ExpressionCompiler::compile} to build compiled Expressions.
+     *
+     * @param expressionConstructor the function building an Expression from postfix tokens
+     */
+    public void setExpressionConstructor(Function<Token[], Expression> expressionConstructor) {
+        this.expressionConstructor = expressionConstructor;
+        clearCache();
+    }
+
+    /**
+     * <i>Performance optimization topic.</i>
+     *
+     * <p>Run an {@link AlgebraicSimplifier} with the given safety level after the simplification step,
+     * before the common sub-expressions are computed once. It is disabled by default.
+     *
+     * @param safety the rewrites to allow, or null to disable the algebraic simplification
+     */
+    public void setAlgebraicSimplification(AlgebraicSimplifier.Safety safety) {
+        setOptionalPipeline(AlgebraicSimplifier.class, safety != null ? new AlgebraicSimplifier(safety) : null,
+                PolynomialRewriter.class, CommonSubexpressionEliminator.class, SuperinstructionFuser.class);
+    }
+
+    /**
+     * <i>Performance optimization topic.</i>
+     *
+     * <p>Run a {@link PolynomialRewriter} after the simplification steps, before the common sub-expressions
+     * are computed once, so that the polynomials of a variable are evaluated with the Horner method.
+     * It is disabled by default.
+     *
+     * @param enabled          true to rewrite the polynomials, false to disable the rewriting
+     * @param fusedMultiplyAdd true to compute the Horner steps with fused multiply-add
+     */
+    public void setPolynomialRewriting(boolean enabled, boolean fusedMultiplyAdd) {
+        setOptionalPipeline(PolynomialRewriter.class, enabled ? new PolynomialRewriter(fusedMultiplyAdd) : null,
+                CommonSubexpressionEliminator.class, SuperinstructionFuser.class);
+    }
+
+    /**
+     * <i>Performance optimization topic.</i>
+     *
+     * <p>Run a {@link CommonSubexpressionEliminator} after the rewriting steps,
+     * so that repeated sub-expressions are computed once per evaluation. It is disabled by default.
+     * The impure tokens, such as no-args functions, are still called at each occurrence.
+     *
+     * @param enabled true to compute the repeated sub-expressions once, false to compute each occurrence
+     */
+    public void setCommonSubexpressionElimination(boolean enabled) {
+        setOptionalPipeline(CommonSubexpressionEliminator.class, enabled ? new CommonSubexpressionEliminator() : null,
+                SuperinstructionFuser.class);
+    }
+
+    /**
+     * <i>Performance optimization topic.</i>
+     *
+     * <p>Run a {@link SuperinstructionFuser} with the given fusion table as the last parsing step,
+     * so that frequent token sequences are evaluated as single tokens. It is disabled by default.
+     * This is intended for the Expressions evaluated by interpreting their tokens.
+     *
+     * @param fusionTable the binary operators to fuse, or null to disable the fusion
+     */
+    public void setSuperinstructionFusion(FusionTable fusionTable) {
+        setOptionalPipeline(SuperinstructionFuser.class,
+                fusionTable != null ? new SuperinstructionFuser(fusionTable) : null);
+    }
+
+    /**
+     * <i>Performance optimization topic.</i>
+     *
+     * <p>Cache the Expressions parsed by {@link #parse(String)}, by expression string and {@link Grammar#version()},
+     * so that parsing again the same expression string does not tokenize it.
+     * Cached Expressions are handed out through {@link Expression#share()}.
+     *
+     * @param maximumSize the maximum number of cached Expressions
+     * @throws IllegalArgumentException if maximumSize is not positive
+     */
+    public void enableCache(int maximumSize) {
+        cache = new ExpressionCache(maximumSize);
+    }
+
+    /**
+     * Stop caching parsed Expressions, and release the cached ones.
+     */
+    public void disableCache() {
+        cache = null;
+    }
+
+    /**
+     * @return the cache of parsed Expressions, with its statistics, or null if the cache is disabled
+     */
+    public ExpressionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the Grammar of the expressions parsed by this factory
+     */
+    public Grammar getGrammar() {
+        return tokenizer.grammar;
+    }
+
+    /**
+     * Validate the given expression string.
+     *
+     * @param expressionStr the expression string to validate
+     * @return the list of error, the expression is valid if the list is empty
+     */
+    public List<ValidationError> validate(String expressionStr) {
+        return validator.validate(expressionStr);
+    }
+
+    /**
+     * <p>Parse the given expression string into an Expression.
+     * Note that this method could end successfully with an invalid expression,
+     * such an Expression has an unexpected behavior.
+     * <p> Note that once created, any change to the Grammar,
+     * including variables, won't affect the Expression.
+     *
+     * @param expressionStr the expression string to parse
+     * @return the Expression representing the expression string
+     * @throws InvalidExpressionSyntaxException if this method detected an error in the expression string
+     */
+    public Expression parse(String expressionStr) {
+        ExpressionCache cache = this.cache;
+        if (cache != null) {
+            return cache.get(expressionStr, tokenizer.grammar.version(), this::parseUncached);
+        }
+        return parseUncached(expressionStr);
+    }
+
+    /**
+     * Parse the expression made of the given chars, like {@link #parse(String)} but without creating a String,
+     * tokenizing into a buffer reused by the calling thread. The parse cache is not used.
+     *
+     * @param chars  the chars of the expression
+     * @param offset the index of the first char of the expression
+     * @param length the number of chars of the expression
+     * @return the Expression representing the chars
+     * @throws InvalidExpressionSyntaxException if this method detected an error in the expression
+     */
+    public Expression parse(char[] chars, int offset, int length) {
+        if (streaming) {
+            return expressionConstructor.apply(
+                    buildTokens(streamingParsers.get().parse(tokenizer, chars, offset, length), tokenPipelines));
+        }
+        TokenBuffer buffer = tokenBuffers.get();
+        try {
+            tokenizer.tokenize(chars, offset, length, buffer);
+            return buildExpression(buffer.asList());
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Evaluate the given expression once, while it is tokenized, without building an Expression:
+     * the operators are applied to a value stack as soon as the shunting yard algorithm outputs them.
+     * Apart from the scratch space reused by the calling thread, only the constants are allocated.
+     * This is intended for one-shot evaluations, like console commands or configuration values.
+     *
+     * <p>Unlike an Expression evaluation, all the operands of the ternary, and, or default operators are evaluated,
+     * and the token pipelines of this factory are not run.
+     *
+     * @param expression the expression to evaluate
+     * @return the result of the expression
+     * @throws InvalidExpressionSyntaxException if this method detected an error in the expression
+     */
+    public float evaluateOnce(CharSequence expression) {
+        return directEvaluators.get().evaluate(tokenizer, expression);
+    }
+
+    /**
+     * <p>Validate and parse the given expression.
+     * <p>Calling this method is equivalent to calling {@link #validate(String)} followed by {@link #parse(String)}.
+     * But this method is preferred in such situation, because the tokenization is done once instead of twice.
+     *
+     * @param expressionStr the expression string to parse
+     * @param errors        an empty list that could be populated with the expression validation errors.
+     * @return the Expression representing the expression string, or null if there are validation errors.
+     */
+    public Expression validateAndParse(String expressionStr, List<ValidationError> errors) {
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("the 'errors' argument must be empty");
+        }
+        List<Token> tokens = validator.validate(expressionStr, errors);
+        if (errors.isEmpty()) {
+            return buildExpression(tokens);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Parse the given expression strings into an ExpressionSet,
+     * evaluating their common sub-expressions once for all.
+     * All the operands of the ternary, and, or default operators are evaluated.
+     * Like {@link #parse(String)}, this method could end successfully with invalid expressions.
+     *
+     * @param expressionStrs the expression strings to parse
+     * @return the ExpressionSet evaluating the expressions, in the given order
+     * @throws InvalidExpressionSyntaxException if this method detected an error in an expression string
+     */
+    public ExpressionSet parseSet(List<String> expressionStrs) {
+        List<Token[]> expressions = new ArrayList<>(expressionStrs.size());
+        for (String expressionStr : expressionStrs) {
+            if (streaming) {
+                expressions.add(buildTokens(streamingParsers.get().parse(tokenizer, expressionStr), tokenPipelines));
+            } else {
+                expressions.add(buildTokens(tokenizer.tokenize(expressionStr)));
+            }
+        }
+        return new ExpressionSet(expressions);
+    }
+
+    /**
+     * Build an Expression from final postfix tokens, such as the ones of {@link Expression#getTokens()},
+     * without tokenizing nor running the token pipelines.
+     *
+     * @param tokens the postfix tokens of the expression
+     * @return the Expression evaluating the given tokens
+     * @see sharkhendrix.sharkexpression.binary.ProgramCodec
+     */
+    public Expression build(Token[] tokens) {
+        return expressionConstructor.apply(tokens);
+    }
+
+    private Expression parseUncached(String expressionStr) {
+        if (streaming) {
+            return expressionConstructor.apply(
+                    buildTokens(streamingParsers.get().parse(tokenizer, expressionStr), tokenPipelines));
+        }
+        List<Token> tokens = tokenizer.tokenize(expressionStr);
+        return buildExpression(tokens);
+    }
+
+    /**
+     * Replace the token pipeline of the given type, inserted before the first pipeline of the following types.
+     *
+     * @param pipeline the new pipeline, or null to remove the pipeline of the given type
+     */
+    private void setOptionalPipeline(Class<?> type, TokenPipeline pipeline, Class<?>... followingTypes) {
+        List<TokenPipeline> pipelines = new ArrayList<>(Arrays.asList(tokenPipelines));
+        pipelines.removeIf(type::isInstance);
+        if (pipeline != null) {
+            int index = 0;
+            while (index < pipelines.size() && !isAnyInstance(pipelines.get(index), followingTypes)) {
+                index++;
+            }
+            pipelines.add(index, pipeline);
+        }
+        tokenPipelines = pipelines.toArray(new TokenPipeline[0]);
+        clearCache();
+    }
+
+    private static boolean isAnyInstance(TokenPipeline pipeline, Class<?>[] types) {
+        for (Class<?> type : types) {
+            if (type.isInstance(pipeline)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void clearCache() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * The shunting yard algorithm, the ternary operators merge and the simplification are done by a StreamingParser,
+     * the token pipelines are the following steps.
+     */
+    private void createDefaultTokenSequenceFunctions() {
+        streaming = true;
+        tokenPipelines = new TokenPipeline[0];
+    }
+
+    private Expression buildExpression(List<Token> tokens) {
+        return expressionConstructor.apply(buildTokens(tokens));
+    }
+
+    private Token[] buildTokens(List<Token> tokens) {
+        if (streaming) {
+            return buildTokens(streamingParsers.get().parse(tokens), tokenPipelines);
+        }
+        return buildTokens(tokens, tokenPipelines);
+    }
+
+    private static Token[] buildTokens(List<Token> tokens, TokenPipeline[] tokenPipelines) {
+        if (tokenPipelines.length == 0) {
+            return tokens.toArray(new Token[0]);
+        }
+        List<Token> output = new ArrayList<>(tokens.size());
+        List<Token> spare = new ArrayList<>(tokens.size());
+        for (TokenPipeline function : tokenPipelines) {
+            output.clear();
+            function.apply(tokens, output);
+            tokens = output;
+            output = spare;
+            spare = tokens;
+        }
+        return tokens.toArray(new Token[0]);
+    }
+}
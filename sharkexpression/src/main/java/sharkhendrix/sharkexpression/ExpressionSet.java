@@ -0,0 +1,246 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.*;
+
+/**
+ * A set of expressions evaluated together, sharing their common sub-expressions.
+ * <p>The postfix tokens of all expressions are merged into a single acyclic graph,
+ * where identical sub-expressions are represented once (hash-consing).
+ * Each shared sub-expression, including variable reads, is then evaluated once per evaluation of the set.
+ * Tokens which do not allow simplification, such as no-args functions, are never shared.
+ * <p>Unlike an Expression evaluation, all the nodes are computed at each evaluation:
+ * the operands of the ternary, and, or default operators are evaluated whatever the taken branch.
+ * <p>This implementation holds its working values and is not thread-safe.
+ */
+public class ExpressionSet {
+
+    private static final int NUMBER = 0;
+    private static final int UNARY = 1;
+    private static final int BINARY = 2;
+    private static final int TERNARY = 3;
+    private static final int GENERIC = 4;
+
+    private static final ConstantNumber MISSING_OPERAND = new ConstantNumber(Float.NaN);
+
+    private static class NodeKey {
+        private final Token token;
+        private final int[] args;
+
+        NodeKey(Token token, int[] args) {
+            this.token = token;
+            this.args = args;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof NodeKey)) return false;
+            NodeKey that = (NodeKey) o;
+            return (token instanceof ConstantNumber ? token.equals(that.token) : token == that.token)
+                    && Arrays.equals(args, that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            int tokenHash = token instanceof ConstantNumber ? token.hashCode() : System.identityHashCode(token);
+            return 31 * tokenHash + Arrays.hashCode(args);
+        }
+    }
+
+    private final int constantCount;
+    private final Token[] tokens;
+    private final int[] kinds;
+    private final int[][] args;
+    private final float[] values;
+    private final int[] results;
+    private final FloatStack genericStack = new FloatStack();
+
+    /**
+     * Creates an ExpressionSet from the postfix tokens of each expression.
+     *
+     * @param expressions the postfix tokens of each expression
+     */
+    public ExpressionSet(List<Token[]> expressions) {
+        Map<NodeKey, Integer> nodes = new HashMap<>();
+        List<Token> nodeTokens = new ArrayList<>();
+        List<int[]> nodeArgs = new ArrayList<>();
+        results = new int[expressions.size()];
+        int[] stack = new int[16];
+        for (int e = 0; e < expressions.size(); e++) {
+            int size = 0;
+            for (Token token : expressions.get(e)) {
+                if (size == stack.length) {
+                    stack = Arrays.copyOf(stack, size * 2);
+                }
+                if (token instanceof CommonSubexpressionEliminator.SlotLoad) {
+                    int depth = ((CommonSubexpressionEliminator.SlotLoad) token).getDepth();
+                    int node = depth < size ? stack[size - 1 - depth] : missingOperand(nodes, nodeTokens, nodeArgs);
+                    stack[size++] = node;
+                    continue;
+                } else if (token instanceof CommonSubexpressionEliminator.SlotRelease) {
+                    int node = size > 0 ? stack[size - 1] : missingOperand(nodes, nodeTokens, nodeArgs);
+                    size = Math.max(size - token.numArgs(), 0);
+                    stack[size++] = node;
+                    continue;
+                }
+                int numArgs = token.numArgs();
+                int[] tokenArgs = new int[numArgs];
+                for (int i = numArgs - 1; i >= 0; i--) {
+                    tokenArgs[i] = size > 0 ? stack[--size] : missingOperand(nodes, nodeTokens, nodeArgs);
+                }
+                int node = token.allowsSimplification()
+                        ? node(token, tokenArgs, nodes, nodeTokens, nodeArgs)
+                        : addNode(token, tokenArgs, nodeTokens, nodeArgs);
+                stack[size++] = node;
+            }
+            results[e] = size > 0 ? stack[size - 1] : missingOperand(nodes, nodeTokens, nodeArgs);
+        }
+
+        // Constants first, so they are evaluated once for all
+        int nodeCount = nodeTokens.size();
+        int[] order = new int[nodeCount];
+        int[] newIndexes = new int[nodeCount];
+        int constants = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if (nodeTokens.get(i) instanceof ConstantNumber) {
+                order[constants++] = i;
+            }
+        }
+        constantCount = constants;
+        for (int i = 0, next = constants; i < nodeCount; i++) {
+            if (!(nodeTokens.get(i) instanceof ConstantNumber)) {
+                order[next++] = i;
+            }
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            newIndexes[order[i]] = i;
+        }
+        tokens = new Token[nodeCount];
+        kinds = new int[nodeCount];
+        args = new int[nodeCount][];
+        values = new float[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            Token token = nodeTokens.get(order[i]);
+            int[] oldArgs = nodeArgs.get(order[i]);
+            tokens[i] = token;
+            kinds[i] = kind(token);
+            args[i] = new int[oldArgs.length];
+            for (int a = 0; a < oldArgs.length; a++) {
+                args[i][a] = newIndexes[oldArgs[a]];
+            }
+            if (token instanceof ConstantNumber) {
+                values[i] = ((ConstantNumber) token).getValue();
+            }
+        }
+        for (int i = 0; i < results.length; i++) {
+            results[i] = newIndexes[results[i]];
+        }
+    }
+
+    /**
+     * Evaluate all the expressions of this set.
+     *
+     * @param out the array receiving the result of each expression, in the order of the expressions
+     */
+    public void evaluate(float[] out) {
+        if (out.length < results.length) {
+            throw new IllegalArgumentException("The output array is smaller than " + results.length);
+        }
+        float[] values = this.values;
+        for (int i = constantCount; i < tokens.length; i++) {
+            int[] nodeArgs = args[i];
+            switch (kinds[i]) {
+                case NUMBER:
+                    values[i] = ((Number) tokens[i]).getValue();
+                    break;
+                case UNARY:
+                    values[i] = ((UnaryOperator) tokens[i]).compute(values[nodeArgs[0]]);
+                    break;
+                case BINARY:
+                    values[i] = ((BinaryOperator) tokens[i]).compute(values[nodeArgs[0]], values[nodeArgs[1]]);
+                    break;
+                case TERNARY:
+                    values[i] = ((TernaryOperator) tokens[i])
+                            .compute(values[nodeArgs[0]], values[nodeArgs[1]], values[nodeArgs[2]]);
+                    break;
+                default:
+                    for (int arg : nodeArgs) {
+                        genericStack.push(values[arg]);
+                    }
+                    values[i] = tokens[i].execute(genericStack);
+            }
+        }
+        for (int i = 0; i < results.length; i++) {
+            out[i] = values[results[i]];
+        }
+    }
+
+    /**
+     * @return the number of expressions of this set
+     */
+    public int size() {
+        return results.length;
+    }
+
+    /**
+     * @return the number of distinct operations, including variable reads, computed by an evaluation of this set
+     */
+    public int operationCount() {
+        return tokens.length - constantCount;
+    }
+
+    private static int node(Token token, int[] tokenArgs, Map<NodeKey, Integer> nodes,
+                            List<Token> nodeTokens, List<int[]> nodeArgs) {
+        NodeKey key = new NodeKey(token, tokenArgs);
+        Integer node = nodes.get(key);
+        if (node == null) {
+            node = addNode(token, tokenArgs, nodeTokens, nodeArgs);
+            nodes.put(key, node);
+        }
+        return node;
+    }
+
+    private static int missingOperand(Map<NodeKey, Integer> nodes, List<Token> nodeTokens, List<int[]> nodeArgs) {
+        return node(MISSING_OPERAND, new int[0], nodes, nodeTokens, nodeArgs);
+    }
+
+    private static int addNode(Token token, int[] tokenArgs, List<Token> nodeTokens, List<int[]> nodeArgs) {
+        nodeTokens.add(token);
+        nodeArgs.add(tokenArgs);
+        return nodeTokens.size() - 1;
+    }
+
+    private static int kind(Token token) {
+        if (token instanceof Number) {
+            return NUMBER;
+        } else if (token instanceof UnaryOperator) {
+            return UNARY;
+        } else if (token instanceof BinaryOperator) {
+            return BINARY;
+        } else if (token instanceof TernaryOperator) {
+            return TERNARY;
+        } else {
+            return GENERIC;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.token.BinaryOperator;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Simplify an expression to its maximum,
+ * by merging the constant operands of chains of associative operators and their inverses,
+ * like {@code 2 + x - 1} into {@code 1 + x} (see {@link BinaryOperator#isAssociative()}),
+ * or by merging any other type of operator and functions when all arguments are constants.
+ * <p>The input tokens should be in postfix notation.
+ * <p>This algorithm has a O(n) complexity: each operand on the evaluation stack is tracked
+ * with its start in the output, and the position of the constant its operator chain can be merged into,
+ * along with the inverse operator applied to this constant in the chain, if any.
+ */
+public class ExpressionSimplifier implements TokenPipeline {
+
+    /**
+     * Simplification of postfix tokens received one by one.
+     */
+    static class Pass {
+
+        private final List<Token> output;
+        private final FloatStack arguments = new FloatStack();
+        private int[] starts = new int[16];
+        private int[] chainConstants = new int[16];
+        private BinaryOperator[] chainOperators = new BinaryOperator[16];
+        private BinaryOperator[] chainNegations = new BinaryOperator[16];
+        private int size;
+
+        /**
+         * @param output the list receiving the simplified tokens
+         */
+        Pass(List<Token> output) {
+            this.output = output;
+        }
+
+        /**
+         * Forget the operands of the previous tokens.
+         */
+        void reset() {
+            Arrays.fill(chainOperators, 0, size, null);
+            Arrays.fill(chainNegations, 0, size, null);
+            size = 0;
+        }
+
+        /**
+         * Append the next postfix token to the output, simplifying it if possible.
+         *
+         * @param token the next postfix token
+         */
+        void add(Token token) {
+            if (token instanceof Number) {
+                push(output.size(), null, -1, null);
+                output.add(token);
+                return;
+            }
+            int numArgs = token.numArgs();
+            if (numArgs > size || !token.allowsSimplification()) {
+                append(token, Math.min(numArgs, size));
+            } else if (token instanceof BinaryOperator) {
+                if (!mergeBinaryOperator((BinaryOperator) token)) {
+                    appendBinaryOperator((BinaryOperator) token);
+                }
+            } else if (allArgsAreConstant(numArgs)) {
+                computeConstant(token, numArgs);
+            } else {
+                append(token, numArgs);
+            }
+        }
+
+        /**
+         * Merge the constant right operand of the operator into the left operand, if possible.
+         */
+        private boolean mergeBinaryOperator(BinaryOperator operator) {
+            int left = size - 2;
+            int right = size - 1;
+            if (!isConstant(right)) {
+                return false;
+            }
+            int constantIndex;
+            BinaryOperator mergeOperator = operator;
+            if (isConstant(left)) {
+                constantIndex = starts[left];
+            } else if (chainOperators[left] != null && chainOperators[left] == chainOperator(operator)) {
+                constantIndex = chainConstants[left];
+                BinaryOperator negation = chainNegations[left];
+                if (negation != null) {
+                    // x - c1 + c2 == x - (c1 - c2), and x - c1 - c2 == x - (c1 + c2)
+                    mergeOperator = operator.isAssociative() ? negation : chainOperators[left];
+                }
+            } else {
+                return false;
+            }
+            float rightValue = constantValue(right);
+            output.remove(output.size() - 1);
+            output.set(constantIndex, new ConstantNumber(
+                    mergeOperator.compute(((ConstantNumber) output.get(constantIndex)).getValue(), rightValue)));
+            size--;
+            return true;
+        }
+
+        /**
+         * Append the operator, finding the constant of its operands that later operators of its chain can merge into.
+         * A constant right operand of an inverse operator is negated, like {@code c} in {@code x - c}.
+         */
+        private void appendBinaryOperator(BinaryOperator operator) {
+            int left = size - 2;
+            int right = size - 1;
+            BinaryOperator chainOperator = chainOperator(operator);
+            BinaryOperator rightNegation = operator.isAssociative() ? null : operator;
+            int chainConstant = -1;
+            BinaryOperator chainNegation = null;
+            if (chainOperator != null) {
+                if (chainOperators[left] == chainOperator) {
+                    chainConstant = chainConstants[left];
+                    chainNegation = chainNegations[left];
+                } else if (isConstant(left)) {
+                    chainConstant = starts[left];
+                } else if (isConstant(right)) {
+                    chainConstant = starts[right];
+                    chainNegation = rightNegation;
+                } else if (chainOperators[right] == chainOperator) {
+                    chainConstant = chainConstants[right];
+                    // x - (y - c) == x - y + c
+                    chainNegation = chainNegations[right] == null ? rightNegation
+                            : rightNegation == null ? chainNegations[right] : null;
+                }
+            }
+            int start = starts[left];
+            output.add(operator);
+            size -= 2;
+            if (chainConstant >= 0) {
+                push(start, chainOperator, chainConstant, chainNegation);
+            } else {
+                push(start, null, -1, null);
+            }
+        }
+
+        private void computeConstant(Token token, int numArgs) {
+            int first = size - numArgs;
+            arguments.clear();
+            for (int i = first; i < size; i++) {
+                arguments.push(constantValue(i));
+            }
+            float value = token.execute(arguments);
+            int start = numArgs > 0 ? starts[first] : output.size();
+            while (output.size() > start) {
+                output.remove(output.size() - 1);
+            }
+            output.add(new ConstantNumber(value));
+            size = first;
+            push(start, null, -1, null);
+        }
+
+        private void append(Token token, int numArgs) {
+            int start = numArgs > 0 ? starts[size - numArgs] : output.size();
+            output.add(token);
+            size -= numArgs;
+            push(start, null, -1, null);
+        }
+
+        private void push(int start, BinaryOperator chainOperator, int chainConstant, BinaryOperator chainNegation) {
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                chainConstants = Arrays.copyOf(chainConstants, capacity);
+                chainOperators = Arrays.copyOf(chainOperators, capacity);
+                chainNegations = Arrays.copyOf(chainNegations, capacity);
+            }
+            starts[size] = start;
+            chainOperators[size] = chainOperator;
+            chainConstants[size] = chainConstant;
+            chainNegations[size] = chainNegation;
+            size++;
+        }
+
+        private boolean allArgsAreConstant(int numArgs) {
+            for (int i = size - numArgs; i < size; i++) {
+                if (!isConstant(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isConstant(int operand) {
+            int end = operand + 1 < size ? starts[operand + 1] : output.size();
+            return end - starts[operand] == 1 && output.get(starts[operand]) instanceof ConstantNumber;
+        }
+
+        private float constantValue(int operand) {
+            return ((ConstantNumber) output.get(starts[operand])).getValue();
+        }
+
+        /**
+         * @return the associative operator of the chains the given operator belongs to, or null
+         */
+        private static BinaryOperator chainOperator(BinaryOperator operator) {
+            return operator.isAssociative() ? operator : operator.inverseOf();
+        }
+    }
+
+    @Override
+    public void apply(List<Token> input, List<Token> output) {
+        Pass pass = new Pass(output);
+        for (Token token : input) {
+            pass.add(token);
+        }
+    }
+}
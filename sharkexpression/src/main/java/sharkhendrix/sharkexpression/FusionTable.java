@@ -0,0 +1,395 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.SuperinstructionFuser.FusedOperands;
+import sharkhendrix.sharkexpression.SuperinstructionFuser.FusedRightOperand;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.BinaryOperator;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.Number;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The binary operators fused by a {@link SuperinstructionFuser}, with the {@link Fusion} creating their fused tokens.
+ * Operators added without Fusion are fused by {@link #GENERIC}, calling {@link BinaryOperator#compute(float, float)}:
+ * <pre>
+ * FusionTable table = FusionTable.withDefaults().add(myOperator);
+ * </pre>
+ * Operators are identified by reference, like in the {@link sharkhendrix.sharkexpression.grammar.Grammar}.
+ */
+public class FusionTable {
+
+    /**
+     * Creates the fused tokens of a binary operator.
+     */
+    public interface Fusion {
+
+        /**
+         * @param left     the constant or variable left operand
+         * @param operator the fused operator
+         * @param right    the constant or variable right operand
+         * @return a Number computing {@code left operator right}
+         */
+        FusedOperands fuseOperands(Number left, BinaryOperator operator, Number right);
+
+        /**
+         * @param operator the fused operator
+         * @param right    the constant or variable right operand
+         * @return a UnaryOperator computing {@code leftSide operator right}
+         */
+        FusedRightOperand fuseRightOperand(BinaryOperator operator, Number right);
+    }
+
+    /**
+     * Fuses any binary operator, calling its {@link BinaryOperator#compute(float, float)} method.
+     */
+    public static final Fusion GENERIC = new Fusion() {
+        @Override
+        public FusedOperands fuseOperands(Number left, BinaryOperator operator, Number right) {
+            return new FusedOperands(left, operator, right) {
+                @Override
+                public float getValue() {
+                    return operator.compute(left.getValue(), right.getValue());
+                }
+            };
+        }
+
+        @Override
+        public FusedRightOperand fuseRightOperand(BinaryOperator operator, Number right) {
+            return new FusedRightOperand(operator, right) {
+                @Override
+                public float compute(float leftSide) {
+                    return operator.compute(leftSide, right.getValue());
+                }
+            };
+        }
+    };
+
+    private final Map<BinaryOperator, Fusion> fusions = new IdentityHashMap<>();
+
+    /**
+     * @return a FusionTable with the arithmetic and comparison default operators,
+     * the most frequent ones having dedicated fused tokens
+     */
+    public static FusionTable withDefaults() {
+        return new FusionTable()
+                .add(DefaultOperators.PLUS, PLUS)
+                .add(DefaultOperators.MINUS, MINUS)
+                .add(DefaultOperators.MULTIPLY, MULTIPLY)
+                .add(DefaultOperators.DIVIDE, DIVIDE)
+                .add(DefaultOperators.LT, LT)
+                .add(DefaultOperators.GT, GT)
+                .add(DefaultOperators.MODULO)
+                .add(DefaultOperators.POW)
+                .add(DefaultOperators.LTE)
+                .add(DefaultOperators.GTE)
+                .add(DefaultOperators.EQUAL_TO)
+                .add(DefaultOperators.NOT_EQUAL_TO);
+    }
+
+    /**
+     * Fuse the given operator with {@link #GENERIC}.
+     *
+     * @param operator the binary operator to fuse
+     * @return this for chaining
+     */
+    public FusionTable add(BinaryOperator operator) {
+        return add(operator, GENERIC);
+    }
+
+    /**
+     * Fuse the given operator with the given Fusion, replacing its previous one.
+     *
+     * @param operator the binary operator to fuse
+     * @param fusion   the Fusion creating the fused tokens of the operator
+     * @return this for chaining
+     */
+    public FusionTable add(BinaryOperator operator, Fusion fusion) {
+        fusions.put(operator, fusion);
+        return this;
+    }
+
+    /**
+     * @param operator the binary operator to stop fusing
+     * @return this for chaining
+     */
+    public FusionTable remove(BinaryOperator operator) {
+        fusions.remove(operator);
+        return this;
+    }
+
+    /**
+     * @param operator a binary operator
+     * @return the Fusion of the operator, or null if the operator is not fused
+     */
+    public Fusion get(BinaryOperator operator) {
+        return fusions.get(operator);
+    }
+
+    private static final Fusion PLUS = new Fusion() {
+        @Override
+        public FusedOperands fuseOperands(Number left, BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedOperands(left, operator, right) {
+                    @Override
+                    public float getValue() {
+                        return left.getValue() + constant;
+                    }
+                };
+            }
+            return new FusedOperands(left, operator, right) {
+                @Override
+                public float getValue() {
+                    return left.getValue() + right.getValue();
+                }
+            };
+        }
+
+        @Override
+        public FusedRightOperand fuseRightOperand(BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedRightOperand(operator, right) {
+                    @Override
+                    public float compute(float leftSide) {
+                        return leftSide + constant;
+                    }
+                };
+            }
+            return new FusedRightOperand(operator, right) {
+                @Override
+                public float compute(float leftSide) {
+                    return leftSide + right.getValue();
+                }
+            };
+        }
+    };
+
+    private static final Fusion MINUS = new Fusion() {
+        @Override
+        public FusedOperands fuseOperands(Number left, BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedOperands(left, operator, right) {
+                    @Override
+                    public float getValue() {
+                        return left.getValue() - constant;
+                    }
+                };
+            }
+            return new FusedOperands(left, operator, right) {
+                @Override
+                public float getValue() {
+                    return left.getValue() - right.getValue();
+                }
+            };
+        }
+
+        @Override
+        public FusedRightOperand fuseRightOperand(BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedRightOperand(operator, right) {
+                    @Override
+                    public float compute(float leftSide) {
+                        return leftSide - constant;
+                    }
+                };
+            }
+            return new FusedRightOperand(operator, right) {
+                @Override
+                public float compute(float leftSide) {
+                    return leftSide - right.getValue();
+                }
+            };
+        }
+    };
+
+    private static final Fusion MULTIPLY = new Fusion() {
+        @Override
+        public FusedOperands fuseOperands(Number left, BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedOperands(left, operator, right) {
+                    @Override
+                    public float getValue() {
+                        return left.getValue() * constant;
+                    }
+                };
+            } else if (left == right && left.allowsSimplification()) {
+                // x x *, reading x once
+                return new FusedOperands(left, operator, right) {
+                    @Override
+                    public float getValue() {
+                        float value = left.getValue();
+                        return value * value;
+                    }
+                };
+            }
+            return new FusedOperands(left, operator, right) {
+                @Override
+                public float getValue() {
+                    return left.getValue() * right.getValue();
+                }
+            };
+        }
+
+        @Override
+        public FusedRightOperand fuseRightOperand(BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedRightOperand(operator, right) {
+                    @Override
+                    public float compute(float leftSide) {
+                        return leftSide * constant;
+                    }
+                };
+            }
+            return new FusedRightOperand(operator, right) {
+                @Override
+                public float compute(float leftSide) {
+                    return leftSide * right.getValue();
+                }
+            };
+        }
+    };
+
+    private static final Fusion DIVIDE = new Fusion() {
+        @Override
+        public FusedOperands fuseOperands(Number left, BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedOperands(left, operator, right) {
+                    @Override
+                    public float getValue() {
+                        return left.getValue() / constant;
+                    }
+                };
+            }
+            return new FusedOperands(left, operator, right) {
+                @Override
+                public float getValue() {
+                    return left.getValue() / right.getValue();
+                }
+            };
+        }
+
+        @Override
+        public FusedRightOperand fuseRightOperand(BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedRightOperand(operator, right) {
+                    @Override
+                    public float compute(float leftSide) {
+                        return leftSide / constant;
+                    }
+                };
+            }
+            return new FusedRightOperand(operator, right) {
+                @Override
+                public float compute(float leftSide) {
+                    return leftSide / right.getValue();
+                }
+            };
+        }
+    };
+
+    private static final Fusion LT = new Fusion() {
+        @Override
+        public FusedOperands fuseOperands(Number left, BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedOperands(left, operator, right) {
+                    @Override
+                    public float getValue() {
+                        return left.getValue() < constant ? 1 : 0;
+                    }
+                };
+            }
+            return new FusedOperands(left, operator, right) {
+                @Override
+                public float getValue() {
+                    return left.getValue() < right.getValue() ? 1 : 0;
+                }
+            };
+        }
+
+        @Override
+        public FusedRightOperand fuseRightOperand(BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedRightOperand(operator, right) {
+                    @Override
+                    public float compute(float leftSide) {
+                        return leftSide < constant ? 1 : 0;
+                    }
+                };
+            }
+            return new FusedRightOperand(operator, right) {
+                @Override
+                public float compute(float leftSide) {
+                    return leftSide < right.getValue() ? 1 : 0;
+                }
+            };
+        }
+    };
+
+    private static final Fusion GT = new Fusion() {
+        @Override
+        public FusedOperands fuseOperands(Number left, BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedOperands(left, operator, right) {
+                    @Override
+                    public float getValue() {
+                        return left.getValue() > constant ? 1 : 0;
+                    }
+                };
+            }
+            return new FusedOperands(left, operator, right) {
+                @Override
+                public float getValue() {
+                    return left.getValue() > right.getValue() ? 1 : 0;
+                }
+            };
+        }
+
+        @Override
+        public FusedRightOperand fuseRightOperand(BinaryOperator operator, Number right) {
+            if (right instanceof ConstantNumber) {
+                float constant = right.getValue();
+                return new FusedRightOperand(operator, right) {
+                    @Override
+                    public float compute(float leftSide) {
+                        return leftSide > constant ? 1 : 0;
+                    }
+                };
+            }
+            return new FusedRightOperand(operator, right) {
+                @Override
+                public float compute(float leftSide) {
+                    return leftSide > right.getValue() ? 1 : 0;
+                }
+            };
+        }
+    };
+}
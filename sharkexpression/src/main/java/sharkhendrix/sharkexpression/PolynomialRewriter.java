@@ -0,0 +1,289 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultFunctions;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.IntegerPower;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.Polynomial;
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rewrite the polynomials of a single variable into {@link Polynomial} tokens, evaluated with the Horner method.
+ * For instance {@code a*x^3 + b*x^2 + c*x + d}, with constant {@code a}, {@code b}, {@code c}, {@code d},
+ * is computed as {@code ((a * x + b) * x + c) * x + d} instead of calling {@link Math#pow} twice.
+ * <p>The polynomials are made of constants, a variable, and the {@code +}, {@code -}, {@code *} default operators,
+ * divisions by constants, and powers of the variable by constant integers up to {@link #MAX_DEGREE}.
+ * Products of polynomials are only expanded when one of them is a single term,
+ * so that rewritten polynomials keep the terms written in the expression.
+ * Polynomials are rewritten when they call {@code pow}, or when they are of degree 2 or more and it saves tokens.
+ * <p>The coefficients are computed once, in double, and the evaluation order changes,
+ * so the results may differ from the original expression by a few roundings,
+ * and may differ for NaN and infinite variable values, like {@code x - x} which is always 0 as a polynomial.
+ * <p>The input tokens should be in postfix notation.
+ *
+ * <p>Usage: {@code factory.setPolynomialRewriting(true, true)}.
+ */
+public class PolynomialRewriter implements TokenPipeline {
+
+    public static final int MAX_DEGREE = 16;
+
+    private final boolean fusedMultiplyAdd;
+
+    /**
+     * Create a PolynomialRewriter computing the Horner steps without fused multiply-add.
+     */
+    public PolynomialRewriter() {
+        this(false);
+    }
+
+    /**
+     * @param fusedMultiplyAdd true to compute the Horner steps with fused multiply-add,
+     *                         see {@link sharkhendrix.sharkexpression.util.FusedMultiplyAdd}
+     */
+    public PolynomialRewriter(boolean fusedMultiplyAdd) {
+        this.fusedMultiplyAdd = fusedMultiplyAdd;
+    }
+
+    public boolean isFusedMultiplyAdd() {
+        return fusedMultiplyAdd;
+    }
+
+    @Override
+    public void apply(List<Token> input, List<Token> output) {
+        Pass pass = new Pass(output, fusedMultiplyAdd);
+        for (Token token : input) {
+            pass.add(token);
+        }
+        pass.finish();
+    }
+
+    /**
+     * A polynomial of a variable, or a constant if the variable is null.
+     */
+    private static final class Poly {
+
+        final Token variable;
+        final double[] coefficients;
+        final boolean callsPow;
+
+        Poly(Token variable, double[] coefficients, boolean callsPow) {
+            int length = coefficients.length;
+            while (length > 1 && coefficients[length - 1] == 0) {
+                length--;
+            }
+            this.variable = variable;
+            this.coefficients = length == coefficients.length ? coefficients : Arrays.copyOf(coefficients, length);
+            this.callsPow = callsPow;
+        }
+
+        int degree() {
+            return coefficients.length - 1;
+        }
+
+        boolean isConstant() {
+            return coefficients.length == 1;
+        }
+
+        boolean isSingleTerm() {
+            for (int i = 0; i < degree(); i++) {
+                if (coefficients[i] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isCompatible(Poly other) {
+            return variable == null || other.variable == null || variable == other.variable;
+        }
+
+        Token variable(Poly other) {
+            return variable != null ? variable : other.variable;
+        }
+    }
+
+    /**
+     * Rewriting of postfix tokens received one by one.
+     * Each operand on the evaluation stack is tracked with its start in the output,
+     * and its polynomial if it is one.
+     */
+    private static class Pass {
+
+        private final List<Token> output;
+        private final boolean fusedMultiplyAdd;
+        private int[] starts = new int[16];
+        private Poly[] polys = new Poly[16];
+        private int size;
+
+        Pass(List<Token> output, boolean fusedMultiplyAdd) {
+            this.output = output;
+            this.fusedMultiplyAdd = fusedMultiplyAdd;
+        }
+
+        void add(Token token) {
+            int numArgs = token.numArgs();
+            if (numArgs > size) {
+                finish();
+                size = 0;
+                push(output.size(), null);
+                output.add(token);
+                return;
+            }
+            Poly poly = toPoly(token, numArgs);
+            int first = size - numArgs;
+            int start = numArgs > 0 ? starts[first] : output.size();
+            if (poly == null) {
+                for (int i = size - 1; i >= first; i--) {
+                    rewrite(i);
+                }
+            }
+            output.add(token);
+            size = first;
+            push(start, poly);
+        }
+
+        void finish() {
+            for (int i = size - 1; i >= 0; i--) {
+                rewrite(i);
+            }
+        }
+
+        private Poly toPoly(Token token, int numArgs) {
+            if (token instanceof ConstantNumber) {
+                return new Poly(null, new double[]{((Number) token).getValue()}, false);
+            } else if (token instanceof Number) {
+                return token.allowsSimplification() ? new Poly(token, new double[]{0, 1}, false) : null;
+            } else if (numArgs == 1) {
+                Poly operand = polys[size - 1];
+                if (operand == null) {
+                    return null;
+                } else if (token == DefaultOperators.NEGATE) {
+                    return scale(operand, -1);
+                } else if (token instanceof IntegerPower && ((IntegerPower) token).getExponent() >= 0) {
+                    return power(operand, ((IntegerPower) token).getExponent());
+                }
+            } else if (numArgs == 2) {
+                Poly left = polys[size - 2];
+                Poly right = polys[size - 1];
+                if (left == null || right == null || !left.isCompatible(right)) {
+                    return null;
+                } else if (token == DefaultOperators.PLUS) {
+                    return add(left, right, 1);
+                } else if (token == DefaultOperators.MINUS) {
+                    return add(left, right, -1);
+                } else if (token == DefaultOperators.MULTIPLY) {
+                    return multiply(left, right);
+                } else if (token == DefaultOperators.DIVIDE) {
+                    return right.isConstant() && right.coefficients[0] != 0
+                            ? scale(left, 1 / right.coefficients[0]) : null;
+                } else if (token == DefaultOperators.POW || token == DefaultFunctions.POW) {
+                    double exponent = right.coefficients[0];
+                    return right.isConstant() && exponent >= 0 && exponent == (int) exponent
+                            ? power(left, (int) exponent) : null;
+                }
+            }
+            return null;
+        }
+
+        private static Poly add(Poly left, Poly right, int sign) {
+            double[] coefficients = Arrays.copyOf(left.coefficients,
+                    Math.max(left.coefficients.length, right.coefficients.length));
+            for (int i = 0; i < right.coefficients.length; i++) {
+                coefficients[i] += sign * right.coefficients[i];
+            }
+            return new Poly(left.variable(right), coefficients, left.callsPow || right.callsPow);
+        }
+
+        private static Poly scale(Poly poly, double factor) {
+            double[] coefficients = poly.coefficients.clone();
+            for (int i = 0; i < coefficients.length; i++) {
+                coefficients[i] *= factor;
+            }
+            return new Poly(poly.variable, coefficients, poly.callsPow);
+        }
+
+        private static Poly multiply(Poly left, Poly right) {
+            if (!left.isSingleTerm() && !right.isSingleTerm() || left.degree() + right.degree() > MAX_DEGREE) {
+                return null;
+            }
+            double[] coefficients = new double[left.degree() + right.degree() + 1];
+            for (int i = 0; i < left.coefficients.length; i++) {
+                for (int j = 0; j < right.coefficients.length; j++) {
+                    coefficients[i + j] += left.coefficients[i] * right.coefficients[j];
+                }
+            }
+            return new Poly(left.variable(right), coefficients, left.callsPow || right.callsPow);
+        }
+
+        private static Poly power(Poly base, int exponent) {
+            if (!base.isSingleTerm() || base.degree() * exponent > MAX_DEGREE) {
+                return null;
+            }
+            double[] coefficients = new double[base.degree() * exponent + 1];
+            coefficients[coefficients.length - 1] = Math.pow(base.coefficients[base.degree()], exponent);
+            return new Poly(base.variable, coefficients, true);
+        }
+
+        /**
+         * Replace the tokens of the given operand by a Polynomial token, if it is worth it.
+         * Only the last operand, or the ones followed by already rewritten operands, can be rewritten.
+         */
+        private void rewrite(int operand) {
+            Poly poly = polys[operand];
+            polys[operand] = null;
+            if (poly == null || poly.variable == null || poly.degree() < (poly.callsPow ? 1 : 2)) {
+                return;
+            }
+            int start = starts[operand];
+            int end = operand + 1 < size ? starts[operand + 1] : output.size();
+            if (!poly.callsPow && end - start <= 3) {
+                return;
+            }
+            float[] coefficients = new float[poly.coefficients.length];
+            for (int i = 0; i < coefficients.length; i++) {
+                coefficients[i] = (float) poly.coefficients[i];
+                if (!Float.isFinite(coefficients[i])) {
+                    return;
+                }
+            }
+            List<Token> range = output.subList(start, end);
+            range.clear();
+            range.add(poly.variable);
+            range.add(new Polynomial(coefficients, fusedMultiplyAdd));
+            int shift = end - start - 2;
+            for (int i = operand + 1; i < size; i++) {
+                starts[i] -= shift;
+            }
+        }
+
+        private void push(int start, Poly poly) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                polys = Arrays.copyOf(polys, size * 2);
+            }
+            starts[size] = start;
+            polys[size++] = poly;
+        }
+    }
+}
@@ -68,7 +68,10 @@ public class ShuntingYardAlgorithm implements TokenPipeline {
         }
     }
 
-    private boolean comparePrecedence(Token token1, Token token2) {
+    /**
+     * @return true if the operator token1, on the operator stack, must be output before pushing the operator token2
+     */
+    static boolean comparePrecedence(Token token1, Token token2) {
         if (token1 instanceof LeftParenthesis) {
             return false;
         } else if (token1 instanceof BinaryOperator) {
@@ -29,10 +29,25 @@ public class StandaloneExpression extends Expression {
 
     public StandaloneExpression(Token[] tokens) {
         super(tokens);
-        outputStack = new FloatStack(Math.min(tokens.length / 2 + 1, 10));
+        outputStack = new FloatStack(Math.max(getMaxStackDepth(), 1));
+    }
+
+    protected StandaloneExpression(StandaloneExpression expression) {
+        super(expression);
+        outputStack = new FloatStack(Math.max(getMaxStackDepth(), 1));
+    }
+
+    @Override
+    public StandaloneExpression share() {
+        return new StandaloneExpression(this);
     }
 
     public float evaluate() {
         return evaluate(outputStack);
     }
+
+    @Override
+    public float evaluate(float[] slots) {
+        return evaluate(outputStack, slots);
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single pass front end of the parsing, fusing the {@link ShuntingYardAlgorithm},
+ * the {@link TernaryOperatorMerger} and the {@link ExpressionSimplifier}:
+ * each token received from the {@link Tokenizer} goes through an operator stack,
+ * and the produced postfix tokens are merged and simplified at once, without intermediate token lists.
+ * The result is the same as the one of these three steps run one after the other.
+ *
+ * <p>A StreamingParser is reusable but not thread-safe, {@link ExpressionFactory} keeps one per thread.
+ */
+public class StreamingParser extends StreamingShuntingYard {
+
+    private final List<Token> output = new ArrayList<>();
+    private final ExpressionSimplifier.Pass simplification = new ExpressionSimplifier.Pass(output);
+
+    /**
+     * Parse the given expression string into simplified postfix tokens.
+     *
+     * @param tokenizer the tokenizer scanning the expression
+     * @param str       the expression string
+     * @return the simplified postfix tokens, valid until the next use of this parser
+     * @throws InvalidExpressionSyntaxException if an error is detected in the expression string
+     */
+    public List<Token> parse(Tokenizer tokenizer, String str) {
+        return parse(tokenizer, chars(str), 0, str.length());
+    }
+
+    /**
+     * Parse the expression made of the given chars into simplified postfix tokens.
+     *
+     * @param tokenizer the tokenizer scanning the expression
+     * @param chars     the chars of the expression
+     * @param offset    the index of the first char of the expression
+     * @param length    the number of chars of the expression
+     * @return the simplified postfix tokens, valid until the next use of this parser
+     * @throws InvalidExpressionSyntaxException if an error is detected in the expression
+     */
+    public List<Token> parse(Tokenizer tokenizer, char[] chars, int offset, int length) {
+        reset();
+        tokenizer.tokenize(chars, offset, length, this);
+        finish();
+        return output;
+    }
+
+    /**
+     * Parse the given infix tokens, such as the ones of {@link Tokenizer#tokenize(String)},
+     * into simplified postfix tokens.
+     *
+     * @param tokens the infix tokens
+     * @return the simplified postfix tokens, valid until the next use of this parser
+     * @throws InvalidExpressionSyntaxException if an error is detected in the tokens
+     */
+    public List<Token> parse(List<Token> tokens) {
+        reset();
+        for (Token token : tokens) {
+            add(token);
+        }
+        finish();
+        return output;
+    }
+
+    @Override
+    protected void accept(Token token) {
+        simplification.add(token);
+    }
+
+    @Override
+    void reset() {
+        super.reset();
+        output.clear();
+        simplification.reset();
+    }
+}
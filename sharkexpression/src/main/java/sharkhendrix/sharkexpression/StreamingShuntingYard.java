@@ -0,0 +1,164 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.grammar.Operators;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+
+import java.util.Arrays;
+
+/**
+ * Shunting yard algorithm receiving the infix tokens one by one, as a {@link TokenSink} of the {@link Tokenizer},
+ * and handing out the postfix tokens as soon as they are produced, with their ternary operator parts merged.
+ * The produced tokens are the same as the ones of the {@link ShuntingYardAlgorithm}
+ * followed by the {@link TernaryOperatorMerger}.
+ */
+abstract class StreamingShuntingYard implements TokenSink {
+
+    private Token[] operatorStack = new Token[16];
+    private int operatorCount;
+    private Operators.TemporaryTernaryRightPart currentTernaryRight;
+    private Token last;
+    private char[] chars = new char[64];
+
+    /**
+     * Receive the next postfix token.
+     *
+     * @param token the next postfix token, with merged ternary operators
+     */
+    protected abstract void accept(Token token);
+
+    @Override
+    public void add(Token token, int start, int end) {
+        add(token);
+    }
+
+    @Override
+    public Token last() {
+        return last;
+    }
+
+    /**
+     * Copy the given chars into a buffer reused by this object.
+     *
+     * @return the buffer holding the chars from index 0
+     */
+    char[] chars(CharSequence str) {
+        int length = str.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        if (str instanceof String) {
+            ((String) str).getChars(0, length, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars[i] = str.charAt(i);
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Forget the state of the previous tokens, including the ones of a failed parsing.
+     */
+    void reset() {
+        Arrays.fill(operatorStack, 0, operatorCount, null);
+        operatorCount = 0;
+        currentTernaryRight = null;
+        last = null;
+    }
+
+    void add(Token token) {
+        last = token;
+        if (token instanceof Number) {
+            emit(token);
+        } else if (token instanceof Function) {
+            push(token);
+        } else if (token instanceof BinaryOperator || token instanceof UnaryOperator) {
+            while (operatorCount > 0 && ShuntingYardAlgorithm.comparePrecedence(operatorStack[operatorCount - 1], token)) {
+                emit(pop());
+            }
+            push(token);
+        } else if (token instanceof LeftParenthesis) {
+            push(token);
+        } else if (token instanceof RightParenthesis) {
+            unstackUntilLeftParenthesis();
+            pop();
+            if (operatorCount > 0 && operatorStack[operatorCount - 1] instanceof Function) {
+                emit(pop());
+            }
+        } else if (token instanceof ArgSeparator) {
+            unstackUntilLeftParenthesis();
+        }
+    }
+
+    /**
+     * Hand out the operators remaining in the operator stack, once all the infix tokens are received.
+     */
+    void finish() {
+        while (operatorCount > 0) {
+            if (operatorStack[operatorCount - 1] instanceof LeftParenthesis) {
+                throw new InvalidExpressionSyntaxException("Missing left parenthesis");
+            }
+            emit(pop());
+        }
+    }
+
+    private void unstackUntilLeftParenthesis() {
+        while (operatorCount == 0 || operatorStack[operatorCount - 1] != LeftParenthesis.getInstance()) {
+            if (operatorCount == 0) {
+                throw new InvalidExpressionSyntaxException("Missing left parenthesis");
+            }
+            emit(pop());
+        }
+    }
+
+    private void push(Token token) {
+        if (operatorCount == operatorStack.length) {
+            operatorStack = Arrays.copyOf(operatorStack, operatorCount * 2);
+        }
+        operatorStack[operatorCount++] = token;
+    }
+
+    private Token pop() {
+        Token token = operatorStack[--operatorCount];
+        operatorStack[operatorCount] = null;
+        return token;
+    }
+
+    private void emit(Token token) {
+        if (currentTernaryRight != null && !(token instanceof Operators.TemporaryTernaryLeftPart)) {
+            throw new InvalidExpressionSyntaxException("Missing ternary second symbol");
+        } else if (token instanceof Operators.TemporaryTernaryRightPart) {
+            currentTernaryRight = (Operators.TemporaryTernaryRightPart) token;
+        } else if (token instanceof Operators.TemporaryTernaryLeftPart) {
+            if (currentTernaryRight == null) {
+                throw new InvalidExpressionSyntaxException("Unexpected ternary second symbol");
+            }
+            Operators.TemporaryTernaryLeftPart leftPart = (Operators.TemporaryTernaryLeftPart) token;
+            if (currentTernaryRight.getOperator() != leftPart.getOperator()) {
+                throw new InvalidExpressionSyntaxException("Ternary symbols mismatch");
+            }
+            accept(currentTernaryRight.getOperator());
+            currentTernaryRight = null;
+        } else {
+            accept(token);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.token.BinaryOperator;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.IndexedVariable;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.token.UnaryOperator;
+import sharkhendrix.sharkexpression.token.VariableNumber;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Replace frequent postfix token sequences by superinstructions, single tokens reading their operands directly
+ * instead of through the working FloatStack:
+ * <ul>
+ *     <li>{@code a b op}, where {@code a} and {@code b} are constants or variables, becomes a {@link FusedOperands},
+ *     a Number computing {@code a op b}, like {@code x 2 *} or {@code x y +}.
+ *     <li>{@code ... b op} becomes a {@link FusedRightOperand}, a UnaryOperator computing {@code ... op b},
+ *     like {@code (x + y) 2 *}.
+ * </ul>
+ * Only the binary operators of the {@link FusionTable} are fused, {@link IndexedVariable} are not.
+ * <p>It is intended to run as the last TokenPipeline, after the {@link CommonSubexpressionEliminator},
+ * for Expressions evaluated by interpreting their tokens.
+ * The fused tokens are not known by the code generating backends, which then invoke them as
+ * Numbers and UnaryOperators, without inlining the fused operators.
+ * <p>The input tokens should be in postfix notation.
+ *
+ * <p>Usage: {@code factory.setSuperinstructionFusion(FusionTable.withDefaults())}.
+ */
+public class SuperinstructionFuser implements TokenPipeline {
+
+    /**
+     * A token made of several tokens.
+     */
+    public interface FusedToken extends Token {
+
+        /**
+         * @return the postfix tokens this token computes
+         */
+        Token[] getFusedTokens();
+    }
+
+    /**
+     * Computes a binary operator over two constant or variable operands.
+     */
+    public abstract static class FusedOperands implements Number, FusedToken {
+
+        protected final Number left;
+        protected final BinaryOperator operator;
+        protected final Number right;
+
+        protected FusedOperands(Number left, BinaryOperator operator, Number right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        public Token[] getFusedTokens() {
+            return new Token[]{left, right, operator};
+        }
+
+        @Override
+        public boolean allowsSimplification() {
+            return left.allowsSimplification() && operator.allowsSimplification() && right.allowsSimplification();
+        }
+
+        @Override
+        public String toString() {
+            return "fused(" + left + " " + right + " " + operator + ")";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FusedOperands that = (FusedOperands) o;
+            return left.equals(that.left) && operator.equals(that.operator) && right.equals(that.right);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(left, operator, right);
+        }
+    }
+
+    /**
+     * Computes a binary operator over the head of the stack and a constant or variable right operand.
+     */
+    public abstract static class FusedRightOperand implements UnaryOperator, FusedToken {
+
+        protected final BinaryOperator operator;
+        protected final Number right;
+
+        protected FusedRightOperand(BinaryOperator operator, Number right) {
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        public Token[] getFusedTokens() {
+            return new Token[]{right, operator};
+        }
+
+        @Override
+        public boolean allowsSimplification() {
+            return operator.allowsSimplification() && right.allowsSimplification();
+        }
+
+        @Override
+        public String toString() {
+            return "fused(" + right + " " + operator + ")";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FusedRightOperand that = (FusedRightOperand) o;
+            return operator.equals(that.operator) && right.equals(that.right);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operator, right);
+        }
+    }
+
+    private final FusionTable fusionTable;
+
+    /**
+     * Create a SuperinstructionFuser with the {@link FusionTable#withDefaults() default fusion table}.
+     */
+    public SuperinstructionFuser() {
+        this(FusionTable.withDefaults());
+    }
+
+    /**
+     * @param fusionTable the binary operators to fuse, and how
+     */
+    public SuperinstructionFuser(FusionTable fusionTable) {
+        this.fusionTable = Objects.requireNonNull(fusionTable);
+    }
+
+    public FusionTable getFusionTable() {
+        return fusionTable;
+    }
+
+    @Override
+    public void apply(List<Token> input, List<Token> output) {
+        for (Token token : input) {
+            FusionTable.Fusion fusion = token instanceof BinaryOperator ? fusionTable.get((BinaryOperator) token) : null;
+            int size = output.size();
+            if (fusion == null || size == 0 || !isOperand(output.get(size - 1))) {
+                output.add(token);
+                continue;
+            }
+            BinaryOperator operator = (BinaryOperator) token;
+            Number right = (Number) output.remove(size - 1);
+            if (size > 1 && isOperand(output.get(size - 2))) {
+                Number left = (Number) output.remove(size - 2);
+                output.add(fusion.fuseOperands(left, operator, right));
+            } else {
+                output.add(fusion.fuseRightOperand(operator, right));
+            }
+        }
+    }
+
+    /**
+     * @return true if the token is a single token operand, which value can be read directly
+     */
+    private static boolean isOperand(Token token) {
+        return token instanceof ConstantNumber
+                || token instanceof VariableNumber && !(token instanceof IndexedVariable);
+    }
+}
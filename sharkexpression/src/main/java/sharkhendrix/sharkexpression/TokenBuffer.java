@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable output of {@link Tokenizer#tokenize(char[], int, int, TokenBuffer)}:
+ * the tokens, with the char range of each one in the input.
+ */
+public class TokenBuffer implements TokenSink {
+
+    private Token[] tokens;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+
+    public TokenBuffer() {
+        this(16);
+    }
+
+    public TokenBuffer(int initialCapacity) {
+        tokens = new Token[initialCapacity];
+        starts = new int[initialCapacity];
+        ends = new int[initialCapacity];
+    }
+
+    /**
+     * Append a token.
+     *
+     * @param token the token
+     * @param start the index of the first char of the token in the input
+     * @param end   the index after the last char of the token in the input
+     */
+    @Override
+    public void add(Token token, int start, int end) {
+        if (size == tokens.length) {
+            int capacity = Math.max(size * 2, 16);
+            tokens = Arrays.copyOf(tokens, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        tokens[size] = token;
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    /**
+     * Remove all the tokens, keeping the capacity.
+     */
+    public void clear() {
+        Arrays.fill(tokens, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Token last() {
+        return size == 0 ? null : tokens[size - 1];
+    }
+
+    public Token get(int index) {
+        checkIndex(index);
+        return tokens[index];
+    }
+
+    /**
+     * @param index the index of the token
+     * @return the index of the first char of the token in the input
+     */
+    public int start(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    /**
+     * @param index the index of the token
+     * @return the index after the last char of the token in the input
+     */
+    public int end(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    /**
+     * @return an unmodifiable List view of the tokens, reflecting the later changes of this buffer
+     */
+    public List<Token> asList() {
+        return new AbstractList<Token>() {
+            @Override
+            public Token get(int index) {
+                return TokenBuffer.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+}
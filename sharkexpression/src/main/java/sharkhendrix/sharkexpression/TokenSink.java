@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.token.Token;
+
+/**
+ * Receiver of the tokens scanned by {@link Tokenizer#tokenize(char[], int, int, TokenSink)}, in expression order.
+ * It lets the tokens flow to the next parsing step without being collected first.
+ */
+public interface TokenSink {
+
+    /**
+     * Receive the next token.
+     *
+     * @param token the token
+     * @param start the index of the first char of the token in the input
+     * @param end   the index after the last char of the token in the input
+     */
+    void add(Token token, int start, int end);
+
+    /**
+     * @return the last received token, or null if none was received
+     */
+    Token last();
+}
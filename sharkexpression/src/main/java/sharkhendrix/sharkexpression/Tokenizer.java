@@ -0,0 +1,510 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import sharkhendrix.sharkexpression.grammar.FrozenGrammar;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.SymbolTrie;
+import sharkhendrix.sharkexpression.token.*;
+import sharkhendrix.sharkexpression.util.FloatParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>This class is responsible for "tokenizing" expression strings into a list of {@link Token}.
+ * <p>Also supports a non-failing validation mode with character index tracking.
+ */
+public class Tokenizer {
+
+    public static class TokenTrack {
+        private final int index;
+        private final String str;
+
+        public TokenTrack(int index, String str) {
+            this.index = index;
+            this.str = str;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getStr() {
+            return str;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TokenTrack that = (TokenTrack) o;
+            return index == that.index && Objects.equals(str, that.str);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(index, str);
+        }
+
+        @Override
+        public String toString() {
+            return "TokenTrack{" +
+                    "index=" + index +
+                    ", str='" + str + '\'' +
+                    '}';
+        }
+    }
+
+    public static final Token unknownToken = new Token() {
+    };
+
+    private enum TokenType {
+        NUMBER,
+        WORD,
+        SYMBOL
+    }
+
+    private enum NumberDotState {
+        MISSING,
+        PRESENT,
+        ERROR
+    }
+
+    protected final Grammar grammar;
+
+    public Tokenizer(Grammar grammar) {
+        this.grammar = grammar;
+    }
+
+    public List<Token> tokenize(String str) {
+        TokenBuffer buffer = new TokenBuffer(str.length() / 2 + 1);
+        tokenize(str.toCharArray(), 0, str.length(), buffer);
+        return new ArrayList<>(buffer.asList());
+    }
+
+    /**
+     * Tokenize the given chars into the given buffer, which is cleared first.
+     * The chars are scanned directly, with a fast path for the Basic Multilingual Plane,
+     * and the names are resolved without creating Strings.
+     * Unlike {@link #tokenize(String, List, List)}, syntax errors are thrown.
+     *
+     * @param chars  the chars of the expression
+     * @param offset the index of the first char of the expression
+     * @param length the number of chars of the expression
+     * @param out    the buffer receiving the tokens, with their char range in the given chars
+     * @throws InvalidExpressionSyntaxException if this method detected an error in the expression,
+     *                                          the error index is a code point index from offset
+     */
+    public void tokenize(char[] chars, int offset, int length, TokenBuffer out) {
+        out.clear();
+        tokenize(chars, offset, length, (TokenSink) out);
+    }
+
+    /**
+     * Tokenize the given chars into the given sink, like {@link #tokenize(char[], int, int, TokenBuffer)},
+     * so that the next parsing step can consume the tokens while they are scanned.
+     *
+     * @param chars  the chars of the expression
+     * @param offset the index of the first char of the expression
+     * @param length the number of chars of the expression
+     * @param out    the sink receiving the tokens, with their char range in the given chars
+     * @throws InvalidExpressionSyntaxException if this method detected an error in the expression,
+     *                                          the error index is a code point index from offset
+     */
+    public void tokenize(char[] chars, int offset, int length, TokenSink out) {
+        SymbolTrie trie = symbolTrie();
+        int end = offset + length;
+        TokenType currentType = null;
+        int tokenStart = offset;
+        boolean dotPresent = false;
+        boolean exponentPresent = false;
+        int codePointIndex = 0;
+        int i = offset;
+        while (i < end) {
+            int c = chars[i];
+            int next = i + 1;
+            if (Character.isSurrogate((char) c)) {
+                c = Character.codePointAt(chars, i, end);
+                next = i + Character.charCount(c);
+            }
+            switch (grammar.charClass(c)) {
+                case SPACE:
+                    addToken(trie, currentType, chars, tokenStart, i, codePointIndex, out);
+                    currentType = null;
+                    break;
+                case DIGIT:
+                    if (currentType != TokenType.NUMBER && currentType != TokenType.WORD) {
+                        addToken(trie, currentType, chars, tokenStart, i, codePointIndex, out);
+                        currentType = TokenType.NUMBER;
+                        tokenStart = i;
+                        dotPresent = false;
+                        exponentPresent = false;
+                    }
+                    break;
+                case DECIMAL_SEPARATOR:
+                    if (currentType == TokenType.NUMBER && dotPresent) {
+                        throw new InvalidExpressionSyntaxException("Invalid number format", codePointIndex);
+                    }
+                    if (currentType != TokenType.NUMBER) {
+                        addToken(trie, currentType, chars, tokenStart, i, codePointIndex, out);
+                        currentType = TokenType.NUMBER;
+                        tokenStart = i;
+                        exponentPresent = false;
+                    }
+                    dotPresent = true;
+                    break;
+                case WORD:
+                    if (currentType == TokenType.NUMBER && !exponentPresent) {
+                        int exponentEnd = FloatParser.exponentEnd(chars, i, end);
+                        if (exponentEnd > 0) {
+                            codePointIndex += exponentEnd - next;
+                            next = exponentEnd;
+                            dotPresent = true;
+                            exponentPresent = true;
+                            break;
+                        }
+                    }
+                    if (currentType != TokenType.WORD) {
+                        addToken(trie, currentType, chars, tokenStart, i, codePointIndex, out);
+                        currentType = TokenType.WORD;
+                        tokenStart = i;
+                    }
+                    break;
+                case LEFT_PARENTHESIS:
+                    addToken(trie, currentType, chars, tokenStart, i, codePointIndex, out);
+                    out.add(LeftParenthesis.getInstance(), i, next);
+                    currentType = null;
+                    break;
+                case RIGHT_PARENTHESIS:
+                    addToken(trie, currentType, chars, tokenStart, i, codePointIndex, out);
+                    out.add(RightParenthesis.getInstance(), i, next);
+                    currentType = null;
+                    break;
+                case FUNCTION_ARGS_SEPARATOR:
+                    addToken(trie, currentType, chars, tokenStart, i, codePointIndex, out);
+                    out.add(ArgSeparator.getInstance(), i, next);
+                    currentType = null;
+                    break;
+                default:
+                    if (currentType != TokenType.SYMBOL) {
+                        addToken(trie, currentType, chars, tokenStart, i, codePointIndex, out);
+                        currentType = TokenType.SYMBOL;
+                        tokenStart = i;
+                    }
+                    break;
+            }
+            i = next;
+            codePointIndex++;
+        }
+        addToken(trie, currentType, chars, tokenStart, end, codePointIndex, out);
+    }
+
+    public List<Token> tokenize(String str, List<TokenTrack> tokenTracks, List<ValidationError> validationErrors) {
+        char[] chars = str.toCharArray();
+        StringBuilder stringBuilder = new StringBuilder();
+        TokenType currentType = null;
+        List<Token> tokens = new ArrayList<>();
+        NumberDotState numberDotState = NumberDotState.MISSING;
+        boolean exponentPresent = false;
+        int charCount = 0;
+        int i = 0;
+        while (i < chars.length) {
+            int c = Character.codePointAt(chars, i);
+            int next = i + Character.charCount(c);
+            if (c == ' ') {
+                addToken(currentType, stringBuilder, tokens, charCount, tokenTracks, validationErrors, numberDotState);
+                numberDotState = NumberDotState.MISSING;
+                currentType = null;
+            } else if (Character.isDigit(c)) {
+                if (currentType != TokenType.NUMBER && currentType != TokenType.WORD) {
+                    addToken(currentType, stringBuilder, tokens, charCount, tokenTracks, validationErrors, numberDotState);
+                    numberDotState = NumberDotState.MISSING;
+                    exponentPresent = false;
+                    currentType = TokenType.NUMBER;
+                }
+                stringBuilder.appendCodePoint(c);
+            } else if (c == grammar.decimalSeparator()) {
+                if (numberDotState == NumberDotState.PRESENT) {
+                    if (validationErrors != null) {
+                        numberDotState = NumberDotState.ERROR;
+                    } else {
+                        throw new InvalidExpressionSyntaxException("Invalid number format", charCount);
+                    }
+                }
+                if (currentType != TokenType.NUMBER) {
+                    addToken(currentType, stringBuilder, tokens, charCount, tokenTracks, validationErrors, numberDotState);
+                    exponentPresent = false;
+                    currentType = TokenType.NUMBER;
+                }
+                if (numberDotState == NumberDotState.MISSING) {
+                    numberDotState = NumberDotState.PRESENT;
+                }
+                stringBuilder.appendCodePoint(c);
+            } else if (currentType == TokenType.NUMBER && !exponentPresent
+                    && FloatParser.exponentEnd(chars, i, chars.length) > 0) {
+                int exponentEnd = FloatParser.exponentEnd(chars, i, chars.length);
+                stringBuilder.append(chars, i, exponentEnd - i);
+                charCount += exponentEnd - next;
+                next = exponentEnd;
+                if (numberDotState == NumberDotState.MISSING) {
+                    numberDotState = NumberDotState.PRESENT;
+                }
+                exponentPresent = true;
+            } else if (Character.isAlphabetic(c) || grammar.isSpecialCharAllowedInWords(c)) {
+                if (currentType != TokenType.WORD) {
+                    addToken(currentType, stringBuilder, tokens, charCount, tokenTracks, validationErrors, numberDotState);
+                    numberDotState = NumberDotState.MISSING;
+                    currentType = TokenType.WORD;
+                }
+                stringBuilder.appendCodePoint(c);
+            } else if (grammar.isLeftParenthesis(c)) {
+                addToken(currentType, stringBuilder, tokens, charCount, tokenTracks, validationErrors, numberDotState);
+                addCharacterToken(tokens, c, LeftParenthesis.getInstance(), charCount, tokenTracks);
+                numberDotState = NumberDotState.MISSING;
+                currentType = null;
+            } else if (grammar.isRightParenthesis(c)) {
+                addToken(currentType, stringBuilder, tokens, charCount, tokenTracks, validationErrors, numberDotState);
+                addCharacterToken(tokens, c, RightParenthesis.getInstance(), charCount, tokenTracks);
+                numberDotState = NumberDotState.MISSING;
+                currentType = null;
+            } else if (c == grammar.functionArgsSeparator()) {
+                addToken(currentType, stringBuilder, tokens, charCount, tokenTracks, validationErrors, numberDotState);
+                addCharacterToken(tokens, c, ArgSeparator.getInstance(), charCount, tokenTracks);
+                numberDotState = NumberDotState.MISSING;
+                currentType = null;
+            } else {
+                if (currentType != TokenType.SYMBOL) {
+                    addToken(currentType, stringBuilder, tokens, charCount, tokenTracks, validationErrors, numberDotState);
+                    numberDotState = NumberDotState.MISSING;
+                    currentType = TokenType.SYMBOL;
+                }
+                stringBuilder.appendCodePoint(c);
+            }
+            i = next;
+            charCount++;
+        }
+        addToken(currentType, stringBuilder, tokens, charCount, tokenTracks, validationErrors, numberDotState);
+        return tokens;
+    }
+
+    /**
+     * @return the symbol trie of the grammar, or null if the grammar overrides its lookup methods
+     */
+    private SymbolTrie symbolTrie() {
+        return grammar.getClass() == Grammar.class || grammar instanceof FrozenGrammar ? grammar.symbolTrie() : null;
+    }
+
+    private void addToken(SymbolTrie trie, TokenType currentType, char[] chars, int start, int end,
+                          int codePointIndex, TokenSink out) {
+        if (currentType == null) {
+            return;
+        }
+        switch (currentType) {
+            case NUMBER:
+                out.add(new ConstantNumber(FloatParser.parseFloat(chars, start, end, grammar.decimalSeparator())), start, end);
+                break;
+            case WORD:
+                Token token;
+                if (trie != null) {
+                    SymbolTrie.Node node = trie.find(chars, start, end);
+                    token = node != null ? node.variable() : null;
+                    if (token == null && node != null) {
+                        token = node.function();
+                    }
+                } else {
+                    String str = new String(chars, start, end - start);
+                    token = grammar.getVariable(str);
+                    if (token == null) {
+                        token = grammar.getFunction(str);
+                    }
+                }
+                if (token == null) {
+                    token = operator(trie, chars, start, end, shouldBeUnaryOperator(out));
+                }
+                if (token == null) {
+                    throw new InvalidExpressionSyntaxException("Unknown symbol: " + new String(chars, start, end - start),
+                            codePointIndex);
+                }
+                out.add(token, start, end);
+                break;
+            case SYMBOL:
+                int position = start;
+                while (position < end) {
+                    boolean unary = shouldBeUnaryOperator(out);
+                    int operatorEnd = longestOperatorEnd(trie, chars, position, end, unary);
+                    if (operatorEnd < 0) {
+                        throw new InvalidExpressionSyntaxException("Unknown symbol: "
+                                + new String(chars, position, end - position), codePointIndex);
+                    }
+                    out.add(operator(trie, chars, position, operatorEnd, unary), position, operatorEnd);
+                    position = operatorEnd;
+                }
+                break;
+        }
+    }
+
+    /**
+     * @return the operator named by the given chars, or null if there is none
+     */
+    private Token operator(SymbolTrie trie, char[] chars, int start, int end, boolean unary) {
+        if (trie != null) {
+            SymbolTrie.Node node = trie.find(chars, start, end);
+            if (node == null) {
+                return null;
+            }
+            return unary ? node.unaryOperator() : node.binaryOperator();
+        }
+        String str = new String(chars, start, end - start);
+        return unary ? grammar.getUnaryOperator(str) : grammar.getBinaryOperator(str);
+    }
+
+    /**
+     * Find the longest operator starting at the given index, so that adjacent operators like {@code <-} are split.
+     *
+     * @return the index after the longest operator, or -1 if no operator starts at the given index
+     */
+    private int longestOperatorEnd(SymbolTrie trie, char[] chars, int start, int end, boolean unary) {
+        if (trie != null) {
+            int operatorEnd = -1;
+            SymbolTrie.Node node = trie.root();
+            for (int i = start; i < end; i++) {
+                node = node.child(chars[i]);
+                if (node == null) {
+                    break;
+                }
+                if (unary ? node.unaryOperator() != null : node.binaryOperator() != null) {
+                    operatorEnd = i + 1;
+                }
+            }
+            return operatorEnd;
+        }
+        for (int operatorEnd = end; operatorEnd > start; operatorEnd--) {
+            if (operator(null, chars, start, operatorEnd, unary) != null) {
+                return operatorEnd;
+            }
+        }
+        return -1;
+    }
+
+    private boolean shouldBeUnaryOperator(TokenSink out) {
+        Token previousToken = out.last();
+        if (previousToken == null) {
+            return true;
+        }
+        return previousToken instanceof BinaryOperator || previousToken instanceof LeftParenthesis;
+    }
+
+    private void addCharacterToken(List<Token> tokens, int c, Token token, int charCount, List<TokenTrack> tokenTracks) {
+        tokens.add(token);
+        if (tokenTracks != null) {
+            tokenTracks.add(new TokenTrack(charCount, new String(new int[]{c}, 0, 1)));
+        }
+    }
+
+    private void addToken(TokenType currentType, StringBuilder stringBuilder, List<Token> tokens,
+                          int charCount, List<TokenTrack> tokenTracks, List<ValidationError> validationErrors, NumberDotState numberDotState) {
+        if (currentType == null) {
+            return;
+        }
+        String str = stringBuilder.toString();
+        stringBuilder.setLength(0);
+        switch (currentType) {
+            case NUMBER:
+                if (numberDotState == NumberDotState.ERROR) {
+                    validationErrors.add(new ValidationError(ValidationError.Type.NUMBER_FORMAT, charCount - str.length(), str));
+                    tokens.add(new ConstantNumber(0));
+                } else {
+                    tokens.add(new ConstantNumber(FloatParser.parseFloat(str.toCharArray(), 0, str.length(),
+                            grammar.decimalSeparator())));
+                }
+                break;
+            case WORD:
+                Token token = grammar.getVariable(str);
+                if (token == null) {
+                    token = grammar.getFunction(str);
+                }
+                if (token == null) {
+                    addOperator(tokens, str, charCount, validationErrors);
+                } else {
+                    tokens.add(token);
+                }
+                break;
+            case SYMBOL:
+                addOperators(tokens, str, charCount, tokenTracks, validationErrors);
+                return;
+        }
+        if (tokenTracks != null) {
+            tokenTracks.add(new TokenTrack(charCount - str.length(), str));
+        }
+    }
+
+    private void addOperator(List<Token> tokens, String str, int charCount, List<ValidationError> validationErrors) {
+        Token operator = shouldBeUnaryOperator(tokens) ?
+                grammar.getUnaryOperator(str) : grammar.getBinaryOperator(str);
+        if (operator == null) {
+            if (validationErrors != null) {
+                validationErrors.add(new ValidationError(ValidationError.Type.UNKNOWN_SYMBOL, charCount - str.length(), str));
+                tokens.add(unknownToken);
+            } else {
+                throw new InvalidExpressionSyntaxException("Unknown symbol: " + str, charCount);
+            }
+        } else {
+            tokens.add(operator);
+        }
+    }
+
+    /**
+     * Split the run of symbol chars into its longest operators, ending at the given code point index.
+     */
+    private void addOperators(List<Token> tokens, String str, int charCount, List<TokenTrack> tokenTracks,
+                              List<ValidationError> validationErrors) {
+        SymbolTrie trie = symbolTrie();
+        char[] chars = str.toCharArray();
+        int runIndex = charCount - str.codePointCount(0, str.length());
+        int position = 0;
+        while (position < chars.length) {
+            boolean unary = shouldBeUnaryOperator(tokens);
+            int operatorEnd = longestOperatorEnd(trie, chars, position, chars.length, unary);
+            int index = runIndex + str.codePointCount(0, position);
+            if (operatorEnd < 0) {
+                String unknown = str.substring(position);
+                if (validationErrors == null) {
+                    throw new InvalidExpressionSyntaxException("Unknown symbol: " + unknown, charCount);
+                }
+                validationErrors.add(new ValidationError(ValidationError.Type.UNKNOWN_SYMBOL, index, unknown));
+                tokens.add(unknownToken);
+                operatorEnd = chars.length;
+            } else {
+                tokens.add(operator(trie, chars, position, operatorEnd, unary));
+            }
+            if (tokenTracks != null) {
+                tokenTracks.add(new TokenTrack(index, str.substring(position, operatorEnd)));
+            }
+            position = operatorEnd;
+        }
+    }
+
+    private boolean shouldBeUnaryOperator(List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            return true;
+        }
+        Token previousToken = tokens.get(tokens.size() - 1);
+        return previousToken instanceof BinaryOperator || previousToken instanceof LeftParenthesis;
+    }
+}
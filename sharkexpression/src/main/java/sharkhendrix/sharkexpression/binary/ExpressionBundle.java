@@ -0,0 +1,158 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.binary;
+
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.ExpressionFactory;
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static sharkhendrix.sharkexpression.binary.ProgramFormat.*;
+
+/**
+ * Read-only access to a bundle of named expressions written by {@link ExpressionBundleWriter},
+ * typically memory mapped with {@link #open(Path, ExpressionFactory)}.
+ *
+ * <p>Only the header and the shared symbol table are decoded when the bundle is opened.
+ * Names are looked up in the hash table of the bundle content, without any index on the heap,
+ * and each Expression is built on its first access, then kept. Like the parse cache of the factory,
+ * Expressions are handed out through {@link Expression#share()}, and this class is thread-safe.
+ */
+public class ExpressionBundle {
+
+    private final ByteBuffer buffer;
+    private final ExpressionFactory factory;
+    private final Token[] symbols;
+    private final int size;
+    private final int capacity;
+    private final Map<String, Expression> materialized = new ConcurrentHashMap<>();
+
+    /**
+     * Open a bundle held in the given buffer.
+     *
+     * @param buffer  the bundle content, from index 0
+     * @param factory the factory building the Expressions, resolving the symbols against its Grammar
+     * @throws IllegalArgumentException if the content is not a supported bundle,
+     *                                  or if it references symbols missing from the grammar
+     */
+    public ExpressionBundle(ByteBuffer buffer, ExpressionFactory factory) {
+        this.buffer = buffer.duplicate();
+        this.factory = factory;
+        ByteBuffer header = buffer.duplicate();
+        header.position(0);
+        checkHeader(header, BUNDLE_MAGIC);
+        size = header.getInt();
+        capacity = header.getInt();
+        header.position(header.getInt());
+        symbols = ProgramDecoder.readSymbols(header, factory.getGrammar());
+    }
+
+    /**
+     * Memory map the given bundle file. The file should not be modified while the bundle is used.
+     *
+     * @param path    the bundle file
+     * @param factory the factory building the Expressions, resolving the symbols against its Grammar
+     * @return the opened bundle
+     * @throws IOException              if an I/O error occurs mapping the file
+     * @throws IllegalArgumentException if the content is not a supported bundle,
+     *                                  or if it references symbols missing from the grammar
+     */
+    public static ExpressionBundle open(Path path, ExpressionFactory factory) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ExpressionBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), factory);
+        }
+    }
+
+    /**
+     * Get the Expression with the given name, building it on its first access.
+     *
+     * @param name the name of the expression
+     * @return the Expression, or null if the bundle has no expression with the given name
+     */
+    public Expression get(String name) {
+        Expression expression = materialized.get(name);
+        if (expression == null) {
+            Token[] tokens = readTokens(name);
+            if (tokens == null) {
+                return null;
+            }
+            expression = materialized.computeIfAbsent(name, n -> factory.build(tokens));
+        }
+        return expression.share();
+    }
+
+    /**
+     * @param name the name of an expression
+     * @return true if the bundle has an expression with the given name
+     */
+    public boolean contains(String name) {
+        return materialized.containsKey(name) || find(name, buffer.duplicate()) >= 0;
+    }
+
+    /**
+     * @return the number of expressions in the bundle
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of expressions built so far
+     */
+    public int materializedCount() {
+        return materialized.size();
+    }
+
+    private Token[] readTokens(String name) {
+        ByteBuffer reader = buffer.duplicate();
+        int offset = find(name, reader);
+        if (offset < 0) {
+            return null;
+        }
+        return ProgramDecoder.readProgram(reader, symbols);
+    }
+
+    /**
+     * Probe the hash table for the given name, leaving the reader positioned on the token stream when found.
+     *
+     * @return the offset of the entry, or -1 if not found
+     */
+    private int find(String name, ByteBuffer reader) {
+        int hash = name.hashCode();
+        int mask = capacity - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int slotPosition = ExpressionBundleWriter.HEADER_SIZE + slot * 8;
+            int offset = reader.getInt(slotPosition + 4);
+            if (offset == 0) {
+                return -1;
+            }
+            if (reader.getInt(slotPosition) == hash) {
+                reader.position(offset);
+                if (readString(reader).equals(name)) {
+                    return offset;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.binary;
+
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static sharkhendrix.sharkexpression.binary.ProgramFormat.*;
+
+/**
+ * Packs many named expression programs into one binary bundle, read with {@link ExpressionBundle}.
+ *
+ * <p>The bundle is made of a header, an open addressing hash table of the names, the named programs,
+ * and a symbol table shared by all the programs:
+ * <pre>
+ * int    magic
+ * byte   format version
+ * int    expression count
+ * int    hash table capacity, a power of two
+ * int    symbol table offset
+ * (int name hash, int entry offset) per hash table slot, the offset is 0 for empty slots
+ * string name, then token stream, per entry
+ * symbol table
+ * </pre>
+ */
+public class ExpressionBundleWriter {
+
+    static final int HEADER_SIZE = 17;
+
+    private final ProgramEncoder encoder;
+    private final Set<String> names = new HashSet<>();
+    private final ByteSink entries = new ByteSink();
+    private int[] entryHashes = new int[16];
+    private int[] entryOffsets = new int[16];
+
+    /**
+     * @param grammar the grammar the added tokens are part of
+     */
+    public ExpressionBundleWriter(Grammar grammar) {
+        encoder = new ProgramEncoder(grammar);
+    }
+
+    /**
+     * Add a named program to the bundle.
+     *
+     * @param name   the name of the expression
+     * @param tokens the final postfix tokens of the expression
+     * @return this for method chaining style
+     * @throws IllegalArgumentException if an expression already exists with the given name,
+     *                                  or if a token is neither a constant, a slot, nor a part of the grammar
+     */
+    public ExpressionBundleWriter add(String name, Token[] tokens) {
+        if (!names.add(name)) {
+            throw new IllegalArgumentException("The expression " + name + " already exists.");
+        }
+        int index = names.size() - 1;
+        if (index == entryHashes.length) {
+            entryHashes = Arrays.copyOf(entryHashes, index * 2);
+            entryOffsets = Arrays.copyOf(entryOffsets, index * 2);
+        }
+        entryHashes[index] = name.hashCode();
+        entryOffsets[index] = entries.size();
+        entries.writeString(name);
+        encoder.writeProgram(tokens, entries);
+        return this;
+    }
+
+    /**
+     * @return the number of expressions added so far
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * @return the binary bundle of the expressions added so far
+     */
+    public byte[] toByteArray() {
+        int count = names.size();
+        int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+        int entriesOffset = HEADER_SIZE + capacity * 8;
+        int[] slotHashes = new int[capacity];
+        int[] slotOffsets = new int[capacity];
+        for (int i = 0; i < count; i++) {
+            int slot = entryHashes[i] & (capacity - 1);
+            while (slotOffsets[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slotHashes[slot] = entryHashes[i];
+            slotOffsets[slot] = entriesOffset + entryOffsets[i];
+        }
+
+        ByteSink out = new ByteSink();
+        out.writeInt(BUNDLE_MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(count);
+        out.writeInt(capacity);
+        out.writeInt(entriesOffset + entries.size());
+        for (int slot = 0; slot < capacity; slot++) {
+            out.writeInt(slotHashes[slot]);
+            out.writeInt(slotOffsets[slot]);
+        }
+        out.write(entries);
+        encoder.writeSymbols(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Write the binary bundle of the expressions added so far in the given file.
+     *
+     * @param path the file to write
+     * @throws IOException if an I/O error occurs writing the file
+     */
+    public void write(Path path) throws IOException {
+        Files.write(path, toByteArray());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.binary;
+
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.ExpressionFactory;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.nio.ByteBuffer;
+
+import static sharkhendrix.sharkexpression.binary.ProgramFormat.*;
+
+/**
+ * Compact and versioned binary format of the final postfix tokens of an Expression.
+ * Constants are stored as floats, slot variables as indexes,
+ * and grammar operators, functions and variables as references to a symbol table of names.
+ *
+ * <p>Decoding resolves the names against a Grammar, without tokenizing nor running the token pipelines:
+ * <pre>{@code
+ * byte[] bytes = codec.encode(factory.parse("2 * x + 1").getTokens());
+ * Expression expression = factory.build(codec.decode(bytes));
+ * }</pre>
+ *
+ * @see ExpressionFactory#build(Token[])
+ */
+public class ProgramCodec {
+
+    private final Grammar grammar;
+
+    /**
+     * @param grammar the grammar the tokens are part of
+     */
+    public ProgramCodec(Grammar grammar) {
+        this.grammar = grammar;
+    }
+
+    /**
+     * Encode the given postfix tokens.
+     *
+     * @param tokens the final postfix tokens of an Expression
+     * @return the binary program
+     * @throws IllegalArgumentException if a token is neither a constant, a slot, nor a part of the grammar
+     */
+    public byte[] encode(Token[] tokens) {
+        ProgramEncoder encoder = new ProgramEncoder(grammar);
+        ByteSink program = new ByteSink();
+        encoder.writeProgram(tokens, program);
+        ByteSink out = new ByteSink();
+        out.writeInt(PROGRAM_MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        encoder.writeSymbols(out);
+        out.write(program);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a binary program.
+     *
+     * @param bytes the binary program
+     * @return the postfix tokens, to give to {@link ExpressionFactory#build(Token[])}
+     * @throws IllegalArgumentException if the content is not a supported binary program,
+     *                                  or if it references symbols missing from the grammar
+     */
+    public Token[] decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decode a binary program from the position of the given buffer, and advance its position after the program.
+     *
+     * @param buffer the buffer holding the binary program
+     * @return the postfix tokens, to give to {@link ExpressionFactory#build(Token[])}
+     * @throws IllegalArgumentException if the content is not a supported binary program,
+     *                                  or if it references symbols missing from the grammar
+     */
+    public Token[] decode(ByteBuffer buffer) {
+        checkHeader(buffer, PROGRAM_MAGIC);
+        Token[] symbols = ProgramDecoder.readSymbols(buffer, grammar);
+        return ProgramDecoder.readProgram(buffer, symbols);
+    }
+
+    /**
+     * Decode a binary program and build its Expression with the given factory.
+     *
+     * @param bytes   the binary program
+     * @param factory the factory building the Expression
+     * @return the Expression of the binary program
+     */
+    public Expression decode(byte[] bytes, ExpressionFactory factory) {
+        return factory.build(decode(bytes));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.binary;
+
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotRelease;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Operators;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.IndexedVariable;
+import sharkhendrix.sharkexpression.token.IntegerPower;
+import sharkhendrix.sharkexpression.token.Polynomial;
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.nio.ByteBuffer;
+
+import static sharkhendrix.sharkexpression.binary.ProgramFormat.*;
+
+/**
+ * Decodes symbol tables against a Grammar, and token streams against a decoded symbol table.
+ */
+final class ProgramDecoder {
+
+    private ProgramDecoder() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if a symbol is missing from the grammar or has a different number of arguments
+     */
+    static Token[] readSymbols(ByteBuffer buffer, Grammar grammar) {
+        Token[] symbols = new Token[readVarInt(buffer)];
+        for (int i = 0; i < symbols.length; i++) {
+            byte kind = buffer.get();
+            String name = readString(buffer);
+            Token token;
+            switch (kind) {
+                case VARIABLE:
+                    token = grammar.getVariable(name);
+                    break;
+                case UNARY_OPERATOR:
+                    token = grammar.getUnaryOperator(name);
+                    break;
+                case BINARY_OPERATOR:
+                    token = grammar.getBinaryOperator(name);
+                    if (token instanceof Operators.TemporaryTernaryLeftPart
+                            || token instanceof Operators.TemporaryTernaryRightPart) {
+                        token = null;
+                    }
+                    break;
+                case TERNARY_OPERATOR:
+                    Token leftPart = grammar.getBinaryOperator(name);
+                    token = leftPart instanceof Operators.TemporaryTernaryLeftPart
+                            ? ((Operators.TemporaryTernaryLeftPart) leftPart).getOperator() : null;
+                    break;
+                case FUNCTION:
+                    token = grammar.getFunction(name);
+                    int numArgs = buffer.get();
+                    if (token != null && token.numArgs() != numArgs) {
+                        throw new IllegalArgumentException("The function " + name + " takes " + token.numArgs()
+                                + " arguments, " + numArgs + " expected");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown symbol kind " + kind);
+            }
+            if (token == null) {
+                throw new IllegalArgumentException("The symbol " + name + " is not part of the grammar");
+            }
+            symbols[i] = token;
+        }
+        return symbols;
+    }
+
+    static Token[] readProgram(ByteBuffer buffer, Token[] symbols) {
+        Token[] tokens = new Token[readVarInt(buffer)];
+        for (int i = 0; i < tokens.length; i++) {
+            byte tag = buffer.get();
+            switch (tag) {
+                case CONSTANT:
+                    tokens[i] = new ConstantNumber(buffer.getFloat());
+                    break;
+                case SYMBOL:
+                    tokens[i] = symbols[readVarInt(buffer)];
+                    break;
+                case INDEXED_VARIABLE:
+                    tokens[i] = new IndexedVariable(readVarInt(buffer));
+                    break;
+                case SLOT_LOAD:
+                    tokens[i] = new SlotLoad(readVarInt(buffer));
+                    break;
+                case SLOT_RELEASE:
+                    tokens[i] = new SlotRelease(readVarInt(buffer));
+                    break;
+                case INTEGER_POWER:
+                    tokens[i] = IntegerPower.of(readVarInt(buffer) - IntegerPower.MAX_EXPONENT);
+                    break;
+                case POLYNOMIAL:
+                    tokens[i] = readPolynomial(buffer);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown token tag " + tag);
+            }
+        }
+        return tokens;
+    }
+
+    private static Polynomial readPolynomial(ByteBuffer buffer) {
+        boolean fusedMultiplyAdd = buffer.get() != 0;
+        float[] coefficients = new float[readVarInt(buffer)];
+        for (int i = 0; i < coefficients.length; i++) {
+            coefficients[i] = buffer.getFloat();
+        }
+        return new Polynomial(coefficients, fusedMultiplyAdd);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.binary;
+
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotRelease;
+import sharkhendrix.sharkexpression.SuperinstructionFuser.FusedToken;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Operators;
+import sharkhendrix.sharkexpression.token.*;
+
+import java.util.*;
+
+import static sharkhendrix.sharkexpression.binary.ProgramFormat.*;
+
+/**
+ * Encodes token streams, referencing the grammar tokens through a symbol table shared by all the encoded programs.
+ * Symbols are recovered by identity from the grammar content, so synonyms are encoded with one of their names.
+ */
+class ProgramEncoder {
+
+    private static final class Symbol {
+        final byte kind;
+        final String name;
+        final int numArgs;
+
+        Symbol(byte kind, String name, int numArgs) {
+            this.kind = kind;
+            this.name = name;
+            this.numArgs = numArgs;
+        }
+    }
+
+    private final Map<Token, Symbol> grammarSymbols = new IdentityHashMap<>();
+    private final Map<Symbol, Integer> references = new IdentityHashMap<>();
+    private final List<Symbol> symbols = new ArrayList<>();
+
+    ProgramEncoder(Grammar grammar) {
+        for (String name : new TreeSet<>(grammar.variables().names())) {
+            index(grammar.getVariable(name), VARIABLE, name);
+        }
+        for (String name : new TreeSet<>(grammar.functions().names())) {
+            index(grammar.getFunction(name), FUNCTION, name);
+        }
+        for (String symbol : new TreeSet<>(grammar.operators().unarySymbols())) {
+            index(grammar.getUnaryOperator(symbol), UNARY_OPERATOR, symbol);
+        }
+        for (String symbol : new TreeSet<>(grammar.operators().binarySymbols())) {
+            BinaryOperator operator = grammar.getBinaryOperator(symbol);
+            if (operator instanceof Operators.TemporaryTernaryLeftPart) {
+                index(((Operators.TemporaryTernaryLeftPart) operator).getOperator(), TERNARY_OPERATOR, symbol);
+            } else if (!(operator instanceof Operators.TemporaryTernaryRightPart)) {
+                index(operator, BINARY_OPERATOR, symbol);
+            }
+        }
+    }
+
+    /**
+     * Append the token stream of the given program, registering the symbols it references.
+     * Fused tokens are encoded as the tokens they compute.
+     *
+     * @throws IllegalArgumentException if a token is neither a constant, a slot, nor a part of the grammar
+     */
+    void writeProgram(Token[] tokens, ByteSink out) {
+        tokens = unfuse(tokens);
+        out.writeVarInt(tokens.length);
+        for (Token token : tokens) {
+            if (token instanceof ConstantNumber) {
+                out.writeByte(CONSTANT);
+                out.writeFloat(((ConstantNumber) token).getValue());
+            } else if (token instanceof IndexedVariable) {
+                out.writeByte(INDEXED_VARIABLE);
+                out.writeVarInt(((IndexedVariable) token).getIndex());
+            } else if (token instanceof SlotLoad) {
+                out.writeByte(SLOT_LOAD);
+                out.writeVarInt(((SlotLoad) token).getDepth());
+            } else if (token instanceof SlotRelease) {
+                out.writeByte(SLOT_RELEASE);
+                out.writeVarInt(((SlotRelease) token).getSlotCount());
+            } else if (token instanceof IntegerPower) {
+                out.writeByte(INTEGER_POWER);
+                out.writeVarInt(((IntegerPower) token).getExponent() + IntegerPower.MAX_EXPONENT);
+            } else if (token instanceof Polynomial) {
+                Polynomial polynomial = (Polynomial) token;
+                out.writeByte(POLYNOMIAL);
+                out.writeByte(polynomial.isFusedMultiplyAdd() ? 1 : 0);
+                float[] coefficients = polynomial.getCoefficients();
+                out.writeVarInt(coefficients.length);
+                for (float coefficient : coefficients) {
+                    out.writeFloat(coefficient);
+                }
+            } else {
+                out.writeByte(SYMBOL);
+                out.writeVarInt(reference(token));
+            }
+        }
+    }
+
+    /**
+     * Replace the fused tokens by the tokens they compute, so that they are encoded with the grammar symbols.
+     */
+    private static Token[] unfuse(Token[] tokens) {
+        List<Token> unfused = null;
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i] instanceof FusedToken) {
+                if (unfused == null) {
+                    unfused = new ArrayList<>(Arrays.asList(tokens).subList(0, i));
+                }
+                unfused.addAll(Arrays.asList(unfuse(((FusedToken) tokens[i]).getFusedTokens())));
+            } else if (unfused != null) {
+                unfused.add(tokens[i]);
+            }
+        }
+        return unfused != null ? unfused.toArray(new Token[0]) : tokens;
+    }
+
+    /**
+     * Append the symbol table of all the programs written so far.
+     */
+    void writeSymbols(ByteSink out) {
+        out.writeVarInt(symbols.size());
+        for (Symbol symbol : symbols) {
+            out.writeByte(symbol.kind);
+            out.writeString(symbol.name);
+            if (symbol.kind == FUNCTION) {
+                out.writeByte(symbol.numArgs);
+            }
+        }
+    }
+
+    private int reference(Token token) {
+        Symbol symbol = grammarSymbols.get(token);
+        if (symbol == null) {
+            throw new IllegalArgumentException("The token " + token + " is not part of the grammar");
+        }
+        return references.computeIfAbsent(symbol, s -> {
+            symbols.add(s);
+            return symbols.size() - 1;
+        });
+    }
+
+    private void index(Token token, byte kind, String name) {
+        grammarSymbols.putIfAbsent(token, new Symbol(kind, name, token.numArgs()));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and primitive encodings of the binary program format.
+ *
+ * <p>A program is made of a header, a symbol table, and a token stream:
+ * <pre>
+ * int    magic
+ * byte   format version
+ * varint symbol count, then per symbol: byte kind, string name, and byte number of arguments for functions
+ * varint token count, then per token: byte tag, followed by a float constant or a varint operand
+ * </pre>
+ * Strings are a varint byte length followed by their UTF-8 bytes. Varints are unsigned LEB128.
+ * Integer powers are stored as their exponent plus {@link sharkhendrix.sharkexpression.token.IntegerPower#MAX_EXPONENT}.
+ * Polynomials are stored as a byte fused multiply-add flag, a varint coefficient count and the float coefficients.
+ */
+final class ProgramFormat {
+
+    static final int PROGRAM_MAGIC = 0x53485850;
+    static final int BUNDLE_MAGIC = 0x53485842;
+    static final byte FORMAT_VERSION = 1;
+
+    static final byte VARIABLE = 0;
+    static final byte UNARY_OPERATOR = 1;
+    static final byte BINARY_OPERATOR = 2;
+    static final byte TERNARY_OPERATOR = 3;
+    static final byte FUNCTION = 4;
+
+    static final byte CONSTANT = 0;
+    static final byte SYMBOL = 1;
+    static final byte INDEXED_VARIABLE = 2;
+    static final byte SLOT_LOAD = 3;
+    static final byte SLOT_RELEASE = 4;
+    static final byte INTEGER_POWER = 5;
+    static final byte POLYNOMIAL = 6;
+
+    private ProgramFormat() {
+    }
+
+    static void checkHeader(ByteBuffer buffer, int magic) {
+        if (buffer.getInt() != magic) {
+            throw new IllegalArgumentException("Not a SharkExpression binary content");
+        }
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported binary format version " + version
+                    + ", expected " + FORMAT_VERSION);
+        }
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 28) {
+                throw new IllegalArgumentException("Malformed varint");
+            }
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        String str;
+        if (buffer.hasArray()) {
+            str = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            str = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return str;
+    }
+}
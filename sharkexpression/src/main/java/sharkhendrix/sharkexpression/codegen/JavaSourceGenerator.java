@@ -0,0 +1,529 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.codegen;
+
+import sharkhendrix.sharkexpression.*;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotRelease;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Operators;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultFunctions;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+
+import javax.lang.model.SourceVersion;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Generates the Java source of a class holding precompiled Expressions,
+ * to parse expressions at build time instead of at runtime.
+ * The generated class has one static factory method per expression, taking the runtime {@link Grammar}.
+ *
+ * <p>Expressions are parsed with the generation-time Grammar.
+ * Default operators and functions are inlined in the generated code,
+ * other variables, operators and functions are resolved by name from the runtime Grammar, with {@link Symbols}.
+ * Variables resolved to an {@link IndexedVariable} are read from the slots given to the evaluation.
+ * The default ternary condition, {@code &&} and {@code ||} operators are generated as if blocks,
+ * so only the taken branches are computed.
+ */
+public class JavaSourceGenerator {
+
+    private static final Map<Token, String> builtInNames = new IdentityHashMap<>();
+    private static final Map<Token, String> builtInTemplates = new IdentityHashMap<>();
+
+    static {
+        registerBuiltInNames(DefaultOperators.class);
+        registerBuiltInNames(DefaultFunctions.class);
+
+        builtInTemplates.put(DefaultOperators.NEGATE, "-$0");
+        builtInTemplates.put(DefaultOperators.PLUS, "$0 + $1");
+        builtInTemplates.put(DefaultOperators.MINUS, "$0 - $1");
+        builtInTemplates.put(DefaultOperators.MULTIPLY, "$0 * $1");
+        builtInTemplates.put(DefaultOperators.DIVIDE, "$0 / $1");
+        builtInTemplates.put(DefaultOperators.MODULO, "$0 % $1");
+        builtInTemplates.put(DefaultOperators.POW, "(float) Math.pow($0, $1)");
+        builtInTemplates.put(DefaultOperators.LT, "$0 < $1 ? 1f : 0f");
+        builtInTemplates.put(DefaultOperators.LTE, "$0 <= $1 ? 1f : 0f");
+        builtInTemplates.put(DefaultOperators.GT, "$0 > $1 ? 1f : 0f");
+        builtInTemplates.put(DefaultOperators.GTE, "$0 >= $1 ? 1f : 0f");
+        builtInTemplates.put(DefaultOperators.EQUAL_TO, "$0 == $1 ? 1f : 0f");
+        builtInTemplates.put(DefaultOperators.NOT_EQUAL_TO, "$0 != $1 ? 1f : 0f");
+        builtInTemplates.put(DefaultOperators.NOT, "$0 == 0 ? 1f : 0f");
+        builtInTemplates.put(DefaultOperators.AND, "$0 != 0 && $1 != 0 ? 1f : 0f");
+        builtInTemplates.put(DefaultOperators.OR, "$0 != 0 || $1 != 0 ? 1f : 0f");
+        builtInTemplates.put(DefaultOperators.TERNARY_CONDITION, "$0 != 0 ? $1 : $2");
+        builtInTemplates.put(ConditionalJumps.TO_BOOLEAN, "$0 != 0 ? 1f : 0f");
+
+        builtInTemplates.put(DefaultFunctions.ABS, "Math.abs($0)");
+        builtInTemplates.put(DefaultFunctions.ACOS, "(float) Math.acos($0)");
+        builtInTemplates.put(DefaultFunctions.ASIN, "(float) Math.asin($0)");
+        builtInTemplates.put(DefaultFunctions.ATAN, "(float) Math.atan($0)");
+        builtInTemplates.put(DefaultFunctions.ATAN2, "(float) Math.atan2($0, $1)");
+        builtInTemplates.put(DefaultFunctions.CBRT, "(float) Math.cbrt($0)");
+        builtInTemplates.put(DefaultFunctions.CEIL, "(float) Math.ceil($0)");
+        builtInTemplates.put(DefaultFunctions.COS, "(float) Math.cos($0)");
+        builtInTemplates.put(DefaultFunctions.COSH, "(float) Math.cosh($0)");
+        builtInTemplates.put(DefaultFunctions.EXP, "(float) Math.exp($0)");
+        builtInTemplates.put(DefaultFunctions.FLOOR, "(float) Math.floor($0)");
+        builtInTemplates.put(DefaultFunctions.LOG, "(float) Math.log($0)");
+        builtInTemplates.put(DefaultFunctions.LOG10, "(float) Math.log10($0)");
+        builtInTemplates.put(DefaultFunctions.MAX, "Math.max($0, $1)");
+        builtInTemplates.put(DefaultFunctions.MIN, "Math.min($0, $1)");
+        builtInTemplates.put(DefaultFunctions.POW, "(float) Math.pow($0, $1)");
+        builtInTemplates.put(DefaultFunctions.ROUND, "(float) Math.round($0)");
+        builtInTemplates.put(DefaultFunctions.SIGNUM, "Math.signum($0)");
+        builtInTemplates.put(DefaultFunctions.SIN, "(float) Math.sin($0)");
+        builtInTemplates.put(DefaultFunctions.SINH, "(float) Math.sinh($0)");
+        builtInTemplates.put(DefaultFunctions.SQRT, "(float) Math.sqrt($0)");
+        builtInTemplates.put(DefaultFunctions.TAN, "(float) Math.tan($0)");
+        builtInTemplates.put(DefaultFunctions.TANH, "(float) Math.tanh($0)");
+    }
+
+    /**
+     * An if block of a lowered conditional operator, assigning its variable with the value of the taken branch.
+     */
+    private static class Branch {
+        final String variable;
+        int end;
+
+        Branch(String variable, int end) {
+            this.variable = variable;
+            this.end = end;
+        }
+    }
+
+    private final Tokenizer tokenizer;
+    private final ExpressionFactory factory;
+
+    /**
+     * Creates a JavaSourceGenerator parsing expressions with the given Grammar.
+     *
+     * @param grammar the generation-time Grammar
+     */
+    public JavaSourceGenerator(Grammar grammar) {
+        tokenizer = new Tokenizer(grammar);
+        factory = new ExpressionFactory(grammar);
+        factory.buildStandAloneExpression(false);
+    }
+
+    /**
+     * Generate the source of a class holding the given expressions.
+     *
+     * @param packageName the package of the class to generate, may be empty
+     * @param className   the simple name of the class to generate
+     * @param expressions the expression strings, by name. Names are turned into factory method names
+     * @return the Java source of the class
+     * @throws InvalidExpressionSyntaxException if an expression is invalid
+     * @throws IllegalArgumentException         if two expression names produce the same method name
+     */
+    public String generate(String packageName, String className, Map<String, String> expressions) {
+        SourceWriter out = new SourceWriter();
+        out.line("// Generated by SharkExpression, do not edit.");
+        if (!packageName.isEmpty()) {
+            out.line("package " + packageName + ";");
+        }
+        out.line();
+        out.line("import sharkhendrix.sharkexpression.CommonSubexpressionEliminator;");
+        out.line("import sharkhendrix.sharkexpression.Expression;");
+        out.line("import sharkhendrix.sharkexpression.codegen.Symbols;");
+        out.line("import sharkhendrix.sharkexpression.grammar.Grammar;");
+        out.line("import sharkhendrix.sharkexpression.grammar.defaults.DefaultFunctions;");
+        out.line("import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;");
+        out.line("import sharkhendrix.sharkexpression.token.BinaryOperator;");
+        out.line("import sharkhendrix.sharkexpression.token.ConstantNumber;");
+        out.line("import sharkhendrix.sharkexpression.token.Function;");
+        out.line("import sharkhendrix.sharkexpression.token.Number;");
+        out.line("import sharkhendrix.sharkexpression.token.TernaryOperator;");
+        out.line("import sharkhendrix.sharkexpression.token.Token;");
+        out.line("import sharkhendrix.sharkexpression.token.UnaryOperator;");
+        out.line("import sharkhendrix.sharkexpression.util.FloatStack;");
+        out.line();
+        out.open("public final class " + className + " {");
+        out.line();
+        out.open("private " + className + "() {");
+        out.close("}");
+        Set<String> methodNames = new HashSet<>();
+        SourceWriter classes = new SourceWriter();
+        classes.indent(1);
+        int classIndex = 0;
+        for (Map.Entry<String, String> entry : expressions.entrySet()) {
+            String methodName = methodName(entry.getKey());
+            if (!methodNames.add(methodName)) {
+                throw new IllegalArgumentException("Duplicate expression method name: " + methodName);
+            }
+            generateExpression(entry.getKey(), entry.getValue(), methodName, "E" + classIndex++, out, classes);
+        }
+        out.append(classes);
+        out.close("}");
+        return out.toString();
+    }
+
+    private void generateExpression(String name, String expressionStr, String methodName, String expressionClass,
+                                    SourceWriter out, SourceWriter classes) {
+        Token[] tokens = factory.parse(expressionStr).getTokens();
+        Map<Token, String> symbols = symbols(expressionStr);
+
+        out.line();
+        out.line("// " + name + " = " + expressionStr.replace('\n', ' ').replace('\r', ' '));
+        out.open("public static Expression " + methodName + "(Grammar grammar) {");
+        out.open("return new " + expressionClass + "(new Token[]{");
+        for (int i = 0; i < tokens.length; i++) {
+            out.line(tokenSource(tokens[i], symbols) + (i < tokens.length - 1 ? "," : ""));
+        }
+        out.close("});");
+        out.close("}");
+
+        Map<Token, Integer> tokenIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < tokens.length; i++) {
+            tokenIndexes.putIfAbsent(tokens[i], i);
+        }
+        Token[] program = ConditionalJumps.lower(tokens);
+        Map<Token, Integer> fields = new IdentityHashMap<>();
+        SourceWriter body = new SourceWriter();
+        body.indent(3);
+        Deque<Branch> branches = new ArrayDeque<>();
+        String[] stack = new String[program.length];
+        int size = 0;
+        for (int i = 0; i < program.length; i++) {
+            closeBranches(branches, i, stack, size, body);
+            Token token = program[i];
+            if (token instanceof ConditionalJumps.Jump) {
+                generateJump((ConditionalJumps.Jump) token, "s" + i, branches, stack[--size], body);
+                continue;
+            }
+            int numArgs = token.numArgs();
+            if (numArgs > size) {
+                throw new InvalidExpressionSyntaxException("Invalid expression " + name + ": missing operand");
+            }
+            if (token instanceof SlotLoad) {
+                stack[size] = stack[size - 1 - ((SlotLoad) token).getDepth()];
+                size++;
+                continue;
+            } else if (token instanceof SlotRelease) {
+                stack[size - numArgs] = stack[size - 1];
+                size -= numArgs - 1;
+                continue;
+            }
+            String[] args = Arrays.copyOfRange(stack, size - numArgs, size);
+            size -= numArgs;
+            String value = valueSource(token, tokenIndexes.getOrDefault(token, i), args, fields);
+            body.line("float s" + i + " = " + value + ";");
+            stack[size++] = "s" + i;
+        }
+        closeBranches(branches, program.length, stack, size, body);
+        if (size != 1) {
+            throw new InvalidExpressionSyntaxException("Invalid expression " + name + ": missing operator");
+        }
+        List<Map.Entry<Token, Integer>> orderedFields = new ArrayList<>(fields.entrySet());
+        orderedFields.sort(Map.Entry.comparingByValue());
+
+        classes.line();
+        classes.open("private static final class " + expressionClass + " extends Expression {");
+        classes.line();
+        for (Map.Entry<Token, Integer> field : orderedFields) {
+            classes.line("private final " + fieldType(field.getKey()) + " t" + field.getValue() + ";");
+            if (field.getKey() instanceof Number) {
+                classes.line("private final int i" + field.getValue() + ";");
+            }
+        }
+        if (!orderedFields.isEmpty()) {
+            classes.line();
+        }
+        classes.open(expressionClass + "(Token[] tokens) {");
+        classes.line("super(tokens);");
+        for (Map.Entry<Token, Integer> field : orderedFields) {
+            int index = field.getValue();
+            classes.line("t" + index + " = (" + fieldType(field.getKey()) + ") tokens[" + index + "];");
+            if (field.getKey() instanceof Number) {
+                classes.line("i" + index + " = Symbols.slotIndex(t" + index + ");");
+            }
+        }
+        classes.close("}");
+        classes.line();
+        classes.line("@Override");
+        classes.open("public float evaluate() {");
+        classes.line("return evaluate(null, null);");
+        classes.close("}");
+        classes.line();
+        classes.line("@Override");
+        classes.open("public float evaluate(FloatStack outputStack) {");
+        classes.line("return evaluate(outputStack, null);");
+        classes.close("}");
+        classes.line();
+        classes.line("@Override");
+        classes.open("public float evaluate(float[] slots) {");
+        classes.line("return evaluate(null, slots);");
+        classes.close("}");
+        classes.line();
+        classes.line("@Override");
+        classes.open("public float evaluate(FloatStack outputStack, float[] slots) {");
+        classes.append(body);
+        classes.line("return " + stack[size - 1] + ";");
+        classes.close("}");
+        classes.close("}");
+    }
+
+    /**
+     * Open or switch the if block of a lowered conditional operator.
+     *
+     * @param variable the variable receiving the value of the operator, for the jumps opening a block
+     * @param value    the condition, the left operand, or the value of the true branch
+     */
+    private static void generateJump(ConditionalJumps.Jump jump, String variable, Deque<Branch> branches,
+                                     String value, SourceWriter body) {
+        if (jump instanceof ConditionalJumps.JumpIfZero) {
+            body.line("float " + variable + ";");
+            body.open("if (" + value + " != 0) {");
+            branches.push(new Branch(variable, -1));
+        } else if (jump instanceof ConditionalJumps.Goto) {
+            Branch branch = branches.peek();
+            body.line(branch.variable + " = " + value + ";");
+            body.reopen("} else {");
+            branch.end = jump.getTarget();
+        } else if (jump instanceof ConditionalJumps.AndJump) {
+            body.line("float " + variable + " = 0f;");
+            body.open("if (" + value + " != 0) {");
+            branches.push(new Branch(variable, jump.getTarget()));
+        } else {
+            body.line("float " + variable + " = 1f;");
+            body.open("if (" + value + " == 0) {");
+            branches.push(new Branch(variable, jump.getTarget()));
+        }
+    }
+
+    /**
+     * Close the if blocks ending at the given token index, their variable replacing the head of the stack.
+     */
+    private static void closeBranches(Deque<Branch> branches, int index, String[] stack, int size,
+                                      SourceWriter body) {
+        while (!branches.isEmpty() && branches.peek().end == index) {
+            Branch branch = branches.pop();
+            body.line(branch.variable + " = " + stack[size - 1] + ";");
+            body.close("}");
+            stack[size - 1] = branch.variable;
+        }
+    }
+
+    /**
+     * Tokenize again the expression with its token tracks, to find the symbol of each token.
+     */
+    private Map<Token, String> symbols(String expressionStr) {
+        List<Tokenizer.TokenTrack> tokenTracks = new ArrayList<>();
+        List<Token> tokens = tokenizer.tokenize(expressionStr, tokenTracks, new ArrayList<>());
+        Map<Token, String> symbols = new IdentityHashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token instanceof Operators.TemporaryTernaryLeftPart) {
+                token = ((Operators.TemporaryTernaryLeftPart) token).getOperator();
+            }
+            symbols.putIfAbsent(token, tokenTracks.get(i).getStr());
+        }
+        return symbols;
+    }
+
+    private static String tokenSource(Token token, Map<Token, String> symbols) {
+        if (token instanceof SlotLoad) {
+            return "new CommonSubexpressionEliminator.SlotLoad(" + ((SlotLoad) token).getDepth() + ")";
+        } else if (token instanceof SlotRelease) {
+            return "new CommonSubexpressionEliminator.SlotRelease(" + ((SlotRelease) token).getSlotCount() + ")";
+        } else if (token instanceof ConstantNumber) {
+            return "new ConstantNumber(" + floatLiteral(((ConstantNumber) token).getValue()) + ")";
+        }
+        String builtInName = builtInNames.get(token);
+        if (builtInName != null) {
+            return builtInName;
+        }
+        String symbol = symbols.get(token);
+        if (symbol == null) {
+            throw new IllegalArgumentException("No symbol found for the token " + token);
+        }
+        String name = stringLiteral(symbol);
+        if (token instanceof Number) {
+            return "Symbols.variable(grammar, " + name + ")";
+        } else if (token instanceof UnaryOperator) {
+            return "Symbols.unaryOperator(grammar, " + name + ")";
+        } else if (token instanceof BinaryOperator) {
+            return "Symbols.binaryOperator(grammar, " + name + ")";
+        } else if (token instanceof TernaryOperator) {
+            return "Symbols.ternaryOperator(grammar, " + name + ")";
+        } else if (token instanceof Function.NoArgs) {
+            return "Symbols.noArgsFunction(grammar, " + name + ")";
+        } else if (token instanceof Function.OneArg) {
+            return "Symbols.oneArgFunction(grammar, " + name + ")";
+        } else if (token instanceof Function.TwoArgs) {
+            return "Symbols.twoArgsFunction(grammar, " + name + ")";
+        } else if (token instanceof Function.ThreeArgs) {
+            return "Symbols.threeArgsFunction(grammar, " + name + ")";
+        } else if (token instanceof Function.FourArgs) {
+            return "Symbols.fourArgsFunction(grammar, " + name + ")";
+        } else if (token instanceof Function) {
+            return "Symbols.function(grammar, " + name + ", " + token.numArgs() + ")";
+        } else {
+            throw new IllegalArgumentException("Unsupported token " + token);
+        }
+    }
+
+    private static String valueSource(Token token, int index, String[] args, Map<Token, Integer> fields) {
+        if (token instanceof ConstantNumber) {
+            return floatLiteral(((ConstantNumber) token).getValue());
+        }
+        String template = builtInTemplates.get(token);
+        if (template != null) {
+            for (int i = 0; i < args.length; i++) {
+                template = template.replace("$" + i, args[i]);
+            }
+            return template;
+        }
+        String field = "t" + fields.computeIfAbsent(token, t -> index);
+        String joinedArgs = String.join(", ", args);
+        if (token instanceof Number) {
+            String slotIndex = "i" + fields.get(token);
+            return "(slots == null || " + slotIndex + " < 0 ? " + field + ".getValue() : slots[" + slotIndex + "])";
+        } else if (fieldType(token).equals("Token")) {
+            return "Symbols.execute(" + field + (args.length > 0 ? ", " + joinedArgs : "") + ")";
+        } else {
+            return field + ".compute(" + joinedArgs + ")";
+        }
+    }
+
+    private static String fieldType(Token token) {
+        if (token instanceof Number) {
+            return "Number";
+        } else if (token instanceof UnaryOperator) {
+            return "UnaryOperator";
+        } else if (token instanceof BinaryOperator) {
+            return "BinaryOperator";
+        } else if (token instanceof TernaryOperator) {
+            return "TernaryOperator";
+        } else if (token instanceof Function.NoArgs) {
+            return "Function.NoArgs";
+        } else if (token instanceof Function.OneArg) {
+            return "Function.OneArg";
+        } else if (token instanceof Function.TwoArgs) {
+            return "Function.TwoArgs";
+        } else if (token instanceof Function.ThreeArgs) {
+            return "Function.ThreeArgs";
+        } else if (token instanceof Function.FourArgs) {
+            return "Function.FourArgs";
+        } else {
+            return "Token";
+        }
+    }
+
+    static String methodName(String name) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            builder.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (builder.length() == 0 || !Character.isJavaIdentifierStart(builder.charAt(0))) {
+            builder.insert(0, '_');
+        }
+        if (SourceVersion.isKeyword(builder)) {
+            builder.append('_');
+        }
+        return builder.toString();
+    }
+
+    static String floatLiteral(float value) {
+        if (Float.isNaN(value)) {
+            return "Float.NaN";
+        } else if (value == Float.POSITIVE_INFINITY) {
+            return "Float.POSITIVE_INFINITY";
+        } else if (value == Float.NEGATIVE_INFINITY) {
+            return "Float.NEGATIVE_INFINITY";
+        } else {
+            return value + "f";
+        }
+    }
+
+    static String stringLiteral(String value) {
+        StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static void registerBuiltInNames(Class<?> type) {
+        for (Field field : type.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && Token.class.isAssignableFrom(field.getType())) {
+                try {
+                    builtInNames.putIfAbsent((Token) field.get(null), type.getSimpleName() + "." + field.getName());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    private static class SourceWriter {
+
+        private final StringBuilder builder = new StringBuilder();
+        private int indent;
+
+        void indent(int indent) {
+            this.indent = indent;
+        }
+
+        void line() {
+            builder.append('\n');
+        }
+
+        void line(String line) {
+            for (int i = 0; i < indent; i++) {
+                builder.append("    ");
+            }
+            builder.append(line).append('\n');
+        }
+
+        void open(String line) {
+            line(line);
+            indent++;
+        }
+
+        void close(String line) {
+            indent--;
+            line(line);
+        }
+
+        void reopen(String line) {
+            indent--;
+            line(line);
+            indent++;
+        }
+
+        void append(SourceWriter other) {
+            builder.append(other.builder);
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
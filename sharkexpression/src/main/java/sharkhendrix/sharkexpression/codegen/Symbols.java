@@ -0,0 +1,131 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.codegen;
+
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Operators;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+/**
+ * Runtime resolution of the symbols used by the sources generated by {@link JavaSourceGenerator}.
+ * Functions are adapted to the arity interface they had at generation time if needed.
+ */
+public final class Symbols {
+
+    private Symbols() {
+    }
+
+    public static Number variable(Grammar grammar, String name) {
+        return require(grammar.getVariable(name), "variable", name);
+    }
+
+    public static UnaryOperator unaryOperator(Grammar grammar, String symbol) {
+        return require(grammar.getUnaryOperator(symbol), "unary operator", symbol);
+    }
+
+    public static BinaryOperator binaryOperator(Grammar grammar, String symbol) {
+        return require(grammar.getBinaryOperator(symbol), "binary operator", symbol);
+    }
+
+    public static TernaryOperator ternaryOperator(Grammar grammar, String firstSymbol) {
+        BinaryOperator leftPart = grammar.getBinaryOperator(firstSymbol);
+        if (!(leftPart instanceof Operators.TemporaryTernaryLeftPart)) {
+            throw new IllegalArgumentException("Unknown ternary operator: " + firstSymbol);
+        }
+        return ((Operators.TemporaryTernaryLeftPart) leftPart).getOperator();
+    }
+
+    public static Function function(Grammar grammar, String name, int numArgs) {
+        Function function = require(grammar.getFunction(name), "function", name);
+        if (function.numArgs() != numArgs) {
+            throw new IllegalArgumentException("The function " + name + " does not take " + numArgs + " arguments");
+        }
+        return function;
+    }
+
+    public static Function.NoArgs noArgsFunction(Grammar grammar, String name) {
+        Function function = function(grammar, name, 0);
+        if (function instanceof Function.NoArgs) {
+            return (Function.NoArgs) function;
+        }
+        return () -> function.execute(new FloatStack(0));
+    }
+
+    public static Function.OneArg oneArgFunction(Grammar grammar, String name) {
+        Function function = function(grammar, name, 1);
+        if (function instanceof Function.OneArg) {
+            return (Function.OneArg) function;
+        }
+        return arg -> execute(function, arg);
+    }
+
+    public static Function.TwoArgs twoArgsFunction(Grammar grammar, String name) {
+        Function function = function(grammar, name, 2);
+        if (function instanceof Function.TwoArgs) {
+            return (Function.TwoArgs) function;
+        }
+        return (arg1, arg2) -> execute(function, arg1, arg2);
+    }
+
+    public static Function.ThreeArgs threeArgsFunction(Grammar grammar, String name) {
+        Function function = function(grammar, name, 3);
+        if (function instanceof Function.ThreeArgs) {
+            return (Function.ThreeArgs) function;
+        }
+        return (arg1, arg2, arg3) -> execute(function, arg1, arg2, arg3);
+    }
+
+    public static Function.FourArgs fourArgsFunction(Grammar grammar, String name) {
+        Function function = function(grammar, name, 4);
+        if (function instanceof Function.FourArgs) {
+            return (Function.FourArgs) function;
+        }
+        return (arg1, arg2, arg3, arg4) -> execute(function, arg1, arg2, arg3, arg4);
+    }
+
+    /**
+     * @param variable a variable resolved at runtime
+     * @return the slot index of the variable if it is an {@link IndexedVariable}, -1 otherwise
+     */
+    public static int slotIndex(Number variable) {
+        return variable instanceof IndexedVariable ? ((IndexedVariable) variable).getIndex() : -1;
+    }
+
+    /**
+     * Execute the given token with the given arguments, through a new FloatStack.
+     *
+     * @param token the token to execute
+     * @param args  the arguments of the token
+     * @return the result of the token execution
+     */
+    public static float execute(Token token, float... args) {
+        FloatStack stack = new FloatStack(args.length);
+        for (float arg : args) {
+            stack.push(arg);
+        }
+        return token.execute(stack);
+    }
+
+    private static <T> T require(T token, String kind, String name) {
+        if (token == null) {
+            throw new IllegalArgumentException("Unknown " + kind + ": " + name);
+        }
+        return token;
+    }
+}
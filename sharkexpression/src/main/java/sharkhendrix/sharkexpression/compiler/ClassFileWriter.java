@@ -0,0 +1,301 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal class file writer, supporting only what the {@link ExpressionCompiler} needs.
+ * <p>Class files are written in version 49 (Java 5), so no stack map frames are required.
+ */
+class ClassFileWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int MAX_CODE_LENGTH = 65535;
+
+    /**
+     * Bytecode buffer of a single method, with stack size tracking and forward labels.
+     */
+    static class Code {
+
+        private static class Label {
+            int position = -1;
+            final List<Integer> jumpSources = new ArrayList<>();
+        }
+
+        private byte[] bytes = new byte[256];
+        private int length;
+        private int stack;
+        private int maxStack;
+        private int maxLocals;
+        private final List<Label> labels = new ArrayList<>();
+
+        Code(int maxLocals) {
+            this.maxLocals = maxLocals;
+        }
+
+        /**
+         * Write a single opcode.
+         *
+         * @param opcode     the opcode to write
+         * @param stackDelta the operand stack size change caused by this instruction
+         */
+        void op(int opcode, int stackDelta) {
+            u1(opcode);
+            adjustStack(stackDelta);
+        }
+
+        void op(int opcode, int operand, int stackDelta) {
+            u1(opcode);
+            u2(operand);
+            adjustStack(stackDelta);
+        }
+
+        void local(int opcode, int index, int stackDelta) {
+            if (index < 256) {
+                u1(opcode);
+                u1(index);
+            } else {
+                u1(Opcodes.WIDE);
+                u1(opcode);
+                u2(index);
+            }
+            useLocal(index);
+            adjustStack(stackDelta);
+        }
+
+        void invokeInterface(int methodRef, int argSlots, int stackDelta) {
+            u1(Opcodes.INVOKEINTERFACE);
+            u2(methodRef);
+            u1(argSlots + 1);
+            u1(0);
+            adjustStack(stackDelta);
+        }
+
+        int newLabel() {
+            labels.add(new Label());
+            return labels.size() - 1;
+        }
+
+        void jump(int opcode, int label, int stackDelta) {
+            labels.get(label).jumpSources.add(length);
+            u1(opcode);
+            u2(0);
+            adjustStack(stackDelta);
+        }
+
+        void mark(int label) {
+            labels.get(label).position = length;
+        }
+
+        void adjustStack(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        void useLocal(int index) {
+            maxLocals = Math.max(maxLocals, index + 1);
+        }
+
+        int length() {
+            return length;
+        }
+
+        private void u1(int v) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte) v;
+        }
+
+        private void u2(int v) {
+            u1(v >>> 8);
+            u1(v);
+        }
+
+        private byte[] resolve() {
+            for (Label label : labels) {
+                for (int source : label.jumpSources) {
+                    int offset = label.position - source;
+                    bytes[source + 1] = (byte) (offset >>> 8);
+                    bytes[source + 2] = (byte) offset;
+                }
+            }
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+    private final Map<String, Integer> constantIndexes = new HashMap<>();
+    private int constantCount = 1;
+
+    private final List<byte[]> fieldList = new ArrayList<>();
+    private final List<byte[]> methodList = new ArrayList<>();
+
+    private final int thisClass;
+    private final int superClass;
+
+    ClassFileWriter(String internalName, String superInternalName) {
+        thisClass = classRef(internalName);
+        superClass = classRef(superInternalName);
+    }
+
+    int utf8(String value) {
+        return constant("U" + value, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        int nameIndex = utf8(internalName);
+        return constant("C" + internalName, out -> {
+            out.writeByte(7);
+            out.writeShort(nameIndex);
+        });
+    }
+
+    int floatConstant(float value) {
+        return constant("F" + Float.floatToRawIntBits(value), out -> {
+            out.writeByte(4);
+            out.writeFloat(value);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(11, owner, name, descriptor);
+    }
+
+    void addField(int access, String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        fieldList.add(new byte[]{
+                (byte) (access >>> 8), (byte) access,
+                (byte) (nameIndex >>> 8), (byte) nameIndex,
+                (byte) (descriptorIndex >>> 8), (byte) descriptorIndex,
+                0, 0});
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        byte[] bytecode = code.resolve();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeIndex = utf8("Code");
+        try {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1);
+            out.writeShort(codeIndex);
+            out.writeInt(12 + bytecode.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methodList.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(constantCount);
+            out.write(constantPoolBytes.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(fieldList.size());
+            for (byte[] field : fieldList) {
+                out.write(field);
+            }
+            out.writeShort(methodList.size());
+            for (byte[] method : methodList) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int classIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndTypeIndex = constant("N" + name + ' ' + descriptor, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant(tag + owner + '.' + name + ' ' + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(classIndex);
+            out.writeShort(nameAndTypeIndex);
+        });
+    }
+
+    private interface ConstantWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int constant(String key, ConstantWriter writer) {
+        Integer index = constantIndexes.get(key);
+        if (index == null) {
+            try {
+                writer.write(constantPool);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            index = constantCount++;
+            constantIndexes.put(key, index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,525 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.compiler;
+
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotRelease;
+import sharkhendrix.sharkexpression.ConditionalJumps;
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.StandaloneExpression;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static sharkhendrix.sharkexpression.compiler.Opcodes.*;
+
+/**
+ * Compiles postfix tokens into a generated Expression class,
+ * whose {@link Expression#evaluate(FloatStack, float[])} is straight-line float arithmetic.
+ * Default operators of {@link DefaultOperators} are inlined as bytecode,
+ * other tokens are called directly through final fields of the generated class.
+ * {@link IndexedVariable} values are loaded from the slots given to {@link Expression#evaluate(FloatStack, float[])}.
+ * Tokens of unknown types are executed on the given FloatStack,
+ * or on a FloatStack of the current thread with {@link Expression#evaluate()}.
+ * The default ternary condition, {@code &&} and {@code ||} operators are compiled into branches,
+ * so only the taken branches are computed.
+ *
+ * <p>Compiled Expressions do not hold any working FloatStack, and are thread-safe as long as their tokens are.
+ * Generated classes are defined in shared class loaders of up to 64 classes:
+ * a class loader, with its classes, is unloaded once it is full and all of its Expressions are unreachable.
+ *
+ * <p>Usage: {@code factory.setExpressionConstructor(ExpressionCompiler::compile)}.
+ */
+public final class ExpressionCompiler {
+
+    private static final String EXPRESSION = "sharkhendrix/sharkexpression/Expression";
+    private static final String TOKEN = "sharkhendrix/sharkexpression/token/Token";
+    private static final String FLOAT_STACK = "sharkhendrix/sharkexpression/util/FloatStack";
+    private static final String EVALUATE_STACK = "(L" + FLOAT_STACK + ";)F";
+    private static final String EVALUATE_SLOTS = "(L" + FLOAT_STACK + ";[F)F";
+    private static final String CLASS_NAME_PREFIX = "sharkhendrix/sharkexpression/compiler/CompiledExpression$";
+
+    private static final int CLASSES_PER_LOADER = 64;
+
+    private static final AtomicLong classCounter = new AtomicLong();
+    private static ExpressionClassLoader classLoader;
+
+    private static class ExpressionClassLoader extends ClassLoader {
+
+        private int classCount;
+
+        ExpressionClassLoader() {
+            super(Expression.class.getClassLoader());
+        }
+
+        Class<?> define(String internalName, byte[] classFile) {
+            classCount++;
+            return defineClass(internalName.replace('/', '.'), classFile, 0, classFile.length);
+        }
+    }
+
+    /**
+     * A token index targeted by jumps, with the locals of the operand stack when jumping.
+     */
+    private static class Target {
+        final int label;
+        int[] stack;
+        int size;
+        int local = -1;
+
+        Target(int label) {
+            this.label = label;
+        }
+    }
+
+    private final Token[] tokens;
+    private final Token[] program;
+    private final String className;
+    private final ClassFileWriter writer;
+    private final Map<Token, Integer> fieldIndexes = new IdentityHashMap<>();
+    private final Map<Integer, String> fieldTypes = new HashMap<>();
+    private ClassFileWriter.Code code;
+    private int nextLocal;
+    private boolean usesStack;
+    private boolean readsSlots;
+
+    private ExpressionCompiler(Token[] tokens) {
+        this.tokens = tokens;
+        program = ConditionalJumps.lower(tokens);
+        className = CLASS_NAME_PREFIX + classCounter.incrementAndGet();
+        writer = new ClassFileWriter(className, EXPRESSION);
+    }
+
+    /**
+     * Compile the given postfix tokens into an Expression.
+     * Falls back to a {@link StandaloneExpression} if the tokens do not form a single value,
+     * or are too many to fit in a single method.
+     *
+     * @param tokens the postfix tokens of the expression
+     * @return the compiled Expression
+     */
+    public static Expression compile(Token[] tokens) {
+        ExpressionCompiler compiler = new ExpressionCompiler(tokens);
+        byte[] classFile = compiler.generate();
+        if (classFile == null) {
+            return new StandaloneExpression(tokens);
+        }
+        try {
+            Class<?> type = define(compiler.className, classFile);
+            return (Expression) type.getConstructor(Token[].class, Token[].class)
+                    .newInstance(tokens, compiler.program);
+        } catch (InstantiationException | IllegalAccessException
+                 | InvocationTargetException | NoSuchMethodException e) {
+            throw new IllegalStateException("Unable to instantiate the compiled expression", e);
+        }
+    }
+
+    private static synchronized Class<?> define(String internalName, byte[] classFile) {
+        if (classLoader == null || classLoader.classCount == CLASSES_PER_LOADER) {
+            classLoader = new ExpressionClassLoader();
+        }
+        return classLoader.define(internalName, classFile);
+    }
+
+    private byte[] generate() {
+        if (program.length > Short.MAX_VALUE || !generateEvaluate()) {
+            return null;
+        }
+        generateConstructor();
+        generateEvaluateWithoutSlots();
+        generateEvaluateWithoutStack();
+        generateEvaluateSlotsWithoutStack();
+        return writer.toByteArray();
+    }
+
+    private boolean generateEvaluate() {
+        code = new ClassFileWriter.Code(3);
+        nextLocal = 3;
+        int[] stack = new int[program.length];
+        int size = 0;
+        Target[] targets = new Target[program.length + 1];
+        boolean reachable = true;
+        for (int i = 0; i <= program.length; i++) {
+            Target target = targets[i];
+            if (target != null) {
+                if (reachable) {
+                    generateMerge(target, stack, size);
+                } else {
+                    stack = target.stack.clone();
+                    size = target.size;
+                    reachable = true;
+                }
+                code.mark(target.label);
+            }
+            if (i == program.length) {
+                break;
+            }
+            Token token = program[i];
+            if (token instanceof ConditionalJumps.Jump) {
+                if (size == 0) {
+                    return false;
+                }
+                int jumpTarget = ((ConditionalJumps.Jump) token).getTarget();
+                if (targets[jumpTarget] == null) {
+                    targets[jumpTarget] = new Target(code.newLabel());
+                }
+                target = targets[jumpTarget];
+                if (token instanceof ConditionalJumps.Goto) {
+                    generateMerge(target, stack, size);
+                    code.jump(GOTO, target.label, 0);
+                    target.stack = stack.clone();
+                    target.size = size;
+                    reachable = false;
+                } else if (token instanceof ConditionalJumps.JumpIfZero) {
+                    generateZeroTest(stack[--size], IFEQ, target.label);
+                    target.stack = stack.clone();
+                    target.size = size;
+                } else {
+                    // The result is stored before testing the left operand, and overwritten when not jumping
+                    boolean and = token instanceof ConditionalJumps.AndJump;
+                    if (target.local == -1) {
+                        target.local = nextLocal++;
+                    }
+                    code.op(and ? FCONST_0 : FCONST_1, 1);
+                    code.local(FSTORE, target.local, -1);
+                    generateZeroTest(stack[--size], and ? IFEQ : IFNE, target.label);
+                    target.stack = stack.clone();
+                    target.stack[size] = target.local;
+                    target.size = size + 1;
+                }
+                continue;
+            }
+            int argsStart = size - token.numArgs();
+            if (argsStart < 0) {
+                return false;
+            }
+            if (token instanceof IndexedVariable && ((IndexedVariable) token).getIndex() > Short.MAX_VALUE) {
+                return false;
+            }
+            if (token instanceof SlotLoad) {
+                stack[size] = stack[size - 1 - ((SlotLoad) token).getDepth()];
+                size++;
+                continue;
+            } else if (token instanceof SlotRelease) {
+                stack[argsStart] = stack[size - 1];
+                size = argsStart + 1;
+                continue;
+            }
+            generateToken(i, stack, argsStart);
+            int local = nextLocal++;
+            code.local(FSTORE, local, -1);
+            stack[argsStart] = local;
+            size = argsStart + 1;
+        }
+        if (size == 0) {
+            return false;
+        }
+        code.local(FLOAD, stack[size - 1], 1);
+        code.op(FRETURN, -1);
+        if (code.length() > ClassFileWriter.MAX_CODE_LENGTH) {
+            return false;
+        }
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "evaluate", EVALUATE_SLOTS, code);
+        return true;
+    }
+
+    /**
+     * Store the top of the stack in the local shared by the branches meeting at the given target.
+     */
+    private void generateMerge(Target target, int[] stack, int size) {
+        if (size == 0) {
+            return;
+        }
+        if (target.local == -1) {
+            target.local = nextLocal++;
+        }
+        if (stack[size - 1] != target.local) {
+            code.local(FLOAD, stack[size - 1], 1);
+            code.local(FSTORE, target.local, -1);
+            stack[size - 1] = target.local;
+        }
+    }
+
+    private void generateToken(int index, int[] stack, int argsStart) {
+        Token token = program[index];
+        if (token instanceof ConstantNumber) {
+            generateConstant(((ConstantNumber) token).getValue());
+        } else if (token instanceof IndexedVariable) {
+            readsSlots = true;
+            code.op(ALOAD_2, 1);
+            code.op(SIPUSH, ((IndexedVariable) token).getIndex(), 1);
+            code.op(FALOAD, -1);
+        } else if (!generateBuiltIn(token, stack, argsStart)) {
+            if (token instanceof Number) {
+                generateCall(index, "sharkhendrix/sharkexpression/token/Number", "getValue", stack, argsStart, 0);
+            } else if (token instanceof UnaryOperator) {
+                generateCall(index, "sharkhendrix/sharkexpression/token/UnaryOperator", "compute", stack, argsStart, 1);
+            } else if (token instanceof BinaryOperator) {
+                generateCall(index, "sharkhendrix/sharkexpression/token/BinaryOperator", "compute", stack, argsStart, 2);
+            } else if (token instanceof TernaryOperator) {
+                generateCall(index, "sharkhendrix/sharkexpression/token/TernaryOperator", "compute", stack, argsStart, 3);
+            } else if (token instanceof Function.NoArgs) {
+                generateCall(index, "sharkhendrix/sharkexpression/token/Function$NoArgs", "compute", stack, argsStart, 0);
+            } else if (token instanceof Function.OneArg) {
+                generateCall(index, "sharkhendrix/sharkexpression/token/Function$OneArg", "compute", stack, argsStart, 1);
+            } else if (token instanceof Function.TwoArgs) {
+                generateCall(index, "sharkhendrix/sharkexpression/token/Function$TwoArgs", "compute", stack, argsStart, 2);
+            } else if (token instanceof Function.ThreeArgs) {
+                generateCall(index, "sharkhendrix/sharkexpression/token/Function$ThreeArgs", "compute", stack, argsStart, 3);
+            } else if (token instanceof Function.FourArgs) {
+                generateCall(index, "sharkhendrix/sharkexpression/token/Function$FourArgs", "compute", stack, argsStart, 4);
+            } else {
+                generateExecute(index, stack, argsStart);
+            }
+        }
+    }
+
+    private void generateConstant(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        if (bits == Float.floatToRawIntBits(0f)) {
+            code.op(FCONST_0, 1);
+        } else if (bits == Float.floatToRawIntBits(1f)) {
+            code.op(FCONST_1, 1);
+        } else if (bits == Float.floatToRawIntBits(2f)) {
+            code.op(FCONST_2, 1);
+        } else {
+            code.op(LDC_W, writer.floatConstant(value), 1);
+        }
+    }
+
+    private boolean generateBuiltIn(Token token, int[] stack, int argsStart) {
+        if (token == DefaultOperators.PLUS) {
+            generateArithmetic(FADD, stack, argsStart);
+        } else if (token == DefaultOperators.MINUS) {
+            generateArithmetic(FSUB, stack, argsStart);
+        } else if (token == DefaultOperators.MULTIPLY) {
+            generateArithmetic(FMUL, stack, argsStart);
+        } else if (token == DefaultOperators.DIVIDE) {
+            generateArithmetic(FDIV, stack, argsStart);
+        } else if (token == DefaultOperators.MODULO) {
+            generateArithmetic(FREM, stack, argsStart);
+        } else if (token == DefaultOperators.NEGATE) {
+            code.local(FLOAD, stack[argsStart], 1);
+            code.op(FNEG, 0);
+        } else if (token == DefaultOperators.POW) {
+            code.local(FLOAD, stack[argsStart], 1);
+            code.op(F2D, 1);
+            code.local(FLOAD, stack[argsStart + 1], 1);
+            code.op(F2D, 1);
+            code.op(INVOKESTATIC, writer.methodRef("java/lang/Math", "pow", "(DD)D"), -2);
+            code.op(D2F, -1);
+        } else if (token == DefaultOperators.LT) {
+            generateComparison(FCMPG, IFGE, stack, argsStart);
+        } else if (token == DefaultOperators.LTE) {
+            generateComparison(FCMPG, IFGT, stack, argsStart);
+        } else if (token == DefaultOperators.GT) {
+            generateComparison(FCMPL, IFLE, stack, argsStart);
+        } else if (token == DefaultOperators.GTE) {
+            generateComparison(FCMPL, IFLT, stack, argsStart);
+        } else if (token == DefaultOperators.EQUAL_TO) {
+            generateComparison(FCMPL, IFNE, stack, argsStart);
+        } else if (token == DefaultOperators.NOT_EQUAL_TO) {
+            generateComparison(FCMPL, IFEQ, stack, argsStart);
+        } else if (token == DefaultOperators.NOT) {
+            int falseLabel = code.newLabel();
+            generateZeroTest(stack[argsStart], IFNE, falseLabel);
+            generateBooleanResult(falseLabel, FCONST_1, FCONST_0);
+        } else if (token == DefaultOperators.AND) {
+            int falseLabel = code.newLabel();
+            generateZeroTest(stack[argsStart], IFEQ, falseLabel);
+            generateZeroTest(stack[argsStart + 1], IFEQ, falseLabel);
+            generateBooleanResult(falseLabel, FCONST_1, FCONST_0);
+        } else if (token == DefaultOperators.OR) {
+            int trueLabel = code.newLabel();
+            generateZeroTest(stack[argsStart], IFNE, trueLabel);
+            generateZeroTest(stack[argsStart + 1], IFNE, trueLabel);
+            generateBooleanResult(trueLabel, FCONST_0, FCONST_1);
+        } else if (token == ConditionalJumps.TO_BOOLEAN) {
+            int falseLabel = code.newLabel();
+            generateZeroTest(stack[argsStart], IFEQ, falseLabel);
+            generateBooleanResult(falseLabel, FCONST_1, FCONST_0);
+        } else if (token == DefaultOperators.TERNARY_CONDITION) {
+            int elseLabel = code.newLabel();
+            int endLabel = code.newLabel();
+            generateZeroTest(stack[argsStart], IFEQ, elseLabel);
+            code.local(FLOAD, stack[argsStart + 1], 1);
+            code.jump(GOTO, endLabel, -1);
+            code.mark(elseLabel);
+            code.local(FLOAD, stack[argsStart + 2], 1);
+            code.mark(endLabel);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private void generateArithmetic(int opcode, int[] stack, int argsStart) {
+        code.local(FLOAD, stack[argsStart], 1);
+        code.local(FLOAD, stack[argsStart + 1], 1);
+        code.op(opcode, -1);
+    }
+
+    /**
+     * Generate a comparison the same way javac does, so NaN semantics are preserved.
+     */
+    private void generateComparison(int compareOpcode, int falseJumpOpcode, int[] stack, int argsStart) {
+        int falseLabel = code.newLabel();
+        code.local(FLOAD, stack[argsStart], 1);
+        code.local(FLOAD, stack[argsStart + 1], 1);
+        code.op(compareOpcode, -1);
+        code.jump(falseJumpOpcode, falseLabel, -1);
+        generateBooleanResult(falseLabel, FCONST_1, FCONST_0);
+    }
+
+    private void generateZeroTest(int local, int jumpOpcode, int label) {
+        code.local(FLOAD, local, 1);
+        code.op(FCONST_0, 1);
+        code.op(FCMPL, -1);
+        code.jump(jumpOpcode, label, -1);
+    }
+
+    private void generateBooleanResult(int jumpLabel, int fallThroughValue, int jumpValue) {
+        int endLabel = code.newLabel();
+        code.op(fallThroughValue, 1);
+        code.jump(GOTO, endLabel, -1);
+        code.mark(jumpLabel);
+        code.op(jumpValue, 1);
+        code.mark(endLabel);
+    }
+
+    private void generateCall(int index, String owner, String method, int[] stack, int argsStart, int numArgs) {
+        generateFieldLoad(index, owner);
+        StringBuilder descriptor = new StringBuilder("(");
+        for (int i = 0; i < numArgs; i++) {
+            code.local(FLOAD, stack[argsStart + i], 1);
+            descriptor.append('F');
+        }
+        descriptor.append(")F");
+        code.invokeInterface(writer.interfaceMethodRef(owner, method, descriptor.toString()), numArgs, -numArgs);
+    }
+
+    /**
+     * Fallback for unknown token types: push the token arguments on the FloatStack given to evaluate,
+     * and call {@link Token#execute(FloatStack)}, which pops them.
+     */
+    private void generateExecute(int index, int[] stack, int argsStart) {
+        int numArgs = program[index].numArgs();
+        usesStack = true;
+        int pushRef = writer.methodRef(FLOAT_STACK, "push", "(F)V");
+        for (int i = 0; i < numArgs; i++) {
+            code.op(ALOAD_1, 1);
+            code.local(FLOAD, stack[argsStart + i], 1);
+            code.op(INVOKEVIRTUAL, pushRef, -2);
+        }
+        generateFieldLoad(index, TOKEN);
+        code.op(ALOAD_1, 1);
+        code.invokeInterface(writer.interfaceMethodRef(TOKEN, "execute", EVALUATE_STACK), 1, -1);
+    }
+
+    private void generateFieldLoad(int index, String type) {
+        Integer fieldIndex = fieldIndexes.get(program[index]);
+        if (fieldIndex == null) {
+            fieldIndex = index;
+            fieldIndexes.put(program[index], fieldIndex);
+            fieldTypes.put(fieldIndex, type);
+            writer.addField(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_FINAL, "t" + index, "L" + type + ";");
+        }
+        code.op(ALOAD_0, 1);
+        code.op(GETFIELD, writer.fieldRef(className, "t" + fieldIndex, "L" + type + ";"), 0);
+    }
+
+    /**
+     * Generate a constructor taking the tokens of the Expression, and the lowered program holding the called tokens.
+     */
+    private void generateConstructor() {
+        ClassFileWriter.Code constructor = new ClassFileWriter.Code(3);
+        constructor.op(ALOAD_0, 1);
+        constructor.op(ALOAD_1, 1);
+        constructor.op(INVOKESPECIAL, writer.methodRef(EXPRESSION, "<init>", "([L" + TOKEN + ";)V"), -2);
+        for (Map.Entry<Integer, String> entry : fieldTypes.entrySet()) {
+            int index = entry.getKey();
+            String type = entry.getValue();
+            constructor.op(ALOAD_0, 1);
+            constructor.op(ALOAD_2, 1);
+            constructor.op(SIPUSH, index, 1);
+            constructor.op(AALOAD, -1);
+            constructor.op(CHECKCAST, writer.classRef(type), 0);
+            constructor.op(PUTFIELD, writer.fieldRef(className, "t" + index, "L" + type + ";"), -2);
+        }
+        constructor.op(RETURN, 0);
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "([L" + TOKEN + ";[L" + TOKEN + ";)V", constructor);
+    }
+
+    /**
+     * Generate evaluate(FloatStack) calling evaluate(FloatStack, float[]) without slots.
+     * Expressions reading slots use the postfix evaluation instead, which does not support IndexedVariables.
+     */
+    private void generateEvaluateWithoutSlots() {
+        ClassFileWriter.Code evaluate = new ClassFileWriter.Code(2);
+        evaluate.op(ALOAD_0, 1);
+        evaluate.op(ALOAD_1, 1);
+        if (readsSlots) {
+            evaluate.op(INVOKESPECIAL, writer.methodRef(EXPRESSION, "evaluate", EVALUATE_STACK), -1);
+        } else {
+            evaluate.op(ACONST_NULL, 1);
+            evaluate.op(INVOKEVIRTUAL, writer.methodRef(className, "evaluate", EVALUATE_SLOTS), -2);
+        }
+        evaluate.op(FRETURN, -1);
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "evaluate", EVALUATE_STACK, evaluate);
+    }
+
+    /**
+     * Generate evaluate() calling evaluate(FloatStack) with the working FloatStack of the current thread,
+     * or with null if the FloatStack is not used.
+     */
+    private void generateEvaluateWithoutStack() {
+        ClassFileWriter.Code evaluate = new ClassFileWriter.Code(1);
+        evaluate.op(ALOAD_0, 1);
+        generateWorkingStack(evaluate, usesStack || readsSlots);
+        evaluate.op(INVOKEVIRTUAL, writer.methodRef(className, "evaluate", EVALUATE_STACK), -1);
+        evaluate.op(FRETURN, -1);
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "evaluate", "()F", evaluate);
+    }
+
+    /**
+     * Generate evaluate(float[]) calling evaluate(FloatStack, float[]) with the working FloatStack of the current thread,
+     * or with null if no token is executed on a FloatStack.
+     */
+    private void generateEvaluateSlotsWithoutStack() {
+        ClassFileWriter.Code evaluate = new ClassFileWriter.Code(2);
+        evaluate.op(ALOAD_0, 1);
+        generateWorkingStack(evaluate, usesStack);
+        evaluate.op(ALOAD_1, 1);
+        evaluate.op(INVOKEVIRTUAL, writer.methodRef(className, "evaluate", EVALUATE_SLOTS), -2);
+        evaluate.op(FRETURN, -1);
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "evaluate", "([F)F", evaluate);
+    }
+
+    private void generateWorkingStack(ClassFileWriter.Code evaluate, boolean needed) {
+        if (needed) {
+            evaluate.op(INVOKESTATIC, writer.methodRef(EXPRESSION, "workingStack", "()L" + FLOAT_STACK + ";"), 1);
+        } else {
+            evaluate.op(ACONST_NULL, 1);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.compiler;
+
+/**
+ * JVM opcodes used by the {@link ExpressionCompiler}.
+ */
+final class Opcodes {
+
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_0 = 0x03;
+    static final int FCONST_0 = 0x0b;
+    static final int FCONST_1 = 0x0c;
+    static final int FCONST_2 = 0x0d;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int FLOAD = 0x17;
+    static final int ALOAD_0 = 0x2a;
+    static final int ALOAD_1 = 0x2b;
+    static final int ALOAD_2 = 0x2c;
+    static final int FALOAD = 0x30;
+    static final int AALOAD = 0x32;
+    static final int FSTORE = 0x38;
+    static final int FADD = 0x62;
+    static final int FSUB = 0x66;
+    static final int FMUL = 0x6a;
+    static final int FDIV = 0x6e;
+    static final int FREM = 0x72;
+    static final int FNEG = 0x76;
+    static final int F2D = 0x8d;
+    static final int D2F = 0x90;
+    static final int FCMPL = 0x95;
+    static final int FCMPG = 0x96;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int GOTO = 0xa7;
+    static final int FRETURN = 0xae;
+    static final int RETURN = 0xb1;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int CHECKCAST = 0xc0;
+    static final int WIDE = 0xc4;
+
+    private Opcodes() {
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.grammar;
+
+/**
+ * The role of a character in expressions, see {@link Grammar#charClass(int)}.
+ */
+public enum CharClass {
+    /**
+     * Token separator.
+     */
+    SPACE,
+    /**
+     * Digit of a number, or part of a word after its first character.
+     */
+    DIGIT,
+    DECIMAL_SEPARATOR,
+    /**
+     * Alphabetic or allowed special character of variable, function, and word operator names.
+     */
+    WORD,
+    LEFT_PARENTHESIS,
+    RIGHT_PARENTHESIS,
+    FUNCTION_ARGS_SEPARATOR,
+    /**
+     * Any other character, part of operator symbols.
+     */
+    SYMBOL
+}
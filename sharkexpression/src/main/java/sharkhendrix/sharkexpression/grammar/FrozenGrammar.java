@@ -0,0 +1,152 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.grammar;
+
+/**
+ * Immutable snapshot of a Grammar, created by {@link Grammar#freeze()}.
+ * Its characters, operators, functions and variables can not be modified,
+ * {@link UnsupportedOperationException} is thrown instead, so it is safe to share between parsing threads.
+ * ASCII character classes are read from a precomputed table, and its {@link #symbolTrie()} is compiled once.
+ */
+public final class FrozenGrammar extends Grammar {
+
+    private static final int TABLE_SIZE = 128;
+
+    private final int[] leftParentheses;
+    private final int[] rightParentheses;
+    private final int functionArgsSeparator;
+    private final int decimalSeparator;
+    private final int[] allowedSpecialCharsInWords;
+    private final CharClass[] charClasses = new CharClass[TABLE_SIZE];
+    private final SymbolTrie symbolTrie;
+
+    FrozenGrammar(Grammar grammar) {
+        super(grammar.operators().frozenCopy(), grammar.functions().frozenCopy(), grammar.variables().frozenCopy());
+        int[] parenthesisChars = grammar.parenthesisChars();
+        leftParentheses = new int[parenthesisChars.length / 2];
+        rightParentheses = new int[parenthesisChars.length / 2];
+        for (int i = 0; i < leftParentheses.length; i++) {
+            leftParentheses[i] = parenthesisChars[i * 2];
+            rightParentheses[i] = parenthesisChars[i * 2 + 1];
+        }
+        functionArgsSeparator = grammar.functionArgsSeparator();
+        decimalSeparator = grammar.decimalSeparator();
+        allowedSpecialCharsInWords = grammar.allowedSpecialCharsInWords();
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            charClasses[c] = super.charClass(c);
+        }
+        symbolTrie = super.symbolTrie();
+    }
+
+    @Override
+    public CharClass charClass(int c) {
+        return c < TABLE_SIZE ? charClasses[c] : super.charClass(c);
+    }
+
+    @Override
+    public SymbolTrie symbolTrie() {
+        return symbolTrie;
+    }
+
+    @Override
+    public FrozenGrammar freeze() {
+        return this;
+    }
+
+    @Override
+    public Grammar setParenthesisPairs(int... chars) {
+        throw frozen();
+    }
+
+    @Override
+    public Grammar setFunctionArgsSeparator(int functionArgsSeparator) {
+        throw frozen();
+    }
+
+    @Override
+    public Grammar setDecimalSeparator(int decimalSeparator) {
+        throw frozen();
+    }
+
+    @Override
+    public Grammar setAllowedSpecialCharsInWords(int... chars) {
+        throw frozen();
+    }
+
+    @Override
+    public boolean isLeftParenthesis(int c) {
+        return contains(leftParentheses, c);
+    }
+
+    @Override
+    public boolean isRightParenthesis(int c) {
+        return contains(rightParentheses, c);
+    }
+
+    @Override
+    public boolean matchParenthesis(int left, int right) {
+        for (int i = 0; i < leftParentheses.length; i++) {
+            if (leftParentheses[i] == left && rightParentheses[i] == right) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int functionArgsSeparator() {
+        return functionArgsSeparator;
+    }
+
+    @Override
+    public int decimalSeparator() {
+        return decimalSeparator;
+    }
+
+    @Override
+    public boolean isSpecialCharAllowedInWords(int c) {
+        return contains(allowedSpecialCharsInWords, c);
+    }
+
+    @Override
+    int[] parenthesisChars() {
+        int[] chars = new int[leftParentheses.length * 2];
+        for (int i = 0; i < leftParentheses.length; i++) {
+            chars[i * 2] = leftParentheses[i];
+            chars[i * 2 + 1] = rightParentheses[i];
+        }
+        return chars;
+    }
+
+    @Override
+    int[] allowedSpecialCharsInWords() {
+        return allowedSpecialCharsInWords.clone();
+    }
+
+    private static boolean contains(int[] chars, int c) {
+        for (int value : chars) {
+            if (value == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("The grammar is frozen");
+    }
+}
@@ -18,18 +18,24 @@ package sharkhendrix.sharkexpression.grammar;
 
 import sharkhendrix.sharkexpression.token.Function;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class Functions {
 
     private final Map<String, Function> functions = new HashMap<>();
+    private int modificationCount;
+    private boolean frozen;
 
     public Functions add(String name, Function function) {
+        checkNotFrozen();
         if (functions.get(name) != null) {
             throw new IllegalArgumentException("The function " + name + " already exists.");
         }
         functions.put(name, function);
+        modificationCount++;
         return this;
     }
 
@@ -55,11 +61,42 @@ public class Functions {
 
 
     public Functions remove(String name) {
-        functions.remove(name);
+        checkNotFrozen();
+        if (functions.remove(name) != null) {
+            modificationCount++;
+        }
         return this;
     }
 
     public Function get(String name) {
         return functions.get(name);
     }
+
+    /**
+     * @return the unmodifiable names of the functions
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(functions.keySet());
+    }
+
+    Functions frozenCopy() {
+        Functions copy = new Functions();
+        copy.functions.putAll(functions);
+        copy.freeze();
+        return copy;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("The grammar is frozen");
+        }
+    }
+
+    int modificationCount() {
+        return modificationCount;
+    }
 }
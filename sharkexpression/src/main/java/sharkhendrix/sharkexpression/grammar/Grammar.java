@@ -24,8 +24,6 @@ import sharkhendrix.sharkexpression.token.Function;
 import sharkhendrix.sharkexpression.token.Number;
 import sharkhendrix.sharkexpression.token.UnaryOperator;
 
-import java.util.Arrays;
-
 /**
  * Definition of all the grammar for Expressions :
  * basic characters, operators, functions and variables.
@@ -58,6 +56,8 @@ public class Grammar {
     private int functionArgsSeparator = ',';
     public int decimalSeparator = '.';
     private int[] allowedSpecialCharsInWords = defaultAllowedSpecialCharsInWords;
+    private int modificationCount;
+    private volatile SymbolTrie symbolTrie;
 
     /**
      * Creates a Grammar empty of operators, functions, variables,
@@ -185,6 +185,7 @@ public class Grammar {
      */
     public Grammar setParenthesisPairs(int... chars) {
         parenthesisPairs = createParenthesisPairs(chars);
+        modificationCount++;
         return this;
     }
 
@@ -196,6 +197,7 @@ public class Grammar {
      */
     public Grammar setFunctionArgsSeparator(int functionArgsSeparator) {
         this.functionArgsSeparator = functionArgsSeparator;
+        modificationCount++;
         return this;
     }
 
@@ -207,6 +209,7 @@ public class Grammar {
      */
     public Grammar setDecimalSeparator(int decimalSeparator) {
         this.decimalSeparator = decimalSeparator;
+        modificationCount++;
         return this;
     }
 
@@ -219,9 +222,39 @@ public class Grammar {
      */
     public Grammar setAllowedSpecialCharsInWords(int... chars) {
         this.allowedSpecialCharsInWords = chars;
+        modificationCount++;
         return this;
     }
 
+    /**
+     * The version of this grammar, increased by any change to its characters, operators, functions or variables.
+     * Parsed expressions cached for a version are outdated once the version changed.
+     *
+     * @return the current version of this grammar
+     */
+    public long version() {
+        return (long) modificationCount + operators.modificationCount()
+                + functions.modificationCount() + variables.modificationCount();
+    }
+
+    /**
+     * Get the trie of the operators, functions and variables of this grammar,
+     * compiled again on the first call after a change of the {@link #version()}.
+     * The trie is made from the content of {@link #operators()}, {@link #functions()} and {@link #variables()}:
+     * it ignores the overrides of the lookup methods of this class.
+     *
+     * @return the symbol trie of the current version of this grammar
+     */
+    public SymbolTrie symbolTrie() {
+        SymbolTrie trie = symbolTrie;
+        long version = version();
+        if (trie == null || trie.version() != version) {
+            trie = new SymbolTrie(this, version);
+            symbolTrie = trie;
+        }
+        return trie;
+    }
+
     public UnaryOperator getUnaryOperator(String symbol) {
         return operators.getUnary(symbol);
     }
@@ -239,15 +272,30 @@ public class Grammar {
     }
 
     public boolean isLeftParenthesis(int c) {
-        return Arrays.stream(parenthesisPairs).anyMatch(p -> p.left == c);
+        for (ParenthesisPair pair : parenthesisPairs) {
+            if (pair.left == c) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean isRightParenthesis(int c) {
-        return Arrays.stream(parenthesisPairs).anyMatch(p -> p.right == c);
+        for (ParenthesisPair pair : parenthesisPairs) {
+            if (pair.right == c) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean matchParenthesis(int left, int right) {
-        return Arrays.stream(parenthesisPairs).anyMatch(p -> p.left == left && p.right == right);
+        for (ParenthesisPair pair : parenthesisPairs) {
+            if (pair.left == left && pair.right == right) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public int functionArgsSeparator() {
@@ -258,8 +306,67 @@ public class Grammar {
         return decimalSeparator;
     }
 
+    /**
+     * Get the role of the given character, as read by the Tokenizer.
+     * The default implementation checks each character predicate of this grammar in turn,
+     * {@link #freeze()} returns a grammar with precomputed tables.
+     *
+     * @param c the code point to classify
+     * @return the role of the character
+     */
+    public CharClass charClass(int c) {
+        if (c == ' ') {
+            return CharClass.SPACE;
+        } else if (Character.isDigit(c)) {
+            return CharClass.DIGIT;
+        } else if (c == decimalSeparator()) {
+            return CharClass.DECIMAL_SEPARATOR;
+        } else if (Character.isAlphabetic(c) || isSpecialCharAllowedInWords(c)) {
+            return CharClass.WORD;
+        } else if (isLeftParenthesis(c)) {
+            return CharClass.LEFT_PARENTHESIS;
+        } else if (isRightParenthesis(c)) {
+            return CharClass.RIGHT_PARENTHESIS;
+        } else if (c == functionArgsSeparator()) {
+            return CharClass.FUNCTION_ARGS_SEPARATOR;
+        } else {
+            return CharClass.SYMBOL;
+        }
+    }
+
+    /**
+     * Create an immutable snapshot of this grammar, safe to share between parsing threads.
+     * The snapshot copies the characters, operators, functions and variables of this grammar,
+     * precomputes the ASCII character classes, and compiles its {@link #symbolTrie()}.
+     * It ignores the overrides of the lookup methods of this class.
+     * Later changes of this grammar do not affect the snapshot, and the snapshot can not be modified.
+     *
+     * @return the frozen snapshot of this grammar
+     */
+    public FrozenGrammar freeze() {
+        return new FrozenGrammar(this);
+    }
+
+    int[] parenthesisChars() {
+        int[] chars = new int[parenthesisPairs.length * 2];
+        for (int i = 0; i < parenthesisPairs.length; i++) {
+            chars[i * 2] = parenthesisPairs[i].left;
+            chars[i * 2 + 1] = parenthesisPairs[i].right;
+        }
+        return chars;
+    }
+
+    int[] allowedSpecialCharsInWords() {
+        return allowedSpecialCharsInWords.clone();
+    }
+
     public boolean isSpecialCharAllowedInWords(int c) {
-        return Arrays.stream(allowedSpecialCharsInWords).anyMatch(a -> a == c);
+        for (int allowed : allowedSpecialCharsInWords) {
+            if (allowed == c) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private static ParenthesisPair[] createParenthesisPairs(int... chars) {
@@ -20,8 +20,10 @@ import sharkhendrix.sharkexpression.token.BinaryOperator;
 import sharkhendrix.sharkexpression.token.TernaryOperator;
 import sharkhendrix.sharkexpression.token.UnaryOperator;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Container of operators.
@@ -74,6 +76,8 @@ public class Operators {
 
     private final Map<String, BinaryOperator> binaryOperators = new HashMap<>();
     private final Map<String, UnaryOperator> unaryOperators = new HashMap<>();
+    private int modificationCount;
+    private boolean frozen;
 
     /**
      * Add the given unary operator.
@@ -84,10 +88,12 @@ public class Operators {
      * @throws IllegalArgumentException if a unary operator already exists with the given name
      */
     public Operators add(String symbol, UnaryOperator unaryOperator) {
+        checkNotFrozen();
         if (unaryOperators.get(symbol) != null) {
             throw new IllegalArgumentException("The unary symbol " + symbol + " already exists.");
         }
         unaryOperators.put(symbol, unaryOperator);
+        modificationCount++;
         return this;
     }
 
@@ -100,10 +106,12 @@ public class Operators {
      * @throws IllegalArgumentException if a binary operator already exists with the given name
      */
     public Operators add(String symbol, BinaryOperator operator) {
+        checkNotFrozen();
         if (binaryOperators.get(symbol) != null) {
             throw new IllegalArgumentException("The binary or ternary symbol " + symbol + " already exists.");
         }
         binaryOperators.put(symbol, operator);
+        modificationCount++;
         return this;
     }
 
@@ -130,7 +138,10 @@ public class Operators {
      * @return this for method chaining
      */
     public Operators removeUnary(String symbol) {
-        unaryOperators.remove(symbol);
+        checkNotFrozen();
+        if (unaryOperators.remove(symbol) != null) {
+            modificationCount++;
+        }
         return this;
     }
 
@@ -141,7 +152,10 @@ public class Operators {
      * @return this for method chaining
      */
     public Operators removeBinary(String symbol) {
-        binaryOperators.remove(symbol);
+        checkNotFrozen();
+        if (binaryOperators.remove(symbol) != null) {
+            modificationCount++;
+        }
         return this;
     }
 
@@ -153,12 +167,14 @@ public class Operators {
      * @return this for method chaining
      */
     public Operators removeTernary(String firstSymbol, String secondSymbol) {
+        checkNotFrozen();
         BinaryOperator leftPart = binaryOperators.get(firstSymbol);
         BinaryOperator rightPart = binaryOperators.get(secondSymbol);
         if (leftPart instanceof TemporaryTernaryLeftPart && rightPart instanceof TemporaryTernaryRightPart
                 && ((TemporaryTernaryLeftPart) leftPart).getOperator() == ((TemporaryTernaryRightPart) rightPart).getOperator()) {
             binaryOperators.remove(firstSymbol);
             binaryOperators.remove(secondSymbol);
+            modificationCount++;
         }
         return this;
     }
@@ -171,4 +187,40 @@ public class Operators {
     public BinaryOperator getBinary(String symbol) {
         return binaryOperators.get(symbol);
     }
+
+    /**
+     * @return the unmodifiable symbols of the unary operators
+     */
+    public Set<String> unarySymbols() {
+        return Collections.unmodifiableSet(unaryOperators.keySet());
+    }
+
+    /**
+     * @return the unmodifiable symbols of the binary operators and of the ternary operator parts
+     */
+    public Set<String> binarySymbols() {
+        return Collections.unmodifiableSet(binaryOperators.keySet());
+    }
+
+    Operators frozenCopy() {
+        Operators copy = new Operators();
+        copy.unaryOperators.putAll(unaryOperators);
+        copy.binaryOperators.putAll(binaryOperators);
+        copy.freeze();
+        return copy;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("The grammar is frozen");
+        }
+    }
+
+    int modificationCount() {
+        return modificationCount;
+    }
 }
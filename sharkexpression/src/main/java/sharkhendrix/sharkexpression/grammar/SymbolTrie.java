@@ -0,0 +1,156 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.grammar;
+
+import sharkhendrix.sharkexpression.token.BinaryOperator;
+import sharkhendrix.sharkexpression.token.Function;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.UnaryOperator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable trie of the operator symbols, function names and variable names of a Grammar,
+ * compiled by {@link Grammar#symbolTrie()}. The trie is walked char by char from an input buffer,
+ * so words are resolved without creating Strings,
+ * and runs of symbol chars are split into their longest known operators, like {@code <} {@code -} in {@code a<-b}.
+ * Names made of supplementary characters span two levels of the trie, one per UTF-16 char.
+ */
+public final class SymbolTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * A node of the trie, holding the tokens named by the chars from the root to this node.
+     */
+    public static final class Node {
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Number variable;
+        private Function function;
+        private UnaryOperator unaryOperator;
+        private BinaryOperator binaryOperator;
+
+        /**
+         * @param c the next char
+         * @return the child node reached with the given char, or null if no name continues with it
+         */
+        public Node child(char c) {
+            char[] keys = this.keys;
+            if (keys.length <= 8) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] == c) {
+                        return children[i];
+                    }
+                }
+                return null;
+            }
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        public Number variable() {
+            return variable;
+        }
+
+        public Function function() {
+            return function;
+        }
+
+        public UnaryOperator unaryOperator() {
+            return unaryOperator;
+        }
+
+        public BinaryOperator binaryOperator() {
+            return binaryOperator;
+        }
+
+        private Node getOrCreateChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertion = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertion);
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+            System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+            Node child = new Node();
+            newKeys[insertion] = c;
+            newChildren[insertion] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    private final long version;
+    private final Node root = new Node();
+
+    SymbolTrie(Grammar grammar, long version) {
+        this.version = version;
+        Set<String> names = new HashSet<>(grammar.variables().names());
+        names.addAll(grammar.functions().names());
+        names.addAll(grammar.operators().unarySymbols());
+        names.addAll(grammar.operators().binarySymbols());
+        for (String name : names) {
+            Node node = root;
+            for (int i = 0; i < name.length(); i++) {
+                node = node.getOrCreateChild(name.charAt(i));
+            }
+            node.variable = grammar.getVariable(name);
+            node.function = grammar.getFunction(name);
+            node.unaryOperator = grammar.getUnaryOperator(name);
+            node.binaryOperator = grammar.getBinaryOperator(name);
+        }
+    }
+
+    /**
+     * @return the {@link Grammar#version()} this trie was compiled from
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return the root node, reached by the empty name
+     */
+    public Node root() {
+        return root;
+    }
+
+    /**
+     * Find the node of the name made of the given chars.
+     *
+     * @param chars the chars of the name
+     * @param start the index of the first char of the name
+     * @param end   the index after the last char of the name
+     * @return the node of the name, or null if no name of the grammar starts with the given chars
+     */
+    public Node find(char[] chars, int start, int end) {
+        Node node = root;
+        for (int i = start; i < end && node != null; i++) {
+            node = node.child(chars[i]);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.grammar;
+
+import sharkhendrix.sharkexpression.token.IndexedVariable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Variables whose values are read from slots, by index, instead of value suppliers.
+ * Each variable added with {@link #add(String)} is bound to the next slot index.
+ * <p>Expressions parsed with a VariableLayout are evaluated with
+ * {@link sharkhendrix.sharkexpression.Expression#evaluate(sharkhendrix.sharkexpression.EvaluationContext)}
+ * or {@link sharkhendrix.sharkexpression.Expression#evaluate(float[])}, so the same Expression can be evaluated
+ * for different entities, from different threads, without shared mutable state.
+ */
+public class VariableLayout extends Variables {
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int slotCount;
+
+    /**
+     * Add a variable bound to the next slot index.
+     *
+     * @param name the name of the variable
+     * @return this for method chaining style
+     * @throws IllegalArgumentException if a variable already exists with the given name
+     */
+    public VariableLayout add(String name) {
+        add(name, new IndexedVariable(slotCount));
+        slots.put(name, slotCount++);
+        return this;
+    }
+
+    @Override
+    public VariableLayout remove(String name) {
+        super.remove(name);
+        slots.remove(name);
+        return this;
+    }
+
+    /**
+     * @param name the name of a variable added with {@link #add(String)}
+     * @return the slot index of the variable
+     * @throws IllegalArgumentException if there is no slot variable with the given name
+     */
+    public int slotOf(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            throw new IllegalArgumentException("The variable " + name + " has no slot.");
+        }
+        return slot;
+    }
+
+    /**
+     * @return the number of slots required to evaluate expressions with this layout
+     */
+    public int size() {
+        return slotCount;
+    }
+}
@@ -20,8 +20,10 @@ import sharkhendrix.sharkexpression.token.ConstantNumber;
 import sharkhendrix.sharkexpression.token.Number;
 import sharkhendrix.sharkexpression.token.VariableNumber;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Container of variables. Supports varying values and constant values.
@@ -29,6 +31,8 @@ import java.util.Map;
 public class Variables {
 
     private final Map<String, Number> variables = new HashMap<>();
+    private int modificationCount;
+    private boolean frozen;
 
     /**
      * Add a variable with the given value supplier.
@@ -39,8 +43,10 @@ public class Variables {
      * @throws IllegalArgumentException if a variable already exists with the given name
      */
     public Variables add(String name, VariableNumber valueSupplier) {
+        checkNotFrozen();
         checkExists(name);
         variables.put(name, valueSupplier);
+        modificationCount++;
         return this;
     }
 
@@ -53,8 +59,10 @@ public class Variables {
      * @throws IllegalArgumentException if a variable already exists with the given name
      */
     public Variables add(String name, float constantValue) {
+        checkNotFrozen();
         checkExists(name);
         variables.put(name, new ConstantNumber(constantValue));
+        modificationCount++;
         return this;
     }
 
@@ -65,7 +73,10 @@ public class Variables {
      * @return this for method chaining style
      */
     public Variables remove(String name) {
-        variables.remove(name);
+        checkNotFrozen();
+        if (variables.remove(name) != null) {
+            modificationCount++;
+        }
         return this;
     }
 
@@ -79,6 +90,34 @@ public class Variables {
         return variables.get(name);
     }
 
+    /**
+     * @return the unmodifiable names of the variables and constants
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(variables.keySet());
+    }
+
+    Variables frozenCopy() {
+        Variables copy = new Variables();
+        copy.variables.putAll(variables);
+        copy.freeze();
+        return copy;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("The grammar is frozen");
+        }
+    }
+
+    int modificationCount() {
+        return modificationCount;
+    }
+
     private void checkExists(String name) {
         if (variables.get(name) != null) {
             throw new IllegalArgumentException("The variable " + name + " already exists.");
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.grammar.defaults;
+
+import sharkhendrix.sharkexpression.grammar.Functions;
+import sharkhendrix.sharkexpression.token.Function;
+
+public class DefaultFunctions {
+
+    public static final Function.OneArg ABS = Math::abs;
+
+    public static final Function.OneArg ACOS = f -> (float) Math.acos(f);
+
+    public static final Function.OneArg ASIN = f -> (float) Math.asin(f);
+
+    public static final Function.OneArg ATAN = f -> (float) Math.atan(f);
+
+    public static final Function.TwoArgs ATAN2 = (y, x) -> (float) Math.atan2(y, x);
+
+    public static final Function.OneArg CBRT = f -> (float) Math.cbrt(f);
+
+    public static final Function.OneArg CEIL = f -> (float) Math.ceil(f);
+
+    public static final Function.OneArg COS = f -> (float) Math.cos(f);
+
+    public static final Function.OneArg COSH = f -> (float) Math.cosh(f);
+
+    public static final Function.OneArg EXP = f -> (float) Math.exp(f);
+
+    public static final Function.OneArg FLOOR = f -> (float) Math.floor(f);
+
+    public static final Function.OneArg LOG = f -> (float) Math.log(f);
+
+    public static final Function.OneArg LOG10 = f -> (float) Math.log10(f);
+
+    public static final Function.TwoArgs MAX = Math::max;
+
+    public static final Function.TwoArgs MIN = Math::min;
+
+    public static final Function.TwoArgs POW = (f, e) -> (float) Math.pow(f, e);
+
+    public static final Function.OneArg ROUND = f -> (float) Math.round(f);
+
+    public static final Function.OneArg SIGNUM = Math::signum;
+
+    public static final Function.OneArg SIN = f -> (float) Math.sin(f);
+
+    public static final Function.OneArg SINH = f -> (float) Math.sinh(f);
+
+    public static final Function.OneArg SQRT = f -> (float) Math.sqrt(f);
+
+    public static final Function.OneArg TAN = f -> (float) Math.tan(f);
+
+    public static final Function.OneArg TANH = f -> (float) Math.tanh(f);
+
+    private DefaultFunctions() {
+    }
+
+    public static void apply(Functions functions) {
+        functions.add("abs", ABS);
+        functions.add("acos", ACOS);
+        functions.add("asin", ASIN);
+        functions.add("atan", ATAN);
+        functions.add("atan2", ATAN2);
+        functions.add("cbrt", CBRT);
+        functions.add("ceil", CEIL);
+        functions.add("cos", COS);
+        functions.add("cosh", COSH);
+        functions.add("exp", EXP);
+        functions.add("floor", FLOOR);
+        functions.add("log", LOG);
+        functions.add("log10", LOG10);
+        functions.add("max", MAX);
+        functions.add("min", MIN);
+        functions.add("pow", POW);
+        functions.add("round", ROUND);
+        functions.add("signum", SIGNUM);
+        functions.add("sin", SIN);
+        functions.add("sinh", SINH);
+        functions.add("sqrt", SQRT);
+        functions.add("tan", TAN);
+        functions.add("tanh", TANH);
+    }
+}
@@ -42,6 +42,11 @@ public class DefaultOperators {
         public int precedence() {
             return ADDITION_PRECEDENCE;
         }
+
+        @Override
+        public boolean isAssociative() {
+            return true;
+        }
     };
 
     public static final BinaryOperator MINUS = new BinaryOperator() {
@@ -54,6 +59,11 @@ public class DefaultOperators {
         public int precedence() {
             return ADDITION_PRECEDENCE;
         }
+
+        @Override
+        public BinaryOperator inverseOf() {
+            return PLUS;
+        }
     };
 
     public static final BinaryOperator MULTIPLY = new BinaryOperator() {
@@ -66,6 +76,11 @@ public class DefaultOperators {
         public int precedence() {
             return MULTIPLICATION_PRECEDENCE;
         }
+
+        @Override
+        public boolean isAssociative() {
+            return true;
+        }
     };
 
     public static final BinaryOperator DIVIDE = new BinaryOperator() {
@@ -78,6 +93,11 @@ public class DefaultOperators {
         public int precedence() {
             return MULTIPLICATION_PRECEDENCE;
         }
+
+        @Override
+        public BinaryOperator inverseOf() {
+            return MULTIPLY;
+        }
     };
 
     public static final BinaryOperator MODULO = new BinaryOperator() {
@@ -34,6 +34,29 @@ public interface BinaryOperator extends Token {
         return true;
     }
 
+    /**
+     * Tells if this operator is associative and commutative, like {@code +} and {@code *}.
+     * The constant operands of a chain of such operators, and of their {@link #inverseOf()} operators,
+     * are folded together by the {@link sharkhendrix.sharkexpression.ExpressionSimplifier},
+     * for instance {@code 2 + x - 1} becomes {@code 1 + x}.
+     *
+     * @return true if this operator is associative and commutative
+     */
+    default boolean isAssociative() {
+        return false;
+    }
+
+    /**
+     * The associative operator this operator is the inverse of, like {@code +} for {@code -},
+     * or {@code *} for {@code /}, so that {@code (a this b) inverse b == a}.
+     *
+     * @return the associative operator this operator is the inverse of, or null
+     * @see #isAssociative()
+     */
+    default BinaryOperator inverseOf() {
+        return null;
+    }
+
     @Override
     default int numArgs() {
         return 2;
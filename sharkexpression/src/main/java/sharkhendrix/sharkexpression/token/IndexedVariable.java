@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.token;
+
+/**
+ * A variable bound to an index instead of a value supplier.
+ * In {@link sharkhendrix.sharkexpression.Expression#evaluateBatch(float[][], float[], int)},
+ * the index is the one of the variable column.
+ * In {@link sharkhendrix.sharkexpression.Expression#evaluate(float[])}, the index is the one of the variable slot,
+ * see {@link sharkhendrix.sharkexpression.grammar.VariableLayout}.
+ *
+ * <p>An IndexedVariable has no value on its own, so {@link #getValue()} is not supported.
+ */
+public class IndexedVariable implements VariableNumber {
+
+    private final int index;
+
+    public IndexedVariable(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Negative variable index: " + index);
+        }
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public float getValue() {
+        throw new UnsupportedOperationException("The variable of index " + index
+                + " has no value outside of an indexed evaluation");
+    }
+
+    @Override
+    public String toString() {
+        return "$" + index;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression.token;
+
+/**
+ * Raise its operand to a small integer power with float multiplications, instead of {@link Math#pow(double, double)}.
+ * Produced by the {@link sharkhendrix.sharkexpression.AlgebraicSimplifier}, for instance {@code x ^ 2} becomes
+ * {@code x} followed by {@code IntegerPower.of(2)}, so the operand is evaluated once.
+ * Instances are shared by exponent, so that equal powers of equal operands are common sub-expressions.
+ */
+public final class IntegerPower implements UnaryOperator {
+
+    public static final int MAX_EXPONENT = 16;
+
+    private static final IntegerPower[] instances = new IntegerPower[2 * MAX_EXPONENT + 1];
+
+    static {
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new IntegerPower(i - MAX_EXPONENT);
+        }
+    }
+
+    private final int exponent;
+
+    private IntegerPower(int exponent) {
+        this.exponent = exponent;
+    }
+
+    /**
+     * @param exponent the exponent, from {@code -MAX_EXPONENT} to {@code MAX_EXPONENT}
+     * @return the IntegerPower of the given exponent
+     * @throws IllegalArgumentException if the exponent is out of range
+     */
+    public static IntegerPower of(int exponent) {
+        if (exponent < -MAX_EXPONENT || exponent > MAX_EXPONENT) {
+            throw new IllegalArgumentException("Exponent out of range: " + exponent);
+        }
+        return instances[exponent + MAX_EXPONENT];
+    }
+
+    public int getExponent() {
+        return exponent;
+    }
+
+    @Override
+    public float compute(float rightSide) {
+        int n = Math.abs(exponent);
+        float result = 1;
+        float base = rightSide;
+        while (n != 0) {
+            if ((n & 1) != 0) {
+                result *= base;
+            }
+            n >>= 1;
+            if (n != 0) {
+                base *= base;
+            }
+        }
+        return exponent < 0 ? 1 / result : result;
+    }
+
+    @Override
+    public String toString() {
+        return "^" + exponent;
+    }
+}
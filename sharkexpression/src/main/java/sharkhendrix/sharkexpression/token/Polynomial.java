@@ -0,0 +1,97 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression.token;
+
+import sharkhendrix.sharkexpression.util.FusedMultiplyAdd;
+
+import java.util.Arrays;
+
+/**
+ * Evaluate a polynomial of its operand with the Horner method: {@code ((c3 * x + c2) * x + c1) * x + c0}.
+ * Produced by the {@link sharkhendrix.sharkexpression.PolynomialRewriter}, for instance
+ * {@code a*x^3 + b*x^2 + c*x + d} becomes {@code x} followed by a Polynomial of coefficients {@code d, c, b, a},
+ * so the operand is evaluated once, without {@link Math#pow} calls.
+ * The multiply-add steps can be computed by {@link FusedMultiplyAdd}, with a single rounding.
+ */
+public final class Polynomial implements UnaryOperator {
+
+    private final float[] coefficients;
+    private final boolean fusedMultiplyAdd;
+
+    /**
+     * @param coefficients     the coefficients, from the constant term to the highest degree one
+     * @param fusedMultiplyAdd true to compute the multiply-add steps with {@link FusedMultiplyAdd}
+     */
+    public Polynomial(float[] coefficients, boolean fusedMultiplyAdd) {
+        if (coefficients.length == 0) {
+            throw new IllegalArgumentException("A polynomial needs at least one coefficient");
+        }
+        this.coefficients = coefficients.clone();
+        this.fusedMultiplyAdd = fusedMultiplyAdd;
+    }
+
+    /**
+     * @return a copy of the coefficients, from the constant term to the highest degree one
+     */
+    public float[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    public int getDegree() {
+        return coefficients.length - 1;
+    }
+
+    public boolean isFusedMultiplyAdd() {
+        return fusedMultiplyAdd;
+    }
+
+    @Override
+    public float compute(float rightSide) {
+        float[] coefficients = this.coefficients;
+        int i = coefficients.length - 1;
+        float result = coefficients[i];
+        if (fusedMultiplyAdd) {
+            while (--i >= 0) {
+                result = FusedMultiplyAdd.fma(result, rightSide, coefficients[i]);
+            }
+        } else {
+            while (--i >= 0) {
+                result = result * rightSide + coefficients[i];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "polynomial" + Arrays.toString(coefficients);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Polynomial that = (Polynomial) o;
+        return fusedMultiplyAdd == that.fusedMultiplyAdd && Arrays.equals(coefficients, that.coefficients);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(coefficients) + Boolean.hashCode(fusedMultiplyAdd);
+    }
+}
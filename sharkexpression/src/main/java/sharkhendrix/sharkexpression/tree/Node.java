@@ -0,0 +1,30 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.tree;
+
+/**
+ * A node of a {@link TreeExpression}, evaluating itself from its children.
+ */
+interface Node {
+
+    /**
+     * @param slots the array holding the values of the common sub-expressions, computed once per evaluation
+     * @param base  the index of the first slot value in the array
+     * @return the value of this node
+     */
+    float evaluate(float[] slots, int base);
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.tree;
+
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+/**
+ * Node implementations of {@link TreeExpression}.
+ * Default operators get dedicated nodes, other tokens are called through their compute methods.
+ */
+final class Nodes {
+
+    private Nodes() {
+    }
+
+    /**
+     * Create the node of the given token.
+     *
+     * @param token    the token to create the node for
+     * @param children the nodes of the token arguments, of length {@code token.numArgs()}
+     * @return the node of the token
+     */
+    static Node create(Token token, Node[] children) {
+        if (token instanceof ConstantNumber) {
+            return new Constant(((ConstantNumber) token).getValue());
+        } else if (token instanceof Number) {
+            return new Variable((Number) token);
+        } else if (token == DefaultOperators.PLUS) {
+            return new Add(children[0], children[1]);
+        } else if (token == DefaultOperators.MINUS) {
+            return new Subtract(children[0], children[1]);
+        } else if (token == DefaultOperators.MULTIPLY) {
+            return new Multiply(children[0], children[1]);
+        } else if (token == DefaultOperators.DIVIDE) {
+            return new Divide(children[0], children[1]);
+        } else if (token == DefaultOperators.NEGATE) {
+            return new Negate(children[0]);
+        } else if (token == DefaultOperators.AND) {
+            return new And(children[0], children[1]);
+        } else if (token == DefaultOperators.OR) {
+            return new Or(children[0], children[1]);
+        } else if (token == DefaultOperators.TERNARY_CONDITION) {
+            return new Condition(children[0], children[1], children[2]);
+        } else if (token instanceof UnaryOperator) {
+            return new Unary((UnaryOperator) token, children[0]);
+        } else if (token instanceof BinaryOperator) {
+            return new Binary((BinaryOperator) token, children[0], children[1]);
+        } else if (token instanceof TernaryOperator) {
+            return new Ternary((TernaryOperator) token, children[0], children[1], children[2]);
+        } else if (token instanceof Function.NoArgs) {
+            return new NoArgsFunction((Function.NoArgs) token);
+        } else if (token instanceof Function.OneArg) {
+            return new OneArgFunction((Function.OneArg) token, children[0]);
+        } else if (token instanceof Function.TwoArgs) {
+            return new TwoArgsFunction((Function.TwoArgs) token, children[0], children[1]);
+        } else if (token instanceof Function.ThreeArgs) {
+            return new ThreeArgsFunction((Function.ThreeArgs) token, children[0], children[1], children[2]);
+        } else if (token instanceof Function.FourArgs) {
+            return new FourArgsFunction((Function.FourArgs) token, children[0], children[1], children[2], children[3]);
+        } else {
+            return new Execute(token, children);
+        }
+    }
+
+    static final class Constant implements Node {
+        private final float value;
+
+        Constant(float value) {
+            this.value = value;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return value;
+        }
+    }
+
+    /**
+     * Reads the value of a variable slot, or of a common sub-expression computed before the root node.
+     */
+    static final class SlotValue implements Node {
+        private final int index;
+
+        SlotValue(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return slots[base + index];
+        }
+    }
+
+    static final class Variable implements Node {
+        private final Number number;
+
+        Variable(Number number) {
+            this.number = number;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return number.getValue();
+        }
+    }
+
+    static final class Add implements Node {
+        private final Node left;
+        private final Node right;
+
+        Add(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return left.evaluate(slots, base) + right.evaluate(slots, base);
+        }
+    }
+
+    static final class Subtract implements Node {
+        private final Node left;
+        private final Node right;
+
+        Subtract(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return left.evaluate(slots, base) - right.evaluate(slots, base);
+        }
+    }
+
+    static final class Multiply implements Node {
+        private final Node left;
+        private final Node right;
+
+        Multiply(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return left.evaluate(slots, base) * right.evaluate(slots, base);
+        }
+    }
+
+    static final class Divide implements Node {
+        private final Node left;
+        private final Node right;
+
+        Divide(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return left.evaluate(slots, base) / right.evaluate(slots, base);
+        }
+    }
+
+    static final class Negate implements Node {
+        private final Node child;
+
+        Negate(Node child) {
+            this.child = child;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return -child.evaluate(slots, base);
+        }
+    }
+
+    static final class And implements Node {
+        private final Node left;
+        private final Node right;
+
+        And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return left.evaluate(slots, base) != 0 && right.evaluate(slots, base) != 0 ? 1 : 0;
+        }
+    }
+
+    static final class Or implements Node {
+        private final Node left;
+        private final Node right;
+
+        Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return left.evaluate(slots, base) != 0 || right.evaluate(slots, base) != 0 ? 1 : 0;
+        }
+    }
+
+    static final class Condition implements Node {
+        private final Node condition;
+        private final Node ifTrue;
+        private final Node ifFalse;
+
+        Condition(Node condition, Node ifTrue, Node ifFalse) {
+            this.condition = condition;
+            this.ifTrue = ifTrue;
+            this.ifFalse = ifFalse;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return condition.evaluate(slots, base) != 0 ? ifTrue.evaluate(slots, base) : ifFalse.evaluate(slots, base);
+        }
+    }
+
+    static final class Unary implements Node {
+        private final UnaryOperator operator;
+        private final Node child;
+
+        Unary(UnaryOperator operator, Node child) {
+            this.operator = operator;
+            this.child = child;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return operator.compute(child.evaluate(slots, base));
+        }
+    }
+
+    static final class Binary implements Node {
+        private final BinaryOperator operator;
+        private final Node left;
+        private final Node right;
+
+        Binary(BinaryOperator operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            float leftValue = left.evaluate(slots, base);
+            return operator.compute(leftValue, right.evaluate(slots, base));
+        }
+    }
+
+    static final class Ternary implements Node {
+        private final TernaryOperator operator;
+        private final Node left;
+        private final Node middle;
+        private final Node right;
+
+        Ternary(TernaryOperator operator, Node left, Node middle, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.middle = middle;
+            this.right = right;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            float leftValue = left.evaluate(slots, base);
+            float middleValue = middle.evaluate(slots, base);
+            return operator.compute(leftValue, middleValue, right.evaluate(slots, base));
+        }
+    }
+
+    static final class NoArgsFunction implements Node {
+        private final Function.NoArgs function;
+
+        NoArgsFunction(Function.NoArgs function) {
+            this.function = function;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return function.compute();
+        }
+    }
+
+    static final class OneArgFunction implements Node {
+        private final Function.OneArg function;
+        private final Node arg;
+
+        OneArgFunction(Function.OneArg function, Node arg) {
+            this.function = function;
+            this.arg = arg;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            return function.compute(arg.evaluate(slots, base));
+        }
+    }
+
+    static final class TwoArgsFunction implements Node {
+        private final Function.TwoArgs function;
+        private final Node arg1;
+        private final Node arg2;
+
+        TwoArgsFunction(Function.TwoArgs function, Node arg1, Node arg2) {
+            this.function = function;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            float value1 = arg1.evaluate(slots, base);
+            return function.compute(value1, arg2.evaluate(slots, base));
+        }
+    }
+
+    static final class ThreeArgsFunction implements Node {
+        private final Function.ThreeArgs function;
+        private final Node arg1;
+        private final Node arg2;
+        private final Node arg3;
+
+        ThreeArgsFunction(Function.ThreeArgs function, Node arg1, Node arg2, Node arg3) {
+            this.function = function;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+            this.arg3 = arg3;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            float value1 = arg1.evaluate(slots, base);
+            float value2 = arg2.evaluate(slots, base);
+            return function.compute(value1, value2, arg3.evaluate(slots, base));
+        }
+    }
+
+    static final class FourArgsFunction implements Node {
+        private final Function.FourArgs function;
+        private final Node arg1;
+        private final Node arg2;
+        private final Node arg3;
+        private final Node arg4;
+
+        FourArgsFunction(Function.FourArgs function, Node arg1, Node arg2, Node arg3, Node arg4) {
+            this.function = function;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+            this.arg3 = arg3;
+            this.arg4 = arg4;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            float value1 = arg1.evaluate(slots, base);
+            float value2 = arg2.evaluate(slots, base);
+            float value3 = arg3.evaluate(slots, base);
+            return function.compute(value1, value2, value3, arg4.evaluate(slots, base));
+        }
+    }
+
+    /**
+     * Fallback for other token types, executed on a FloatStack local to the evaluation.
+     */
+    static final class Execute implements Node {
+        private final Token token;
+        private final Node[] children;
+
+        Execute(Token token, Node[] children) {
+            this.token = token;
+            this.children = children;
+        }
+
+        @Override
+        public float evaluate(float[] slots, int base) {
+            FloatStack stack = new FloatStack(Math.max(children.length, 1));
+            for (Node child : children) {
+                stack.push(child.evaluate(slots, base));
+            }
+            return token.execute(stack);
+        }
+    }
+}
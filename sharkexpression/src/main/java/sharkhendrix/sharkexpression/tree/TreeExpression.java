@@ -0,0 +1,211 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.tree;
+
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotRelease;
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.token.IndexedVariable;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A parsed Expression, evaluated as a tree of nodes instead of a postfix token sequence.
+ * It does not need any working FloatStack, so it is thread-safe as long as its tokens are.
+ * Unlike the postfix evaluation, only the taken branch of logical and conditional default operators is evaluated.
+ * Common sub-expressions are evaluated once per evaluation, into slot values reserved on the working FloatStack.
+ * The values of the {@link IndexedVariable} slots are copied before them.
+ *
+ * <p>The nodes are evaluated recursively, so expressions deeper than {@link #MAX_DEPTH}
+ * fall back to the postfix evaluation. Without a given FloatStack, a FloatStack per thread is used.
+ *
+ * <p>Usage: {@code factory.setExpressionConstructor(TreeExpression::new)}.
+ */
+public class TreeExpression extends Expression {
+
+    /**
+     * The maximum depth of the tree, bounding the recursion of the evaluation.
+     */
+    public static final int MAX_DEPTH = 1000;
+
+    private static final Node missingOperand = new Nodes.Constant(Float.NaN);
+    private static final float[] NO_SLOTS = new float[0];
+
+    private final Node root;
+    private final Node[] slotNodes;
+    private final int[] variableSlots;
+
+    public TreeExpression(Token[] tokens) {
+        super(tokens);
+        List<Node> slotNodeList = new ArrayList<>();
+        variableSlots = variableSlots(tokens);
+        root = buildTree(tokens, slotNodeList, variableSlots);
+        slotNodes = slotNodeList.toArray(new Node[0]);
+    }
+
+    /**
+     * @return false if this expression is too deep to be evaluated as a tree, and uses the postfix evaluation
+     */
+    public boolean isTree() {
+        return root != null;
+    }
+
+    @Override
+    public float evaluate() {
+        if (root == null || variableSlots.length > 0) {
+            return super.evaluate(workingStack());
+        }
+        return slotNodes.length == 0 ? root.evaluate(NO_SLOTS, 0) : evaluateTree(workingStack(), null);
+    }
+
+    @Override
+    public float evaluate(FloatStack outputStack) {
+        if (root == null || variableSlots.length > 0) {
+            return super.evaluate(outputStack);
+        }
+        return slotNodes.length == 0 ? root.evaluate(NO_SLOTS, 0) : evaluateTree(outputStack, null);
+    }
+
+    @Override
+    public float evaluate(float[] slots) {
+        return evaluate(workingStack(), slots);
+    }
+
+    @Override
+    public float evaluate(FloatStack outputStack, float[] slots) {
+        if (root == null) {
+            return super.evaluate(outputStack, slots);
+        }
+        if (variableSlots.length == 0 && slotNodes.length == 0) {
+            return root.evaluate(NO_SLOTS, 0);
+        }
+        return evaluateTree(outputStack, slots);
+    }
+
+    /**
+     * Copy the variable slots and evaluate the slot nodes into values reserved on the given stack,
+     * then evaluate the root node.
+     */
+    private float evaluateTree(FloatStack stack, float[] variables) {
+        int count = variableSlots.length + slotNodes.length;
+        int base = stack.size();
+        float[] values = stack.reserve(count);
+        for (int i = 0; i < variableSlots.length; i++) {
+            values[base + i] = variables[variableSlots[i]];
+        }
+        for (int i = 0; i < slotNodes.length; i++) {
+            values[base + variableSlots.length + i] = slotNodes[i].evaluate(values, base);
+        }
+        float result = root.evaluate(values, base);
+        stack.drop(count);
+        return result;
+    }
+
+    /**
+     * @return the distinct slot indexes of the IndexedVariables of the tokens, in order of appearance
+     */
+    private static int[] variableSlots(Token[] tokens) {
+        int[] variableSlots = new int[0];
+        for (Token token : tokens) {
+            if (token instanceof IndexedVariable && indexOf(variableSlots, ((IndexedVariable) token).getIndex()) < 0) {
+                variableSlots = Arrays.copyOf(variableSlots, variableSlots.length + 1);
+                variableSlots[variableSlots.length - 1] = ((IndexedVariable) token).getIndex();
+            }
+        }
+        return variableSlots;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuild the tree from the postfix tokens, relying on {@link Token#numArgs()}.
+     * Missing operands evaluate to NaN, as a FloatStack pop on an empty stack does.
+     * Common sub-expressions loaded from their slot become slot nodes, evaluated before the root node,
+     * and are read by {@link Nodes.SlotValue} nodes, after the values of the variable slots.
+     *
+     * @param slotNodes     the list receiving the slot nodes, in evaluation order
+     * @param variableSlots the slot indexes of the IndexedVariables, copied before the slot node values
+     * @return the root node, or null if the tree is deeper than {@link #MAX_DEPTH}
+     */
+    private static Node buildTree(Token[] tokens, List<Node> slotNodes, int[] variableSlots) {
+        Node[] stack = new Node[tokens.length];
+        int[] depths = new int[tokens.length];
+        int[] slots = new int[tokens.length];
+        int size = 0;
+        for (Token token : tokens) {
+            if (token instanceof SlotLoad) {
+                int position = size - 1 - ((SlotLoad) token).getDepth();
+                if (position < 0) {
+                    stack[size] = missingOperand;
+                    slots[size] = -1;
+                } else {
+                    if (slots[position] == -1) {
+                        slots[position] = variableSlots.length + slotNodes.size();
+                        slotNodes.add(stack[position]);
+                    }
+                    stack[size] = new Nodes.SlotValue(slots[position]);
+                    slots[size] = slots[position];
+                }
+                depths[size++] = 1;
+                continue;
+            } else if (token instanceof SlotRelease) {
+                Node result = size > 0 ? stack[size - 1] : missingOperand;
+                int resultDepth = size > 0 ? depths[size - 1] : 1;
+                int resultSlot = size > 0 ? slots[size - 1] : -1;
+                size = Math.max(size - token.numArgs(), 0);
+                stack[size] = result;
+                slots[size] = resultSlot;
+                depths[size++] = resultDepth;
+                continue;
+            }
+            Node[] children = new Node[token.numArgs()];
+            int depth = 0;
+            for (int i = children.length - 1; i >= 0; i--) {
+                if (size > 0) {
+                    size--;
+                    children[i] = slots[size] == -1 ? stack[size] : new Nodes.SlotValue(slots[size]);
+                    depth = Math.max(depth, slots[size] == -1 ? depths[size] : 1);
+                } else {
+                    children[i] = missingOperand;
+                }
+            }
+            if (++depth > MAX_DEPTH) {
+                return null;
+            }
+            stack[size] = token instanceof IndexedVariable
+                    ? new Nodes.SlotValue(indexOf(variableSlots, ((IndexedVariable) token).getIndex()))
+                    : Nodes.create(token, children);
+            slots[size] = -1;
+            depths[size++] = depth;
+        }
+        if (size == 0) {
+            return missingOperand;
+        }
+        return slots[size - 1] == -1 ? stack[size - 1] : new Nodes.SlotValue(slots[size - 1]);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.util;
+
+/**
+ * Parses float literals directly from chars, without creating a String, correctly rounded
+ * like {@link Float#parseFloat(String)}. Literals are made of ASCII digits, at most one decimal separator,
+ * and an optional exponent: {@code e} or {@code E}, an optional sign, and digits.
+ *
+ * <p>Literals with up to 18 significant digits whose value is exactly computed with a single float
+ * or double operation are parsed without allocation (Clinger's fast path).
+ * The other ones, with more digits or far exponents, fall back to {@link Float#parseFloat(String)}.
+ */
+public final class FloatParser {
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int MAX_SIGNIFICANT_DIGITS = 18;
+    private static final int MAX_EXPONENT = 100_000;
+    private static final long FLOAT_EXACT_MANTISSA = 1L << 24;
+    private static final long DOUBLE_EXACT_MANTISSA = 1L << 53;
+    private static final long DOUBLE_TO_FLOAT_DROPPED_BITS = (1L << 29) - 1;
+    private static final long DOUBLE_TO_FLOAT_HALFWAY = 1L << 28;
+
+    private FloatParser() {
+    }
+
+    /**
+     * Parse the float literal made of the given chars.
+     *
+     * @param chars            the chars of the literal
+     * @param start            the index of the first char of the literal
+     * @param end              the index after the last char of the literal
+     * @param decimalSeparator the decimal separator of the literal
+     * @return the float value of the literal, correctly rounded
+     * @throws NumberFormatException if the chars are not a float literal
+     */
+    public static float parseFloat(char[] chars, int start, int end, int decimalSeparator) {
+        long mantissa = 0;
+        int significantDigits = 0;
+        int pendingZeros = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean decimals = false;
+        int i = start;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (decimals) {
+                    exponent--;
+                }
+                if (c == '0') {
+                    if (mantissa != 0) {
+                        pendingZeros++;
+                    }
+                    continue;
+                }
+                significantDigits += pendingZeros + 1;
+                if (significantDigits > MAX_SIGNIFICANT_DIGITS) {
+                    return fallback(chars, start, end, decimalSeparator);
+                }
+                for (; pendingZeros > 0; pendingZeros--) {
+                    mantissa *= 10;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+            } else if (c == decimalSeparator && !decimals) {
+                decimals = true;
+            } else {
+                break;
+            }
+        }
+        if (!digits) {
+            throw numberFormatException(chars, start, end);
+        }
+        if (i < end) {
+            int exponentEnd = exponentEnd(chars, i, end);
+            if (exponentEnd != end) {
+                throw numberFormatException(chars, start, end);
+            }
+            exponent += parseExponent(chars, i + 1, end);
+        }
+        if (mantissa == 0) {
+            return 0f;
+        }
+        exponent += pendingZeros;
+        if (mantissa <= FLOAT_EXACT_MANTISSA && exponent >= -10 && exponent <= 10) {
+            return exponent >= 0 ? mantissa * FLOAT_POWERS_OF_TEN[exponent]
+                    : mantissa / FLOAT_POWERS_OF_TEN[-exponent];
+        }
+        if (mantissa <= DOUBLE_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            double value = exponent >= 0 ? mantissa * DOUBLE_POWERS_OF_TEN[exponent]
+                    : mantissa / DOUBLE_POWERS_OF_TEN[-exponent];
+            // A double rounded to a float halfway point could be rounded twice in the wrong direction
+            if ((Double.doubleToRawLongBits(value) & DOUBLE_TO_FLOAT_DROPPED_BITS) != DOUBLE_TO_FLOAT_HALFWAY) {
+                return (float) value;
+            }
+        }
+        return fallback(chars, start, end, decimalSeparator);
+    }
+
+    /**
+     * Find the end of an exponent starting at the given index.
+     *
+     * @param chars the chars holding the exponent
+     * @param index the index of the exponent char, {@code e} or {@code E}
+     * @param end   the index after the last char which can be part of the exponent
+     * @return the index after the exponent, or -1 if there is no exponent at the given index
+     */
+    public static int exponentEnd(char[] chars, int index, int end) {
+        if (index >= end || (chars[index] != 'e' && chars[index] != 'E')) {
+            return -1;
+        }
+        int i = index + 1;
+        if (i < end && (chars[i] == '+' || chars[i] == '-')) {
+            i++;
+        }
+        if (i >= end || chars[i] < '0' || chars[i] > '9') {
+            return -1;
+        }
+        while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int parseExponent(char[] chars, int start, int end) {
+        boolean negative = chars[start] == '-';
+        int i = chars[start] == '-' || chars[start] == '+' ? start + 1 : start;
+        int exponent = 0;
+        for (; i < end; i++) {
+            if (exponent < MAX_EXPONENT) {
+                exponent = exponent * 10 + (chars[i] - '0');
+            }
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    private static float fallback(char[] chars, int start, int end, int decimalSeparator) {
+        String str = new String(chars, start, end - start);
+        if (decimalSeparator != '.') {
+            str = str.replace((char) decimalSeparator, '.');
+        }
+        return Float.parseFloat(str);
+    }
+
+    private static NumberFormatException numberFormatException(char[] chars, int start, int end) {
+        return new NumberFormatException("For input string: \"" + new String(chars, start, end - start) + "\"");
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.util;
+
+
+import java.util.Arrays;
+
+/**
+ * Simple implementation of a primitive float stack
+ */
+public class FloatStack {
+
+    private float[] elements;
+    private int size;
+
+    /**
+     * Create a new Float stack with an initial capacity of 10.
+     */
+    public FloatStack() {
+        this(10);
+    }
+
+    /**
+     * Create a new Float stack with the given initial capacity
+     *
+     * @param initialCapacity the initial capacity of the backing array
+     */
+    public FloatStack(int initialCapacity) {
+        elements = new float[initialCapacity];
+        size = 0;
+    }
+
+    /**
+     * Push the given float to the head of this stack.
+     *
+     * @param e the float value to push
+     */
+    public void push(float e) {
+        ensureCapacity();
+        elements[size] = e;
+        ++size;
+    }
+
+    /**
+     * Push the given float to the head of this stack, without checking the capacity.
+     * {@link #ensureCapacity(int)} must have been called before.
+     *
+     * @param e the float value to push
+     */
+    public void pushUnchecked(float e) {
+        elements[size++] = e;
+    }
+
+    /**
+     * Grow the backing array if needed, so that the given number of elements can be pushed without resize.
+     *
+     * @param additionalElements the number of elements that will be pushed
+     */
+    public void ensureCapacity(int additionalElements) {
+        if (elements.length - size < additionalElements) {
+            elements = Arrays.copyOf(elements, size + additionalElements);
+        }
+    }
+
+    /**
+     * Push the given number of elements to the head of this stack, and get the backing array to write them,
+     * from the index of the previous {@link #size()}. The array is replaced when this stack grows,
+     * so {@link #ensureCapacity(int)} must have been called before for the elements pushed in the meantime.
+     *
+     * @param count the number of elements to push
+     * @return the backing array of this stack
+     */
+    public float[] reserve(int count) {
+        ensureCapacity(count);
+        size += count;
+        return elements;
+    }
+
+    /**
+     * Remove the given number of elements from the head of this stack.
+     *
+     * @param count the number of elements to remove
+     */
+    public void drop(int count) {
+        size = Math.max(size - count, 0);
+    }
+
+    /**
+     * Retrieve and remove the head of this stack
+     *
+     * @return the value removed from the head of this stack
+     */
+    public float pop() {
+        if (size == 0) {
+            return Float.NaN;
+        } else {
+            --size;
+            return elements[size];
+        }
+    }
+
+    /**
+     * Retrieve without removing an element of this stack.
+     *
+     * @param depth the depth of the element from the head of this stack, 0 being the head
+     * @return the value at the given depth, or NaN if the stack is not deep enough
+     */
+    public float peek(int depth) {
+        int index = size - 1 - depth;
+        return index >= 0 && depth >= 0 ? elements[index] : Float.NaN;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all the elements of this stack, keeping its capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    private void ensureCapacity() {
+        if (elements.length == size) {
+            elements = Arrays.copyOf(elements, elements.length + 10);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.vm;
+
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.ConditionalJumps;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotRelease;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultFunctions;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+
+import java.util.*;
+
+import static sharkhendrix.sharkexpression.vm.Opcodes.*;
+
+/**
+ * Lowers postfix tokens into the instructions and the register file of a {@link BytecodeExpression}.
+ * <p>The default ternary condition, {@code &&} and {@code ||} operators are lowered into jumps,
+ * the value of the taken branch is moved to the register of its stack position where the branches meet.
+ */
+class Assembler {
+
+    /**
+     * A token index targeted by jumps, with the operand stack when jumping and the jump operands to patch.
+     */
+    private static class Target {
+        final List<Integer> patches = new ArrayList<>();
+        int[] stack;
+        int size;
+    }
+
+    private static final Map<Token, Integer> builtInOpcodes = new IdentityHashMap<>();
+
+    static {
+        builtInOpcodes.put(DefaultOperators.PLUS, ADD);
+        builtInOpcodes.put(DefaultOperators.MINUS, SUBTRACT);
+        builtInOpcodes.put(DefaultOperators.MULTIPLY, MULTIPLY);
+        builtInOpcodes.put(DefaultOperators.DIVIDE, DIVIDE);
+        builtInOpcodes.put(DefaultOperators.MODULO, MODULO);
+        builtInOpcodes.put(DefaultOperators.POW, POW);
+        builtInOpcodes.put(DefaultOperators.NEGATE, NEGATE);
+        builtInOpcodes.put(DefaultOperators.LT, LT);
+        builtInOpcodes.put(DefaultOperators.LTE, LTE);
+        builtInOpcodes.put(DefaultOperators.GT, GT);
+        builtInOpcodes.put(DefaultOperators.GTE, GTE);
+        builtInOpcodes.put(DefaultOperators.EQUAL_TO, EQUAL_TO);
+        builtInOpcodes.put(DefaultOperators.NOT_EQUAL_TO, NOT_EQUAL_TO);
+        builtInOpcodes.put(DefaultOperators.NOT, NOT);
+        builtInOpcodes.put(DefaultOperators.AND, AND);
+        builtInOpcodes.put(DefaultOperators.OR, OR);
+        builtInOpcodes.put(DefaultOperators.TERNARY_CONDITION, TERNARY_CONDITION);
+        builtInOpcodes.put(ConditionalJumps.TO_BOOLEAN, TO_BOOLEAN);
+        builtInOpcodes.put(DefaultFunctions.ABS, ABS);
+        builtInOpcodes.put(DefaultFunctions.ACOS, ACOS);
+        builtInOpcodes.put(DefaultFunctions.ASIN, ASIN);
+        builtInOpcodes.put(DefaultFunctions.ATAN, ATAN);
+        builtInOpcodes.put(DefaultFunctions.ATAN2, ATAN2);
+        builtInOpcodes.put(DefaultFunctions.CBRT, CBRT);
+        builtInOpcodes.put(DefaultFunctions.CEIL, CEIL);
+        builtInOpcodes.put(DefaultFunctions.COS, COS);
+        builtInOpcodes.put(DefaultFunctions.COSH, COSH);
+        builtInOpcodes.put(DefaultFunctions.EXP, EXP);
+        builtInOpcodes.put(DefaultFunctions.FLOOR, FLOOR);
+        builtInOpcodes.put(DefaultFunctions.LOG, LOG);
+        builtInOpcodes.put(DefaultFunctions.LOG10, LOG10);
+        builtInOpcodes.put(DefaultFunctions.MAX, MAX);
+        builtInOpcodes.put(DefaultFunctions.MIN, MIN);
+        builtInOpcodes.put(DefaultFunctions.POW, POW);
+        builtInOpcodes.put(DefaultFunctions.ROUND, ROUND);
+        builtInOpcodes.put(DefaultFunctions.SIGNUM, SIGNUM);
+        builtInOpcodes.put(DefaultFunctions.SIN, SIN);
+        builtInOpcodes.put(DefaultFunctions.SINH, SINH);
+        builtInOpcodes.put(DefaultFunctions.SQRT, SQRT);
+        builtInOpcodes.put(DefaultFunctions.TAN, TAN);
+        builtInOpcodes.put(DefaultFunctions.TANH, TANH);
+    }
+
+    private final Map<Integer, Integer> constantRegisters = new HashMap<>();
+    private final List<Float> constants = new ArrayList<>();
+    private final Map<Token, Integer> invokedIndexes = new IdentityHashMap<>();
+    private final List<Token> invokedTokens = new ArrayList<>();
+    private int[] code = new int[16];
+    private int codeLength;
+    private final int slotBase;
+    private int maxDepth;
+    private int maxInvokeArgs;
+    private int resultRegister;
+    private boolean readsSlots;
+
+    Assembler(Token[] tokens) {
+        int depth = 0;
+        for (Token token : tokens) {
+            if (token instanceof ConstantNumber) {
+                constantRegister(((ConstantNumber) token).getValue());
+            } else if (token instanceof SlotLoad && ((SlotLoad) token).getDepth() >= depth) {
+                constantRegister(Float.NaN);
+            }
+            depth -= token.numArgs();
+            if (depth < 0) {
+                constantRegister(Float.NaN);
+                depth = 0;
+            }
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        if (depth == 0) {
+            constantRegister(Float.NaN);
+        }
+        slotBase = constants.size();
+        assemble(ConditionalJumps.lower(tokens));
+    }
+
+    int[] code() {
+        return Arrays.copyOf(code, codeLength);
+    }
+
+    Token[] invokedTokens() {
+        return invokedTokens.toArray(new Token[0]);
+    }
+
+    float[] constants() {
+        float[] values = new float[slotBase];
+        for (int i = 0; i < slotBase; i++) {
+            values[i] = constants.get(i);
+        }
+        return values;
+    }
+
+    int registerCount() {
+        return slotBase + maxDepth;
+    }
+
+    int resultRegister() {
+        return resultRegister;
+    }
+
+    int maxInvokeArgs() {
+        return maxInvokeArgs;
+    }
+
+    /**
+     * @return true if the code reads IndexedVariables from the evaluated slots
+     */
+    boolean readsSlots() {
+        return readsSlots;
+    }
+
+    private void assemble(Token[] tokens) {
+        int[] stack = new int[maxDepth];
+        int size = 0;
+        Target[] targets = new Target[tokens.length + 1];
+        boolean reachable = true;
+        for (int index = 0; index <= tokens.length; index++) {
+            Target target = targets[index];
+            if (target != null) {
+                if (reachable) {
+                    moveToPosition(stack, size);
+                } else {
+                    stack = target.stack.clone();
+                    size = target.size;
+                    reachable = true;
+                }
+                for (int patch : target.patches) {
+                    code[patch] = codeLength;
+                }
+            }
+            if (index == tokens.length) {
+                break;
+            }
+            Token token = tokens[index];
+            if (token instanceof ConditionalJumps.Jump) {
+                int jumpTarget = ((ConditionalJumps.Jump) token).getTarget();
+                if (targets[jumpTarget] == null) {
+                    targets[jumpTarget] = new Target();
+                }
+                target = targets[jumpTarget];
+                int[] jumpStack;
+                int jumpSize;
+                if (token instanceof ConditionalJumps.Goto) {
+                    moveToPosition(stack, size);
+                    jumpStack = stack.clone();
+                    jumpSize = size;
+                    emit(JUMP);
+                    reachable = false;
+                } else if (token instanceof ConditionalJumps.JumpIfZero) {
+                    jumpSize = --size;
+                    jumpStack = stack.clone();
+                    emit(JUMP_IF_ZERO);
+                    emit(stack[size]);
+                } else {
+                    // The left operand is replaced by the boolean result when jumping
+                    int source = stack[--size];
+                    jumpStack = stack.clone();
+                    jumpStack[size] = slotBase + size;
+                    jumpSize = size + 1;
+                    emit(token instanceof ConditionalJumps.AndJump ? AND_JUMP : OR_JUMP, slotBase + size);
+                    emit(source);
+                }
+                target.patches.add(codeLength);
+                emit(-1);
+                target.stack = jumpStack;
+                target.size = jumpSize;
+                continue;
+            }
+            if (token instanceof SlotLoad) {
+                int depth = ((SlotLoad) token).getDepth();
+                stack[size] = depth < size ? stack[size - 1 - depth] : constantRegister(Float.NaN);
+                size++;
+                continue;
+            } else if (token instanceof SlotRelease) {
+                int result = size > 0 ? stack[size - 1] : constantRegister(Float.NaN);
+                size = Math.max(size - token.numArgs(), 0);
+                stack[size++] = result;
+                continue;
+            }
+            int numArgs = token.numArgs();
+            int argsStart = Math.max(size - numArgs, 0);
+            int[] sources = new int[numArgs];
+            for (int i = 0; i < numArgs; i++) {
+                int position = size - numArgs + i;
+                sources[i] = position >= 0 ? stack[position] : constantRegister(Float.NaN);
+            }
+            if (token instanceof ConstantNumber) {
+                stack[argsStart] = constantRegister(((ConstantNumber) token).getValue());
+            } else {
+                int destination = slotBase + argsStart;
+                emitToken(token, destination, sources);
+                stack[argsStart] = destination;
+            }
+            size = argsStart + 1;
+        }
+        resultRegister = size > 0 ? stack[size - 1] : constantRegister(Float.NaN);
+    }
+
+    /**
+     * Moves the top of the stack to the register of its position, where the branches of a condition meet.
+     */
+    private void moveToPosition(int[] stack, int size) {
+        if (size > 0 && stack[size - 1] != slotBase + size - 1) {
+            emit(MOVE, slotBase + size - 1);
+            emit(stack[size - 1]);
+            stack[size - 1] = slotBase + size - 1;
+        }
+    }
+
+    private void emitToken(Token token, int destination, int[] sources) {
+        Integer opcode = builtInOpcodes.get(token);
+        if (opcode != null) {
+            emit(opcode, destination);
+            emitSources(sources);
+        } else if (token instanceof IndexedVariable) {
+            emit(SLOT, destination);
+            emit(((IndexedVariable) token).getIndex());
+            readsSlots = true;
+        } else if (token instanceof Number) {
+            emitInvoke(VARIABLE, destination, token, sources);
+        } else if (token instanceof UnaryOperator) {
+            emitInvoke(INVOKE_UNARY, destination, token, sources);
+        } else if (token instanceof BinaryOperator) {
+            emitInvoke(INVOKE_BINARY, destination, token, sources);
+        } else if (token instanceof TernaryOperator) {
+            emitInvoke(INVOKE_TERNARY, destination, token, sources);
+        } else if (token instanceof Function.NoArgs) {
+            emitInvoke(INVOKE_NO_ARGS, destination, token, sources);
+        } else if (token instanceof Function.OneArg) {
+            emitInvoke(INVOKE_ONE_ARG, destination, token, sources);
+        } else if (token instanceof Function.TwoArgs) {
+            emitInvoke(INVOKE_TWO_ARGS, destination, token, sources);
+        } else if (token instanceof Function.ThreeArgs) {
+            emitInvoke(INVOKE_THREE_ARGS, destination, token, sources);
+        } else if (token instanceof Function.FourArgs) {
+            emitInvoke(INVOKE_FOUR_ARGS, destination, token, sources);
+        } else {
+            emit(INVOKE, destination);
+            emit(invokedIndex(token));
+            emit(sources.length);
+            emitSources(sources);
+            maxInvokeArgs = Math.max(maxInvokeArgs, sources.length);
+        }
+    }
+
+    private void emitInvoke(int opcode, int destination, Token token, int[] sources) {
+        emit(opcode, destination);
+        emit(invokedIndex(token));
+        emitSources(sources);
+    }
+
+    private void emitSources(int[] sources) {
+        for (int source : sources) {
+            emit(source);
+        }
+    }
+
+    private void emit(int opcode, int destination) {
+        emit(opcode);
+        emit(destination);
+    }
+
+    private void emit(int value) {
+        if (codeLength == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[codeLength++] = value;
+    }
+
+    private int invokedIndex(Token token) {
+        return invokedIndexes.computeIfAbsent(token, t -> {
+            invokedTokens.add(t);
+            return invokedTokens.size() - 1;
+        });
+    }
+
+    private int constantRegister(float value) {
+        return constantRegisters.computeIfAbsent(Float.floatToRawIntBits(value), bits -> {
+            constants.add(value);
+            return constants.size() - 1;
+        });
+    }
+}
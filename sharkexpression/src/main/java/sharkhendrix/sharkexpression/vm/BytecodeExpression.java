@@ -0,0 +1,370 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.vm;
+
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.*;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import static sharkhendrix.sharkexpression.vm.Opcodes.*;
+
+/**
+ * A parsed Expression, lowered into an {@code int[]} instruction stream operating on a {@code float[]} register file.
+ * Default operators and functions have dedicated opcodes, dispatched in a single switch,
+ * other tokens are called through invoke opcodes.
+ *
+ * <p>The register file starts with the constants of the expression,
+ * followed by one register per operand stack position. Constants therefore cost no instruction.
+ * The register file is reserved on the working FloatStack at each evaluation, and the constants are copied into it.
+ * The default ternary condition, {@code &&} and {@code ||} operators are lowered into jumps,
+ * so only the taken branches are computed. {@link IndexedVariable} values are read by a dedicated opcode
+ * from the slots given to {@link #evaluate(FloatStack, float[])}.
+ *
+ * <p>{@link #evaluate()} works on a FloatStack held by this Expression and is not thread-safe.
+ * {@link #evaluate(FloatStack)} works on the given FloatStack without allocation,
+ * so it is thread-safe and re-entrant as long as the tokens are.
+ *
+ * <p>Usage: {@code factory.setExpressionConstructor(BytecodeExpression::new)}.
+ */
+public class BytecodeExpression extends Expression {
+
+    private final int[] code;
+    private final Token[] invokedTokens;
+    private final float[] constants;
+    private final int registerCount;
+    private final int resultRegister;
+    private final int maxInvokeArgs;
+    private final boolean readsSlots;
+    private final FloatStack stack;
+
+    public BytecodeExpression(Token[] tokens) {
+        super(tokens);
+        Assembler assembler = new Assembler(tokens);
+        code = assembler.code();
+        invokedTokens = assembler.invokedTokens();
+        constants = assembler.constants();
+        registerCount = assembler.registerCount();
+        resultRegister = assembler.resultRegister();
+        maxInvokeArgs = assembler.maxInvokeArgs();
+        readsSlots = assembler.readsSlots();
+        stack = new FloatStack(registerCount + maxInvokeArgs);
+    }
+
+    private BytecodeExpression(BytecodeExpression expression) {
+        super(expression);
+        code = expression.code;
+        invokedTokens = expression.invokedTokens;
+        constants = expression.constants;
+        registerCount = expression.registerCount;
+        resultRegister = expression.resultRegister;
+        maxInvokeArgs = expression.maxInvokeArgs;
+        readsSlots = expression.readsSlots;
+        stack = new FloatStack(registerCount + maxInvokeArgs);
+    }
+
+    @Override
+    public BytecodeExpression share() {
+        return new BytecodeExpression(this);
+    }
+
+    @Override
+    public float evaluate() {
+        return evaluate(stack);
+    }
+
+    @Override
+    public float evaluate(FloatStack outputStack) {
+        if (readsSlots) {
+            return super.evaluate(outputStack);
+        }
+        return evaluate(outputStack, null);
+    }
+
+    @Override
+    public float evaluate(float[] slots) {
+        return evaluate(stack, slots);
+    }
+
+    @Override
+    public float evaluate(FloatStack outputStack, float[] slots) {
+        outputStack.ensureCapacity(registerCount + maxInvokeArgs);
+        int base = outputStack.size();
+        float[] registers = outputStack.reserve(registerCount);
+        System.arraycopy(constants, 0, registers, base, constants.length);
+        float result = run(registers, base, outputStack, slots);
+        outputStack.drop(registerCount);
+        return result;
+    }
+
+    /**
+     * @param r     the array holding the register file
+     * @param b     the index of the first register in r
+     * @param stack the stack receiving the arguments of invoked tokens, above the register file
+     * @param slots the values of the IndexedVariables, by slot index
+     */
+    private float run(float[] r, int b, FloatStack stack, float[] slots) {
+        int[] code = this.code;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case ADD:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] + r[b + code[pc + 3]];
+                    pc += 4;
+                    break;
+                case SUBTRACT:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] - r[b + code[pc + 3]];
+                    pc += 4;
+                    break;
+                case MULTIPLY:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] * r[b + code[pc + 3]];
+                    pc += 4;
+                    break;
+                case DIVIDE:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] / r[b + code[pc + 3]];
+                    pc += 4;
+                    break;
+                case MODULO:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] % r[b + code[pc + 3]];
+                    pc += 4;
+                    break;
+                case POW:
+                    r[b + code[pc + 1]] = (float) Math.pow(r[b + code[pc + 2]], r[b + code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case NEGATE:
+                    r[b + code[pc + 1]] = -r[b + code[pc + 2]];
+                    pc += 3;
+                    break;
+                case LT:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] < r[b + code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case LTE:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] <= r[b + code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case GT:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] > r[b + code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case GTE:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] >= r[b + code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case EQUAL_TO:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] == r[b + code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case NOT_EQUAL_TO:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] != r[b + code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                    break;
+                case NOT:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] == 0 ? 1 : 0;
+                    pc += 3;
+                    break;
+                case AND:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] != 0 && r[b + code[pc + 3]] != 0 ? 1 : 0;
+                    pc += 4;
+                    break;
+                case OR:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] != 0 || r[b + code[pc + 3]] != 0 ? 1 : 0;
+                    pc += 4;
+                    break;
+                case TERNARY_CONDITION:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] != 0 ? r[b + code[pc + 3]] : r[b + code[pc + 4]];
+                    pc += 5;
+                    break;
+                case TO_BOOLEAN:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]] != 0 ? 1 : 0;
+                    pc += 3;
+                    break;
+                case ABS:
+                    r[b + code[pc + 1]] = Math.abs(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case ACOS:
+                    r[b + code[pc + 1]] = (float) Math.acos(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case ASIN:
+                    r[b + code[pc + 1]] = (float) Math.asin(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case ATAN:
+                    r[b + code[pc + 1]] = (float) Math.atan(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case ATAN2:
+                    r[b + code[pc + 1]] = (float) Math.atan2(r[b + code[pc + 2]], r[b + code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case CBRT:
+                    r[b + code[pc + 1]] = (float) Math.cbrt(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case CEIL:
+                    r[b + code[pc + 1]] = (float) Math.ceil(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case COS:
+                    r[b + code[pc + 1]] = (float) Math.cos(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case COSH:
+                    r[b + code[pc + 1]] = (float) Math.cosh(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case EXP:
+                    r[b + code[pc + 1]] = (float) Math.exp(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case FLOOR:
+                    r[b + code[pc + 1]] = (float) Math.floor(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case LOG:
+                    r[b + code[pc + 1]] = (float) Math.log(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case LOG10:
+                    r[b + code[pc + 1]] = (float) Math.log10(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case MAX:
+                    r[b + code[pc + 1]] = Math.max(r[b + code[pc + 2]], r[b + code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case MIN:
+                    r[b + code[pc + 1]] = Math.min(r[b + code[pc + 2]], r[b + code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case ROUND:
+                    r[b + code[pc + 1]] = (float) Math.round(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case SIGNUM:
+                    r[b + code[pc + 1]] = Math.signum(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case SIN:
+                    r[b + code[pc + 1]] = (float) Math.sin(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case SINH:
+                    r[b + code[pc + 1]] = (float) Math.sinh(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case SQRT:
+                    r[b + code[pc + 1]] = (float) Math.sqrt(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case TAN:
+                    r[b + code[pc + 1]] = (float) Math.tan(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case TANH:
+                    r[b + code[pc + 1]] = (float) Math.tanh(r[b + code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case VARIABLE:
+                    r[b + code[pc + 1]] = ((Number) invokedTokens[code[pc + 2]]).getValue();
+                    pc += 3;
+                    break;
+                case INVOKE_UNARY:
+                    r[b + code[pc + 1]] = ((UnaryOperator) invokedTokens[code[pc + 2]]).compute(r[b + code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case INVOKE_BINARY:
+                    r[b + code[pc + 1]] = ((BinaryOperator) invokedTokens[code[pc + 2]])
+                            .compute(r[b + code[pc + 3]], r[b + code[pc + 4]]);
+                    pc += 5;
+                    break;
+                case INVOKE_TERNARY:
+                    r[b + code[pc + 1]] = ((TernaryOperator) invokedTokens[code[pc + 2]])
+                            .compute(r[b + code[pc + 3]], r[b + code[pc + 4]], r[b + code[pc + 5]]);
+                    pc += 6;
+                    break;
+                case INVOKE_NO_ARGS:
+                    r[b + code[pc + 1]] = ((Function.NoArgs) invokedTokens[code[pc + 2]]).compute();
+                    pc += 3;
+                    break;
+                case INVOKE_ONE_ARG:
+                    r[b + code[pc + 1]] = ((Function.OneArg) invokedTokens[code[pc + 2]]).compute(r[b + code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case INVOKE_TWO_ARGS:
+                    r[b + code[pc + 1]] = ((Function.TwoArgs) invokedTokens[code[pc + 2]])
+                            .compute(r[b + code[pc + 3]], r[b + code[pc + 4]]);
+                    pc += 5;
+                    break;
+                case INVOKE_THREE_ARGS:
+                    r[b + code[pc + 1]] = ((Function.ThreeArgs) invokedTokens[code[pc + 2]])
+                            .compute(r[b + code[pc + 3]], r[b + code[pc + 4]], r[b + code[pc + 5]]);
+                    pc += 6;
+                    break;
+                case INVOKE_FOUR_ARGS:
+                    r[b + code[pc + 1]] = ((Function.FourArgs) invokedTokens[code[pc + 2]])
+                            .compute(r[b + code[pc + 3]], r[b + code[pc + 4]], r[b + code[pc + 5]], r[b + code[pc + 6]]);
+                    pc += 7;
+                    break;
+                case INVOKE:
+                    int numArgs = code[pc + 3];
+                    for (int i = 0; i < numArgs; i++) {
+                        stack.pushUnchecked(r[b + code[pc + 4 + i]]);
+                    }
+                    r[b + code[pc + 1]] = invokedTokens[code[pc + 2]].execute(stack);
+                    pc += 4 + numArgs;
+                    break;
+                case JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case JUMP_IF_ZERO:
+                    pc = r[b + code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+                    break;
+                case AND_JUMP:
+                    if (r[b + code[pc + 2]] == 0) {
+                        r[b + code[pc + 1]] = 0;
+                        pc = code[pc + 3];
+                    } else {
+                        pc += 4;
+                    }
+                    break;
+                case OR_JUMP:
+                    if (r[b + code[pc + 2]] != 0) {
+                        r[b + code[pc + 1]] = 1;
+                        pc = code[pc + 3];
+                    } else {
+                        pc += 4;
+                    }
+                    break;
+                case MOVE:
+                    r[b + code[pc + 1]] = r[b + code[pc + 2]];
+                    pc += 3;
+                    break;
+                case SLOT:
+                    r[b + code[pc + 1]] = slots[code[pc + 2]];
+                    pc += 3;
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+        }
+        return r[b + resultRegister];
+    }
+}
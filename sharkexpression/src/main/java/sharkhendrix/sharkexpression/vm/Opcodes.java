@@ -0,0 +1,126 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.vm;
+
+/**
+ * Opcodes of the {@link BytecodeExpression} instructions.
+ * <p>Every instruction starts with its opcode followed by its destination register.
+ * The trailing operands are source registers, except for invoke instructions
+ * whose first operand is the index of the invoked token, and for jump instructions.
+ */
+final class Opcodes {
+
+    // Default operators: opcode, destination, sources...
+
+    static final int ADD = 0;
+    static final int SUBTRACT = 1;
+    static final int MULTIPLY = 2;
+    static final int DIVIDE = 3;
+    static final int MODULO = 4;
+    static final int POW = 5;
+    static final int NEGATE = 6;
+    static final int LT = 7;
+    static final int LTE = 8;
+    static final int GT = 9;
+    static final int GTE = 10;
+    static final int EQUAL_TO = 11;
+    static final int NOT_EQUAL_TO = 12;
+    static final int NOT = 13;
+    static final int AND = 14;
+    static final int OR = 15;
+    static final int TERNARY_CONDITION = 16;
+    static final int TO_BOOLEAN = 17;
+
+    // Default functions: opcode, destination, sources...
+
+    static final int ABS = 20;
+    static final int ACOS = 21;
+    static final int ASIN = 22;
+    static final int ATAN = 23;
+    static final int ATAN2 = 24;
+    static final int CBRT = 25;
+    static final int CEIL = 26;
+    static final int COS = 27;
+    static final int COSH = 28;
+    static final int EXP = 29;
+    static final int FLOOR = 30;
+    static final int LOG = 31;
+    static final int LOG10 = 32;
+    static final int MAX = 33;
+    static final int MIN = 34;
+    static final int ROUND = 35;
+    static final int SIGNUM = 36;
+    static final int SIN = 37;
+    static final int SINH = 38;
+    static final int SQRT = 39;
+    static final int TAN = 40;
+    static final int TANH = 41;
+
+    // Other tokens: opcode, destination, token index, sources...
+
+    static final int VARIABLE = 50;
+    static final int INVOKE_UNARY = 51;
+    static final int INVOKE_BINARY = 52;
+    static final int INVOKE_TERNARY = 53;
+    static final int INVOKE_NO_ARGS = 54;
+    static final int INVOKE_ONE_ARG = 55;
+    static final int INVOKE_TWO_ARGS = 56;
+    static final int INVOKE_THREE_ARGS = 57;
+    static final int INVOKE_FOUR_ARGS = 58;
+
+    /**
+     * opcode, destination, token index, number of arguments, sources...
+     */
+    static final int INVOKE = 59;
+
+    // Conditional jumps, the targets are instruction indexes
+
+    /**
+     * opcode, target
+     */
+    static final int JUMP = 60;
+
+    /**
+     * opcode, source, target
+     */
+    static final int JUMP_IF_ZERO = 61;
+
+    /**
+     * opcode, destination, source, target: stores 0 and jumps if the source is 0
+     */
+    static final int AND_JUMP = 62;
+
+    /**
+     * opcode, destination, source, target: stores 1 and jumps if the source is not 0
+     */
+    static final int OR_JUMP = 63;
+
+    /**
+     * opcode, destination, source
+     */
+    static final int MOVE = 64;
+
+    // Variable slots
+
+    /**
+     * opcode, destination, slot index: reads the value of an IndexedVariable from the evaluated slots
+     */
+    static final int SLOT = 70;
+
+    private Opcodes() {
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression.util;
+
+/**
+ * Fused multiply-add of floats, Java 9 version of the multi-release jar, calling {@code Math.fma}.
+ */
+public final class FusedMultiplyAdd {
+
+    private FusedMultiplyAdd() {
+    }
+
+    /**
+     * @return {@code a * b + c}, computed with a single rounding
+     */
+    public static float fma(float a, float b, float c) {
+        return Math.fma(a, b, c);
+    }
+}
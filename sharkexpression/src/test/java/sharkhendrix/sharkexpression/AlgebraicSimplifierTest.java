@@ -0,0 +1,185 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sharkhendrix.sharkexpression.AlgebraicSimplifier.Safety;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultFunctions;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.Function;
+import sharkhendrix.sharkexpression.token.IntegerPower;
+import sharkhendrix.sharkexpression.token.Number;
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.util.Arrays;
+import java.util.List;
+
+class AlgebraicSimplifierTest {
+
+    private static final float[] specialValues = {
+            0f, -0f, 1f, -1f, 0.1f, -3.7f, 2.5f, 1e20f, -1e-20f, Float.MIN_VALUE,
+            Float.MAX_VALUE, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NaN
+    };
+
+    private float xValue;
+    private float yValue;
+    private final Variables variables = new Variables()
+            .add("x", () -> xValue)
+            .add("y", () -> yValue);
+    private final Number x = variables.get("x");
+    private final Number y = variables.get("y");
+    private final Grammar grammar = Grammar.withDefault(variables);
+
+    @Test
+    void strictIdentitiesTest() {
+        assertSimplified(Safety.STRICT, "x * 1", x);
+        assertSimplified(Safety.STRICT, "1 * x", x);
+        assertSimplified(Safety.STRICT, "x / 1", x);
+        assertSimplified(Safety.STRICT, "x - 0", x);
+        assertSimplified(Safety.STRICT, "x + -0", x);
+        assertSimplified(Safety.STRICT, "x ^ 1", x);
+        assertSimplified(Safety.STRICT, "pow(x, 1)", x);
+        assertSimplified(Safety.STRICT, "-(-x)", x);
+        assertSimplified(Safety.STRICT, "x * -1", x, DefaultOperators.NEGATE);
+        assertSimplified(Safety.STRICT, "-1 * -x", x);
+        assertSimplified(Safety.STRICT, "x / -1", x, DefaultOperators.NEGATE);
+        assertSimplified(Safety.STRICT, "x ^ 0", new ConstantNumber(1));
+        assertSimplified(Safety.STRICT, "(x + y) * 1 - 0", x, y, DefaultOperators.PLUS);
+    }
+
+    @Test
+    void strictStrengthReductionTest() {
+        assertSimplified(Safety.STRICT, "x ^ 2", x, IntegerPower.of(2));
+        assertSimplified(Safety.STRICT, "x / 4", x, new ConstantNumber(0.25f), DefaultOperators.MULTIPLY);
+        assertSimplified(Safety.STRICT, "x / 3", x, new ConstantNumber(3), DefaultOperators.DIVIDE);
+        assertSimplified(Safety.STRICT, "x ^ 3", x, new ConstantNumber(3), DefaultOperators.POW);
+    }
+
+    @Test
+    void signedZerosTest() {
+        assertSimplified(Safety.STRICT, "x + 0", x, new ConstantNumber(0), DefaultOperators.PLUS);
+        assertSimplified(Safety.NO_SIGNED_ZEROS, "x + 0", x);
+        assertSimplified(Safety.NO_SIGNED_ZEROS, "0 + x", x);
+        assertSimplified(Safety.STRICT, "0 - x", new ConstantNumber(0), x, DefaultOperators.MINUS);
+        assertSimplified(Safety.NO_SIGNED_ZEROS, "0 - x", x, DefaultOperators.NEGATE);
+        assertSimplified(Safety.NO_SIGNED_ZEROS, "x * 0", x, new ConstantNumber(0), DefaultOperators.MULTIPLY);
+    }
+
+    @Test
+    void finiteMathTest() {
+        assertSimplified(Safety.FINITE_MATH, "x * 0 + y", y);
+        assertSimplified(Safety.FINITE_MATH, "x * y - x * y", new ConstantNumber(0));
+        assertSimplified(Safety.FINITE_MATH, "x - y", x, y, DefaultOperators.MINUS);
+    }
+
+    @Test
+    void relaxedTest() {
+        assertSimplified(Safety.FINITE_MATH, "x ^ 3", x, new ConstantNumber(3), DefaultOperators.POW);
+        assertSimplified(Safety.RELAXED, "x ^ 3", x, IntegerPower.of(3));
+        assertSimplified(Safety.RELAXED, "x ^ -2", x, IntegerPower.of(-2));
+        assertSimplified(Safety.RELAXED, "x ^ 17", x, new ConstantNumber(17), DefaultOperators.POW);
+        assertSimplified(Safety.RELAXED, "x ^ 0.5", x, DefaultFunctions.SQRT);
+        assertSimplified(Safety.RELAXED, "x / 3", x, new ConstantNumber(1f / 3), DefaultOperators.MULTIPLY);
+        assertSimplified(Safety.RELAXED, "sqrt(x + y) * sqrt(x + y)", x, y, DefaultOperators.PLUS);
+        assertSimplified(Safety.RELAXED, "sqrt(x) * sqrt(y)",
+                x, DefaultFunctions.SQRT, y, DefaultFunctions.SQRT, DefaultOperators.MULTIPLY);
+    }
+
+    @Test
+    void impureOperandsTest() {
+        Variables variables = new Variables().add("x", () -> xValue);
+        Grammar grammar = Grammar.withDefault(variables);
+        grammar.functions().add("next", new Function.NoArgs() {
+            @Override
+            public float compute() {
+                return xValue++;
+            }
+
+            @Override
+            public boolean allowsSimplification() {
+                return false;
+            }
+        });
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setAlgebraicSimplification(Safety.RELAXED);
+        Assertions.assertEquals(3, factory.parse("next() - next()").getTokens().length);
+        Assertions.assertEquals(5, factory.parse("sqrt(next()) * sqrt(next())").getTokens().length);
+        xValue = 3;
+        Assertions.assertEquals(27, factory.parse("next() ^ 3").evaluate());
+        Assertions.assertEquals(4, xValue);
+    }
+
+    @Test
+    void strictSameValuesTest() {
+        String[] expressions = {
+                "x * 1", "1 * x", "x / 1", "x - 0", "x + -0", "-0 - x", "x ^ 1", "x ^ 0", "-(-x)", "x * -1", "x / -1",
+                "x ^ 2", "pow(x, 2)", "x / 4", "x / 0.5", "x / -8", "(x * y) ^ 2 / 2", "y - x * -1"
+        };
+        ExpressionFactory reference = new ExpressionFactory(grammar);
+        ExpressionFactory simplified = new ExpressionFactory(grammar);
+        simplified.setAlgebraicSimplification(Safety.STRICT);
+        for (String expression : expressions) {
+            Expression expected = reference.parse(expression);
+            Expression actual = simplified.parse(expression);
+            for (float xValue : specialValues) {
+                for (float yValue : specialValues) {
+                    this.xValue = xValue;
+                    this.yValue = yValue;
+                    Assertions.assertEquals(Float.floatToIntBits(expected.evaluate()),
+                            Float.floatToIntBits(actual.evaluate()),
+                            expression + " with x = " + xValue + ", y = " + yValue);
+                }
+            }
+        }
+    }
+
+    @Test
+    void integerPowerTest() {
+        for (int exponent = -IntegerPower.MAX_EXPONENT; exponent <= IntegerPower.MAX_EXPONENT; exponent++) {
+            Assertions.assertEquals(Math.pow(1.1, exponent), IntegerPower.of(exponent).compute(1.1f), 1e-4 * Math.pow(1.1, exponent));
+            Assertions.assertEquals(Math.pow(2, exponent), IntegerPower.of(exponent).compute(2));
+        }
+        Assertions.assertEquals(1, IntegerPower.of(0).compute(Float.NaN));
+        Assertions.assertEquals(Float.POSITIVE_INFINITY, IntegerPower.of(-1).compute(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IntegerPower.of(IntegerPower.MAX_EXPONENT + 1));
+    }
+
+    @Test
+    void factoryTest() {
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setAlgebraicSimplification(Safety.STRICT);
+        factory.setAlgebraicSimplification(Safety.RELAXED);
+        xValue = 2;
+        Expression expression = factory.parse("x ^ 3 + x ^ 3");
+        Assertions.assertTrue(Arrays.asList(expression.getTokens()).contains(IntegerPower.of(3)));
+        Assertions.assertEquals(16, expression.evaluate());
+        factory.setAlgebraicSimplification(null);
+        Assertions.assertEquals(7, factory.parse("x ^ 3 + x ^ 3").getTokens().length);
+    }
+
+    private void assertSimplified(Safety safety, String expression, Token... expected) {
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setAlgebraicSimplification(safety);
+        List<Token> actual = Arrays.asList(factory.parse(expression).getTokens());
+        Assertions.assertEquals(Arrays.asList(expected), actual, expression);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.token.Function;
+import sharkhendrix.sharkexpression.token.IndexedVariable;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Shared grammar and expressions to check that expression backends behave like the interpreted evaluation.
+ */
+public class BackendTestKit {
+
+    public static Grammar grammar() {
+        Variables variables = new Variables()
+                .add("x", () -> 2.5f)
+                .add("y", () -> -3)
+                .add("nan", () -> Float.NaN)
+                .add("k", 7);
+        Grammar grammar = Grammar.withDefault(variables);
+        grammar.functions()
+                .add("one", () -> 1)
+                .add("sum3", (a, b, c) -> a + b + c)
+                .add("sum4", (a, b, c, d) -> a + b * 2 + c * 3 + d * 4)
+                .add("sum5", new Function.NArgs() {
+                    @Override
+                    public float compute(float... args) {
+                        return args[0] + args[1] + args[2] + args[3] + args[4];
+                    }
+
+                    @Override
+                    public int numArgs() {
+                        return 5;
+                    }
+                });
+        return grammar;
+    }
+
+    public static ExpressionFactory factory(java.util.function.Function<Token[], Expression> expressionConstructor) {
+        ExpressionFactory factory = new ExpressionFactory(grammar());
+        if (expressionConstructor != null) {
+            factory.setExpressionConstructor(expressionConstructor);
+        }
+        return factory;
+    }
+
+    public static Stream<String> expressions() {
+        return Stream.of(
+                "3",
+                "x",
+                "-x + 2 * y - k / 3 % 2",
+                "x ^ 2 ^ 0.5",
+                "x < y", "x <= 2.5", "x > y", "x >= 3", "x == 2.5", "x != 2.5",
+                "nan < x", "nan <= x", "nan > x", "nan >= x", "nan == nan", "nan != nan",
+                "!x", "not 0", "!nan",
+                "x && y", "x && 0", "nan and 1", "0 || y", "0 or 0", "nan || 0",
+                "x > 0 ? y : k", "x < 0 ? y : k", "nan ? 1 : 2",
+                "max(x, y) + sqrt(abs(y)) + one() * sum3(x, y, k) - sum4(1, 2, 3, x)",
+                "sum5(x, y, 1, 2, max(x, k))",
+                "floor(x) + ceil(x) + round(x) + signum(y) + min(x, y) + cbrt(y) + log(x) + log10(x) + exp(x)",
+                "cos(x) * sin(x) + tan(x) + acos(x / 3) + asin(x / 3) + atan(x) + atan2(y, x) + pow(x, 3)",
+                "cosh(x) + sinh(x) + tanh(x)",
+                "(x + y) * (x - y) / (x * x + 1) + (x > y ? x + y : x - y) * -(x + y)",
+                "(x * y + 1) * (x * y + 1) + sin(x * y + 1) - max(x * y, k) / (x * y)",
+                "x > 0 ? (y > 0 ? 1 : x && y) : k || nan",
+                "(x < 0 ? x : y) * (x < 0 ? x : y) + (x < 0 || y < 0 ? k : 1) + (x && (y || 0) ? 3 : 4)",
+                "sum3(x > y ? x * y : 2, y, 0 || x > 1)"
+        );
+    }
+
+    /**
+     * @param calls the array whose first element counts the calls of the {@code cost} function
+     * @return the grammar of {@link #grammar()}, with a {@code cost} function returning its argument
+     */
+    public static Grammar costGrammar(int[] calls) {
+        Grammar grammar = grammar();
+        grammar.functions().add("cost", arg -> {
+            calls[0]++;
+            return arg;
+        });
+        return grammar;
+    }
+
+    /**
+     * @return the expressions evaluated by {@link #assertOnlyTakenBranchesEvaluated(java.util.function.Function, int[])}, in order
+     */
+    public static Stream<String> shortCircuitExpressions() {
+        return Stream.of(
+                "x > 0 ? y : cost(x)",
+                "x < 0 ? cost(x) * cost(x) + cost(x) : k",
+                "0 && cost(x)",
+                "x || cost(x)",
+                "x > 0 ? (y > 0 ? cost(y) : k) : cost(x) || cost(y)",
+                "y && cost(x)"
+        );
+    }
+
+    /**
+     * Checks that the given backend only computes the taken branches of the conditional operators.
+     */
+    public static void assertOnlyTakenBranchesEvaluated(
+            java.util.function.Function<Token[], Expression> expressionConstructor) {
+        int[] calls = new int[1];
+        ExpressionFactory factory = new ExpressionFactory(costGrammar(calls));
+        factory.setExpressionConstructor(expressionConstructor);
+        assertOnlyTakenBranchesEvaluated(factory::parse, calls);
+    }
+
+    /**
+     * Checks that the expressions of {@link #shortCircuitExpressions()} only compute their taken branches.
+     *
+     * @param parser the function creating the Expression of an expression string, with {@link #costGrammar(int[])}
+     * @param calls  the array counting the calls of the {@code cost} function
+     */
+    public static void assertOnlyTakenBranchesEvaluated(
+            java.util.function.Function<String, Expression> parser, int[] calls) {
+        float[] expectedValues = {-3, 7, 0, 1, 7, 1};
+        List<String> expressions = shortCircuitExpressions().collect(Collectors.toList());
+        for (int i = 0; i < expressions.size(); i++) {
+            Assertions.assertEquals(expectedValues[i], parser.apply(expressions.get(i)).evaluate(), expressions.get(i));
+            Assertions.assertEquals(i < expressions.size() - 1 ? 0 : 1, calls[0], expressions.get(i));
+        }
+    }
+
+    /**
+     * @return the grammar of {@link #grammar()}, with the variables {@code a} and {@code b} read from the slots 0 and 1
+     */
+    public static Grammar slotGrammar() {
+        Grammar grammar = grammar();
+        grammar.variables()
+                .add("a", new IndexedVariable(0))
+                .add("b", new IndexedVariable(1));
+        return grammar;
+    }
+
+    /**
+     * @return the expressions evaluated by {@link #assertParsedSlotsEvaluated(java.util.function.Function)}, in order
+     */
+    public static Stream<String> slotExpressions() {
+        return Stream.of(
+                "b > 0 ? a * b + k : sum5(a, b, a, b, k) - a",
+                "(a + b) * (a + b) + a * x",
+                "x + k"
+        );
+    }
+
+    /**
+     * Checks that the given backend reads the {@link IndexedVariable} values from the evaluated slots,
+     * with the common subexpression elimination enabled.
+     */
+    public static void assertSlotsEvaluated(java.util.function.Function<Token[], Expression> expressionConstructor) {
+        ExpressionFactory factory = new ExpressionFactory(slotGrammar());
+        factory.setCommonSubexpressionElimination(true);
+        factory.setExpressionConstructor(expressionConstructor);
+        assertParsedSlotsEvaluated(factory::parse);
+    }
+
+    /**
+     * Checks that the expressions of {@link #slotExpressions()} read their variables from the evaluated slots.
+     *
+     * @param parser the function creating the Expression of an expression string, with {@link #slotGrammar()}
+     */
+    public static void assertParsedSlotsEvaluated(java.util.function.Function<String, Expression> parser) {
+        List<String> expressions = slotExpressions().collect(Collectors.toList());
+        Expression conditional = parser.apply(expressions.get(0));
+        Assertions.assertEquals(13, conditional.evaluate(new float[]{2, 3}));
+        Assertions.assertEquals(3, conditional.evaluate(new float[]{2, -3}));
+
+        FloatStack stack = new FloatStack();
+        stack.push(42);
+        Expression repeated = parser.apply(expressions.get(1));
+        Assertions.assertEquals(30, repeated.evaluate(stack, new float[]{2, 3}));
+        Assertions.assertEquals(1, stack.size());
+        EvaluationContext context = new EvaluationContext(2).set(0, 1).set(1, -1);
+        Assertions.assertEquals(2.5f, repeated.evaluate(context));
+        Assertions.assertEquals(0, context.getStack().size());
+        Assertions.assertThrows(UnsupportedOperationException.class, repeated::evaluate);
+
+        Expression withoutSlots = parser.apply(expressions.get(2));
+        Assertions.assertEquals(9.5f, withoutSlots.evaluate(new float[0]));
+        Assertions.assertEquals(9.5f, withoutSlots.evaluate());
+    }
+}
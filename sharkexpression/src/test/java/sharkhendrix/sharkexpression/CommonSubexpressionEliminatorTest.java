@@ -0,0 +1,156 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotLoad;
+import sharkhendrix.sharkexpression.CommonSubexpressionEliminator.SlotRelease;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.token.Function;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static sharkhendrix.sharkexpression.GrammarTestKit.*;
+
+class CommonSubexpressionEliminatorTest {
+
+    @Test
+    void applyTest() {
+        // infix: (abc + vaar) * (abc + vaar) + abc
+        // postfix: abc vaar + abc vaar + * abc +
+        // eliminated: abc vaar + load(0) load(1) * abc + release(1)
+        List<Token> tokens = Arrays.asList(
+                abc,
+                vaar,
+                plus,
+                abc,
+                vaar,
+                plus,
+                multiply,
+                abc,
+                plus
+        );
+
+        List<Token> expected = Arrays.asList(
+                abc,
+                vaar,
+                plus,
+                new SlotLoad(0),
+                new SlotLoad(1),
+                multiply,
+                abc,
+                plus,
+                new SlotRelease(1)
+        );
+        List<Token> actual = new CommonSubexpressionEliminator().apply(tokens);
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void nestedSubExpressionsTest() {
+        // infix: -(abc * vaar) + -(abc * vaar) * (abc * vaar)
+        // postfix: abc vaar * - abc vaar * - abc vaar * * +
+        // eliminated: abc vaar * load(0) - load(0) load(1) load(3) * + release(2)
+        List<Token> tokens = Arrays.asList(
+                abc, vaar, multiply, negative,
+                abc, vaar, multiply, negative,
+                abc, vaar, multiply,
+                multiply,
+                plus
+        );
+
+        List<Token> expected = Arrays.asList(
+                abc,
+                vaar,
+                multiply,
+                new SlotLoad(0),
+                negative,
+                new SlotLoad(0),
+                new SlotLoad(1),
+                new SlotLoad(3),
+                multiply,
+                plus,
+                new SlotRelease(2)
+        );
+        List<Token> actual = new CommonSubexpressionEliminator().apply(tokens);
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void impureTokensAreNotMergedTest() {
+        Function.NoArgs random = () -> 4;
+        List<Token> tokens = Arrays.asList(random, random, plus, random, random, plus, multiply);
+        Assertions.assertEquals(tokens, new CommonSubexpressionEliminator().apply(tokens));
+    }
+
+    @Test
+    void invalidExpressionIsUnchangedTest() {
+        List<Token> tokens = Arrays.asList(abc, vaar, plus, abc, vaar, plus, multiply, multiply);
+        Assertions.assertEquals(tokens, new CommonSubexpressionEliminator().apply(tokens));
+        Assertions.assertEquals(Collections.emptyList(), new CommonSubexpressionEliminator().apply(Collections.emptyList()));
+    }
+
+    @Test
+    void evaluateTest() {
+        int[] calls = new int[1];
+        Grammar grammar = Grammar.withDefault(new Variables().add("x", () -> 3).add("y", () -> 1));
+        grammar.functions().add("f", arg -> {
+            calls[0]++;
+            return arg * 2;
+        });
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setCommonSubexpressionElimination(true);
+        Expression expression = factory.parse("f(x + y) * f(x + y) + sin(f(x + y))");
+        float expected = 64 + (float) Math.sin(8);
+
+        Assertions.assertEquals(expected, expression.evaluate());
+        Assertions.assertEquals(1, calls[0]);
+
+        FloatStack stack = new FloatStack();
+        stack.push(42);
+        Assertions.assertEquals(expected, expression.evaluate(stack));
+        Assertions.assertEquals(1, stack.size());
+        Assertions.assertEquals(42, stack.pop());
+    }
+
+    @Test
+    void optInTest() {
+        int[] calls = new int[1];
+        Grammar grammar = Grammar.withDefault(new Variables().add("x", () -> 3));
+        grammar.functions().add("f", arg -> {
+            calls[0]++;
+            return arg * 2;
+        });
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        Assertions.assertEquals(42, factory.parse("f(x) * f(x) + f(x)").evaluate());
+        Assertions.assertEquals(3, calls[0]);
+
+        factory.setCommonSubexpressionElimination(true);
+        Assertions.assertEquals(42, factory.parse("f(x) * f(x) + f(x)").evaluate());
+        Assertions.assertEquals(4, calls[0]);
+
+        factory.setCommonSubexpressionElimination(false);
+        Assertions.assertEquals(42, factory.parse("f(x) * f(x) + f(x)").evaluate());
+        Assertions.assertEquals(7, calls[0]);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.tree.TreeExpression;
+import sharkhendrix.sharkexpression.vm.BytecodeExpression;
+
+class ExpressionCacheTest {
+
+    @Test
+    void hitTest() {
+        ExpressionFactory factory = new ExpressionFactory(Grammar.withDefault());
+        factory.enableCache(16);
+        Expression first = factory.parse("2 * pi + 1");
+        Expression second = factory.parse("2 * pi + 1");
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(first.evaluate(), second.evaluate());
+
+        ExpressionCache cache = factory.getCache();
+        Assertions.assertEquals(1, cache.hitCount());
+        Assertions.assertEquals(1, cache.missCount());
+        Assertions.assertEquals(1, cache.size());
+
+        factory.setExpressionConstructor(TreeExpression::new);
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertSame(factory.parse("2 * pi + 1"), factory.parse("2 * pi + 1"));
+
+        factory.setExpressionConstructor(BytecodeExpression::new);
+        Expression bytecode = factory.parse("2 * pi + 1");
+        Assertions.assertNotSame(bytecode, factory.parse("2 * pi + 1"));
+        Assertions.assertEquals(first.evaluate(), factory.parse("2 * pi + 1").evaluate());
+
+        factory.disableCache();
+        Assertions.assertNull(factory.getCache());
+        Assertions.assertNotSame(factory.parse("1"), factory.parse("1"));
+    }
+
+    @Test
+    void grammarVersionTest() {
+        Grammar grammar = Grammar.withDefault();
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.enableCache(16);
+        grammar.variables().add("x", 1);
+        Assertions.assertEquals(2, factory.parse("x + 1").evaluate());
+
+        long version = grammar.version();
+        grammar.variables().remove("x").add("x", 2);
+        Assertions.assertNotEquals(version, grammar.version());
+        Assertions.assertEquals(3, factory.parse("x + 1").evaluate());
+        Assertions.assertEquals(2, factory.getCache().missCount());
+
+        version = grammar.version();
+        grammar.variables().remove("unknown");
+        Assertions.assertEquals(version, grammar.version());
+    }
+
+    @Test
+    void frequencyEvictionTest() {
+        ExpressionFactory factory = new ExpressionFactory(Grammar.withDefault());
+        factory.enableCache(4);
+        for (int i = 0; i < 100; i++) {
+            factory.parse("1 + 1");
+            factory.parse(i + " * 2");
+            factory.parse(i + " * 2");
+            factory.parse(i + " * 2");
+        }
+        ExpressionCache cache = factory.getCache();
+        Assertions.assertEquals(4, cache.size());
+        Assertions.assertTrue(cache.evictionCount() > 0);
+
+        long hitCount = cache.hitCount();
+        factory.parse("1 + 1");
+        Assertions.assertEquals(hitCount + 1, cache.hitCount());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> factory.enableCache(0));
+    }
+
+    @Test
+    void concurrentStandaloneExpressionsTest() throws InterruptedException {
+        ExpressionFactory factory = new ExpressionFactory(Grammar.withDefault());
+        factory.enableCache(16);
+        boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (factory.parse("max(3, 4) * (2 + 5 > 6 ? 2 : 0)").evaluate() != 8) {
+                        failed[0] = true;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertFalse(failed[0]);
+        Assertions.assertEquals(40_000, factory.getCache().hitCount() + factory.getCache().missCount());
+    }
+}
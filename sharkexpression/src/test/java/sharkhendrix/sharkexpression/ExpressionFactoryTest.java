@@ -82,4 +82,39 @@ class ExpressionFactoryTest {
         Assertions.assertEquals(1, errors.size());
         Assertions.assertNull(exp);
     }
-}
\ No newline at end of file
+
+    @Test
+    void parseCharsTest() {
+        ExpressionFactory factory = BackendTestKit.factory(null);
+        BackendTestKit.expressions().forEach(str -> {
+            char[] chars = ("  " + str + ")").toCharArray();
+            Assertions.assertEquals(factory.parse(str).evaluate(), factory.parse(chars, 2, str.length()).evaluate(), str);
+        });
+        Assertions.assertThrows(InvalidExpressionSyntaxException.class,
+                () -> factory.parse("1 + unknown".toCharArray(), 0, 11));
+    }
+
+    @Test
+    void adjacentOperatorsTest() {
+        ExpressionFactory factory = new ExpressionFactory(new Variables().add("a", () -> 1).add("b", () -> 2));
+        Assertions.assertTrue(factory.validate("a<-b").isEmpty());
+        Assertions.assertEquals(0, factory.parse("a<-b").evaluate());
+        Assertions.assertEquals(3, factory.parse("a--b").evaluate());
+        Assertions.assertEquals(-2, factory.parse("a*-b").evaluate());
+    }
+
+    @Test
+    void evaluateOnceTest() {
+        ExpressionFactory factory = new ExpressionFactory(new Variables().add("a", () -> 1).add("b", () -> 2));
+        String[] expressions = {"a", "-a * b", "(a + b) ^ 2 - a * b", "max(a, min(b, 3)) / 4", "a > b ? a : -b",
+                "a < b and !(a == 2) or 0", "[a + 1] * [b - 1]", "1.5e1 % 4", "2^2^3", "cos(pi * a)"};
+        for (String expression : expressions) {
+            Assertions.assertEquals(factory.parse(expression).evaluate(), factory.evaluateOnce(expression), expression);
+        }
+        Assertions.assertEquals(9, factory.evaluateOnce(new StringBuilder("(a + b) * 3")));
+        Assertions.assertThrows(InvalidExpressionSyntaxException.class, () -> factory.evaluateOnce("(a + b"));
+        Assertions.assertThrows(InvalidExpressionSyntaxException.class, () -> factory.evaluateOnce("a + c"));
+        Assertions.assertEquals(3, factory.evaluateOnce("a + b"));
+        Assertions.assertTrue(Float.isNaN(factory.evaluateOnce("")));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class ExpressionSetTest {
+
+    @Test
+    void resultsMatchSeparateExpressionsTest() {
+        List<String> expressionStrs = BackendTestKit.expressions().collect(Collectors.toList());
+        ExpressionFactory factory = BackendTestKit.factory(null);
+        ExpressionSet expressionSet = factory.parseSet(expressionStrs);
+        Assertions.assertEquals(expressionStrs.size(), expressionSet.size());
+
+        float[] out = new float[expressionStrs.size()];
+        expressionSet.evaluate(out);
+        for (int i = 0; i < expressionStrs.size(); i++) {
+            Assertions.assertEquals(factory.parse(expressionStrs.get(i)).evaluate(), out[i], expressionStrs.get(i));
+        }
+    }
+
+    @Test
+    void sharedSubExpressionsTest() {
+        int[] reads = new int[1];
+        float[] dx = {3};
+        Variables variables = new Variables()
+                .add("dx", () -> {
+                    reads[0]++;
+                    return dx[0];
+                })
+                .add("dy", 4);
+        ExpressionSet expressionSet = new ExpressionFactory(variables).parseSet(Arrays.asList(
+                "sqrt(dx * dx + dy * dy)",
+                "sqrt(dx * dx + dy * dy) * 2",
+                "max(dx * dx, 1)"));
+
+        // dx, dx * dx, + 16, sqrt, * 2, max
+        Assertions.assertEquals(6, expressionSet.operationCount());
+        float[] out = new float[3];
+        expressionSet.evaluate(out);
+        Assertions.assertArrayEquals(new float[]{5, 10, 9}, out);
+        Assertions.assertEquals(1, reads[0]);
+
+        dx[0] = 0;
+        expressionSet.evaluate(out);
+        Assertions.assertArrayEquals(new float[]{4, 8, 1}, out);
+        Assertions.assertEquals(2, reads[0]);
+    }
+
+    @Test
+    void nonSimplifiableTokensAreNotSharedTest() {
+        int[] calls = new int[1];
+        Grammar grammar = Grammar.withDefault(new Variables());
+        grammar.functions().add("next", () -> ++calls[0]);
+        ExpressionSet expressionSet = new ExpressionFactory(grammar).parseSet(Arrays.asList("next()", "next() * 10"));
+
+        float[] out = new float[2];
+        expressionSet.evaluate(out);
+        Assertions.assertArrayEquals(new float[]{1, 20}, out);
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static sharkhendrix.sharkexpression.GrammarTestKit.*;
+
+class ExpressionSimplifierTest {
+
+    @Test
+    void applyTest() {
+        // infix: abc >= 3 ? 0 ? 1 : 2 * 3 + 3 : 3
+        // postfix: abc 3 >= 0 1 2 3 * 3 + ?: 3 ?:
+        // simplified: abc 3 >= 9 3 ?:
+        List<Token> tokens = Arrays.asList(
+                abc,
+                new ConstantNumber(3),
+                gte,
+                new ConstantNumber(0),
+                new ConstantNumber(1),
+                new ConstantNumber(2),
+                new ConstantNumber(3),
+                multiply,
+                new ConstantNumber(3),
+                plus,
+                ternary,
+                new ConstantNumber(3),
+                ternary
+        );
+
+        List<Token> expected = Arrays.asList(
+                abc,
+                new ConstantNumber(3),
+                gte,
+                new ConstantNumber(9),
+                new ConstantNumber(3),
+                ternary
+        );
+        List<Token> actual = new ExpressionSimplifier().apply(tokens);
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void applyTest2() {
+        // infix:  0 + abc + 4 - abc + (max(1, 24) / abc / 2) + 2
+        // postfix: 0 abc + 4 + abc - 1 24 max abc / 2 / + 2 +
+        // infix simplified step 1: 4 + abc - abc + (12 / abc) + 2
+        // infix simplified step 2: 6 + abc - abc + (12 / abc)
+        // postfix simplified:  6 abc + abc - 12 abc / +
+        List<Token> tokens = Arrays.asList(
+                new ConstantNumber(0),
+                abc,
+                plus,
+                new ConstantNumber(4),
+                plus,
+                abc,
+                minus,
+                new ConstantNumber(1),
+                new ConstantNumber(24),
+                max,
+                abc,
+                divide,
+                new ConstantNumber(2),
+                divide,
+                plus,
+                new ConstantNumber(2),
+                plus
+        );
+
+        List<Token> expected = Arrays.asList(
+                new ConstantNumber(6),
+                abc,
+                plus,
+                abc,
+                minus,
+                new ConstantNumber(12),
+                abc,
+                divide,
+                plus
+        );
+        List<Token> actual = new ExpressionSimplifier().apply(tokens);
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void apply3Test() {
+        // infix: 1 ? abc * 2 : 0
+        // postfix: 1 abc 2 * ?:
+        List<Token> tokens = Arrays.asList(
+                new ConstantNumber(1),
+                abc,
+                new ConstantNumber(2),
+                multiply,
+                ternary
+        );
+
+
+        List<Token> actual = new ExpressionSimplifier().apply(tokens);
+        Assertions.assertEquals(tokens, actual);
+    }
+
+    @Test
+    void applyTest4() {
+        // infix:  abc + 3 + 4
+        // postfix: abc 3 + 4 +
+        // postfix simplified: abc 7 +
+        List<Token> tokens = Arrays.asList(
+                abc,
+                new ConstantNumber(3),
+                plus,
+                new ConstantNumber(4),
+                plus
+        );
+
+        List<Token> expected = Arrays.asList(
+                abc,
+                new ConstantNumber(7),
+                plus
+        );
+        List<Token> actual = new ExpressionSimplifier().apply(tokens);
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void applyTest5() {
+        // infix:  2^abc^2
+        // postfix: 2 abc 2 ^ ^
+        List<Token> tokens = Arrays.asList(
+                new ConstantNumber(2),
+                abc,
+                new ConstantNumber(2),
+                power
+        );
+
+        List<Token> actual = new ExpressionSimplifier().apply(tokens);
+        Assertions.assertEquals(tokens, actual);
+    }
+
+    @Test
+    void inverseOperatorsTest() {
+        // infix: abc - 3 + 4 - 5
+        // postfix simplified: abc 4 -
+        List<Token> tokens = Arrays.asList(abc, new ConstantNumber(3), minus, new ConstantNumber(4), plus,
+                new ConstantNumber(5), minus);
+        Assertions.assertEquals(Arrays.asList(abc, new ConstantNumber(4), minus), new ExpressionSimplifier().apply(tokens));
+
+        // infix: 12 / (abc / 3) * 2
+        // postfix simplified: 24 abc 3 / /
+        tokens = Arrays.asList(new ConstantNumber(12), abc, new ConstantNumber(3), divide, divide,
+                new ConstantNumber(2), multiply);
+        Assertions.assertEquals(Arrays.asList(new ConstantNumber(24), abc, new ConstantNumber(3), divide, divide),
+                new ExpressionSimplifier().apply(tokens));
+
+        // infix: abc ^ 3 * 2 - 1, nothing to merge across different chains
+        tokens = Arrays.asList(abc, new ConstantNumber(3), power, new ConstantNumber(2), multiply,
+                new ConstantNumber(1), minus);
+        Assertions.assertEquals(tokens, new ExpressionSimplifier().apply(tokens));
+    }
+
+    @Test
+    void previouslyMisfoldedExpressionsTest() {
+        ExpressionFactory factory = new ExpressionFactory(new Variables().add("a", () -> 1).add("b", () -> 2));
+        Assertions.assertEquals(17, factory.parse("2 * (a + b) ^ 2 - 1").evaluate());
+        Assertions.assertEquals(6, factory.parse("(a + b) ^ 2 - a * 3").evaluate());
+        Assertions.assertEquals(2, factory.parse("a - 3 + 4").evaluate());
+        Assertions.assertEquals(-6, factory.parse("a - 3 - 4").evaluate());
+        Assertions.assertEquals(1, factory.parse("b % 3 * 2 - 3").evaluate());
+    }
+
+    @Test
+    void sameValuesAsUnsimplifiedTest() {
+        Grammar grammar = Grammar.withDefault(new Variables().add("x", () -> 1.5f).add("y", () -> -2.25f));
+        Tokenizer tokenizer = new Tokenizer(grammar);
+        Random random = new Random(42);
+        FloatStack stack = new FloatStack();
+        for (int i = 0; i < 2_000; i++) {
+            String expression = randomExpression(random, 4);
+            List<Token> postfix = new TernaryOperatorMerger().apply(
+                    new ShuntingYardAlgorithm().apply(tokenizer.tokenize(expression)));
+            float expected = new Expression(postfix.toArray(new Token[0])).evaluate(stack);
+            float actual = new Expression(new ExpressionSimplifier().apply(postfix).toArray(new Token[0])).evaluate(stack);
+            Assertions.assertEquals(expected, actual, Math.abs(expected) * 1e-5f + 1e-5f, expression);
+        }
+    }
+
+    private static String randomExpression(Random random, int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    return "x";
+                case 1:
+                    return "y";
+                default:
+                    return Integer.toString(random.nextInt(9) + 1);
+            }
+        }
+        switch (random.nextInt(6)) {
+            case 0:
+                return "-(" + randomExpression(random, depth - 1) + ")";
+            case 1:
+                return "max((" + randomExpression(random, depth - 1) + "), (" + randomExpression(random, depth - 1) + "))";
+            case 2:
+                return "(" + randomExpression(random, depth - 1) + ")";
+            default:
+                String operator = new String[]{" + ", " - ", " * "}[random.nextInt(3)];
+                return randomExpression(random, depth - 1) + operator + randomExpression(random, depth - 1);
+        }
+    }
+
+    @Test
+    void linearTimeTest() {
+        Tokenizer tokenizer = new Tokenizer(Grammar.withDefault(new Variables().add("x", () -> 1).add("y", () -> 2)));
+        long operations = listOperations(tokenizer, 20_000);
+        long tenTimesOperations = listOperations(tokenizer, 200_000);
+        Assertions.assertTrue(tenTimesOperations < 11 * operations, operations + " then " + tenTimesOperations);
+    }
+
+    /**
+     * Simplify a generated expression of about the given number of tokens.
+     *
+     * @return the number of operations done on the output list
+     */
+    private static long listOperations(Tokenizer tokenizer, int tokenCount) {
+        List<Token> postfix = new TernaryOperatorMerger().apply(new ShuntingYardAlgorithm().apply(
+                tokenizer.tokenize(splineExpression(tokenCount, 42))));
+        CountingList output = new CountingList();
+        new ExpressionSimplifier().apply(postfix, output);
+        Assertions.assertTrue(output.size() < postfix.size());
+        Assertions.assertTrue(output.operations < 4L * postfix.size(), output.operations + " for " + postfix.size());
+        return output.operations;
+    }
+
+    /**
+     * @return an expression like {@code x * 2 + 3 - y / 7 + ...} with about the given number of tokens
+     */
+    private static String splineExpression(int tokenCount, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder("x * 2");
+        int tokens = 3;
+        while (tokens < tokenCount) {
+            builder.append(random.nextBoolean() ? " + " : " - ");
+            switch (random.nextInt(3)) {
+                case 0:
+                    builder.append(random.nextInt(100));
+                    tokens += 2;
+                    break;
+                case 1:
+                    builder.append("x * ").append(random.nextInt(100));
+                    tokens += 4;
+                    break;
+                default:
+                    builder.append("y / ").append(random.nextInt(100) + 1);
+                    tokens += 4;
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static class CountingList extends ArrayList<Token> {
+        long operations;
+
+        @Override
+        public Token get(int index) {
+            operations++;
+            return super.get(index);
+        }
+
+        @Override
+        public Token set(int index, Token element) {
+            operations++;
+            return super.set(index, element);
+        }
+
+        @Override
+        public boolean add(Token token) {
+            operations++;
+            return super.add(token);
+        }
+
+        @Override
+        public Token remove(int index) {
+            operations++;
+            return super.remove(index);
+        }
+    }
+}
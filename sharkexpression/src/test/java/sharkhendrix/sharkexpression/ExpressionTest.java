@@ -0,0 +1,341 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.VariableLayout;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.Function;
+import sharkhendrix.sharkexpression.token.IndexedVariable;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static sharkhendrix.sharkexpression.GrammarTestKit.*;
+
+class ExpressionTest {
+
+    @Test
+    void evaluateTest() {
+        // 3 5 x - * 7 9 + * + 11 +
+        List<Token> tokens = Arrays.asList(
+                new ConstantNumber(3),
+                new ConstantNumber(5),
+                vaar,
+                negative,
+                multiply,
+                new ConstantNumber(7),
+                new ConstantNumber(9),
+                plus,
+                multiply,
+                plus,
+                new ConstantNumber(11),
+                plus
+        );
+        Expression expression = new StandaloneExpression(tokens.toArray(new Token[0]));
+
+        Assertions.assertEquals(-626, expression.evaluate());
+    }
+
+    @Test
+    void evaluateWithTernary() {
+        // infix: abc >= 3 ? 0 ? 1 : 2 * 3 + 3 : 3
+        // postfix: abc 3 >= 0 1 2 3 * 3 + ?: 3 ?:
+        Token[] tokens = new Token[]{
+                abc,
+                new ConstantNumber(3),
+                gte,
+                new ConstantNumber(0),
+                new ConstantNumber(1),
+                new ConstantNumber(2),
+                new ConstantNumber(3),
+                multiply,
+                new ConstantNumber(3),
+                plus,
+                ternary,
+                new ConstantNumber(3),
+                ternary
+        };
+        Expression expression = new StandaloneExpression(tokens);
+
+        Assertions.assertEquals(9, expression.evaluate());
+    }
+
+    @Test
+    void evaluateWithFunction() {
+        // 2 + max(3, 3 + 1)
+        // 2 3 3 1 + max +
+        Token[] tokens = new Token[]{
+                new ConstantNumber(2),
+                new ConstantNumber(3),
+                new ConstantNumber(3),
+                new ConstantNumber(1),
+                plus,
+                max,
+                plus
+        };
+        Expression expression = new StandaloneExpression(tokens);
+
+        Assertions.assertEquals(6, expression.evaluate());
+    }
+
+    @Test
+    void functionArgsOrderTest() {
+        Function function = (Function.FourArgs) (a, b, c, d) -> {
+            if (a != 1) {
+                Assertions.fail("First arg is not 1");
+            }
+            if (b != 2) {
+                Assertions.fail("Second arg is not 2");
+            }
+            if (c != 3) {
+                Assertions.fail("Third arg is not 3");
+            }
+            if (d != 4) {
+                Assertions.fail("Fourth arg is not 4");
+            }
+            return 1;
+        };
+        new StandaloneExpression(new Token[]{
+                new ConstantNumber(1),
+                new ConstantNumber(2),
+                new ConstantNumber(3),
+                new ConstantNumber(4),
+                function}).evaluate();
+    }
+
+    @ParameterizedTest
+    @MethodSource("sharkhendrix.sharkexpression.BackendTestKit#expressions")
+    void evaluateBatchTest(String expressionStr) {
+        float[] xs = {2.5f, -1, 0, 3, Float.NaN, 0.5f, 100};
+        float[] ys = {-3, 4, 0, 3, 1, Float.NaN, -0.25f};
+        int[] row = new int[1];
+        Grammar rowGrammar = BackendTestKit.grammar();
+        rowGrammar.variables().remove("x").remove("y")
+                .add("x", () -> xs[row[0]])
+                .add("y", () -> ys[row[0]]);
+        Grammar batchGrammar = BackendTestKit.grammar();
+        batchGrammar.variables().remove("x").remove("y")
+                .add("x", new IndexedVariable(0))
+                .add("y", new IndexedVariable(1));
+
+        Expression batchExpression = new ExpressionFactory(batchGrammar).parse(expressionStr);
+        float[] out = new float[xs.length + 1];
+        out[xs.length] = 42;
+        batchExpression.evaluateBatch(new float[][]{xs, ys}, out, xs.length);
+
+        Expression rowExpression = new ExpressionFactory(rowGrammar).parse(expressionStr);
+        for (row[0] = 0; row[0] < xs.length; row[0]++) {
+            Assertions.assertEquals(rowExpression.evaluate(), out[row[0]], expressionStr + " at row " + row[0]);
+        }
+        Assertions.assertEquals(42, out[xs.length]);
+    }
+
+    @Test
+    void evaluateBatchMissingColumnTest() {
+        Expression expression = new Expression(new Token[]{new IndexedVariable(1)});
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluateBatch(new float[][]{{1}}, new float[1], 1));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluateBatch(new float[][]{{1}, {1}}, new float[1], 2));
+    }
+
+    @Test
+    void evaluateBatchParallelTest() throws InterruptedException {
+        int count = 200_003;
+        float[] xs = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = i % 1000 - 500;
+        }
+        Expression expression = new ExpressionFactory(new Variables().add("x", new IndexedVariable(0)))
+                .parse("x > 0 ? sqrt(x) * 2 : x % 7 - 1");
+        float[] expected = new float[count];
+        expression.evaluateBatch(new float[][]{xs}, expected, count);
+
+        float[] out = new float[count];
+        expression.evaluateBatchParallel(new float[][]{xs}, out, count);
+        Assertions.assertArrayEquals(expected, out);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            out = new float[count];
+            expression.evaluateBatchParallel(new float[][]{xs}, out, count, executor);
+            Assertions.assertArrayEquals(expected, out);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void evaluateBatchParallelErrorTest() {
+        Expression expression = new Expression(new Token[]{new IndexedVariable(0), new IndexedVariable(1), plus});
+        float[][] columns = {new float[100_000], new float[50_000]};
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluateBatchParallel(columns, new float[100_000], 100_000));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluateBatchParallel(columns, new float[10], 100_000));
+    }
+
+    @Test
+    void evaluateBatchParallelWaitsOnErrorTest() {
+        Executor delayedExecutor = task -> new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            task.run();
+        }).start();
+        Expression expression = new Expression(new Token[]{new IndexedVariable(0), new IndexedVariable(1), plus});
+        float[] xs = new float[100_000];
+        float[] ys = new float[99_999];
+        Arrays.fill(xs, 1);
+        Arrays.fill(ys, 2);
+        float[] out = new float[100_000];
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluateBatchParallel(new float[][]{xs, ys}, out, 100_000, delayedExecutor));
+        Assertions.assertEquals(3, out[0]);
+    }
+
+    @Test
+    void onlyTakenBranchesAreEvaluatedTest() {
+        int[] calls = new int[2];
+        Grammar grammar = Grammar.withDefault(new Variables()
+                .add("x", () -> 2)
+                .add("zero", () -> 0));
+        grammar.functions()
+                .add("f", arg -> {
+                    calls[0]++;
+                    return arg * 10;
+                })
+                .add("g", arg -> {
+                    calls[1]++;
+                    return -arg;
+                });
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+
+        Assertions.assertEquals(20, factory.parse("x > 0 ? f(x) : g(x)").evaluate());
+        Assertions.assertArrayEquals(new int[]{1, 0}, calls);
+        Assertions.assertEquals(-2, factory.parse("x < 0 ? f(x) : g(x)").evaluate());
+        Assertions.assertArrayEquals(new int[]{1, 1}, calls);
+        Assertions.assertEquals(0, factory.parse("zero && f(x)").evaluate());
+        Assertions.assertEquals(1, factory.parse("x || f(x)").evaluate());
+        Assertions.assertEquals(1, factory.parse("zero || f(x)").evaluate());
+        Assertions.assertEquals(1, factory.parse("x && g(x)").evaluate());
+        Assertions.assertArrayEquals(new int[]{2, 2}, calls);
+        Assertions.assertEquals(0, factory.parse("zero ? f(x) * f(x) + f(x) : 0").evaluate());
+        Assertions.assertArrayEquals(new int[]{2, 2}, calls);
+    }
+
+    @Test
+    void jumpsWithCommonSubExpressionsTest() {
+        Grammar grammar = Grammar.withDefault(new Variables()
+                .add("x", () -> 2)
+                .add("y", () -> 3)
+                .add("zero", () -> 0));
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setCommonSubexpressionElimination(true);
+        String expressionStr = "x * y + (zero ? x * y - 1 : (x && zero || x * y) + x * y) * (x ? x * y : 1)";
+        Expression expression = factory.parse(expressionStr);
+        Assertions.assertEquals(6 + 7 * 6, expression.evaluate());
+
+        FloatStack stack = new FloatStack();
+        stack.push(42);
+        Assertions.assertEquals(6 + 7 * 6, expression.evaluate(stack));
+        Assertions.assertEquals(1, stack.size());
+    }
+
+    @Test
+    void evaluateSlotsTest() {
+        VariableLayout layout = new VariableLayout().add("x").add("y");
+        layout.add("k", 10);
+        Expression expression = new ExpressionFactory(layout).parse("x > 0 ? x * y + k : y");
+        Assertions.assertEquals(0, layout.slotOf("x"));
+        Assertions.assertEquals(1, layout.slotOf("y"));
+        Assertions.assertEquals(2, layout.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> layout.slotOf("k"));
+
+        Assertions.assertEquals(16, expression.evaluate(new float[]{2, 3}));
+        Assertions.assertEquals(3, expression.evaluate(new float[]{-2, 3}));
+        EvaluationContext context = new EvaluationContext(layout)
+                .set(layout.slotOf("x"), 4)
+                .set(layout.slotOf("y"), 0.5f);
+        Assertions.assertEquals(12, expression.evaluate(context));
+        Assertions.assertEquals(0, context.getStack().size());
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> new Expression(new Token[]{new IndexedVariable(0)}).evaluate(new float[]{1}));
+    }
+
+    @Test
+    void interpretedSlotsTest() {
+        BackendTestKit.assertSlotsEvaluated(StandaloneExpression::new);
+        BackendTestKit.assertSlotsEvaluated(tokens -> new StandaloneExpression(tokens).share());
+    }
+
+    @Test
+    void evaluateSlotsConcurrentlyTest() throws InterruptedException {
+        VariableLayout layout = new VariableLayout().add("x");
+        Expression expression = new ExpressionFactory(layout).parse("x * x + 1");
+        boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                EvaluationContext context = new EvaluationContext(layout);
+                for (int i = 0; i < 10_000; i++) {
+                    context.set(0, i);
+                    if (expression.evaluate(context) != (float) i * i + 1) {
+                        failed[0] = true;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertFalse(failed[0]);
+    }
+
+    @Test
+    void maxStackDepthTest() {
+        Expression expression = new ExpressionFactory(new Variables()
+                .add("x", () -> 3)
+                .add("y", () -> 2)).parse("x + y * (x - y)");
+        // x y x y - * +
+        Assertions.assertEquals(4, expression.getMaxStackDepth());
+        Assertions.assertEquals(1, new Expression(new Token[]{new ConstantNumber(1)}).getMaxStackDepth());
+        Assertions.assertEquals(1, new Expression(new Token[]{plus}).getMaxStackDepth());
+        Assertions.assertEquals(0, new Expression(new Token[0]).getMaxStackDepth());
+
+        FloatStack stack = new FloatStack(1);
+        stack.push(42);
+        Assertions.assertEquals(5, expression.evaluate(stack));
+        Assertions.assertEquals(1, stack.size());
+    }
+}
@@ -49,6 +49,11 @@ public class GrammarTestKit {
             return 0;
         }
 
+        @Override
+        public boolean isAssociative() {
+            return true;
+        }
+
         @Override
         public String toString() {
             return "+";
@@ -65,6 +70,11 @@ public class GrammarTestKit {
             return 0;
         }
 
+        @Override
+        public BinaryOperator inverseOf() {
+            return plus;
+        }
+
         @Override
         public String toString() {
             return "-";
@@ -81,6 +91,11 @@ public class GrammarTestKit {
             return 10;
         }
 
+        @Override
+        public boolean isAssociative() {
+            return true;
+        }
+
         @Override
         public String toString() {
             return "*";
@@ -97,6 +112,11 @@ public class GrammarTestKit {
             return 10;
         }
 
+        @Override
+        public BinaryOperator inverseOf() {
+            return multiply;
+        }
+
         @Override
         public String toString() {
             return "/";
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sharkhendrix.sharkexpression.binary.ProgramCodec;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultFunctions;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.Polynomial;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FusedMultiplyAdd;
+
+class PolynomialRewriterTest {
+
+    private float xValue;
+    private float yValue;
+    private final Grammar grammar = Grammar.withDefault(new Variables()
+            .add("x", () -> xValue)
+            .add("y", () -> yValue)
+            .add("random", new VariableNumberStub()));
+    private final Token x = grammar.getVariable("x");
+    private final Token y = grammar.getVariable("y");
+
+    @Test
+    void hornerTest() {
+        Token[] tokens = rewritingFactory(false).parse("2*x^3 - 3*x^2 + 0.5*x + 7").getTokens();
+        Assertions.assertEquals(2, tokens.length);
+        Assertions.assertSame(x, tokens[0]);
+        Assertions.assertArrayEquals(new float[]{7, 0.5f, -3, 2}, ((Polynomial) tokens[1]).getCoefficients());
+        Assertions.assertFalse(((Polynomial) tokens[1]).isFusedMultiplyAdd());
+
+        assertCoefficients("x^2 / 2 + x", 0, 1, 0.5f);
+        assertCoefficients("-(x * x * x) + pow(x, 2) * 4", 0, 0, 4, -1);
+        assertCoefficients("3 * (2 * x)^2 - x", 0, -1, 12);
+        assertCoefficients("x^2 - x^2 + x", 0, 1);
+        assertCoefficients("x * x + 1", 1, 0, 1);
+    }
+
+    @Test
+    void notRewrittenTest() {
+        ExpressionFactory factory = rewritingFactory(false);
+        Assertions.assertEquals(5, factory.parse("2 * x + 1").tokenLength());
+        Assertions.assertEquals(3, factory.parse("x * x").tokenLength());
+        Assertions.assertEquals(7, factory.parse("(x + 1) * (x - 1)").tokenLength());
+        Assertions.assertEquals(5, factory.parse("x * y + 1").tokenLength());
+        Assertions.assertEquals(3, factory.parse("x ^ 17").tokenLength());
+        Assertions.assertEquals(3, factory.parse("x ^ 0.5").tokenLength());
+        Assertions.assertEquals(5, factory.parse("random ^ 2 + 1").tokenLength());
+    }
+
+    @Test
+    void subExpressionsTest() {
+        Token[] tokens = rewritingFactory(false).parse("sqrt(x^2 + y^2) + max(x^3, 1)").getTokens();
+        Assertions.assertEquals(11, tokens.length);
+        Assertions.assertSame(x, tokens[0]);
+        Assertions.assertTrue(tokens[1] instanceof Polynomial);
+        Assertions.assertSame(y, tokens[2]);
+        Assertions.assertTrue(tokens[3] instanceof Polynomial);
+        Assertions.assertSame(DefaultOperators.PLUS, tokens[4]);
+        Assertions.assertSame(DefaultFunctions.SQRT, tokens[5]);
+        Assertions.assertSame(x, tokens[6]);
+        Assertions.assertTrue(tokens[7] instanceof Polynomial);
+    }
+
+    @Test
+    void sameValuesTest() {
+        String[] expressions = {
+                "2*x^3 - 3*x^2 + 0.5*x + 7", "x^2 / 2 + x", "sqrt(x^2 + y^2)", "(x^4 - 1) * (y^2 + y + 1)",
+                "x > 1 ? x^3 : -x^2 * 5", "pow(x, 5) / 120 - pow(x, 3) / 6 + x"
+        };
+        ExpressionFactory reference = new ExpressionFactory(grammar);
+        for (boolean fusedMultiplyAdd : new boolean[]{false, true}) {
+            ExpressionFactory factory = rewritingFactory(fusedMultiplyAdd);
+            for (String expression : expressions) {
+                Expression expected = reference.parse(expression);
+                Expression actual = factory.parse(expression);
+                Assertions.assertTrue(actual.tokenLength() < expected.tokenLength(), expression);
+                for (float xValue = -3; xValue <= 3; xValue += 0.25f) {
+                    this.xValue = xValue;
+                    this.yValue = 1 - xValue;
+                    float expectedValue = expected.evaluate();
+                    Assertions.assertEquals(expectedValue, actual.evaluate(), 1e-5f * Math.max(1, Math.abs(expectedValue)),
+                            expression + " with x = " + xValue);
+                }
+            }
+        }
+    }
+
+    @Test
+    void integerPowerTest() {
+        ExpressionFactory factory = rewritingFactory(false);
+        factory.setAlgebraicSimplification(AlgebraicSimplifier.Safety.RELAXED);
+        Token[] tokens = factory.parse("x^3 + 2 * x").getTokens();
+        Assertions.assertEquals(2, tokens.length);
+        Assertions.assertArrayEquals(new float[]{0, 2, 0, 1}, ((Polynomial) tokens[1]).getCoefficients());
+    }
+
+    @Test
+    void fusedMultiplyAddTest() {
+        Assertions.assertEquals(7, FusedMultiplyAdd.fma(2, 3, 1));
+        Polynomial polynomial = new Polynomial(new float[]{1, -2, 3}, true);
+        Assertions.assertTrue(polynomial.isFusedMultiplyAdd());
+        Assertions.assertEquals(2, polynomial.getDegree());
+        Assertions.assertEquals(9, polynomial.compute(2));
+        Assertions.assertEquals(polynomial.compute(0.3f), new Polynomial(new float[]{1, -2, 3}, false).compute(0.3f), 1e-6f);
+
+        Token[] tokens = rewritingFactory(true).parse("x^2 + 1").getTokens();
+        Assertions.assertTrue(((Polynomial) tokens[1]).isFusedMultiplyAdd());
+    }
+
+    @Test
+    void codecTest() {
+        ExpressionFactory factory = rewritingFactory(true);
+        xValue = 1.5f;
+        Expression parsed = factory.parse("2*x^3 - 3*x^2 + 0.5*x + 7");
+        ProgramCodec codec = new ProgramCodec(grammar);
+        Expression loaded = codec.decode(codec.encode(parsed.getTokens()), factory);
+        Assertions.assertArrayEquals(parsed.getTokens(), loaded.getTokens());
+        Assertions.assertEquals(parsed.evaluate(), loaded.evaluate());
+    }
+
+    private ExpressionFactory rewritingFactory(boolean fusedMultiplyAdd) {
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setPolynomialRewriting(true, fusedMultiplyAdd);
+        return factory;
+    }
+
+    private void assertCoefficients(String expression, float... coefficients) {
+        Token[] tokens = rewritingFactory(false).parse(expression).getTokens();
+        Assertions.assertEquals(2, tokens.length, expression);
+        Assertions.assertArrayEquals(coefficients, ((Polynomial) tokens[1]).getCoefficients(), expression);
+    }
+
+    private static class VariableNumberStub implements sharkhendrix.sharkexpression.token.VariableNumber {
+        @Override
+        public float getValue() {
+            return (float) Math.random();
+        }
+
+        @Override
+        public boolean allowsSimplification() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class StreamingParserTest {
+
+    private static final String[] expressions = {
+            "1", "x", "-x", "2 * x + 1", "x + 3 * 4", "(x + 3) * 4", "2^2^4", "-(x - 1) * -3",
+            "max(x, 2) + min(3, 4)", "max(min(x, 1), cos(0))", "x > 2.1 or 0 ? -3 : -2 * (-2+4+1) + y*3/2",
+            "x ? (y ? 1 : 2) : 3", "!x && y || x != 2", "[x + 1] * [2 - y]", "pi * x^2", "2.5e-3 * x",
+            "x - 1 + y * (y - 1)", "atan2(x, y) % 2"
+    };
+
+    private static Grammar grammar() {
+        Grammar grammar = Grammar.withDefault();
+        grammar.variables().add("x", () -> 1).add("y", () -> 2);
+        return grammar;
+    }
+
+    private static List<Token> pipelines(List<Token> tokens) {
+        return new ExpressionSimplifier().apply(new TernaryOperatorMerger().apply(new ShuntingYardAlgorithm().apply(tokens)));
+    }
+
+    @Test
+    void sameAsPipelinesTest() {
+        Tokenizer tokenizer = new Tokenizer(grammar());
+        StreamingParser parser = new StreamingParser();
+        for (String expression : expressions) {
+            List<Token> expected = pipelines(tokenizer.tokenize(expression));
+            Assertions.assertEquals(expected, new ArrayList<>(parser.parse(tokenizer, expression)), expression);
+            Assertions.assertEquals(expected, new ArrayList<>(parser.parse(tokenizer.tokenize(expression))), expression);
+            char[] chars = ("  " + expression + "  ").toCharArray();
+            Assertions.assertEquals(expected, new ArrayList<>(parser.parse(tokenizer, chars, 1, chars.length - 2)),
+                    expression);
+        }
+    }
+
+    @Test
+    void reuseAfterErrorTest() {
+        Tokenizer tokenizer = new Tokenizer(grammar());
+        StreamingParser parser = new StreamingParser();
+        for (String invalid : Arrays.asList("(x + 1", "x + 1)", "max(1, 2))", "x ? 1")) {
+            Assertions.assertThrows(InvalidExpressionSyntaxException.class, () -> parser.parse(tokenizer, invalid),
+                    invalid);
+        }
+        Assertions.assertEquals(pipelines(tokenizer.tokenize("x * 2")), parser.parse(tokenizer, "x * 2"));
+    }
+
+    @Test
+    void factoryTest() {
+        ExpressionFactory factory = new ExpressionFactory(grammar());
+        ExpressionFactory pipelineFactory = new ExpressionFactory(new ExpressionValidator(new Tokenizer(grammar()), grammar()),
+                new Tokenizer(grammar()), new ShuntingYardAlgorithm(), new TernaryOperatorMerger(),
+                new ExpressionSimplifier(), new CommonSubexpressionEliminator());
+        for (String expression : expressions) {
+            Assertions.assertEquals(pipelineFactory.parse(expression).evaluate(), factory.parse(expression).evaluate(),
+                    expression);
+            Assertions.assertEquals(pipelineFactory.parse(expression).getTokens().length,
+                    factory.validateAndParse(expression, new ArrayList<>()).getTokens().length, expression);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import sharkhendrix.sharkexpression.SuperinstructionFuser.FusedOperands;
+import sharkhendrix.sharkexpression.SuperinstructionFuser.FusedRightOperand;
+import sharkhendrix.sharkexpression.binary.ProgramCodec;
+import sharkhendrix.sharkexpression.compiler.ExpressionCompiler;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.VariableLayout;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+import sharkhendrix.sharkexpression.token.BinaryOperator;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.tree.TreeExpression;
+import sharkhendrix.sharkexpression.vm.BytecodeExpression;
+
+import java.util.Arrays;
+
+class SuperinstructionFuserTest {
+
+    private static final BinaryOperator average = new BinaryOperator() {
+        @Override
+        public float compute(float leftSide, float rightSide) {
+            return (leftSide + rightSide) / 2;
+        }
+
+        @Override
+        public int precedence() {
+            return DefaultOperators.ADDITION_PRECEDENCE;
+        }
+    };
+
+    @Test
+    void fusedOperandsTest() {
+        Grammar grammar = BackendTestKit.grammar();
+        ExpressionFactory factory = fusingFactory(grammar, FusionTable.withDefaults());
+        Token x = grammar.getVariable("x");
+        Token y = grammar.getVariable("y");
+        assertFused(factory, "x * 2", 5, x, new ConstantNumber(2), DefaultOperators.MULTIPLY);
+        assertFused(factory, "x + y", -0.5f, x, y, DefaultOperators.PLUS);
+        assertFused(factory, "x < 3", 1, x, new ConstantNumber(3), DefaultOperators.LT);
+        assertFused(factory, "x * x", 6.25f, x, x, DefaultOperators.MULTIPLY);
+        assertFused(factory, "x % 2", 0.5f, x, new ConstantNumber(2), DefaultOperators.MODULO);
+    }
+
+    @Test
+    void fusedRightOperandTest() {
+        Grammar grammar = BackendTestKit.grammar();
+        Expression expression = fusingFactory(grammar, FusionTable.withDefaults()).parse("(x + y) * 2 - y");
+        Token[] tokens = expression.getTokens();
+        Assertions.assertEquals(3, tokens.length);
+        Assertions.assertTrue(tokens[0] instanceof FusedOperands);
+        Assertions.assertTrue(tokens[1] instanceof FusedRightOperand);
+        Assertions.assertTrue(tokens[2] instanceof FusedRightOperand);
+        Assertions.assertArrayEquals(new Token[]{grammar.getVariable("y"), DefaultOperators.MINUS},
+                ((FusedRightOperand) tokens[2]).getFusedTokens());
+        Assertions.assertEquals(2, expression.evaluate());
+    }
+
+    @Test
+    void userOperatorTest() {
+        Grammar grammar = BackendTestKit.grammar();
+        grammar.operators().add("~", average);
+        Assertions.assertEquals(3, fusingFactory(grammar, FusionTable.withDefaults()).parse("x ~ y").tokenLength());
+        Expression expression = fusingFactory(grammar, FusionTable.withDefaults().add(average)).parse("x ~ y");
+        Assertions.assertEquals(1, expression.tokenLength());
+        Assertions.assertEquals(-0.25f, expression.evaluate());
+        FusionTable table = FusionTable.withDefaults().remove(DefaultOperators.PLUS);
+        Assertions.assertNull(table.get(DefaultOperators.PLUS));
+        Assertions.assertEquals(3, fusingFactory(grammar, table).parse("x + y").tokenLength());
+    }
+
+    @Test
+    void indexedVariablesAreNotFusedTest() {
+        VariableLayout layout = new VariableLayout().add("a").add("b");
+        ExpressionFactory factory = fusingFactory(Grammar.withDefault(layout), FusionTable.withDefaults());
+        Expression expression = factory.parse("a * b + 1");
+        Assertions.assertEquals(4, expression.tokenLength());
+        Assertions.assertEquals(7, expression.evaluate(new float[]{2, 3}));
+    }
+
+    @ParameterizedTest
+    @MethodSource("sharkhendrix.sharkexpression.BackendTestKit#expressions")
+    void sameValuesAsUnfusedTest(String expressionStr) {
+        Grammar grammar = BackendTestKit.grammar();
+        float expected = new ExpressionFactory(grammar).parse(expressionStr).evaluate();
+        ExpressionFactory factory = fusingFactory(grammar, FusionTable.withDefaults());
+        Expression fused = factory.parse(expressionStr);
+        assertSameValue(expected, fused.evaluate(), expressionStr);
+        assertSameValue(expected, new TreeExpression(fused.getTokens()).evaluate(), expressionStr);
+        assertSameValue(expected, new BytecodeExpression(fused.getTokens()).evaluate(), expressionStr);
+        assertSameValue(expected, ExpressionCompiler.compile(fused.getTokens()).evaluate(), expressionStr);
+
+        ProgramCodec codec = new ProgramCodec(grammar);
+        Expression loaded = codec.decode(codec.encode(fused.getTokens()), new ExpressionFactory(grammar));
+        assertSameValue(expected, loaded.evaluate(), expressionStr);
+    }
+
+    private static ExpressionFactory fusingFactory(Grammar grammar, FusionTable table) {
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setSuperinstructionFusion(table);
+        return factory;
+    }
+
+    private static void assertFused(ExpressionFactory factory, String expressionStr, float expected, Token... fusedTokens) {
+        Expression expression = factory.parse(expressionStr);
+        Token[] tokens = expression.getTokens();
+        Assertions.assertEquals(1, tokens.length, expressionStr);
+        Assertions.assertTrue(tokens[0] instanceof FusedOperands, expressionStr);
+        Assertions.assertEquals(Arrays.asList(fusedTokens), Arrays.asList(((FusedOperands) tokens[0]).getFusedTokens()));
+        Assertions.assertEquals(expected, expression.evaluate(), expressionStr);
+    }
+
+    private static void assertSameValue(float expected, float actual, String expressionStr) {
+        Assertions.assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(actual), expressionStr);
+    }
+}
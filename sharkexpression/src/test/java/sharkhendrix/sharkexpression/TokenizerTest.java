@@ -0,0 +1,235 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sharkhendrix.sharkexpression.Tokenizer.TokenTrack;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.token.*;
+
+import java.util.*;
+
+import static sharkhendrix.sharkexpression.GrammarTestKit.*;
+
+class TokenizerTest {
+
+    @Test
+    void tokenizeTest() {
+        String str = " _abc34>=  - (.5+1.6) + -3 plus max(2, 3)+ vâr  ";
+        List<Token> actual = new Tokenizer(grammar).tokenize(str);
+        List<Token> expected = Arrays.asList(
+                abc, gte, negative, LeftParenthesis.getInstance(), new ConstantNumber(.5f), plus,
+                new ConstantNumber(1.6f), RightParenthesis.getInstance(), plus, negative,
+                new ConstantNumber(3), plus, max, LeftParenthesis.getInstance(), new ConstantNumber(2),
+                ArgSeparator.getInstance(), new ConstantNumber(3), RightParenthesis.getInstance(), plus, vaar
+        );
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void tokenizeWithTrackTest() {
+        String str = " _abc34>=  - (.5+1.6)";
+        List<TokenTrack> tokenTracks = new ArrayList<>();
+        List<ValidationError> errors = new ArrayList<>();
+        new Tokenizer(grammar).tokenize(str, tokenTracks, errors);
+
+        List<TokenTrack> expected = Arrays.asList(
+                new TokenTrack(1, "_abc34"), new TokenTrack(7, ">="), new TokenTrack(11, "-"),
+                new TokenTrack(13, "("), new TokenTrack(14, ".5"), new TokenTrack(16, "+"),
+                new TokenTrack(17, "1.6"), new TokenTrack(20, ")")
+        );
+        Assertions.assertEquals(expected, tokenTracks);
+        Assertions.assertTrue(errors.isEmpty());
+
+    }
+
+    @Test
+    void invalidNumberFormatTest() {
+        Assertions.assertThrows(InvalidExpressionSyntaxException.class, () ->
+                new Tokenizer(grammar).tokenize("3 + 4 - 6..4")
+        );
+    }
+
+    @Test
+    void tokenizeWithTrackErrorsTest() {
+        String str = "3 + 4 + ..4 + #6";
+        List<TokenTrack> tokenTracks = new ArrayList<>();
+        List<ValidationError> errors = new ArrayList<>();
+
+        List<Token> tokens = new Tokenizer(grammar).tokenize(str, tokenTracks, errors);
+
+        List<ValidationError> expectedErrors = Arrays.asList(
+                new ValidationError(ValidationError.Type.NUMBER_FORMAT, 8, "..4"),
+                new ValidationError(ValidationError.Type.UNKNOWN_SYMBOL, 14, "#")
+        );
+
+        Assertions.assertEquals(expectedErrors, errors);
+        Assertions.assertEquals(new ConstantNumber(0), tokens.get(4));
+        Assertions.assertSame(Tokenizer.unknownToken, tokens.get(6));
+    }
+
+    @Test
+    void unknownSymbolTest() {
+        Assertions.assertThrows(InvalidExpressionSyntaxException.class, () ->
+                new Tokenizer(grammar).tokenize("3 + 4 # 6")
+        );
+    }
+
+    @Test
+    void unknownVariableTest() {
+        Assertions.assertThrows(InvalidExpressionSyntaxException.class, () ->
+                new Tokenizer(grammar).tokenize("3 + 4 - sus")
+        );
+    }
+
+    @Test
+    void tokenizeCharsTest() {
+        char[] chars = "#### _abc34>= -( .5+max(2,vâr)".toCharArray();
+        TokenBuffer buffer = new TokenBuffer(2);
+        buffer.add(plus, 0, 1);
+        new Tokenizer(grammar).tokenize(chars, 4, chars.length - 4, buffer);
+        List<Token> expected = Arrays.asList(
+                abc, gte, negative, LeftParenthesis.getInstance(), new ConstantNumber(.5f), plus, max,
+                LeftParenthesis.getInstance(), new ConstantNumber(2), ArgSeparator.getInstance(), vaar,
+                RightParenthesis.getInstance());
+        Assertions.assertEquals(expected, buffer.asList());
+        Assertions.assertEquals(5, buffer.start(0));
+        Assertions.assertEquals(11, buffer.end(0));
+        Assertions.assertEquals(17, buffer.start(4));
+        Assertions.assertEquals(19, buffer.end(4));
+
+        Grammar defaultGrammar = Grammar.withDefault();
+        defaultGrammar.variables().add("𝓍𝓎", 2);
+        char[] supplementary = "𝓍𝓎 * 3 # 1".toCharArray();
+        new Tokenizer(defaultGrammar).tokenize(supplementary, 0, 8, buffer);
+        Assertions.assertEquals(Arrays.asList(new ConstantNumber(2), defaultGrammar.getBinaryOperator("*"),
+                new ConstantNumber(3)), buffer.asList());
+        Assertions.assertEquals(4, buffer.end(0));
+        InvalidExpressionSyntaxException exception = Assertions.assertThrows(InvalidExpressionSyntaxException.class,
+                () -> new Tokenizer(defaultGrammar).tokenize(supplementary, 0, supplementary.length, buffer));
+        Assertions.assertEquals(8, exception.getCharIndex());
+    }
+
+    @Test
+    void tokenizeCharsMatchesValidationTest() {
+        Grammar defaultGrammar = BackendTestKit.grammar();
+        Tokenizer tokenizer = new Tokenizer(defaultGrammar);
+        BackendTestKit.expressions().forEach(str -> {
+            TokenBuffer buffer = new TokenBuffer();
+            tokenizer.tokenize(str.toCharArray(), 0, str.length(), buffer);
+            List<TokenTrack> tokenTracks = new ArrayList<>();
+            List<ValidationError> errors = new ArrayList<>();
+            Assertions.assertEquals(tokenizer.tokenize(str, tokenTracks, errors), buffer.asList(), str);
+            for (int i = 0; i < buffer.size(); i++) {
+                Assertions.assertEquals(tokenTracks.get(i).getIndex(), buffer.start(i), str);
+                Assertions.assertEquals(tokenTracks.get(i).getStr(), str.substring(buffer.start(i), buffer.end(i)), str);
+            }
+        });
+    }
+
+    @Test
+    void tokenizeNumbersTest() {
+        Tokenizer tokenizer = new Tokenizer(Grammar.withDefault());
+        String[] numbers = {"0", "1", "16777216", "16777217", "123456789012", "0.1", "3.14159265", ".5", "7.",
+                "0.0000000001", "0.00000000001", "1234567.125", "99999999999999999999", "000123.4500"};
+        for (String number : numbers) {
+            Assertions.assertEquals(Collections.singletonList(new ConstantNumber(Float.parseFloat(number))),
+                    tokenizer.tokenize(number), number);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            String number = random.nextInt(100_000) + "." + random.nextInt(100_000);
+            Assertions.assertEquals(Float.parseFloat(number),
+                    ((ConstantNumber) tokenizer.tokenize(number).get(0)).getValue(), number);
+        }
+        Assertions.assertThrows(NumberFormatException.class, () -> tokenizer.tokenize("."));
+    }
+
+    @Test
+    void exponentNotationTest() {
+        Grammar defaultGrammar = Grammar.withDefault();
+        defaultGrammar.variables().add("e5", 3);
+        Tokenizer tokenizer = new Tokenizer(defaultGrammar);
+        Token e = defaultGrammar.getVariable("e");
+        Token times = defaultGrammar.getBinaryOperator("*");
+        Assertions.assertEquals(Arrays.asList(new ConstantNumber(2.5e-3f), times, new ConstantNumber(1e5f)),
+                tokenizer.tokenize("2.5e-3*1E+5"));
+        Assertions.assertEquals(Arrays.asList(new ConstantNumber(2), times, e), tokenizer.tokenize("2*e"));
+        Assertions.assertEquals(Arrays.asList(new ConstantNumber(2), e), tokenizer.tokenize("2e"));
+        Assertions.assertEquals(Arrays.asList(new ConstantNumber(1e5f), defaultGrammar.getVariable("e5")),
+                tokenizer.tokenize("1e5e5"));
+        Assertions.assertThrows(InvalidExpressionSyntaxException.class, () -> tokenizer.tokenize("1e5.5"));
+
+        List<TokenTrack> tokenTracks = new ArrayList<>();
+        List<ValidationError> errors = new ArrayList<>();
+        Assertions.assertEquals(Arrays.asList(new ConstantNumber(1.5e3f), times, e),
+                tokenizer.tokenize("1.5e3 * e", tokenTracks, errors));
+        Assertions.assertEquals(Arrays.asList(new TokenTrack(0, "1.5e3"), new TokenTrack(6, "*"),
+                new TokenTrack(8, "e")), tokenTracks);
+        Assertions.assertTrue(errors.isEmpty());
+        tokenizer.tokenize("1e5.5", null, errors);
+        Assertions.assertEquals(Collections.singletonList(
+                new ValidationError(ValidationError.Type.NUMBER_FORMAT, 0, "1e5.5")), errors);
+
+        Tokenizer commaTokenizer = new Tokenizer(Grammar.withDefault().setFunctionArgsSeparator(';')
+                .setDecimalSeparator(','));
+        Assertions.assertEquals(Collections.singletonList(new ConstantNumber(1.25e-2f)), commaTokenizer.tokenize("1,25e-2"));
+    }
+
+    @Test
+    void adjacentOperatorsTest() {
+        Grammar defaultGrammar = Grammar.withDefault();
+        defaultGrammar.variables().add("a", 1).add("b", 2);
+        Tokenizer tokenizer = new Tokenizer(defaultGrammar);
+        List<Token> expected = Arrays.asList(new ConstantNumber(1), defaultGrammar.getBinaryOperator("<"),
+                defaultGrammar.getUnaryOperator("-"), new ConstantNumber(2));
+        Assertions.assertEquals(expected, tokenizer.tokenize("a<-b"));
+
+        List<TokenTrack> tokenTracks = new ArrayList<>();
+        List<ValidationError> errors = new ArrayList<>();
+        Assertions.assertEquals(expected, tokenizer.tokenize("a<-b", tokenTracks, errors));
+        Assertions.assertEquals(Arrays.asList(new TokenTrack(0, "a"), new TokenTrack(1, "<"),
+                new TokenTrack(2, "-"), new TokenTrack(3, "b")), tokenTracks);
+        Assertions.assertTrue(errors.isEmpty());
+
+        Assertions.assertEquals(Arrays.asList(new ConstantNumber(1), defaultGrammar.getBinaryOperator("<="),
+                        defaultGrammar.getUnaryOperator("!"), new ConstantNumber(2)),
+                tokenizer.tokenize("a<=!b"));
+        Assertions.assertEquals(Arrays.asList(new ConstantNumber(1), defaultGrammar.getBinaryOperator("<>"),
+                new ConstantNumber(2)), tokenizer.tokenize("a<>b"));
+
+        // overridden lookup methods
+        Assertions.assertEquals(Arrays.asList(abc, gte, negative, new ConstantNumber(3)),
+                new Tokenizer(grammar).tokenize("_abc34>=-3"));
+    }
+
+    @Test
+    void unknownAdjacentSymbolTest() {
+        Tokenizer tokenizer = new Tokenizer(Grammar.withDefault());
+        List<TokenTrack> tokenTracks = new ArrayList<>();
+        List<ValidationError> errors = new ArrayList<>();
+        tokenizer.tokenize("3 +#$ 2", tokenTracks, errors);
+        Assertions.assertEquals(Collections.singletonList(
+                new ValidationError(ValidationError.Type.UNKNOWN_SYMBOL, 3, "#$")), errors);
+        Assertions.assertEquals(new TokenTrack(3, "#$"), tokenTracks.get(2));
+
+        InvalidExpressionSyntaxException exception = Assertions.assertThrows(InvalidExpressionSyntaxException.class,
+                () -> tokenizer.tokenize("3 +#$ 2"));
+        Assertions.assertEquals("Unknown symbol: #$ at character 5", exception.getMessage());
+    }
+}
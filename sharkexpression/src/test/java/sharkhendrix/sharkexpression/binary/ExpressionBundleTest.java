@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.binary;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sharkhendrix.sharkexpression.BackendTestKit;
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.ExpressionFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+class ExpressionBundleTest {
+
+    @Test
+    void lazyMappedBundleTest(@TempDir Path directory) throws IOException {
+        ExpressionFactory factory = BackendTestKit.factory(null);
+        ExpressionBundleWriter writer = new ExpressionBundleWriter(factory.getGrammar());
+        for (int i = 0; i < 1000; i++) {
+            writer.add("formula" + i, factory.parse("x * " + i + " + sum3(x, y, k)").getTokens());
+        }
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> writer.add("formula0", factory.parse("1").getTokens()));
+        Path path = directory.resolve("formulas.bin");
+        writer.write(path);
+
+        ExpressionFactory readFactory = BackendTestKit.factory(null);
+        ExpressionBundle bundle = ExpressionBundle.open(path, readFactory);
+        Assertions.assertEquals(1000, bundle.size());
+        Assertions.assertEquals(0, bundle.materializedCount());
+
+        Expression first = bundle.get("formula42");
+        Assertions.assertEquals(2.5f * 42 + 6.5f, first.evaluate());
+        Assertions.assertEquals(1, bundle.materializedCount());
+        Expression second = bundle.get("formula42");
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(first.evaluate(), second.evaluate());
+        Assertions.assertEquals(1, bundle.materializedCount());
+
+        Assertions.assertEquals(6.5f, bundle.get("formula0").evaluate());
+        Assertions.assertEquals(2.5f * 999 + 6.5f, bundle.get("formula999").evaluate());
+        Assertions.assertTrue(bundle.contains("formula500"));
+        Assertions.assertFalse(bundle.contains("formula1000"));
+        Assertions.assertNull(bundle.get("unknown"));
+        Assertions.assertEquals(3, bundle.materializedCount());
+    }
+
+    @Test
+    void emptyAndInvalidBundleTest() {
+        ExpressionFactory factory = BackendTestKit.factory(null);
+        byte[] bytes = new ExpressionBundleWriter(factory.getGrammar()).toByteArray();
+        ExpressionBundle bundle = new ExpressionBundle(ByteBuffer.wrap(bytes), factory);
+        Assertions.assertEquals(0, bundle.size());
+        Assertions.assertNull(bundle.get("x"));
+
+        byte[] program = new ProgramCodec(factory.getGrammar()).encode(factory.parse("x").getTokens());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ExpressionBundle(ByteBuffer.wrap(program), factory));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.binary;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import sharkhendrix.sharkexpression.AlgebraicSimplifier;
+import sharkhendrix.sharkexpression.BackendTestKit;
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.ExpressionFactory;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.VariableLayout;
+import sharkhendrix.sharkexpression.token.Function;
+import sharkhendrix.sharkexpression.token.Token;
+
+import java.nio.ByteBuffer;
+
+class ProgramCodecTest {
+
+    @ParameterizedTest
+    @MethodSource("sharkhendrix.sharkexpression.BackendTestKit#expressions")
+    void roundTripTest(String expressionStr) {
+        Grammar writeGrammar = BackendTestKit.grammar();
+        Expression parsed = new ExpressionFactory(writeGrammar).parse(expressionStr);
+        byte[] bytes = new ProgramCodec(writeGrammar).encode(parsed.getTokens());
+
+        Grammar readGrammar = BackendTestKit.grammar();
+        ExpressionFactory readFactory = new ExpressionFactory(readGrammar);
+        Expression loaded = new ProgramCodec(readGrammar).decode(bytes, readFactory);
+        Assertions.assertEquals(parsed.tokenLength(), loaded.tokenLength());
+        Assertions.assertEquals(parsed.evaluate(), loaded.evaluate());
+    }
+
+    @Test
+    void compactEncodingTest() {
+        Grammar grammar = BackendTestKit.grammar();
+        Token[] tokens = new ExpressionFactory(grammar).parse("x * x + x * y").getTokens();
+        byte[] bytes = new ProgramCodec(grammar).encode(tokens);
+        // header 5, symbols x * y + in 1 + 4 * 3, tokens 1 + 7 * 2
+        Assertions.assertEquals(33, bytes.length);
+    }
+
+    @Test
+    void slotVariablesTest() {
+        VariableLayout layout = new VariableLayout().add("a").add("b");
+        Grammar grammar = Grammar.withDefault(layout);
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        ProgramCodec codec = new ProgramCodec(grammar);
+        Expression loaded = codec.decode(codec.encode(factory.parse("(a + b) * (a + b) - b").getTokens()), factory);
+        Assertions.assertEquals(7, loaded.evaluate(new float[]{1, 2}));
+    }
+
+    @Test
+    void integerPowerTest() {
+        Grammar grammar = BackendTestKit.grammar();
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setAlgebraicSimplification(AlgebraicSimplifier.Safety.RELAXED);
+        Expression parsed = factory.parse("x ^ 3 + y ^ -2");
+        ProgramCodec codec = new ProgramCodec(grammar);
+        Expression loaded = codec.decode(codec.encode(parsed.getTokens()), factory);
+        Assertions.assertArrayEquals(parsed.getTokens(), loaded.getTokens());
+        Assertions.assertEquals(parsed.evaluate(), loaded.evaluate());
+    }
+
+    @Test
+    void bufferTest() {
+        Grammar grammar = BackendTestKit.grammar();
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        ProgramCodec codec = new ProgramCodec(grammar);
+        byte[] first = codec.encode(factory.parse("x + 1").getTokens());
+        byte[] second = codec.encode(factory.parse("sum3(x, y, k)").getTokens());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(first.length + second.length);
+        buffer.put(first).put(second).flip();
+        Assertions.assertEquals(3.5f, factory.build(codec.decode(buffer)).evaluate());
+        Assertions.assertEquals(6.5f, factory.build(codec.decode(buffer)).evaluate());
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void invalidContentTest() {
+        Grammar grammar = BackendTestKit.grammar();
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        byte[] bytes = new ProgramCodec(grammar).encode(factory.parse("sum3(x, y, 1)").getTokens());
+
+        Grammar otherGrammar = Grammar.withDefault();
+        otherGrammar.variables().add("x", 1).add("y", 2);
+        IllegalArgumentException missing = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ProgramCodec(otherGrammar).decode(bytes));
+        Assertions.assertTrue(missing.getMessage().contains("sum3"));
+
+        otherGrammar.functions().add("sum3", (a, b) -> a + b);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ProgramCodec(otherGrammar).decode(bytes));
+
+        bytes[4]++;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ProgramCodec(grammar).decode(bytes));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ProgramCodec(grammar).decode(new byte[8]));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ProgramCodec(grammar).encode(new Token[]{(Function.OneArg) a -> a}));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.codegen;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sharkhendrix.sharkexpression.BackendTestKit;
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.InvalidExpressionSyntaxException;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class JavaSourceGeneratorTest {
+
+    private static List<String> expressions;
+    private static List<String> shortCircuitExpressions;
+    private static Class<?> generatedClass;
+    private static Class<?> shortCircuitClass;
+    private static List<String> slotExpressions;
+    private static Class<?> slotClass;
+
+    @BeforeAll
+    static void generateAndCompile(@TempDir Path dir) throws Exception {
+        expressions = BackendTestKit.expressions().collect(Collectors.toList());
+        generatedClass = generateAndCompile(dir, "TestExpressions", BackendTestKit.grammar(), expressions);
+        shortCircuitExpressions = BackendTestKit.shortCircuitExpressions().collect(Collectors.toList());
+        shortCircuitClass = generateAndCompile(dir, "ShortCircuitExpressions",
+                BackendTestKit.costGrammar(new int[1]), shortCircuitExpressions);
+        slotExpressions = BackendTestKit.slotExpressions().collect(Collectors.toList());
+        slotClass = generateAndCompile(dir, "SlotExpressions", BackendTestKit.slotGrammar(), slotExpressions);
+    }
+
+    private static Class<?> generateAndCompile(Path dir, String className, Grammar grammar, List<String> expressions)
+            throws Exception {
+        Map<String, String> namedExpressions = new LinkedHashMap<>();
+        for (int i = 0; i < expressions.size(); i++) {
+            namedExpressions.put("e" + i, expressions.get(i));
+        }
+        String source = new JavaSourceGenerator(grammar).generate("generated", className, namedExpressions);
+
+        Path sourceFile = dir.resolve("generated").resolve(className + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classpath = new File(Expression.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        int result = compiler.run(null, null, null, "-cp", classpath, "-d", dir.toString(), sourceFile.toString());
+        Assertions.assertEquals(0, result, source);
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, JavaSourceGeneratorTest.class.getClassLoader());
+        return classLoader.loadClass("generated." + className);
+    }
+
+    @Test
+    void generatedMatchesInterpreted() throws Exception {
+        Grammar runtimeGrammar = BackendTestKit.grammar();
+        for (int i = 0; i < expressions.size(); i++) {
+            Method method = generatedClass.getMethod("e" + i, Grammar.class);
+            Expression generated = (Expression) method.invoke(null, runtimeGrammar);
+            Expression interpreted = BackendTestKit.factory(null).parse(expressions.get(i));
+            Assertions.assertEquals(interpreted.evaluate(), generated.evaluate(), expressions.get(i));
+            Assertions.assertEquals(interpreted.tokenLength(), generated.tokenLength(), expressions.get(i));
+        }
+    }
+
+    @Test
+    void onlyTakenBranchesAreEvaluatedTest() {
+        int[] calls = new int[1];
+        Grammar runtimeGrammar = BackendTestKit.costGrammar(calls);
+        BackendTestKit.assertOnlyTakenBranchesEvaluated(expressionStr -> {
+            try {
+                Method method = shortCircuitClass.getMethod("e" + shortCircuitExpressions.indexOf(expressionStr),
+                        Grammar.class);
+                return (Expression) method.invoke(null, runtimeGrammar);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }, calls);
+    }
+
+    @Test
+    void slotsTest() {
+        Grammar runtimeGrammar = BackendTestKit.slotGrammar();
+        BackendTestKit.assertParsedSlotsEvaluated(expressionStr -> {
+            try {
+                Method method = slotClass.getMethod("e" + slotExpressions.indexOf(expressionStr), Grammar.class);
+                return (Expression) method.invoke(null, runtimeGrammar);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void unknownRuntimeSymbolTest() throws Exception {
+        Method method = generatedClass.getMethod("e1", Grammar.class);
+        Grammar emptyGrammar = Grammar.withDefault(new sharkhendrix.sharkexpression.grammar.Variables());
+        Exception exception = Assertions.assertThrows(Exception.class, () -> method.invoke(null, emptyGrammar));
+        Assertions.assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    @Test
+    void invalidExpressionTest() {
+        JavaSourceGenerator generator = new JavaSourceGenerator(BackendTestKit.grammar());
+        Assertions.assertThrows(InvalidExpressionSyntaxException.class,
+                () -> generator.generate("", "Invalid", Collections.singletonMap("e", "x +")));
+    }
+
+    @Test
+    void methodNameTest() {
+        Assertions.assertEquals("damage_per_second", JavaSourceGenerator.methodName("damage.per-second"));
+        Assertions.assertEquals("_2x", JavaSourceGenerator.methodName("2x"));
+        Assertions.assertEquals("class_", JavaSourceGenerator.methodName("class"));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.compiler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import sharkhendrix.sharkexpression.BackendTestKit;
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.ExpressionFactory;
+import sharkhendrix.sharkexpression.StandaloneExpression;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.token.Function;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class ExpressionCompilerTest {
+
+    @ParameterizedTest
+    @MethodSource("sharkhendrix.sharkexpression.BackendTestKit#expressions")
+    void compiledMatchesInterpreted(String expressionStr) {
+        Expression interpreted = BackendTestKit.factory(null).parse(expressionStr);
+        Expression compiled = BackendTestKit.factory(ExpressionCompiler::compile).parse(expressionStr);
+        Assertions.assertNotEquals(StandaloneExpression.class, compiled.getClass());
+        Assertions.assertEquals(interpreted.evaluate(), compiled.evaluate());
+        Assertions.assertEquals(interpreted.tokenLength(), compiled.tokenLength());
+
+        FloatStack stack = new FloatStack();
+        stack.push(42);
+        Assertions.assertEquals(interpreted.evaluate(), compiled.evaluate(stack));
+        Assertions.assertEquals(1, stack.size());
+    }
+
+    @Test
+    void onlyTakenBranchesAreEvaluatedTest() {
+        BackendTestKit.assertOnlyTakenBranchesEvaluated(ExpressionCompiler::compile);
+    }
+
+    @Test
+    void genericTokensUseTheWorkingStackTest() {
+        List<FloatStack> stacks = new ArrayList<>();
+        Grammar grammar = BackendTestKit.grammar();
+        grammar.functions().add("diff", new Function.NArgs() {
+            @Override
+            public float execute(FloatStack output) {
+                stacks.add(output);
+                float b = output.pop();
+                return output.pop() - b;
+            }
+
+            @Override
+            public float compute(float... args) {
+                return args[0] - args[1];
+            }
+
+            @Override
+            public int numArgs() {
+                return 2;
+            }
+        });
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setExpressionConstructor(ExpressionCompiler::compile);
+        Expression compiled = factory.parse("diff(x, y) * 2");
+
+        FloatStack stack = new FloatStack();
+        stack.push(42);
+        Assertions.assertEquals(11, compiled.evaluate(stack));
+        Assertions.assertSame(stack, stacks.get(0));
+        Assertions.assertEquals(1, stack.size());
+
+        Assertions.assertEquals(11, compiled.evaluate());
+        Assertions.assertEquals(11, compiled.evaluate());
+        Assertions.assertNotSame(stack, stacks.get(1));
+        Assertions.assertSame(stacks.get(1), stacks.get(2));
+    }
+
+    @Test
+    void classLoaderIsSharedTest() {
+        ExpressionFactory factory = BackendTestKit.factory(ExpressionCompiler::compile);
+        Set<Class<?>> classes = new HashSet<>();
+        Set<ClassLoader> classLoaders = new HashSet<>();
+        for (int i = 0; i < 64; i++) {
+            Class<?> type = factory.parse("x + " + i).getClass();
+            classes.add(type);
+            classLoaders.add(type.getClassLoader());
+        }
+        Assertions.assertEquals(64, classes.size());
+        Assertions.assertTrue(classLoaders.size() <= 2);
+    }
+
+    @Test
+    void slotsTest() {
+        BackendTestKit.assertSlotsEvaluated(ExpressionCompiler::compile);
+    }
+}
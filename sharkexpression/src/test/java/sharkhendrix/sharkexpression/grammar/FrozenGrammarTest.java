@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.grammar;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import sharkhendrix.sharkexpression.BackendTestKit;
+import sharkhendrix.sharkexpression.ExpressionFactory;
+import sharkhendrix.sharkexpression.grammar.defaults.DefaultOperators;
+
+class FrozenGrammarTest {
+
+    @Test
+    void parseTest() {
+        Grammar grammar = BackendTestKit.grammar();
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        ExpressionFactory frozenFactory = new ExpressionFactory(grammar.freeze());
+        BackendTestKit.expressions().forEach(str ->
+                Assertions.assertEquals(factory.parse(str).evaluate(), frozenFactory.parse(str).evaluate(), str));
+        Assertions.assertTrue(frozenFactory.validate("[x + 1] * max(x, y)").isEmpty());
+    }
+
+    @Test
+    void snapshotTest() {
+        Grammar grammar = Grammar.withDefault().setAllowedSpecialCharsInWords('_', '@');
+        grammar.variables().add("a@b", 3);
+        FrozenGrammar frozen = grammar.freeze();
+        Assertions.assertSame(frozen, frozen.freeze());
+        long frozenVersion = frozen.version();
+
+        grammar.variables().remove("a@b").add("a@b", 4);
+        grammar.setDecimalSeparator(',').setParenthesisPairs('{', '}');
+        Assertions.assertEquals(3.5f, new ExpressionFactory(frozen).parse("(a@b + 0.5)").evaluate());
+        Assertions.assertEquals(frozenVersion, frozen.version());
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.variables().add("c", 1));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.variables().remove("a@b"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.functions().remove("max"));
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> frozen.operators().add("#", DefaultOperators.PLUS));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.operators().removeUnary("-"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.setDecimalSeparator(','));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.setParenthesisPairs('<', '>'));
+    }
+
+    @Test
+    void charClassTest() {
+        Grammar grammar = Grammar.withDefault().setAllowedSpecialCharsInWords('_', '$');
+        FrozenGrammar frozen = grammar.freeze();
+        for (int c = 0; c < 0x3000; c++) {
+            Assertions.assertEquals(grammar.charClass(c), frozen.charClass(c), "char " + c);
+        }
+        Assertions.assertEquals(CharClass.WORD, frozen.charClass('$'));
+        Assertions.assertEquals(CharClass.LEFT_PARENTHESIS, frozen.charClass('['));
+        Assertions.assertEquals(CharClass.DECIMAL_SEPARATOR, frozen.charClass('.'));
+        Assertions.assertEquals(CharClass.FUNCTION_ARGS_SEPARATOR, frozen.charClass(','));
+        Assertions.assertEquals(CharClass.SYMBOL, frozen.charClass('+'));
+        Assertions.assertTrue(frozen.matchParenthesis('[', ']'));
+        Assertions.assertFalse(frozen.matchParenthesis('(', ']'));
+    }
+
+    @Test
+    void concurrentParseTest() throws InterruptedException {
+        ExpressionFactory factory = new ExpressionFactory(BackendTestKit.grammar().freeze());
+        boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    if (factory.parse("max(x, " + i + ") * [k - 7 + 1]").evaluate() != Math.max(2.5f, i)) {
+                        failed[0] = true;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertFalse(failed[0]);
+    }
+}
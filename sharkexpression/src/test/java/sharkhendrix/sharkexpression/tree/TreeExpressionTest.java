@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.tree;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import sharkhendrix.sharkexpression.BackendTestKit;
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.ExpressionFactory;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import static sharkhendrix.sharkexpression.GrammarTestKit.*;
+
+class TreeExpressionTest {
+
+    @ParameterizedTest
+    @MethodSource("sharkhendrix.sharkexpression.BackendTestKit#expressions")
+    void treeMatchesInterpreted(String expressionStr) {
+        Expression interpreted = BackendTestKit.factory(null).parse(expressionStr);
+        Expression tree = BackendTestKit.factory(TreeExpression::new).parse(expressionStr);
+        Assertions.assertEquals(TreeExpression.class, tree.getClass());
+        Assertions.assertEquals(interpreted.evaluate(), tree.evaluate());
+        Assertions.assertEquals(interpreted.evaluate(), tree.evaluate(new FloatStack()));
+    }
+
+    @Test
+    void functionArgsOrderTest() {
+        // 2 + max(3, 3 + 1) - _abc34
+        Token[] tokens = new Token[]{
+                new ConstantNumber(2),
+                new ConstantNumber(3),
+                new ConstantNumber(3),
+                new ConstantNumber(1),
+                plus,
+                max,
+                plus,
+                abc,
+                minus
+        };
+        Assertions.assertEquals(0, new TreeExpression(tokens).evaluate());
+    }
+
+    @Test
+    void onlyTakenBranchIsEvaluated() {
+        int[] calls = new int[1];
+        ExpressionFactory factory = new ExpressionFactory(new Variables().add("counted", () -> ++calls[0]));
+        factory.setExpressionConstructor(TreeExpression::new);
+        Expression exp = factory.parse("1 ? 2 : counted");
+        Assertions.assertEquals(2, exp.evaluate());
+        Assertions.assertEquals(0, calls[0]);
+    }
+
+    @Test
+    void commonSubexpressionsAreEvaluatedOnce() {
+        int[] calls = new int[1];
+        Grammar grammar = Grammar.withDefault(new Variables().add("x", () -> 3));
+        grammar.functions().add("cost", arg -> {
+            calls[0]++;
+            return arg;
+        });
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setExpressionConstructor(TreeExpression::new);
+        factory.setCommonSubexpressionElimination(true);
+
+        Assertions.assertEquals(12, factory.parse("cost(x) * cost(x) + cost(x)").evaluate());
+        Assertions.assertEquals(1, calls[0]);
+        Assertions.assertEquals(17, factory.parse("cost(x) * cost(x) + cost(cost(x) + 1) * 2").evaluate());
+        Assertions.assertEquals(3, calls[0]);
+        Assertions.assertEquals(12, factory.parse("cost(x) * cost(x) + cost(x)").evaluate(new FloatStack()));
+        Assertions.assertEquals(4, calls[0]);
+    }
+
+    @Test
+    void deepExpressionTest() {
+        StringBuilder expressionStr = new StringBuilder("x");
+        for (int i = 0; i < 100_000; i++) {
+            expressionStr.append(" + y");
+        }
+        ExpressionFactory factory = new ExpressionFactory(new Variables().add("x", () -> 1).add("y", () -> 2));
+        factory.setExpressionConstructor(TreeExpression::new);
+        TreeExpression deep = (TreeExpression) factory.parse(expressionStr.toString());
+        Assertions.assertFalse(deep.isTree());
+        Assertions.assertEquals(200_001, deep.evaluate());
+        Assertions.assertEquals(200_001, deep.evaluate(new FloatStack()));
+        Assertions.assertTrue(((TreeExpression) factory.parse("x + y + y")).isTree());
+    }
+
+    @Test
+    void slotsTest() {
+        BackendTestKit.assertSlotsEvaluated(TreeExpression::new);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package sharkhendrix.sharkexpression.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class FloatParserTest {
+
+    private static float parse(String str, char decimalSeparator) {
+        return FloatParser.parseFloat(str.toCharArray(), 0, str.length(), decimalSeparator);
+    }
+
+    private static void assertParsedLikeJava(String str) {
+        Assertions.assertEquals(Float.floatToIntBits(Float.parseFloat(str)), Float.floatToIntBits(parse(str, '.')), str);
+    }
+
+    @Test
+    void edgeCasesTest() {
+        String[] numbers = {"0", "0.0", "000", "1", "16777216", "16777217", "16777219", "123456789012",
+                "0.1", "3.14159265", ".5", "7.", "0.0000000001", "0.00000000001", "1234567.125",
+                "99999999999999999999", "000123.4500", "1e0", "1E10", "1e+3", "2.5e-3", ".5e1", "7.e2",
+                "1e38", "3.4028235e38", "3.4028236e38", "1e39", "1.17549435e-38", "1.4e-45", "7e-46", "1e-50",
+                "1e100000", "1e-100000", "0e500", "8.589973e9", "1.00000017881393421514957253748434595763683319091796875001",
+                "33554431", "33554433", "9007199254740993", "4.7223665e21", "1e22", "1e23"};
+        for (String number : numbers) {
+            assertParsedLikeJava(number);
+        }
+    }
+
+    @Test
+    void randomNumbersTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String number;
+            switch (i % 4) {
+                case 0:
+                    number = Float.toString(Float.intBitsToFloat(random.nextInt() & 0x7FFFFFFF));
+                    break;
+                case 1:
+                    number = Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(60) - 30));
+                    break;
+                case 2:
+                    number = random.nextInt(100_000) + "." + random.nextInt(100_000) + "e" + (random.nextInt(40) - 20);
+                    break;
+                default:
+                    number = Long.toString(random.nextLong() & Long.MAX_VALUE) + "." + random.nextInt(1000);
+                    break;
+            }
+            if (number.contains("Infinity") || number.contains("NaN")) {
+                continue;
+            }
+            assertParsedLikeJava(number);
+        }
+    }
+
+    @Test
+    void decimalSeparatorTest() {
+        Assertions.assertEquals(1.5f, parse("1,5", ','));
+        Assertions.assertEquals(2.5e-3f, parse("2,5e-3", ','));
+        Assertions.assertEquals(Float.parseFloat("0.12345678901234567890123"), parse("0,12345678901234567890123", ','));
+        Assertions.assertThrows(NumberFormatException.class, () -> parse("1.5", ','));
+    }
+
+    @Test
+    void invalidNumbersTest() {
+        String[] numbers = {"", ".", "1..2", "1e", "1e+", "e5", "1e5e5", "1x", "1e5.5"};
+        for (String number : numbers) {
+            Assertions.assertThrows(NumberFormatException.class, () -> parse(number, '.'), number);
+        }
+    }
+
+    @Test
+    void exponentEndTest() {
+        char[] chars = "1e+12x1E3e-".toCharArray();
+        Assertions.assertEquals(5, FloatParser.exponentEnd(chars, 1, chars.length));
+        Assertions.assertEquals(9, FloatParser.exponentEnd(chars, 7, chars.length));
+        Assertions.assertEquals(-1, FloatParser.exponentEnd(chars, 9, chars.length));
+        Assertions.assertEquals(-1, FloatParser.exponentEnd(chars, 0, chars.length));
+        Assertions.assertEquals(-1, FloatParser.exponentEnd(chars, 1, 3));
+    }
+}
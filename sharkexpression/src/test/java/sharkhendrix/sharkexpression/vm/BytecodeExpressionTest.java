@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 Joannick Gardize
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package sharkhendrix.sharkexpression.vm;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import sharkhendrix.sharkexpression.BackendTestKit;
+import sharkhendrix.sharkexpression.Expression;
+import sharkhendrix.sharkexpression.ExpressionFactory;
+import sharkhendrix.sharkexpression.grammar.Grammar;
+import sharkhendrix.sharkexpression.grammar.Variables;
+import sharkhendrix.sharkexpression.token.ConstantNumber;
+import sharkhendrix.sharkexpression.token.Token;
+import sharkhendrix.sharkexpression.util.FloatStack;
+
+import static sharkhendrix.sharkexpression.GrammarTestKit.*;
+
+class BytecodeExpressionTest {
+
+    @ParameterizedTest
+    @MethodSource("sharkhendrix.sharkexpression.BackendTestKit#expressions")
+    void bytecodeMatchesInterpreted(String expressionStr) {
+        Expression interpreted = BackendTestKit.factory(null).parse(expressionStr);
+        Expression bytecode = BackendTestKit.factory(BytecodeExpression::new).parse(expressionStr);
+        Assertions.assertEquals(interpreted.evaluate(), bytecode.evaluate());
+        Assertions.assertEquals(interpreted.evaluate(), bytecode.evaluate(new FloatStack()));
+    }
+
+    @Test
+    void userTokensTest() {
+        // infix: abc >= 3 ? 0 ? 1 : 2 * 3 + vâr : 3
+        // postfix: abc 3 >= 0 1 2 3 * vâr + ?: 3 ?:
+        Token[] tokens = new Token[]{
+                abc,
+                new ConstantNumber(3),
+                gte,
+                new ConstantNumber(0),
+                new ConstantNumber(1),
+                new ConstantNumber(2),
+                new ConstantNumber(3),
+                multiply,
+                vaar,
+                plus,
+                ternary,
+                new ConstantNumber(3),
+                ternary
+        };
+        Assertions.assertEquals(14, new BytecodeExpression(tokens).evaluate());
+    }
+
+    @Test
+    void onlyTakenBranchesAreEvaluatedTest() {
+        BackendTestKit.assertOnlyTakenBranchesEvaluated(BytecodeExpression::new);
+    }
+
+    @Test
+    void reentrantEvaluationTest() {
+        int[] depth = new int[1];
+        Expression[] expression = new Expression[1];
+        FloatStack stack = new FloatStack(1);
+        stack.push(42);
+        Grammar grammar = Grammar.withDefault(new Variables().add("n", () -> depth[0]));
+        grammar.functions().add("f", arg -> {
+            if (depth[0] > 0) {
+                return 10;
+            }
+            depth[0]++;
+            float inner = expression[0].evaluate(stack);
+            depth[0]--;
+            return inner;
+        });
+        ExpressionFactory factory = new ExpressionFactory(grammar);
+        factory.setExpressionConstructor(BytecodeExpression::new);
+        expression[0] = factory.parse("(n + 1) * f(n)");
+        Assertions.assertEquals(20, expression[0].evaluate(stack));
+        Assertions.assertEquals(1, stack.size());
+        Assertions.assertEquals(42, stack.pop());
+    }
+
+    @Test
+    void missingOperandTest() {
+        Token[] tokens = new Token[]{new ConstantNumber(3), plus};
+        Assertions.assertTrue(Float.isNaN(new BytecodeExpression(tokens).evaluate()));
+    }
+
+    @Test
+    void slotsTest() {
+        BackendTestKit.assertSlotsEvaluated(BytecodeExpression::new);
+    }
+}